@@ -0,0 +1,117 @@
+package org.bouncycastle.benchmarks.cms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSSignedDataStreamGenerator;
+import org.bouncycastle.cms.SignerInfoGenerator;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Streaming generation of encapsulated CMS signed data with a single SHA256withECDSA signer,
+ * using the BC provider.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CMSSignedDataStreamBenchmark
+{
+    private static final String BC = BouncyCastleProvider.PROVIDER_NAME;
+
+    @Param({ "1024", "65536", "1048576" })
+    int size;
+
+    private SignerInfoGenerator signerInfoGenerator;
+    private JcaCertStore certStore;
+
+    private byte[] data;
+    private ByteArrayOutputStream bOut;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        if (Security.getProvider(BC) == null)
+        {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        SecureRandom random = new SecureRandom();
+
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC", BC);
+        kpGen.initialize(new ECGenParameterSpec("P-256"), random);
+        KeyPair kp = kpGen.generateKeyPair();
+
+        X500Name name = new X500Name("CN=BC Benchmark");
+        long now = System.currentTimeMillis();
+        X509Certificate cert = new JcaX509CertificateConverter().setProvider(BC).getCertificate(
+            new JcaX509v3CertificateBuilder(name, BigInteger.ONE, new Date(now - 60000L), new Date(now + 86400000L),
+                name, kp.getPublic()).build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider(BC).build(kp.getPrivate())));
+
+        signerInfoGenerator = new JcaSimpleSignerInfoGeneratorBuilder().setProvider(BC)
+            .build("SHA256withECDSA", kp.getPrivate(), cert);
+        certStore = new JcaCertStore(Collections.singletonList(cert));
+
+        data = new byte[size];
+        random.nextBytes(data);
+        bOut = new ByteArrayOutputStream(size + 4096);
+    }
+
+    @Benchmark
+    public int generate()
+        throws Exception
+    {
+        bOut.reset();
+
+        CMSSignedDataStreamGenerator gen = new CMSSignedDataStreamGenerator();
+        gen.addSignerInfoGenerator(signerInfoGenerator);
+        gen.addCertificates(certStore);
+
+        OutputStream sigOut = gen.open(bOut, true);
+        write(sigOut);
+        sigOut.close();
+
+        return bOut.size();
+    }
+
+    private void write(OutputStream out)
+        throws IOException
+    {
+        // written in chunks, as an application streaming its content would
+        for (int off = 0; off < size; off += 4096)
+        {
+            out.write(data, off, Math.min(4096, size - off));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.CryptoException;
+import org.bouncycastle.crypto.agreement.X25519Agreement;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519BatchVerifier;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ed25519 sign and verify over a 32 byte message, and X25519 agreement. The batch verification
+ * benchmark reports the rate per signature.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Curve25519Benchmark
+{
+    private static final int BATCH_SIZE = 64;
+
+    private Ed25519Signer signer;
+    private Ed25519Signer verifier;
+    private byte[] signature;
+    private Ed25519BatchVerifier batchVerifier;
+
+    private X25519Agreement agreement;
+    private X25519PublicKeyParameters peerKey;
+    private byte[] secret = new byte[X25519PrivateKeyParameters.SECRET_SIZE];
+
+    private byte[] message = new byte[32];
+
+    @Setup
+    public void setup()
+        throws CryptoException
+    {
+        SecureRandom random = new SecureRandom();
+        random.nextBytes(message);
+
+        Ed25519PrivateKeyParameters privKey = new Ed25519PrivateKeyParameters(random);
+        signer = new Ed25519Signer();
+        signer.init(true, privKey);
+        verifier = new Ed25519Signer();
+        verifier.init(false, privKey.generatePublicKey());
+        signature = ed25519Sign();
+
+        batchVerifier = new Ed25519BatchVerifier(random);
+        for (int i = 0; i < BATCH_SIZE; ++i)
+        {
+            Ed25519PrivateKeyParameters batchKey = new Ed25519PrivateKeyParameters(random);
+            Ed25519Signer batchSigner = new Ed25519Signer();
+            batchSigner.init(true, batchKey);
+            batchSigner.update(message, 0, message.length);
+
+            Ed25519PublicKeyParameters batchPubKey = batchKey.generatePublicKey();
+            batchVerifier.add(batchPubKey, message, batchSigner.generateSignature());
+        }
+
+        agreement = new X25519Agreement();
+        agreement.init(new X25519PrivateKeyParameters(random));
+        peerKey = new X25519PrivateKeyParameters(random).generatePublicKey();
+    }
+
+    @Benchmark
+    public byte[] ed25519Sign()
+        throws CryptoException
+    {
+        signer.update(message, 0, message.length);
+        return signer.generateSignature();
+    }
+
+    @Benchmark
+    public boolean ed25519Verify()
+    {
+        verifier.update(message, 0, message.length);
+        return verifier.verifySignature(signature);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public boolean ed25519VerifyBatch()
+    {
+        return batchVerifier.verify();
+    }
+
+    @Benchmark
+    public byte[] x25519Agreement()
+    {
+        agreement.calculateAgreement(peerKey, secret, 0);
+        return secret;
+    }
+}
@@ -0,0 +1,78 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.Blake3Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Complete hash throughput (update followed by doFinal) for SHA-256, SHA3-256 and BLAKE3.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DigestBenchmark
+{
+    @Param({ "64", "1024", "16384", "1048576" })
+    int size;
+
+    private Digest sha256;
+    private Digest sha3;
+    private Digest blake3;
+
+    private byte[] input;
+    private byte[] output = new byte[32];
+
+    @Setup
+    public void setup()
+    {
+        sha256 = new SHA256Digest();
+        sha3 = new SHA3Digest(256);
+        blake3 = new Blake3Digest(32);
+
+        input = new byte[size];
+        new SecureRandom().nextBytes(input);
+    }
+
+    @Benchmark
+    public byte[] sha256()
+    {
+        return hash(sha256);
+    }
+
+    @Benchmark
+    public byte[] sha3()
+    {
+        return hash(sha3);
+    }
+
+    @Benchmark
+    public byte[] blake3()
+    {
+        return hash(blake3);
+    }
+
+    private byte[] hash(Digest digest)
+    {
+        digest.update(input, 0, size);
+        digest.doFinal(output, 0);
+        return output;
+    }
+}
@@ -0,0 +1,99 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
+import org.bouncycastle.crypto.signers.ECDSABatchVerifier;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ECDSA sign and verify over a 32 byte message for the commonly used named curves. The batch
+ * verification benchmark reports the rate per signature.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ECDSABenchmark
+{
+    private static final int BATCH_SIZE = 64;
+
+    @Param({ "secp256r1", "secp256k1", "secp384r1" })
+    String curve;
+
+    private ECDSASigner signer;
+    private ECDSASigner verifier;
+    private BigInteger[] signature;
+    private ECDSABatchVerifier batchVerifier;
+
+    private byte[] message = new byte[32];
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+        random.nextBytes(message);
+
+        ECKeyPairGenerator kpGen = new ECKeyPairGenerator();
+        kpGen.init(new ECKeyGenerationParameters(new ECDomainParameters(CustomNamedCurves.getByName(curve)), random));
+        AsymmetricCipherKeyPair kp = kpGen.generateKeyPair();
+
+        signer = new ECDSASigner();
+        signer.init(true, new ParametersWithRandom(kp.getPrivate(), random));
+        verifier = new ECDSASigner();
+        verifier.init(false, kp.getPublic());
+        signature = signer.generateSignature(message);
+
+        batchVerifier = new ECDSABatchVerifier();
+        for (int i = 0; i < BATCH_SIZE; ++i)
+        {
+            AsymmetricCipherKeyPair batchKp = kpGen.generateKeyPair();
+            ECDSASigner batchSigner = new ECDSASigner();
+            batchSigner.init(true, new ParametersWithRandom(batchKp.getPrivate(), random));
+            BigInteger[] batchSig = batchSigner.generateSignature(message);
+
+            batchVerifier.add((ECPublicKeyParameters)batchKp.getPublic(), message, batchSig[0], batchSig[1]);
+        }
+    }
+
+    @Benchmark
+    public BigInteger[] sign()
+    {
+        return signer.generateSignature(message);
+    }
+
+    @Benchmark
+    public boolean verify()
+    {
+        return verifier.verifySignature(message, signature[0], signature[1]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public boolean verifyBatch()
+    {
+        return batchVerifier.verify();
+    }
+}
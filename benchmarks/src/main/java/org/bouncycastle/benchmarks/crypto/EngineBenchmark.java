@@ -0,0 +1,128 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESKeySchedule;
+import org.bouncycastle.crypto.engines.ChaCha7539Engine;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw engine throughput: AES one block at a time, AES in CTR mode (which uses multi-block
+ * processing where the engine supports it) and ChaCha20. aesNewKey and aesSharedKeySchedule
+ * compare expanding the key for every engine with binding engines to a shared AESKeySchedule.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark
+{
+    @Param({ "16", "1024", "16384" })
+    int size;
+
+    @Param({ "128", "256" })
+    int keySize;
+
+    private BlockCipher aes;
+    private KeyParameter aesKeyParam;
+    private AESKeySchedule aesKeySchedule;
+    private SICBlockCipher aesCTR;
+    private ChaCha7539Engine chacha;
+
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+
+        byte[] aesKey = new byte[keySize / 8];
+        byte[] chachaKey = new byte[32];
+        byte[] ctrIV = new byte[16];
+        byte[] chachaIV = new byte[12];
+        random.nextBytes(aesKey);
+        random.nextBytes(chachaKey);
+        random.nextBytes(ctrIV);
+        random.nextBytes(chachaIV);
+
+        aesKeyParam = new KeyParameter(aesKey);
+        aesKeySchedule = new AESKeySchedule(aesKey, true);
+
+        aes = new AESEngine();
+        aes.init(true, aesKeyParam);
+
+        aesCTR = new SICBlockCipher(new AESEngine());
+        aesCTR.init(true, new ParametersWithIV(new KeyParameter(aesKey), ctrIV));
+
+        chacha = new ChaCha7539Engine();
+        chacha.init(true, new ParametersWithIV(new KeyParameter(chachaKey), chachaIV));
+
+        input = new byte[size];
+        output = new byte[size];
+        random.nextBytes(input);
+    }
+
+    @Benchmark
+    public byte[] aesECB()
+    {
+        for (int off = 0; off < size; off += 16)
+        {
+            aes.processBlock(input, off, output, off);
+        }
+        return output;
+    }
+
+    @Benchmark
+    public byte[] aesNewKey()
+    {
+        // key expansion plus a single block, as for a key per request
+        AESEngine engine = new AESEngine();
+        engine.init(true, aesKeyParam);
+        engine.processBlock(input, 0, output, 0);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] aesSharedKeySchedule()
+    {
+        AESEngine engine = new AESEngine();
+        engine.init(true, aesKeySchedule);
+        engine.processBlock(input, 0, output, 0);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] aesCTR()
+    {
+        // the counter space is large enough that it will not run out during a measurement
+        aesCTR.processBytes(input, 0, size, output, 0);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] chacha20()
+    {
+        chacha.reset();
+        chacha.processBytes(input, 0, size, output, 0);
+        return output;
+    }
+}
@@ -0,0 +1,104 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.io.FileChannelDigestUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing a file (which will be in the page cache after the first iteration) through a FileInputStream
+ * against FileChannelDigestUtil.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileDigestBenchmark
+{
+    @Param({ "SHA-256", "SHA-512" })
+    String digest;
+
+    @Param({ "1048576", "67108864" })
+    int size;
+
+    private File file;
+    private Digest md;
+    private byte[] buf = new byte[8192];
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        md = "SHA-256".equals(digest) ? (Digest)new SHA256Digest() : new SHA512Digest();
+
+        file = File.createTempFile("bcbench", ".dat");
+
+        byte[] data = new byte[1024 * 1024];
+        new SecureRandom().nextBytes(data);
+
+        FileOutputStream fOut = new FileOutputStream(file);
+        for (int i = 0; i < size / data.length; i++)
+        {
+            fOut.write(data);
+        }
+        fOut.close();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] stream()
+        throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            int len;
+            while ((len = in.read(buf, 0, buf.length)) > 0)
+            {
+                md.update(buf, 0, len);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+
+        byte[] result = new byte[md.getDigestSize()];
+        md.doFinal(result, 0);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] fileChannel()
+        throws IOException
+    {
+        return FileChannelDigestUtil.calculateDigest(md, file);
+    }
+}
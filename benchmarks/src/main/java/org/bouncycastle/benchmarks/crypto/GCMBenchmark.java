@@ -0,0 +1,157 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.PreparedGCMKey;
+import org.bouncycastle.crypto.modes.gcm.BasicGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables16kGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables64kGCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables8kGCMMultiplier;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AES-GCM message throughput for each of the GCM multipliers. The key is set up once, each
+ * operation is a fresh nonce followed by a complete message, as it would be in a record layer.
+ * encryptPreparedKey creates a new cipher on a {@link PreparedGCMKey} for every message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GCMBenchmark
+{
+    @Param({ "Basic", "Tables4k", "Tables8k", "Tables16k", "Tables64k" })
+    String multiplier;
+
+    @Param({ "64", "1024", "16384" })
+    int size;
+
+    private GCMBlockCipher encryptor;
+    private GCMBlockCipher decryptor;
+    private PreparedGCMKey preparedKey;
+
+    private byte[] nonce = new byte[12];
+    private long counter;
+
+    private byte[] plainText;
+    private byte[] cipherText;
+    private byte[] cipherTextNonce;
+    private byte[] output;
+
+    @Setup
+    public void setup()
+        throws InvalidCipherTextException
+    {
+        SecureRandom random = new SecureRandom();
+
+        KeyParameter key = new KeyParameter(new byte[16]);
+        random.nextBytes(key.getKey());
+
+        encryptor = new GCMBlockCipher(new AESEngine(), createMultiplier(multiplier));
+        decryptor = new GCMBlockCipher(new AESEngine(), createMultiplier(multiplier));
+
+        random.nextBytes(nonce);
+
+        // prime both with the key, later inits only change the nonce
+        encryptor.init(true, new AEADParameters(key, 128, nextNonce()));
+
+        plainText = new byte[size];
+        random.nextBytes(plainText);
+        output = new byte[size + 16];
+
+        cipherTextNonce = nextNonce();
+        encryptor.init(true, new AEADParameters(null, 128, cipherTextNonce));
+        cipherText = new byte[size + 16];
+        int len = encryptor.processBytes(plainText, 0, size, cipherText, 0);
+        encryptor.doFinal(cipherText, len);
+
+        decryptor.init(false, new AEADParameters(key, 128, cipherTextNonce));
+
+        preparedKey = new PreparedGCMKey(key, createMultiplier(multiplier));
+    }
+
+    @Benchmark
+    public byte[] encrypt()
+        throws InvalidCipherTextException
+    {
+        encryptor.init(true, new AEADParameters(null, 128, nextNonce()));
+        int len = encryptor.processBytes(plainText, 0, size, output, 0);
+        encryptor.doFinal(output, len);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decrypt()
+        throws InvalidCipherTextException
+    {
+        // doFinal() resets the cipher back to the same nonce, which is fine for decryption
+        int len = decryptor.processBytes(cipherText, 0, cipherText.length, output, 0);
+        decryptor.doFinal(output, len);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptPreparedKey()
+        throws InvalidCipherTextException
+    {
+        // a new cipher per message, as a server sharing the key between threads would use it
+        GCMBlockCipher gcm = new GCMBlockCipher(preparedKey);
+        gcm.init(true, new AEADParameters(null, 128, nextNonce()));
+        int len = gcm.processBytes(plainText, 0, size, output, 0);
+        gcm.doFinal(output, len);
+        return output;
+    }
+
+    private byte[] nextNonce()
+    {
+        Pack.longToBigEndian(++counter, nonce, 4);
+        return Arrays.clone(nonce);
+    }
+
+    private static GCMMultiplier createMultiplier(String name)
+    {
+        if ("Basic".equals(name))
+        {
+            return new BasicGCMMultiplier();
+        }
+        if ("Tables4k".equals(name))
+        {
+            return new Tables4kGCMMultiplier();
+        }
+        if ("Tables8k".equals(name))
+        {
+            return new Tables8kGCMMultiplier();
+        }
+        if ("Tables16k".equals(name))
+        {
+            return new Tables16kGCMMultiplier();
+        }
+        if ("Tables64k".equals(name))
+        {
+            return new Tables64kGCMMultiplier();
+        }
+        throw new IllegalArgumentException("unknown multiplier: " + name);
+    }
+}
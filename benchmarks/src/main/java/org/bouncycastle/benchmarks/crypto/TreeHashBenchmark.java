@@ -0,0 +1,89 @@
+package org.bouncycastle.benchmarks.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.Blake3Digest;
+import org.bouncycastle.crypto.digests.ParallelHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BLAKE3 and ParallelHash256 over large inputs, hashed on the calling thread and on the common
+ * ForkJoinPool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeHashBenchmark
+{
+    @Param({ "1048576", "16777216" })
+    int size;
+
+    private Digest blake3;
+    private Digest blake3Parallel;
+    private Digest parallelHash;
+    private Digest parallelHashParallel;
+
+    private byte[] input;
+    private byte[] output = new byte[64];
+
+    @Setup
+    public void setup()
+    {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        blake3 = new Blake3Digest(32);
+        blake3Parallel = new Blake3Digest(32, pool);
+        parallelHash = new ParallelHash(256, new byte[0], 8192);
+        parallelHashParallel = new ParallelHash(256, new byte[0], 8192, 512, pool);
+
+        input = new byte[size];
+        new SecureRandom().nextBytes(input);
+    }
+
+    @Benchmark
+    public byte[] blake3()
+    {
+        return hash(blake3);
+    }
+
+    @Benchmark
+    public byte[] blake3Parallel()
+    {
+        return hash(blake3Parallel);
+    }
+
+    @Benchmark
+    public byte[] parallelHash()
+    {
+        return hash(parallelHash);
+    }
+
+    @Benchmark
+    public byte[] parallelHashParallel()
+    {
+        return hash(parallelHashParallel);
+    }
+
+    private byte[] hash(Digest digest)
+    {
+        digest.update(input, 0, size);
+        digest.doFinal(output, 0);
+        return output;
+    }
+}
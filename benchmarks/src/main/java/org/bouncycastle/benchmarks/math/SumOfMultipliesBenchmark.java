@@ -0,0 +1,66 @@
+package org.bouncycastle.benchmarks.math;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.BigIntegers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi-scalar multiplication with ECAlgorithms.sumOfMultiplies over random points, on either side of
+ * the switch from interleaved wNAF to the bucket method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SumOfMultipliesBenchmark
+{
+    @Param({ "secp256r1", "secp256k1" })
+    String curve;
+
+    @Param({ "16", "128", "256", "1024" })
+    int count;
+
+    private ECPoint[] points;
+    private BigInteger[] scalars;
+
+    @Setup
+    public void setup()
+    {
+        SecureRandom random = new SecureRandom();
+        X9ECParameters x9 = CustomNamedCurves.getByName(curve);
+        BigInteger n = x9.getN();
+
+        points = new ECPoint[count];
+        scalars = new BigInteger[count];
+        for (int i = 0; i < count; ++i)
+        {
+            points[i] = x9.getG().multiply(BigIntegers.createRandomInRange(BigInteger.ONE, n.subtract(BigInteger.ONE), random)).normalize();
+            scalars[i] = BigIntegers.createRandomInRange(BigInteger.ZERO, n.subtract(BigInteger.ONE), random);
+        }
+    }
+
+    @Benchmark
+    public ECPoint sumOfMultiplies()
+    {
+        return ECAlgorithms.sumOfMultiplies(points, scalars);
+    }
+}
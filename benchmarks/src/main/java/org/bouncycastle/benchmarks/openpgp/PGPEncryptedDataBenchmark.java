@@ -0,0 +1,99 @@
+package org.bouncycastle.benchmarks.openpgp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.openpgp.operator.bc.BcPublicKeyKeyEncryptionMethodGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OpenPGP public key encryption of a literal data packet to a single RSA-2048 recipient, with
+ * integrity protection, using the lightweight operators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PGPEncryptedDataBenchmark
+{
+    @Param({ "1024", "65536", "1048576" })
+    int size;
+
+    @Param({ "AES_128", "AES_256" })
+    String algorithm;
+
+    private SecureRandom random;
+    private PGPPublicKey encKey;
+    private int encAlgorithm;
+
+    private byte[] data;
+    private byte[] buffer = new byte[1 << 16];
+    private ByteArrayOutputStream bOut;
+
+    @Setup
+    public void setup()
+        throws PGPException
+    {
+        random = new SecureRandom();
+
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), random, 2048, 100));
+        encKey = new BcPGPKeyPair(PublicKeyAlgorithmTags.RSA_GENERAL, kpGen.generateKeyPair(), new Date()).getPublicKey();
+
+        encAlgorithm = "AES_256".equals(algorithm) ? SymmetricKeyAlgorithmTags.AES_256 : SymmetricKeyAlgorithmTags.AES_128;
+
+        data = new byte[size];
+        random.nextBytes(data);
+        bOut = new ByteArrayOutputStream(size + 4096);
+    }
+
+    @Benchmark
+    public int encrypt()
+        throws IOException, PGPException
+    {
+        bOut.reset();
+
+        PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(
+            new BcPGPDataEncryptorBuilder(encAlgorithm).setWithIntegrityPacket(true).setSecureRandom(random));
+        encGen.addMethod(new BcPublicKeyKeyEncryptionMethodGenerator(encKey).setSecureRandom(random));
+
+        OutputStream encOut = encGen.open(bOut, buffer);
+
+        PGPLiteralDataGenerator litGen = new PGPLiteralDataGenerator();
+        OutputStream litOut = litGen.open(encOut, PGPLiteralData.BINARY, PGPLiteralData.CONSOLE, size, new Date());
+        litOut.write(data);
+        litOut.close();
+
+        encOut.close();
+
+        return bOut.size();
+    }
+}
@@ -0,0 +1,189 @@
+package org.bouncycastle.benchmarks.tls;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.tls.BasicTlsPSKIdentity;
+import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.PSKTlsClient;
+import org.bouncycastle.tls.PSKTlsServer;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsPSKIdentityManager;
+import org.bouncycastle.tls.TlsProtocol;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Application data throughput through the TLS record layer. A client and server are connected
+ * back to back using the non-blocking API, so the numbers cover record protection, framing and
+ * buffering without any socket overhead. A PSK suite is used so no certificates are needed; the
+ * handshake is done once in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TlsRecordBenchmark
+{
+    @Param({ "AES_128_GCM", "CHACHA20_POLY1305", "AES_128_CBC_SHA256" })
+    String cipher;
+
+    @Param({ "1024", "16384", "65536" })
+    int size;
+
+    private TlsClientProtocol clientProtocol;
+    private TlsServerProtocol serverProtocol;
+
+    private byte[] data;
+    private byte[] received;
+    private byte[] transfer = new byte[1 << 16];
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        SecureRandom random = new SecureRandom();
+
+        final int[] suites = new int[]{ getCipherSuite(cipher) };
+        final byte[] identity = Strings.toByteArray("bench");
+        final byte[] psk = new byte[32];
+        random.nextBytes(psk);
+
+        TlsCrypto clientCrypto = new BcTlsCrypto(random);
+        TlsCrypto serverCrypto = new BcTlsCrypto(random);
+
+        PSKTlsClient client = new PSKTlsClient(clientCrypto, new BasicTlsPSKIdentity(identity, psk))
+        {
+            protected int[] getSupportedCipherSuites()
+            {
+                return suites;
+            }
+        };
+
+        PSKTlsServer server = new PSKTlsServer(serverCrypto, new TlsPSKIdentityManager()
+        {
+            public byte[] getHint()
+            {
+                return null;
+            }
+
+            public byte[] getPSK(byte[] id)
+            {
+                return Arrays.areEqual(identity, id) ? Arrays.clone(psk) : null;
+            }
+        })
+        {
+            protected int[] getSupportedCipherSuites()
+            {
+                return suites;
+            }
+        };
+
+        clientProtocol = new TlsClientProtocol();
+        serverProtocol = new TlsServerProtocol();
+
+        clientProtocol.connect(client);
+        serverProtocol.accept(server);
+
+        boolean pumped = true;
+        while (pumped)
+        {
+            pumped = pump(clientProtocol, serverProtocol);
+            pumped |= pump(serverProtocol, clientProtocol);
+        }
+
+        if (clientProtocol.isHandshaking() || serverProtocol.isHandshaking())
+        {
+            throw new IllegalStateException("handshake did not complete");
+        }
+
+        data = new byte[size];
+        random.nextBytes(data);
+        received = new byte[size];
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        clientProtocol.close();
+        serverProtocol.close();
+    }
+
+    @Benchmark
+    public byte[] clientToServer()
+        throws IOException
+    {
+        return transfer(clientProtocol, serverProtocol);
+    }
+
+    @Benchmark
+    public byte[] serverToClient()
+        throws IOException
+    {
+        return transfer(serverProtocol, clientProtocol);
+    }
+
+    private byte[] transfer(TlsProtocol writer, TlsProtocol reader)
+        throws IOException
+    {
+        writer.writeApplicationData(data, 0, size);
+        pump(writer, reader);
+
+        int len = reader.readInput(received, 0, size);
+        if (len != size)
+        {
+            throw new IllegalStateException("short read: " + len);
+        }
+        return received;
+    }
+
+    private boolean pump(TlsProtocol from, TlsProtocol to)
+        throws IOException
+    {
+        boolean pumped = false;
+        int available;
+        while ((available = from.getAvailableOutputBytes()) > 0)
+        {
+            int len = from.readOutput(transfer, 0, Math.min(available, transfer.length));
+            to.offerInput(transfer, 0, len);
+            pumped = true;
+        }
+        return pumped;
+    }
+
+    private static int getCipherSuite(String name)
+    {
+        if ("AES_128_GCM".equals(name))
+        {
+            return CipherSuite.TLS_PSK_WITH_AES_128_GCM_SHA256;
+        }
+        if ("CHACHA20_POLY1305".equals(name))
+        {
+            return CipherSuite.TLS_PSK_WITH_CHACHA20_POLY1305_SHA256;
+        }
+        if ("AES_128_CBC_SHA256".equals(name))
+        {
+            return CipherSuite.TLS_PSK_WITH_AES_128_CBC_SHA256;
+        }
+        throw new IllegalArgumentException("unknown cipher: " + name);
+    }
+}
@@ -16,6 +16,7 @@
 
     protected boolean       forEncryption;
     protected BlockCipher   cipher;
+    protected MultiBlockCipher mbCipher;
 
     protected boolean       partialBlockOkay;
     protected boolean       pgpCFB;
@@ -37,6 +38,15 @@ public BufferedBlockCipher(
     {
         this.cipher = cipher;
 
+        if (cipher instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)cipher;
+        }
+        else
+        {
+            this.mbCipher = null;
+        }
+
         buf = new byte[cipher.getBlockSize()];
         bufOff = 0;
 
@@ -225,12 +235,24 @@ public int processBytes(
             len -= gapLen;
             inOff += gapLen;
 
-            while (len > buf.length)
+            if (mbCipher != null)
             {
-                resultLen += cipher.processBlock(in, inOff, out, outOff + resultLen);
+                int blockCount = (len - 1) / blockSize;
+
+                resultLen += mbCipher.processBlocks(in, inOff, blockCount, out, outOff + resultLen);
 
-                len -= blockSize;
-                inOff += blockSize;
+                len -= blockCount * blockSize;
+                inOff += blockCount * blockSize;
+            }
+            else
+            {
+                while (len > buf.length)
+                {
+                    resultLen += cipher.processBlock(in, inOff, out, outOff + resultLen);
+
+                    len -= blockSize;
+                    inOff += blockSize;
+                }
             }
         }
 
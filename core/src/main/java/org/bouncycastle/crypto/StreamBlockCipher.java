@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto;
 
+import java.nio.ByteBuffer;
+
 /**
  * A parent class for block cipher modes that do not require block aligned data to be processed, but can function in
  * a streaming mode.
@@ -7,8 +9,12 @@
 public abstract class StreamBlockCipher
     implements BlockCipher, StreamCipher
 {
+    private static final int BUFFER_CHUNK_SIZE = 1024;
+
     private final BlockCipher cipher;
 
+    private byte[] bufferScratch;
+
     protected StreamBlockCipher(BlockCipher cipher)
     {
         this.cipher = cipher;
@@ -53,5 +59,60 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         return len;
     }
 
+    /**
+     * Process the remaining bytes in the buffer in, writing the result to out. The positions of both
+     * buffers are advanced by the number of bytes processed.
+     * <p>
+     * Buffers backed by an accessible array are processed directly, other buffers, such as direct
+     * buffers, are processed in chunks through an internal scratch array.
+     * </p>
+     *
+     * @param in the input buffer.
+     * @param out the output buffer the processed bytes go into.
+     * @return the number of bytes produced - always the number of bytes remaining in in.
+     * @exception DataLengthException if the output buffer is too small.
+     */
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int len = in.remaining();
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int inPos = in.position(), outPos = out.position();
+            processBytes(in.array(), in.arrayOffset() + inPos, len, out.array(), out.arrayOffset() + outPos);
+            in.position(inPos + len);
+            out.position(outPos + len);
+        }
+        else
+        {
+            byte[] scratch = getBufferScratch();
+            int remaining = len;
+            while (remaining > 0)
+            {
+                int chunk = Math.min(remaining, BUFFER_CHUNK_SIZE);
+                in.get(scratch, 0, chunk);
+                processBytes(scratch, 0, chunk, scratch, 0);
+                out.put(scratch, 0, chunk);
+                remaining -= chunk;
+            }
+        }
+
+        return len;
+    }
+
+    private byte[] getBufferScratch()
+    {
+        if (bufferScratch == null)
+        {
+            bufferScratch = new byte[BUFFER_CHUNK_SIZE];
+        }
+        return bufferScratch;
+    }
+
     protected abstract byte calculateByte(byte b);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@
 
 import java.util.Iterator;
 import java.util.Stack;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.crypto.Xof;
@@ -13,6 +14,11 @@
 
 /**
  * Blake3 implementation.
+ * <p>
+ * If constructed with an {@link Executor}, large updates have their chunks hashed in parallel on the executor,
+ * with the calling thread taking a share of the work and waiting for the rest before the update returns. The
+ * chaining values are then merged into the tree in order, so the output is the same as for sequential hashing.
+ * </p>
  */
 public class Blake3Digest
     implements ExtendedDigest, Memoable, Xof
@@ -214,6 +220,11 @@
      */
     private final int theDigestLen;
 
+    /**
+     * The executor for parallel hashing, if any.
+     */
+    private final Executor theExecutor;
+
     /**
      * Are we outputting?
      */
@@ -268,8 +279,21 @@ public Blake3Digest()
      * @param pDigestLen the default digestLength
      */
     public Blake3Digest(final int pDigestLen)
+    {
+        this(pDigestLen, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pDigestLen the default digestLength
+     * @param pExecutor  the executor to hash chunks on, null for sequential hashing
+     */
+    public Blake3Digest(final int pDigestLen,
+                        final Executor pExecutor)
     {
         theDigestLen = pDigestLen;
+        theExecutor = pExecutor;
         init(null);
     }
 
@@ -280,8 +304,9 @@ public Blake3Digest(final int pDigestLen)
      */
     private Blake3Digest(final Blake3Digest pSource)
     {
-        /* Copy default digest length */
+        /* Copy default digest length and executor */
         theDigestLen = pSource.theDigestLen;
+        theExecutor = pSource.theExecutor;
 
         /* Initialise from source */
         reset((Memoable)pSource);
@@ -416,9 +441,32 @@ public void update(final byte[] pMessage,
         }
 
         /* process all blocks except the last one */
-        int messagePos;
+        int messagePos = pOffset + remainingLen;
         final int blockWiseLastPos = pOffset + pLen - BLOCKLEN;
-        for (messagePos = pOffset + remainingLen; messagePos < blockWiseLastPos; messagePos += BLOCKLEN)
+
+        /* If we are hashing in parallel */
+        if (theExecutor != null)
+        {
+            /* Complete the current chunk */
+            while (theCurrBytes != 0 && messagePos < blockWiseLastPos)
+            {
+                compressBlock(pMessage, messagePos);
+                messagePos += BLOCKLEN;
+            }
+
+            /* Hash whole chunks in parallel, always leaving the final block for doFinal */
+            final int chunksPerTask = ParallelUtils.MIN_TASK_SIZE / CHUNKLEN;
+            int myChunks = theCurrBytes == 0 ? (pOffset + pLen - messagePos - 1) / CHUNKLEN : 0;
+            while (myChunks >= chunksPerTask << 1)
+            {
+                final int myCount = Math.min(myChunks, ParallelUtils.MAX_TASKS * chunksPerTask);
+                compressChunksParallel(pMessage, messagePos, myCount, chunksPerTask);
+                messagePos += myCount * CHUNKLEN;
+                myChunks -= myCount;
+            }
+        }
+
+        for (; messagePos < blockWiseLastPos; messagePos += BLOCKLEN)
         {
             /* Process the buffer */
             compressBlock(pMessage, messagePos);
@@ -577,6 +625,73 @@ private void compressBlock(final byte[] pMessage,
         }
     }
 
+    /**
+     * Compress whole chunks of the message on the executor, then add their chaining values to the stack.
+     *
+     * @param pMessage      the message buffer
+     * @param pMsgPos       the position of the first chunk within the message buffer
+     * @param pChunks       the number of chunks
+     * @param pChunksPerTask the number of chunks for each task
+     */
+    private void compressChunksParallel(final byte[] pMessage,
+                                        final int pMsgPos,
+                                        final int pChunks,
+                                        final int pChunksPerTask)
+    {
+        final int[][] myChaining = new int[pChunks][];
+        final long myCounter = theCounter;
+
+        final Runnable[] myTasks = new Runnable[(pChunks + pChunksPerTask - 1) / pChunksPerTask];
+        for (int t = 0; t < myTasks.length; t++)
+        {
+            final int myFirst = t * pChunksPerTask;
+            final int myLast = Math.min(pChunks, myFirst + pChunksPerTask);
+            myTasks[t] = new Runnable()
+            {
+                public void run()
+                {
+                    final Blake3Digest myWorker = new Blake3Digest(theDigestLen);
+                    System.arraycopy(theK, 0, myWorker.theK, 0, NUMWORDS);
+                    myWorker.theMode = theMode;
+
+                    for (int i = myFirst; i < myLast; i++)
+                    {
+                        myWorker.theCounter = myCounter + i;
+                        myWorker.compressChunk(pMessage, pMsgPos + i * CHUNKLEN);
+                        myChaining[i] = Arrays.copyOf(myWorker.theChaining, NUMWORDS);
+                    }
+                }
+            };
+        }
+
+        ParallelUtils.run(theExecutor, myTasks);
+
+        /* Merge the chaining values in order */
+        for (int i = 0; i < pChunks; i++)
+        {
+            incrementBlockCount();
+            System.arraycopy(myChaining[i], 0, theChaining, 0, NUMWORDS);
+            adjustStack();
+        }
+    }
+
+    /**
+     * Compress a whole chunk, leaving its chaining value in theChaining.
+     *
+     * @param pMessage the message buffer
+     * @param pMsgPos  the position of the chunk within the message buffer
+     */
+    private void compressChunk(final byte[] pMessage,
+                               final int pMsgPos)
+    {
+        for (int i = 0; i < CHUNKLEN; i += BLOCKLEN)
+        {
+            initChunkBlock(BLOCKLEN, false);
+            initM(pMessage, pMsgPos + i);
+            compress();
+        }
+    }
+
     /**
      * Adjust the stack.
      */
@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.util.Memoable;
 import org.bouncycastle.util.Pack;
@@ -12,12 +14,15 @@
     implements ExtendedDigest, Memoable
 {
     private static final int BYTE_LENGTH = 64;
+    private static final int TRANSFER_SIZE = 4096;
 
     private final byte[]  xBuf = new byte[4];
     private int           xBufOff;
 
     private long    byteCount;
 
+    private byte[]  transferBuf;
+
     /**
      * Standard constructor
      */
@@ -110,6 +115,38 @@ public void update(
         byteCount += len;
     }
 
+    /**
+     * Update the digest with the remaining bytes in a buffer, leaving the buffer's position at its limit.
+     * Array backed buffers are hashed in place, the contents of other buffers are transferred in blocks.
+     *
+     * @param in the buffer holding the data to be hashed.
+     */
+    public void update(
+        ByteBuffer in)
+    {
+        int len = in.remaining();
+        if (in.hasArray())
+        {
+            int pos = in.position();
+            update(in.array(), in.arrayOffset() + pos, len);
+            in.position(pos + len);
+            return;
+        }
+
+        if (transferBuf == null)
+        {
+            transferBuf = new byte[TRANSFER_SIZE];
+        }
+
+        while (len > 0)
+        {
+            int count = Math.min(len, TRANSFER_SIZE);
+            in.get(transferBuf, 0, count);
+            update(transferBuf, 0, count);
+            len -= count;
+        }
+    }
+
     public void finish()
     {
         long    bitLength = (byteCount << 3);
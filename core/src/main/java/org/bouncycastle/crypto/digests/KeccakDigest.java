@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Pack;
@@ -66,6 +69,17 @@ public void update(byte[] in, int inOff, int len)
         absorb(in, inOff, len);
     }
 
+    /**
+     * Update the digest with the remaining bytes in a buffer, leaving the buffer's position at its limit.
+     * Lanes are read straight from the buffer, so direct and mapped buffers are hashed without copying.
+     *
+     * @param in the buffer holding the data to be hashed.
+     */
+    public void update(ByteBuffer in)
+    {
+        absorb(in);
+    }
+
     public int doFinal(byte[] out, int outOff)
     {
         squeeze(out, outOff, fixedOutputLength);
@@ -202,6 +216,58 @@ protected void absorb(byte[] data, int off, int len)
         this.bitsInQueue = remaining << 3;
     }
 
+    protected void absorb(ByteBuffer data)
+    {
+        if (data.hasArray())
+        {
+            int pos = data.position(), len = data.remaining();
+            absorb(data.array(), data.arrayOffset() + pos, len);
+            data.position(pos + len);
+            return;
+        }
+
+        if ((bitsInQueue % 8) != 0)
+        {
+            throw new IllegalStateException("attempt to absorb with odd length queue");
+        }
+        if (squeezing)
+        {
+            throw new IllegalStateException("attempt to absorb while squeezing");
+        }
+
+        int bytesInQueue = bitsInQueue >>> 3;
+        int rateBytes = rate >>> 3;
+
+        int len = data.remaining();
+        int available = rateBytes - bytesInQueue;
+        if (len < available)
+        {
+            data.get(dataQueue, bytesInQueue, len);
+            this.bitsInQueue += len << 3;
+            return;
+        }
+
+        if (bytesInQueue > 0)
+        {
+            data.get(dataQueue, bytesInQueue, available);
+            len -= available;
+            KeccakAbsorb(dataQueue, 0);
+        }
+
+        boolean littleEndian = data.order() == ByteOrder.LITTLE_ENDIAN;
+        int pos = data.position();
+        while (len >= rateBytes)
+        {
+            KeccakAbsorb(data, pos, littleEndian);
+            pos += rateBytes;
+            len -= rateBytes;
+        }
+        data.position(pos);
+
+        data.get(dataQueue, 0, len);
+        this.bitsInQueue = len << 3;
+    }
+
     protected void absorbBits(int data, int bits)
     {
         if (bits < 1 || bits > 7)
@@ -295,6 +361,19 @@ private void KeccakAbsorb(byte[] data, int off)
         KeccakPermutation();
     }
 
+    private void KeccakAbsorb(ByteBuffer data, int off, boolean littleEndian)
+    {
+        int count = rate >>> 6;
+        for (int i = 0; i < count; ++i)
+        {
+            long w = data.getLong(off);
+            state[i] ^= littleEndian ? w : Long.reverseBytes(w);
+            off += 8;
+        }
+
+        KeccakPermutation();
+    }
+
     private void KeccakExtract()
     {
 //        assert 0 == bitsInQueue;
@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.util.Memoable;
 import org.bouncycastle.util.Pack;
@@ -168,6 +171,60 @@ public void update(
         }
     }
 
+    /**
+     * Update the digest with the remaining bytes in a buffer, leaving the buffer's position at its limit.
+     * Words are read straight from the buffer, so direct and mapped buffers are hashed without copying.
+     *
+     * @param in the buffer holding the data to be hashed.
+     */
+    public void update(
+        ByteBuffer in)
+    {
+        if (in.hasArray())
+        {
+            int pos = in.position(), len = in.remaining();
+            update(in.array(), in.arrayOffset() + pos, len);
+            in.position(pos + len);
+            return;
+        }
+
+        //
+        // fill the current word
+        //
+        while ((xBufOff != 0) && in.hasRemaining())
+        {
+            update(in.get());
+        }
+
+        //
+        // process whole words.
+        //
+        boolean bigEndian = in.order() == ByteOrder.BIG_ENDIAN;
+        int pos = in.position(), limit = in.limit();
+        while (limit - pos > xBuf.length)
+        {
+            long w = in.getLong(pos);
+            W[wOff] = bigEndian ? w : Long.reverseBytes(w);
+
+            if (++wOff == 16)
+            {
+                processBlock();
+            }
+
+            pos += xBuf.length;
+            byteCount1 += xBuf.length;
+        }
+        in.position(pos);
+
+        //
+        // load in the remainder.
+        //
+        while (in.hasRemaining())
+        {
+            update(in.get());
+        }
+    }
+
     public void finish()
     {
         adjustByteCounts();
@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto.digests;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.Xof;
@@ -12,6 +14,11 @@
  * <p>
  * From NIST Special Publication 800-185 - SHA-3 Derived Functions:cSHAKE, KMAC, TupleHash and ParallelHash
  * </p>
+ * <p>
+ * If constructed with an {@link Executor}, large updates have their blocks hashed in parallel on the executor,
+ * with the calling thread taking a share of the work and waiting for the rest before the update returns. The
+ * output is the same as for sequential hashing.
+ * </p>
  */
 public class ParallelHash
     implements Xof, Digest
@@ -25,6 +32,7 @@
     private final int B;
     private final byte[] buffer;
     private final byte[] compressorBuffer;
+    private final Executor executor;
 
     private boolean firstOutput;
     private int nCount;
@@ -43,6 +51,20 @@ public ParallelHash(int bitLength, byte[] S, int B)
     }
 
     public ParallelHash(int bitLength, byte[] S, int B, int outputSize)
+    {
+        this(bitLength, S, B, outputSize, null);
+    }
+
+    /**
+     * Constructor for a ParallelHash that hashes the blocks of large updates on an executor.
+     *
+     * @param bitLength bit length of the underlying SHAKE function, 128 or 256.
+     * @param S the customization string - available for local use.
+     * @param B the blocksize (in bytes) for hashing.
+     * @param outputSize the output size in bits.
+     * @param executor the executor to hash blocks on, null for sequential hashing.
+     */
+    public ParallelHash(int bitLength, byte[] S, int B, int outputSize, Executor executor)
     {
         this.cshake = new CSHAKEDigest(bitLength, N_PARALLEL_HASH, S);
         this.compressor = new CSHAKEDigest(bitLength, new byte[0], new byte[0]);
@@ -51,6 +73,7 @@ public ParallelHash(int bitLength, byte[] S, int B, int outputSize)
         this.outputLength = (outputSize + 7) / 8;
         this.buffer = new byte[B];
         this.compressorBuffer = new byte[bitLength * 2 / 8];
+        this.executor = executor;
 
         reset();
     }
@@ -64,6 +87,7 @@ public ParallelHash(ParallelHash source)
         this.outputLength = source.outputLength;
         this.buffer = Arrays.clone(source.buffer);
         this.compressorBuffer = Arrays.clone(source.compressorBuffer);
+        this.executor = source.executor;
     }
 
     public String getAlgorithmName()
@@ -113,6 +137,19 @@ public void update(byte[] in, int inOff, int len)
             }
         }
 
+        if (i < len && executor != null)
+        {
+            int blocks = (len - i - 1) / B;
+            int blocksPerTask = Math.max(1, ParallelUtils.MIN_TASK_SIZE / B);
+            while (blocks >= 2 * blocksPerTask)
+            {
+                int count = Math.min(blocks, ParallelUtils.MAX_TASKS * blocksPerTask);
+                compressParallel(in, inOff + i, count, blocksPerTask);
+                i += count * B;
+                blocks -= count;
+            }
+        }
+
         if (i < len)
         {
             while (len - i > B)
@@ -144,6 +181,36 @@ private void compress(byte[] buf, int offSet, int len)
         nCount++;
     }
 
+    private void compressParallel(final byte[] buf, final int offSet, int blocks, int blocksPerTask)
+    {
+        final int cvLen = compressorBuffer.length;
+        final byte[] cvs = new byte[blocks * cvLen];
+
+        Runnable[] tasks = new Runnable[(blocks + blocksPerTask - 1) / blocksPerTask];
+        for (int t = 0; t < tasks.length; ++t)
+        {
+            final int first = t * blocksPerTask;
+            final int last = Math.min(blocks, first + blocksPerTask);
+            tasks[t] = new Runnable()
+            {
+                public void run()
+                {
+                    CSHAKEDigest taskCompressor = new CSHAKEDigest(bitLength, new byte[0], new byte[0]);
+                    for (int b = first; b < last; ++b)
+                    {
+                        taskCompressor.update(buf, offSet + b * B, B);
+                        taskCompressor.doFinal(cvs, b * cvLen, cvLen);
+                    }
+                }
+            };
+        }
+
+        ParallelUtils.run(executor, tasks);
+
+        cshake.update(cvs, 0, cvs.length);
+        nCount += blocks;
+    }
+
     private void wrapUp(int outputSize)
     {
         if (bufOff != 0)
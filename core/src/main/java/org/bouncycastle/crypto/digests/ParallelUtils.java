@@ -0,0 +1,134 @@
+package org.bouncycastle.crypto.digests;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Support for the digests that can hash independent parts of their input on an {@link Executor}.
+ */
+class ParallelUtils
+{
+    /**
+     * Input below this size per task is not worth handing to another thread.
+     */
+    static final int MIN_TASK_SIZE = 64 * 1024;
+
+    /**
+     * The most tasks handed out at once, which bounds the intermediate results held for a large update.
+     */
+    static final int MAX_TASKS = 32;
+
+    /**
+     * Run the passed in tasks, sharing them between the executor and the calling thread, and wait for them all
+     * to complete. Tasks are taken from a common queue: the calling thread works through it too, so it only
+     * ever waits for tasks already running on another thread, and makes progress even when the executor is a
+     * bounded pool the calling thread itself belongs to. A task the executor rejects is simply left for the
+     * calling thread. If any task fails the first failure is rethrown once all the tasks have finished.
+     *
+     * @param executor the executor to use.
+     * @param tasks the tasks to run.
+     */
+    static void run(Executor executor, final Runnable[] tasks)
+    {
+        final CountDownLatch latch = new CountDownLatch(tasks.length);
+        final Throwable[] failure = new Throwable[1];
+        final AtomicInteger next = new AtomicInteger();
+
+        Runnable worker = new Runnable()
+        {
+            public void run()
+            {
+                runNext(tasks, next, latch, failure);
+            }
+        };
+
+        for (int i = 1; i < tasks.length; ++i)
+        {
+            try
+            {
+                executor.execute(worker);
+            }
+            catch (RejectedExecutionException e)
+            {
+                break;
+            }
+        }
+
+        while (runNext(tasks, next, latch, failure))
+        {
+        }
+
+        boolean interrupted = false;
+        for (;;)
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                // the tasks are reading the caller's input, so we cannot return until they are done
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable t;
+        synchronized (failure)
+        {
+            t = failure[0];
+        }
+        if (t instanceof RuntimeException)
+        {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error)
+        {
+            throw (Error)t;
+        }
+        if (t != null)
+        {
+            throw new IllegalStateException("parallel digest task failed: " + t.getMessage());
+        }
+    }
+
+    /**
+     * Run the next task from the queue, if any remain, recording its failure.
+     *
+     * @return true if a task was run, false if the queue was empty.
+     */
+    private static boolean runNext(Runnable[] tasks, AtomicInteger next, CountDownLatch latch, Throwable[] failure)
+    {
+        int index = next.getAndIncrement();
+        if (index >= tasks.length)
+        {
+            return false;
+        }
+
+        try
+        {
+            tasks[index].run();
+        }
+        catch (Throwable t)
+        {
+            synchronized (failure)
+            {
+                if (failure[0] == null)
+                {
+                    failure[0] = t;
+                }
+            }
+        }
+        finally
+        {
+            latch.countDown();
+        }
+        return true;
+    }
+}
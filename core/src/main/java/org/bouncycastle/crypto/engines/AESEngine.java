@@ -1,8 +1,8 @@
 package org.bouncycastle.crypto.engines;
 
-import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.util.Arrays;
@@ -32,7 +32,7 @@
  *
  */
 public class AESEngine
-    implements BlockCipher
+    implements MultiBlockCipher
 {
     // The S box
     private static final byte[] S = {
@@ -280,7 +280,7 @@ private static int subWord(int x)
      * AES specified a fixed block size of 128 bits and key sizes 128/192/256 bits
      * This code is written assuming those are the only possible values
      */
-    private int[][] generateWorkingKey(byte[] key, boolean forEncryption)
+    static int[][] generateWorkingKey(byte[] key, boolean forEncryption)
     {
         int keyLen = key.length;
         if (keyLen < 16 || keyLen > 32 || (keyLen & 7) != 0)
@@ -289,7 +289,7 @@ private int[][] generateWorkingKey(byte[] key, boolean forEncryption)
         }
 
         int KC = keyLen >>> 2;
-        ROUNDS = KC + 6;  // This is not always true for the generalized Rijndael that allows larger block sizes
+        int ROUNDS = KC + 6;  // This is not always true for the generalized Rijndael that allows larger block sizes
         int[][] W = new int[ROUNDS+1][4];   // 4 words in a block
 
         switch (KC)
@@ -429,7 +429,8 @@ public AESEngine()
      * initialise an AES cipher.
      *
      * @param forEncryption whether or not we are for encryption.
-     * @param params the parameters required to set up the cipher.
+     * @param params the parameters required to set up the cipher, either a KeyParameter or an
+     * AESKeySchedule prepared for the same direction.
      * @exception IllegalArgumentException if the params argument is
      * inappropriate.
      */
@@ -439,22 +440,43 @@ public void init(
     {
         if (params instanceof KeyParameter)
         {
-            WorkingKey = generateWorkingKey(((KeyParameter)params).getKey(), forEncryption);
-            this.forEncryption = forEncryption;
-            if (forEncryption)
-            {
-                s = Arrays.clone(S);
-            }
-            else
+            setWorkingKey(generateWorkingKey(((KeyParameter)params).getKey(), forEncryption), forEncryption);
+            return;
+        }
+
+        if (params instanceof AESKeySchedule)
+        {
+            AESKeySchedule keySchedule = (AESKeySchedule)params;
+
+            if (keySchedule.isForEncryption() != forEncryption)
             {
-                s = Arrays.clone(Si);
+                throw new IllegalArgumentException("AES key schedule was not created for "
+                    + (forEncryption ? "encryption" : "decryption"));
             }
+
+            // the schedule is never modified, so it is used directly rather than copied
+            setWorkingKey(keySchedule.getWorkingKey(), forEncryption);
             return;
         }
 
         throw new IllegalArgumentException("invalid parameter passed to AES init - " + params.getClass().getName());
     }
 
+    private void setWorkingKey(int[][] workingKey, boolean forEncryption)
+    {
+        this.WorkingKey = workingKey;
+        this.ROUNDS = workingKey.length - 1;
+        this.forEncryption = forEncryption;
+        if (forEncryption)
+        {
+            s = Arrays.clone(S);
+        }
+        else
+        {
+            s = Arrays.clone(Si);
+        }
+    }
+
     public String getAlgorithmName()
     {
         return "AES";
@@ -494,6 +516,55 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
         return BLOCK_SIZE;
     }
 
+    public int getMultiBlockSize()
+    {
+        return BLOCK_SIZE;
+    }
+
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+    {
+        if (WorkingKey == null)
+        {
+            throw new IllegalStateException("AES engine not initialised");
+        }
+
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+
+        int len = blockCount * BLOCK_SIZE;
+
+        if (blockCount > (in.length - inOff) / BLOCK_SIZE)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        if (blockCount > (out.length - outOff) / BLOCK_SIZE)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int[][] KW = WorkingKey;
+
+        if (forEncryption)
+        {
+            for (int i = 0; i < len; i += BLOCK_SIZE)
+            {
+                encryptBlock(in, inOff + i, out, outOff + i, KW);
+            }
+        }
+        else
+        {
+            for (int i = 0; i < len; i += BLOCK_SIZE)
+            {
+                decryptBlock(in, inOff + i, out, outOff + i, KW);
+            }
+        }
+
+        return len;
+    }
+
     public void reset()
     {
     }
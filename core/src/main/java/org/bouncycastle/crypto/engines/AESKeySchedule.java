@@ -0,0 +1,63 @@
+package org.bouncycastle.crypto.engines;
+
+import org.bouncycastle.crypto.CipherParameters;
+
+/**
+ * An expanded AES key for one direction of use.
+ * <p>
+ * The round keys are calculated once, when the schedule is created, and are never modified afterwards,
+ * so a schedule can be kept for as long as its key and shared between threads. An {@link AESEngine}
+ * initialised with a schedule in place of a {@link org.bouncycastle.crypto.params.KeyParameter} uses the
+ * schedule's round keys directly, which makes initialising an engine for a known key a constant, small
+ * cost. Each thread should still use its own engine.
+ * </p>
+ */
+public final class AESKeySchedule
+    implements CipherParameters
+{
+    private final int[][] workingKey;
+    private final boolean forEncryption;
+
+    /**
+     * Expand an AES key.
+     *
+     * @param key the key, 16, 24, or 32 bytes long.
+     * @param forEncryption true if the schedule is for encryption, false for decryption.
+     * @exception IllegalArgumentException if the key is not a valid AES key size.
+     */
+    public AESKeySchedule(byte[] key, boolean forEncryption)
+    {
+        if (key == null)
+        {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+
+        this.workingKey = AESEngine.generateWorkingKey(key, forEncryption);
+        this.forEncryption = forEncryption;
+    }
+
+    /**
+     * Return whether this schedule is for encryption or for decryption.
+     *
+     * @return true if the schedule is for encryption, false otherwise.
+     */
+    public boolean isForEncryption()
+    {
+        return forEncryption;
+    }
+
+    /**
+     * Return the number of rounds for the key size (10, 12, or 14).
+     *
+     * @return the number of AES rounds.
+     */
+    public int getRounds()
+    {
+        return workingKey.length - 1;
+    }
+
+    int[][] getWorkingKey()
+    {
+        return workingKey;
+    }
+}
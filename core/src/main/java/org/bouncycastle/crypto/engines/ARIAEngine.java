@@ -1,8 +1,8 @@
 package org.bouncycastle.crypto.engines;
 
-import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.util.encoders.Hex;
@@ -13,7 +13,7 @@
  * ARIA is a 128-bit block cipher with 128-, 192-, and 256-bit keys.
  */
 public class ARIAEngine
-    implements BlockCipher
+    implements MultiBlockCipher
 {
     private static final byte[][] C = { Hex.decodeStrict("517cc1b727220a94fe13abe8fa9a6ee0"),
         Hex.decodeStrict("6db14acc9e21c820ff28b1d5ef5de2b0"), Hex.decodeStrict("db92371d2126e9700324977504e8c90e") };
@@ -181,7 +181,54 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
             throw new OutputLengthException("output buffer too short");
         }
 
+        processBlock(in, inOff, out, outOff, new byte[BLOCK_SIZE]);
+
+        return BLOCK_SIZE;
+    }
+
+    public int getMultiBlockSize()
+    {
+        return BLOCK_SIZE;
+    }
+
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (roundKeys == null)
+        {
+            throw new IllegalStateException("ARIA engine not initialised");
+        }
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+        if (blockCount > (in.length - inOff) / BLOCK_SIZE)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if (blockCount > (out.length - outOff) / BLOCK_SIZE)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
         byte[] z = new byte[BLOCK_SIZE];
+        int len = blockCount * BLOCK_SIZE;
+
+        for (int i = 0; i < len; i += BLOCK_SIZE)
+        {
+            processBlock(in, inOff + i, out, outOff + i, z);
+        }
+
+        return len;
+    }
+
+    public void reset()
+    {
+        // Empty
+    }
+
+    private void processBlock(byte[] in, int inOff, byte[] out, int outOff, byte[] z)
+    {
         System.arraycopy(in, inOff, z, 0, BLOCK_SIZE);
 
         int i = 0, rounds = roundKeys.length - 3;
@@ -197,13 +244,6 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
         xor(z, roundKeys[i]);
 
         System.arraycopy(z, 0, out, outOff, BLOCK_SIZE);
-
-        return BLOCK_SIZE;
-    }
-
-    public void reset()
-    {
-        // Empty
     }
 
     protected static void A(byte[] z)
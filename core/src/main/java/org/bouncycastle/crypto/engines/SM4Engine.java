@@ -1,8 +1,8 @@
 package org.bouncycastle.crypto.engines;
 
-import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.util.Pack;
@@ -15,7 +15,7 @@
  * </p>
  */
 public class SM4Engine
-    implements BlockCipher
+    implements MultiBlockCipher
 {
     private static final int BLOCK_SIZE = 16;
 
@@ -220,6 +220,52 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
             throw new OutputLengthException("output buffer too short");
         }
 
+        cryptBlock(in, inOff, out, outOff);
+
+        return BLOCK_SIZE;
+    }
+
+    public int getMultiBlockSize()
+    {
+        return BLOCK_SIZE;
+    }
+
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (rk == null)
+        {
+            throw new IllegalStateException("SM4 not initialised");
+        }
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+        if (blockCount > (in.length - inOff) / BLOCK_SIZE)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if (blockCount > (out.length - outOff) / BLOCK_SIZE)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int len = blockCount * BLOCK_SIZE;
+
+        for (int i = 0; i < len; i += BLOCK_SIZE)
+        {
+            cryptBlock(in, inOff + i, out, outOff + i);
+        }
+
+        return len;
+    }
+
+    public void reset()
+    {
+    }
+
+    private void cryptBlock(byte[] in, int inOff, byte[] out, int outOff)
+    {
         X[0] = Pack.bigEndianToInt(in, inOff);
         X[1] = Pack.bigEndianToInt(in, inOff + 4);
         X[2] = Pack.bigEndianToInt(in, inOff + 8);
@@ -239,11 +285,5 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
         Pack.intToBigEndian(X[2], out, outOff + 4);
         Pack.intToBigEndian(X[1], out, outOff + 8);
         Pack.intToBigEndian(X[0], out, outOff + 12);
-
-        return BLOCK_SIZE;
-    }
-
-    public void reset()
-    {
     }
 }
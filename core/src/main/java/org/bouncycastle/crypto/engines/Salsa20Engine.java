@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.MaxBytesExceededException;
@@ -22,6 +24,8 @@
     /** Constants */
     private final static int STATE_SIZE = 16; // 16, 32 bit ints = 64 bytes
 
+    private final static int BUFFER_CHUNK_SIZE = 1024;
+
     private final static int[] TAU_SIGMA = Pack.littleEndianToInt(Strings.toByteArray("expand 16-byte k" + "expand 32-byte k"), 0, 8);
 
     protected void packTauOrSigma(int keyLength, int[] state, int stateOffset)
@@ -49,6 +53,7 @@ protected void packTauOrSigma(int keyLength, int[] state, int stateOffset)
     protected int[]     x = new int[STATE_SIZE] ; // internal buffer
     private byte[]      keyStream   = new byte[STATE_SIZE * 4]; // expanded state, 64 bytes
     private boolean     initialised = false;
+    private byte[]      bufferScratch;
 
     /*
      * internal counter
@@ -285,6 +290,78 @@ public int processBytes(
         return len;
     }
 
+    /**
+     * Process the remaining bytes in the buffer in, writing the result to out. The positions of both
+     * buffers are advanced by the number of bytes processed.
+     * <p>
+     * Buffers backed by an accessible array are processed directly, other buffers, such as direct
+     * buffers, are processed in chunks through an internal scratch array.
+     * </p>
+     *
+     * @param in the input buffer.
+     * @param out the output buffer the processed bytes go into.
+     * @return the number of bytes produced - always the number of bytes remaining in in.
+     */
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+    {
+        int len = in.remaining();
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int inPos = in.position(), outPos = out.position();
+            processBytes(in.array(), in.arrayOffset() + inPos, len, out.array(), out.arrayOffset() + outPos);
+            in.position(inPos + len);
+            out.position(outPos + len);
+            return len;
+        }
+
+        if (!initialised)
+        {
+            throw new IllegalStateException(getAlgorithmName() + " not initialised");
+        }
+
+        if (limitExceeded(len))
+        {
+            throw new MaxBytesExceededException("2^70 byte limit per IV would be exceeded; Change IV");
+        }
+
+        if (bufferScratch == null)
+        {
+            bufferScratch = new byte[BUFFER_CHUNK_SIZE];
+        }
+
+        int remaining = len;
+        while (remaining > 0)
+        {
+            int chunk = Math.min(remaining, BUFFER_CHUNK_SIZE);
+            in.get(bufferScratch, 0, chunk);
+            applyKeyStream(bufferScratch, chunk);
+            out.put(bufferScratch, 0, chunk);
+            remaining -= chunk;
+        }
+
+        return len;
+    }
+
+    private void applyKeyStream(byte[] buf, int len)
+    {
+        for (int i = 0; i < len; i++)
+        {
+            buf[i] ^= keyStream[index];
+            index = (index + 1) & 63;
+
+            if (index == 0)
+            {
+                advanceCounter();
+                generateKeyStream(keyStream);
+            }
+        }
+    }
+
     public long skip(long numberOfBytes)
     {
         if (numberOfBytes >= 0)
@@ -0,0 +1,245 @@
+package org.bouncycastle.crypto.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.GeneralDigest;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.crypto.digests.LongDigest;
+import org.bouncycastle.crypto.macs.HMac;
+
+/**
+ * Utility methods for feeding files to a {@link Digest} or {@link Mac} through a {@link FileChannel}.
+ * <p>
+ * Large regions are memory mapped a window at a time and the mapped buffers passed to the digest or MAC, so
+ * the data is read from the page cache without passing through the stream classes. The SHA-2, SHA-3 and
+ * other MD4 family digests, and HMAC based on them, accept the mapped buffers directly; for other
+ * algorithms the data is transferred in blocks. Small regions are read into a heap buffer instead, as
+ * mapping them costs more than it saves.
+ * </p>
+ */
+public class FileChannelDigestUtil
+{
+    private static final long MAP_SIZE = 64L * 1024 * 1024;
+    private static final int MIN_MAP_SIZE = 256 * 1024;
+    private static final int TRANSFER_SIZE = 4096;
+
+    /**
+     * Calculate the digest of a file.
+     *
+     * @param digest the digest to use, which is reset on completion.
+     * @param file the file to hash.
+     * @return the digest value.
+     * @throws IOException if the file cannot be read.
+     */
+    public static byte[] calculateDigest(Digest digest, File file)
+        throws IOException
+    {
+        FileInputStream fIn = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = fIn.getChannel();
+
+            update(digest, channel, 0, channel.size());
+        }
+        finally
+        {
+            fIn.close();
+        }
+
+        byte[] result = new byte[digest.getDigestSize()];
+        digest.doFinal(result, 0);
+        return result;
+    }
+
+    /**
+     * Calculate the MAC of a file.
+     *
+     * @param mac the MAC to use, which must already be initialised and is reset on completion.
+     * @param file the file to MAC.
+     * @return the MAC value.
+     * @throws IOException if the file cannot be read.
+     */
+    public static byte[] calculateMac(Mac mac, File file)
+        throws IOException
+    {
+        FileInputStream fIn = new FileInputStream(file);
+        try
+        {
+            FileChannel channel = fIn.getChannel();
+
+            update(mac, channel, 0, channel.size());
+        }
+        finally
+        {
+            fIn.close();
+        }
+
+        byte[] result = new byte[mac.getMacSize()];
+        mac.doFinal(result, 0);
+        return result;
+    }
+
+    /**
+     * Update a digest with a region of a file. The channel's position is not changed.
+     *
+     * @param digest the digest to update.
+     * @param channel the channel to read from.
+     * @param position the position in the file of the start of the region.
+     * @param length the length of the region.
+     * @throws IOException if the file cannot be read, or the region extends past the end of the file.
+     */
+    public static void update(Digest digest, FileChannel channel, long position, long length)
+        throws IOException
+    {
+        update(digest, null, channel, position, length);
+    }
+
+    /**
+     * Update a MAC with a region of a file. The channel's position is not changed.
+     *
+     * @param mac the MAC to update.
+     * @param channel the channel to read from.
+     * @param position the position in the file of the start of the region.
+     * @param length the length of the region.
+     * @throws IOException if the file cannot be read, or the region extends past the end of the file.
+     */
+    public static void update(Mac mac, FileChannel channel, long position, long length)
+        throws IOException
+    {
+        update(null, mac, channel, position, length);
+    }
+
+    /**
+     * Update a digest with the remaining bytes in a buffer, leaving the buffer's position at its limit.
+     *
+     * @param digest the digest to update.
+     * @param in the buffer holding the data.
+     */
+    public static void update(Digest digest, ByteBuffer in)
+    {
+        if (digest instanceof GeneralDigest)
+        {
+            ((GeneralDigest)digest).update(in);
+        }
+        else if (digest instanceof LongDigest)
+        {
+            ((LongDigest)digest).update(in);
+        }
+        else if (digest instanceof KeccakDigest)
+        {
+            ((KeccakDigest)digest).update(in);
+        }
+        else
+        {
+            transfer(digest, null, in);
+        }
+    }
+
+    /**
+     * Update a MAC with the remaining bytes in a buffer, leaving the buffer's position at its limit.
+     *
+     * @param mac the MAC to update.
+     * @param in the buffer holding the data.
+     */
+    public static void update(Mac mac, ByteBuffer in)
+    {
+        if (mac instanceof HMac)
+        {
+            ((HMac)mac).update(in);
+        }
+        else
+        {
+            transfer(null, mac, in);
+        }
+    }
+
+    private static void update(Digest digest, Mac mac, FileChannel channel, long position, long length)
+        throws IOException
+    {
+        if (position < 0 || length < 0)
+        {
+            throw new IllegalArgumentException("position and length must be non-negative");
+        }
+        if (length > channel.size() - position)
+        {
+            throw new EOFException("region extends past the end of the file");
+        }
+
+        if (length < MIN_MAP_SIZE)
+        {
+            ByteBuffer buf = ByteBuffer.allocate((int)length);
+            while (buf.hasRemaining())
+            {
+                if (channel.read(buf, position + buf.position()) < 0)
+                {
+                    throw new EOFException("unexpected end of file");
+                }
+            }
+            buf.flip();
+            update(digest, mac, buf);
+            return;
+        }
+
+        while (length > 0)
+        {
+            long size = Math.min(length, MAP_SIZE);
+
+            update(digest, mac, channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+
+            position += size;
+            length -= size;
+        }
+    }
+
+    private static void update(Digest digest, Mac mac, ByteBuffer in)
+    {
+        if (digest != null)
+        {
+            update(digest, in);
+        }
+        else
+        {
+            update(mac, in);
+        }
+    }
+
+    private static void transfer(Digest digest, Mac mac, ByteBuffer in)
+    {
+        if (in.hasArray())
+        {
+            int pos = in.position(), len = in.remaining();
+            if (digest != null)
+            {
+                digest.update(in.array(), in.arrayOffset() + pos, len);
+            }
+            else
+            {
+                mac.update(in.array(), in.arrayOffset() + pos, len);
+            }
+            in.position(pos + len);
+            return;
+        }
+
+        byte[] buf = new byte[Math.min(in.remaining(), TRANSFER_SIZE)];
+        while (in.hasRemaining())
+        {
+            int count = Math.min(in.remaining(), buf.length);
+            in.get(buf, 0, count);
+            if (digest != null)
+            {
+                digest.update(buf, 0, count);
+            }
+            else
+            {
+                mac.update(buf, 0, count);
+            }
+        }
+    }
+}
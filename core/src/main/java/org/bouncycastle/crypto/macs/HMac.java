@@ -1,11 +1,15 @@
 package org.bouncycastle.crypto.macs;
 
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.GeneralDigest;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.crypto.digests.LongDigest;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.Memoable;
@@ -29,6 +33,7 @@
 
     private byte[] inputPad;
     private byte[] outputBuf;
+    private byte[] transferBuf;
 
     private static Hashtable blockLengths;
     
@@ -170,6 +175,49 @@ public void update(
         digest.update(in, inOff, len);
     }
 
+    /**
+     * Update the MAC with the remaining bytes in a buffer, leaving the buffer's position at its limit.
+     * Where the underlying digest supports it, the buffer is passed straight through.
+     *
+     * @param in the buffer holding the data to be MACed.
+     */
+    public void update(
+        ByteBuffer in)
+    {
+        if (digest instanceof GeneralDigest)
+        {
+            ((GeneralDigest)digest).update(in);
+        }
+        else if (digest instanceof LongDigest)
+        {
+            ((LongDigest)digest).update(in);
+        }
+        else if (digest instanceof KeccakDigest)
+        {
+            ((KeccakDigest)digest).update(in);
+        }
+        else if (in.hasArray())
+        {
+            int pos = in.position(), len = in.remaining();
+            digest.update(in.array(), in.arrayOffset() + pos, len);
+            in.position(pos + len);
+        }
+        else
+        {
+            if (transferBuf == null)
+            {
+                transferBuf = new byte[blockLength * 32];
+            }
+
+            while (in.hasRemaining())
+            {
+                int count = Math.min(in.remaining(), transferBuf.length);
+                in.get(transferBuf, 0, count);
+                digest.update(transferBuf, 0, count);
+            }
+        }
+    }
+
     public int doFinal(
         byte[] out,
         int outOff)
@@ -3,6 +3,8 @@
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.MultiBlockCipher;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.util.Arrays;
 
@@ -10,14 +12,19 @@
  * implements Cipher-Block-Chaining (CBC) mode on top of a simple cipher.
  */
 public class CBCBlockCipher
-    implements BlockCipher
+    implements MultiBlockCipher
 {
+    // number of blocks decrypted per call when the cipher supports multi-block processing
+    private static final int MULTI_BLOCK_COUNT = 8;
+
     private byte[]          IV;
     private byte[]          cbcV;
     private byte[]          cbcNextV;
+    private byte[]          cbcBlocks;
 
     private int             blockSize;
     private BlockCipher     cipher = null;
+    private MultiBlockCipher mbCipher = null;
     private boolean         encrypting;
 
     /**
@@ -34,6 +41,12 @@ public CBCBlockCipher(
         this.IV = new byte[blockSize];
         this.cbcV = new byte[blockSize];
         this.cbcNextV = new byte[blockSize];
+
+        if (cipher instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)cipher;
+            this.cbcBlocks = new byte[MULTI_BLOCK_COUNT * blockSize];
+        }
     }
 
     /**
@@ -148,6 +161,50 @@ public int processBlock(
         return (encrypting) ? encryptBlock(in, inOff, out, outOff) : decryptBlock(in, inOff, out, outOff);
     }
 
+    public int getMultiBlockSize()
+    {
+        return (mbCipher != null) ? mbCipher.getMultiBlockSize() : blockSize;
+    }
+
+    /**
+     * Process blockCount blocks of input from the array in and write them to
+     * the out array. Encryption is inherently sequential, however decryption
+     * is passed through to the underlying cipher in batches if it supports
+     * multi-block processing.
+     *
+     * @param in the array containing the input data.
+     * @param inOff offset into the in array the data starts at.
+     * @param blockCount the number of blocks to process.
+     * @param out the array the output data will be copied into.
+     * @param outOff the offset into the out array the output will start at.
+     * @exception DataLengthException if there isn't enough data in in, or
+     * space in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     * @return the number of bytes processed and produced.
+     */
+    public int processBlocks(
+        byte[]      in,
+        int         inOff,
+        int         blockCount,
+        byte[]      out,
+        int         outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (encrypting || mbCipher == null)
+        {
+            int resultLen = 0;
+
+            for (int i = 0; i != blockCount; i++)
+            {
+                resultLen += processBlock(in, inOff + resultLen, out, outOff + resultLen);
+            }
+
+            return resultLen;
+        }
+
+        return decryptBlocks(in, inOff, blockCount, out, outOff);
+    }
+
     /**
      * reset the chaining vector back to the IV and reset the underlying
      * cipher.
@@ -250,4 +307,60 @@ private int decryptBlock(
 
         return length;
     }
+
+    private int decryptBlocks(
+        byte[]      in,
+        int         inOff,
+        int         blockCount,
+        byte[]      out,
+        int         outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+        if (blockCount > (in.length - inOff) / blockSize)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if (blockCount > (out.length - outOff) / blockSize)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int resultLen = 0;
+
+        while (blockCount > 0)
+        {
+            int count = Math.min(blockCount, MULTI_BLOCK_COUNT);
+            int len = count * blockSize;
+
+            /*
+             * take a copy of the cipher text first as the output may overwrite the input.
+             */
+            System.arraycopy(in, inOff + resultLen, cbcBlocks, 0, len);
+
+            mbCipher.processBlocks(cbcBlocks, 0, count, out, outOff + resultLen);
+
+            /*
+             * XOR each block with the previous cipher text block
+             */
+            for (int i = 0; i < blockSize; i++)
+            {
+                out[outOff + resultLen + i] ^= cbcV[i];
+            }
+            for (int i = blockSize; i < len; i++)
+            {
+                out[outOff + resultLen + i] ^= cbcBlocks[i - blockSize];
+            }
+
+            System.arraycopy(cbcBlocks, len - blockSize, cbcV, 0, blockSize);
+
+            blockCount -= count;
+            resultLen += len;
+        }
+
+        return resultLen;
+    }
 }
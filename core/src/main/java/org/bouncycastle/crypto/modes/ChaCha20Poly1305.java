@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
@@ -35,6 +37,9 @@
     private static final int MAC_SIZE = 16;
     private static final byte[] ZEROES = new byte[MAC_SIZE - 1];
 
+    // input processed per pass when a ByteBuffer has no accessible backing array
+    private static final int BUFFER_CHUNK_SIZE = 1024;
+
     private static final long AAD_LIMIT = Long.MAX_VALUE - Long.MIN_VALUE;
     private static final long DATA_LIMIT = ((1L << 32) - 1) * 64;
 
@@ -52,6 +57,7 @@
     private long dataCount;
     private int state = State.UNINITIALIZED;
     private int bufPos;
+    private byte[] bufferScratch;
 
     public ChaCha20Poly1305()
     {
@@ -372,6 +378,95 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff) t
         return resultLen;
     }
 
+    /**
+     * Process the remaining bytes in the buffer in, writing any output to out. The positions of both
+     * buffers are advanced by the number of bytes consumed and produced.
+     * <p>
+     * Buffers backed by an accessible array are processed directly. Other buffers, such as direct
+     * buffers, are passed through a small reusable scratch array a chunk at a time.
+     * </p>
+     *
+     * @param in the input buffer.
+     * @param out the output buffer the processed bytes go into.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if the output buffer is too small.
+     */
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int len = in.remaining();
+        if (out.remaining() < getUpdateOutputSize(len))
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int inPos = in.position(), outPos = out.position();
+            int resultLen = processBytes(in.array(), in.arrayOffset() + inPos, len, out.array(), out.arrayOffset() + outPos);
+            in.position(inPos + len);
+            out.position(outPos + resultLen);
+            return resultLen;
+        }
+
+        byte[] scratch = getBufferScratch();
+        int resultLen = 0;
+        while (len > 0)
+        {
+            int chunk = Math.min(len, BUFFER_CHUNK_SIZE);
+            in.get(scratch, 0, chunk);
+            int outLen = processBytes(scratch, 0, chunk, scratch, BUFFER_CHUNK_SIZE);
+            out.put(scratch, BUFFER_CHUNK_SIZE, outLen);
+            len -= chunk;
+            resultLen += outLen;
+        }
+
+        return resultLen;
+    }
+
+    /**
+     * Finish the operation either appending or verifying the MAC at the end of the data, writing any
+     * output to out and advancing its position.
+     *
+     * @param out the output buffer.
+     * @return number of bytes written into out.
+     * @throws IllegalStateException if the cipher is in an inappropriate state.
+     * @throws InvalidCipherTextException if the MAC fails to match.
+     */
+    public int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        int len = getOutputSize(0);
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        if (out.hasArray())
+        {
+            int outPos = out.position();
+            int resultLen = doFinal(out.array(), out.arrayOffset() + outPos);
+            out.position(outPos + resultLen);
+            return resultLen;
+        }
+
+        // the final output is at most the buffered block plus the tag, so it always fits in the scratch array
+        byte[] scratch = getBufferScratch();
+        int resultLen = doFinal(scratch, 0);
+        out.put(scratch, 0, resultLen);
+        return resultLen;
+    }
+
+    private byte[] getBufferScratch()
+    {
+        if (bufferScratch == null)
+        {
+            // input chunk followed by room for its output, including anything already buffered
+            bufferScratch = new byte[BUFFER_CHUNK_SIZE * 2 + BUF_SIZE + MAC_SIZE];
+        }
+        return bufferScratch;
+    }
+
     public int doFinal(byte[] out, int outOff) throws IllegalStateException, InvalidCipherTextException
     {
         if (null == out)
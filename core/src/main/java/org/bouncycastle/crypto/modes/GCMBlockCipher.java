@@ -1,12 +1,16 @@
 package org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.gcm.BasicGCMExponentiator;
 import org.bouncycastle.crypto.modes.gcm.GCMExponentiator;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiBlockMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMUtil;
 import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
@@ -25,10 +29,19 @@
 {
     private static final int BLOCK_SIZE = 16;
 
+    // number of counter blocks encrypted per call to the cipher on the bulk processing path
+    private static final int MULTI_BLOCK_COUNT = 4;
+
+    // input processed per pass when a ByteBuffer has no accessible backing array
+    private static final int BUFFER_CHUNK_SIZE = 1024;
+
     // not final due to a compiler bug
     private BlockCipher   cipher;
+    private MultiBlockCipher mbCipher;
     private GCMMultiplier multiplier;
+    private GCMMultiBlockMultiplier mbMultiplier;
     private GCMExponentiator exp;
+    private boolean keyFixed;
 
     // These fields are set by init and not modified by processing
     private boolean             forEncryption;
@@ -45,6 +58,8 @@
     private byte[]      macBlock;
     private byte[]      S, S_at, S_atPre;
     private byte[]      counter;
+    private byte[]      ctrBlocks;
+    private byte[]      ctrOut;
     private int         blocksRemaining;
     private int         bufOff;
     private long        totalLength;
@@ -52,6 +67,7 @@
     private int         atBlockPos;
     private long        atLength;
     private long        atLengthPre;
+    private byte[]      bufferScratch;
 
     public GCMBlockCipher(BlockCipher c)
     {
@@ -73,6 +89,33 @@ public GCMBlockCipher(BlockCipher c, GCMMultiplier m)
 
         this.cipher = c;
         this.multiplier = m;
+
+        if (m instanceof GCMMultiBlockMultiplier)
+        {
+            this.mbMultiplier = (GCMMultiBlockMultiplier)m;
+        }
+
+        if (c instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)c;
+        }
+
+        this.ctrBlocks = new byte[MULTI_BLOCK_COUNT * BLOCK_SIZE];
+        this.ctrOut = new byte[MULTI_BLOCK_COUNT * BLOCK_SIZE];
+    }
+
+    /**
+     * Create a GCM cipher using a prepared key. The key's schedule and multiplier are shared rather than
+     * initialised again, so init() must be called with a nonce and a null key.
+     *
+     * @param key the prepared key to use.
+     */
+    public GCMBlockCipher(PreparedGCMKey key)
+    {
+        this(key.createCipher(), key.getMultiplier());
+
+        this.H = key.getH();
+        this.keyFixed = true;
     }
 
     public BlockCipher getUnderlyingCipher()
@@ -155,6 +198,10 @@ else if (params instanceof ParametersWithIV)
         nonce = newNonce;
         if (keyParam != null)
         {
+            if (keyFixed)
+            {
+                throw new IllegalArgumentException("GCM cipher created with a prepared key cannot be given a new key");
+            }
             lastKey = keyParam.getKey();
         }
 
@@ -351,12 +398,13 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
                 }
             }
 
-            while (len >= BLOCK_SIZE)
+            if (len >= BLOCK_SIZE)
             {
-                processBlock(in, inOff, out, outOff + resultLen);
-                inOff += BLOCK_SIZE;
-                len -= BLOCK_SIZE;
-                resultLen += BLOCK_SIZE;
+                int blockCount = len / BLOCK_SIZE;
+
+                resultLen += processBlocks(in, inOff, blockCount, out, outOff + resultLen);
+                inOff += blockCount * BLOCK_SIZE;
+                len -= blockCount * BLOCK_SIZE;
             }
 
             if (len > 0)
@@ -367,22 +415,147 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         }
         else
         {
-            for (int i = 0; i < len; ++i)
+            int available = bufBlock.length - bufOff;
+            if (len < available)
+            {
+                System.arraycopy(in, inOff, bufBlock, bufOff, len);
+                bufOff += len;
+                return 0;
+            }
+
+            if (bufOff >= BLOCK_SIZE)
             {
-                bufBlock[bufOff] = in[inOff + i];
-                if (++bufOff == bufBlock.length)
+                processBlock(bufBlock, 0, out, outOff);
+                System.arraycopy(bufBlock, BLOCK_SIZE, bufBlock, 0, bufOff -= BLOCK_SIZE);
+                resultLen = BLOCK_SIZE;
+
+                available += BLOCK_SIZE;
+                if (len < available)
                 {
-                    processBlock(bufBlock, 0, out, outOff + resultLen);
-                    System.arraycopy(bufBlock, BLOCK_SIZE, bufBlock, 0, macSize);
-                    bufOff = macSize;
-                    resultLen += BLOCK_SIZE;
+                    System.arraycopy(in, inOff, bufBlock, bufOff, len);
+                    bufOff += len;
+                    return resultLen;
                 }
             }
+
+            // complete the block started in bufBlock - there is enough input to leave macSize bytes over
+            available = BLOCK_SIZE - bufOff;
+            System.arraycopy(in, inOff, bufBlock, bufOff, available);
+            processBlock(bufBlock, 0, out, outOff + resultLen);
+            inOff += available;
+            len -= available;
+            resultLen += BLOCK_SIZE;
+
+            // process whole blocks directly from the input, keeping back enough for the MAC
+            if (len >= bufBlock.length)
+            {
+                int blockCount = (len - macSize) / BLOCK_SIZE;
+
+                resultLen += processBlocks(in, inOff, blockCount, out, outOff + resultLen);
+                inOff += blockCount * BLOCK_SIZE;
+                len -= blockCount * BLOCK_SIZE;
+            }
+
+            System.arraycopy(in, inOff, bufBlock, 0, len);
+            bufOff = len;
         }
 
         return resultLen;
     }
 
+    /**
+     * Process the remaining bytes in the buffer in, writing any output to out. The positions of both
+     * buffers are advanced by the number of bytes consumed and produced.
+     * <p>
+     * Buffers backed by an accessible array are processed directly. Other buffers, such as direct
+     * buffers, are passed through a small reusable scratch array a chunk at a time.
+     * </p>
+     *
+     * @param in the input buffer.
+     * @param out the output buffer the processed bytes go into.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if the output buffer is too small.
+     */
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        checkStatus();
+
+        int len = in.remaining();
+        if (out.remaining() < getUpdateOutputSize(len))
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int inPos = in.position(), outPos = out.position();
+            int resultLen = processBytes(in.array(), in.arrayOffset() + inPos, len, out.array(), out.arrayOffset() + outPos);
+            in.position(inPos + len);
+            out.position(outPos + resultLen);
+            return resultLen;
+        }
+
+        byte[] scratch = getBufferScratch();
+        int resultLen = 0;
+        while (len > 0)
+        {
+            int chunk = Math.min(len, BUFFER_CHUNK_SIZE);
+            in.get(scratch, 0, chunk);
+            int outLen = processBytes(scratch, 0, chunk, scratch, BUFFER_CHUNK_SIZE);
+            out.put(scratch, BUFFER_CHUNK_SIZE, outLen);
+            len -= chunk;
+            resultLen += outLen;
+        }
+
+        return resultLen;
+    }
+
+    /**
+     * Finish the operation either appending or verifying the MAC at the end of the data, writing any
+     * output to out and advancing its position.
+     *
+     * @param out the output buffer.
+     * @return number of bytes written into out.
+     * @throws IllegalStateException if the cipher is in an inappropriate state.
+     * @throws InvalidCipherTextException if the MAC fails to match.
+     */
+    public int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        checkStatus();
+
+        int len = getOutputSize(0);
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        if (out.hasArray())
+        {
+            int outPos = out.position();
+            int resultLen = doFinal(out.array(), out.arrayOffset() + outPos);
+            out.position(outPos + resultLen);
+            return resultLen;
+        }
+
+        // the final output is at most a block plus the tag, so it always fits in the scratch array
+        byte[] scratch = getBufferScratch();
+        int resultLen = doFinal(scratch, 0);
+        out.put(scratch, 0, resultLen);
+        return resultLen;
+    }
+
+    private byte[] getBufferScratch()
+    {
+        if (bufferScratch == null)
+        {
+            // input chunk followed by room for its output, including anything already buffered
+            bufferScratch = new byte[BUFFER_CHUNK_SIZE * 2 + BLOCK_SIZE * 2];
+        }
+        return bufferScratch;
+    }
+
     public int doFinal(byte[] out, int outOff)
         throws IllegalStateException, InvalidCipherTextException
     {
@@ -579,6 +752,52 @@ private void processBlock(byte[] buf, int bufOff, byte[] out, int outOff)
         totalLength += BLOCK_SIZE;
     }
 
+    private int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+    {
+        int len = blockCount * BLOCK_SIZE;
+
+        if ((out.length - outOff) < len)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        int pos = 0;
+        while (pos < len)
+        {
+            int count = Math.min((len - pos) / BLOCK_SIZE, MULTI_BLOCK_COUNT);
+            int countLen = count * BLOCK_SIZE;
+
+            getNextCTRBlocks(count);
+
+            if (forEncryption)
+            {
+                for (int i = 0; i < countLen; i += BLOCK_SIZE)
+                {
+                    GCMUtil.xor(ctrOut, i, in, inOff + pos + i, out, outOff + pos + i);
+                }
+                gHASHBlocks(S, out, outOff + pos, count);
+            }
+            else
+            {
+                gHASHBlocks(S, in, inOff + pos, count);
+                for (int i = 0; i < countLen; i += BLOCK_SIZE)
+                {
+                    GCMUtil.xor(ctrOut, i, in, inOff + pos + i, out, outOff + pos + i);
+                }
+            }
+
+            pos += countLen;
+        }
+
+        totalLength += len;
+
+        return len;
+    }
+
     private void processPartial(byte[] buf, int off, int len, byte[] out, int outOff)
     {
         byte[] ctrBlock = new byte[BLOCK_SIZE];
@@ -620,6 +839,21 @@ private void gHASHBlock(byte[] Y, byte[] b, int off)
         multiplier.multiplyH(Y);
     }
 
+    private void gHASHBlocks(byte[] Y, byte[] b, int off, int blockCount)
+    {
+        if (mbMultiplier != null)
+        {
+            mbMultiplier.multiplyBlocksH(Y, b, off, blockCount);
+        }
+        else
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                gHASHBlock(Y, b, off + i * BLOCK_SIZE);
+            }
+        }
+    }
+
     private void gHASHPartial(byte[] Y, byte[] b, int off, int len)
     {
         GCMUtil.xor(Y, b, off, len);
@@ -643,6 +877,38 @@ private void getNextCTRBlock(byte[] block)
         cipher.processBlock(counter, 0, block, 0);
     }
 
+    private void getNextCTRBlocks(int blockCount)
+    {
+        if ((blocksRemaining & 0xFFFFFFFFL) < blockCount)
+        {
+            throw new IllegalStateException("Attempt to process too many blocks");
+        }
+        blocksRemaining -= blockCount;
+
+        for (int i = 0; i < blockCount * BLOCK_SIZE; i += BLOCK_SIZE)
+        {
+            int c = 1;
+            c += counter[15] & 0xFF; counter[15] = (byte)c; c >>>= 8;
+            c += counter[14] & 0xFF; counter[14] = (byte)c; c >>>= 8;
+            c += counter[13] & 0xFF; counter[13] = (byte)c; c >>>= 8;
+            c += counter[12] & 0xFF; counter[12] = (byte)c;
+
+            System.arraycopy(counter, 0, ctrBlocks, i, BLOCK_SIZE);
+        }
+
+        if (mbCipher != null)
+        {
+            mbCipher.processBlocks(ctrBlocks, 0, blockCount, ctrOut, 0);
+        }
+        else
+        {
+            for (int i = 0; i < blockCount * BLOCK_SIZE; i += BLOCK_SIZE)
+            {
+                cipher.processBlock(ctrBlocks, i, ctrOut, i);
+            }
+        }
+    }
+
     private void checkStatus()
     {
         if (!initialised)
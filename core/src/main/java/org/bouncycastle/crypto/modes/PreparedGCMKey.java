@@ -0,0 +1,113 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESKeySchedule;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+/**
+ * An AES-GCM key with the AES key schedule and the GHASH multiplication tables computed up front.
+ * <p>
+ * A prepared key is immutable once constructed and may be shared between threads. Each message is
+ * then processed by a {@link GCMBlockCipher} created with {@link GCMBlockCipher#GCMBlockCipher(PreparedGCMKey)},
+ * which binds its own AES engine to the shared key schedule and only carries the per-message state. It is
+ * initialised with a nonce and no key, so creating one costs little more than the buffers it allocates.
+ * The GCM ciphers created on a prepared key must not be shared between threads, and as each one is
+ * separate, the caller is responsible for never using the same nonce twice under the key.
+ * </p>
+ */
+public class PreparedGCMKey
+{
+    private final AESKeySchedule keySchedule;
+    private final GCMMultiplier multiplier;
+    private final byte[] H;
+
+    /**
+     * Prepare an AES-GCM key using the default multiplier.
+     *
+     * @param key the AES key.
+     */
+    public PreparedGCMKey(KeyParameter key)
+    {
+        this(key, new Tables4kGCMMultiplier());
+    }
+
+    /**
+     * Prepare an AES-GCM key using the passed in multiplier. The multiplier becomes part of the key and
+     * should not be used elsewhere.
+     *
+     * @param key the AES key.
+     * @param multiplier the multiplier to build the GHASH tables in.
+     */
+    public PreparedGCMKey(KeyParameter key, GCMMultiplier multiplier)
+    {
+        this(new AESKeySchedule(checkKey(key).getKey(), true), multiplier);
+    }
+
+    /**
+     * Prepare an AES-GCM key from an existing AES encryption key schedule, using the passed in multiplier.
+     * The multiplier becomes part of the key and should not be used elsewhere.
+     *
+     * @param keySchedule an AES key schedule for encryption (GCM only uses the cipher in the forward direction).
+     * @param multiplier the multiplier to build the GHASH tables in.
+     */
+    public PreparedGCMKey(AESKeySchedule keySchedule, GCMMultiplier multiplier)
+    {
+        if (keySchedule == null)
+        {
+            throw new IllegalArgumentException("keySchedule cannot be null");
+        }
+        if (!keySchedule.isForEncryption())
+        {
+            throw new IllegalArgumentException("GCM requires an AES key schedule for encryption");
+        }
+        if (multiplier == null)
+        {
+            throw new IllegalArgumentException("multiplier cannot be null");
+        }
+
+        BlockCipher aes = createCipher(keySchedule);
+
+        byte[] h = new byte[aes.getBlockSize()];
+        aes.processBlock(h, 0, h, 0);
+
+        multiplier.init(h);
+
+        this.keySchedule = keySchedule;
+        this.multiplier = multiplier;
+        this.H = h;
+    }
+
+    BlockCipher createCipher()
+    {
+        return createCipher(keySchedule);
+    }
+
+    GCMMultiplier getMultiplier()
+    {
+        return multiplier;
+    }
+
+    byte[] getH()
+    {
+        return H;
+    }
+
+    private static BlockCipher createCipher(AESKeySchedule keySchedule)
+    {
+        AESEngine aes = new AESEngine();
+        aes.init(true, keySchedule);
+        return aes;
+    }
+
+    private static KeyParameter checkKey(KeyParameter key)
+    {
+        if (key == null)
+        {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        return key;
+    }
+}
@@ -3,6 +3,7 @@
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.SkippingStreamCipher;
 import org.bouncycastle.crypto.StreamBlockCipher;
@@ -16,9 +17,13 @@
  */
 public class SICBlockCipher
     extends StreamBlockCipher
-    implements SkippingStreamCipher
+    implements SkippingStreamCipher, MultiBlockCipher
 {
+    // number of counter blocks encrypted per call when the cipher supports multi-block processing
+    private static final int MULTI_BLOCK_COUNT = 8;
+
     private final BlockCipher     cipher;
+    private final MultiBlockCipher mbCipher;
     private final int             blockSize;
 
     private byte[]          IV;
@@ -26,6 +31,9 @@
     private byte[]          counterOut;
     private int             byteCount;
 
+    private byte[]          counterBlocks;
+    private byte[]          keyStream;
+
     /**
      * Basic constructor.
      *
@@ -41,6 +49,17 @@ public SICBlockCipher(BlockCipher c)
         this.counter = new byte[blockSize];
         this.counterOut = new byte[blockSize];
         this.byteCount = 0;
+
+        if (c instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)c;
+            this.counterBlocks = new byte[MULTI_BLOCK_COUNT * blockSize];
+            this.keyStream = new byte[MULTI_BLOCK_COUNT * blockSize];
+        }
+        else
+        {
+            this.mbCipher = null;
+        }
     }
 
     public void init(
@@ -116,6 +135,21 @@ public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
         return blockSize;
     }
 
+    public int getMultiBlockSize()
+    {
+        if (mbCipher != null)
+        {
+            return mbCipher.getMultiBlockSize();
+        }
+        return blockSize;
+    }
+
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        return processBytes(in, inOff, blockCount * blockSize, out, outOff);
+    }
+
     public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         throws DataLengthException
     {
@@ -128,7 +162,45 @@ public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
             throw new OutputLengthException("output buffer too short");
         }
 
-        for (int i = 0; i < len; ++i)
+        int i = 0;
+
+        if (mbCipher != null)
+        {
+            // finish off any partially used key stream block first
+            while (byteCount != 0 && i < len)
+            {
+                out[outOff + i] = (byte)(in[inOff + i] ^ counterOut[byteCount++]);
+                ++i;
+                if (byteCount == counter.length)
+                {
+                    byteCount = 0;
+                    incrementCounterChecked();
+                }
+            }
+
+            while (len - i >= blockSize)
+            {
+                int blockCount = Math.min((len - i) / blockSize, MULTI_BLOCK_COUNT);
+                int count = blockCount * blockSize;
+
+                for (int pos = 0; pos < count; pos += blockSize)
+                {
+                    System.arraycopy(counter, 0, counterBlocks, pos, blockSize);
+                    incrementCounterChecked();
+                }
+
+                mbCipher.processBlocks(counterBlocks, 0, blockCount, keyStream, 0);
+
+                for (int pos = 0; pos < count; ++pos)
+                {
+                    out[outOff + i + pos] = (byte)(in[inOff + i + pos] ^ keyStream[pos]);
+                }
+
+                i += count;
+            }
+        }
+
+        for (; i < len; ++i)
         {
             byte next;
             if (byteCount == 0)
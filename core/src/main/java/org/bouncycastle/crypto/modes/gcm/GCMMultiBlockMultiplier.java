@@ -0,0 +1,20 @@
+package org.bouncycastle.crypto.modes.gcm;
+
+/**
+ * A GCMMultiplier that can fold several blocks into the GHASH state in a single call, for
+ * example by using precomputed powers of H and a single reduction across all the blocks.
+ */
+public interface GCMMultiBlockMultiplier
+    extends GCMMultiplier
+{
+    /**
+     * Update the hash state Y with blockCount consecutive 16 byte blocks taken from x, that is
+     * Y = (...((Y ^ x_1).H ^ x_2).H ... ^ x_n).H
+     *
+     * @param Y the hash state, updated in place.
+     * @param x the array holding the blocks to hash.
+     * @param xOff the offset of the first block in x.
+     * @param blockCount the number of blocks to hash.
+     */
+    void multiplyBlocksH(byte[] Y, byte[] x, int xOff, int blockCount);
+}
@@ -0,0 +1,149 @@
+package org.bouncycastle.crypto.modes.gcm;
+
+import org.bouncycastle.util.Pack;
+
+/**
+ * A 4k table per power of H for H, H^2, H^3 and H^4. Runs of blocks are hashed four at a time
+ * as (Y ^ x_1).H^4 ^ x_2.H^3 ^ x_3.H^2 ^ x_4.H, which lets the four table lookups per byte proceed
+ * independently and shares one shift/reduction chain between the four products.
+ */
+public class Tables16kGCMMultiplier
+    implements GCMMultiBlockMultiplier
+{
+    private static final int POWERS = 4;
+
+    private byte[] H;
+    private long[][][] T;
+
+    public void init(byte[] H)
+    {
+        if (T == null)
+        {
+            T = new long[POWERS][256][2];
+        }
+        else if (0 != GCMUtil.areEqual(this.H, H))
+        {
+            return;
+        }
+
+        this.H = new byte[GCMUtil.SIZE_BYTES];
+        GCMUtil.copy(H, this.H);
+
+        long[] h = GCMUtil.asLongs(this.H);
+        long[] hPow = GCMUtil.asLongs(this.H);
+
+        for (int p = 0; p < POWERS; ++p)
+        {
+            long[][] t = T[p];
+
+            if (p > 0)
+            {
+                // hPow = H^(p + 1)
+                GCMUtil.multiply(hPow, h);
+            }
+
+            // t[0] = 0
+
+            // t[1] = H^(p + 1).p^7
+            GCMUtil.multiplyP7(hPow, t[1]);
+
+            for (int n = 2; n < 256; n += 2)
+            {
+                // t[2.n] = t[n].p^-1
+                GCMUtil.divideP(t[n >> 1], t[n]);
+
+                // t[2.n + 1] = t[2.n] + t[1]
+                GCMUtil.xor(t[n], t[1], t[n + 1]);
+            }
+        }
+    }
+
+    public void multiplyH(byte[] x)
+    {
+        long[][] T0 = T[0];
+
+        long[] t = T0[x[15] & 0xFF];
+        long z0 = t[0], z1 = t[1];
+
+        for (int i = 14; i >= 0; --i)
+        {
+            t = T0[x[i] & 0xFF];
+
+            long c = z1 << 56;
+            z1 = t[1] ^ ((z1 >>> 8) | (z0 << 56));
+            z0 = t[0] ^ (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+        }
+
+        Pack.longToBigEndian(z0, x, 0);
+        Pack.longToBigEndian(z1, x, 8);
+    }
+
+    public void multiplyBlocksH(byte[] Y, byte[] x, int xOff, int blockCount)
+    {
+        while (blockCount >= POWERS)
+        {
+            multiply4(Y, x, xOff);
+            xOff += POWERS * GCMUtil.SIZE_BYTES;
+            blockCount -= POWERS;
+        }
+
+        if (blockCount > 0)
+        {
+            multiplyN(Y, x, xOff, blockCount);
+        }
+    }
+
+    private void multiply4(byte[] Y, byte[] x, int xOff)
+    {
+        long[][] T0 = T[0], T1 = T[1], T2 = T[2], T3 = T[3];
+        int x1 = xOff, x2 = xOff + 16, x3 = xOff + 32, x4 = xOff + 48;
+
+        long[] t = T3[(Y[15] ^ x[x1 + 15]) & 0xFF];
+        long[] u = T2[x[x2 + 15] & 0xFF];
+        long[] v = T1[x[x3 + 15] & 0xFF];
+        long[] w = T0[x[x4 + 15] & 0xFF];
+        long z0 = t[0] ^ u[0] ^ v[0] ^ w[0], z1 = t[1] ^ u[1] ^ v[1] ^ w[1];
+
+        for (int i = 14; i >= 0; --i)
+        {
+            t = T3[(Y[i] ^ x[x1 + i]) & 0xFF];
+            u = T2[x[x2 + i] & 0xFF];
+            v = T1[x[x3 + i] & 0xFF];
+            w = T0[x[x4 + i] & 0xFF];
+
+            long c = z1 << 56;
+            z1 = t[1] ^ u[1] ^ v[1] ^ w[1] ^ ((z1 >>> 8) | (z0 << 56));
+            z0 = t[0] ^ u[0] ^ v[0] ^ w[0] ^ (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+        }
+
+        Pack.longToBigEndian(z0, Y, 0);
+        Pack.longToBigEndian(z1, Y, 8);
+    }
+
+    private void multiplyN(byte[] Y, byte[] x, int xOff, int blockCount)
+    {
+        long z0 = 0, z1 = 0;
+
+        for (int i = 15; i >= 0; --i)
+        {
+            long c = z1 << 56;
+            z1 = (z1 >>> 8) | (z0 << 56);
+            z0 = (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+
+            // block j is multiplied by H^(blockCount - j), the first block also absorbs Y
+            long[] t = T[blockCount - 1][(Y[i] ^ x[xOff + i]) & 0xFF];
+            z0 ^= t[0];
+            z1 ^= t[1];
+
+            for (int j = 1; j < blockCount; ++j)
+            {
+                t = T[blockCount - 1 - j][x[xOff + (j << 4) + i] & 0xFF];
+                z0 ^= t[0];
+                z1 ^= t[1];
+            }
+        }
+
+        Pack.longToBigEndian(z0, Y, 0);
+        Pack.longToBigEndian(z1, Y, 8);
+    }
+}
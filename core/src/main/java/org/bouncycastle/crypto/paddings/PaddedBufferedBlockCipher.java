@@ -5,6 +5,7 @@
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
 
@@ -33,6 +34,11 @@ public PaddedBufferedBlockCipher(
         this.cipher = cipher;
         this.padding = padding;
 
+        if (cipher instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)cipher;
+        }
+
         buf = new byte[cipher.getBlockSize()];
         bufOff = 0;
     }
@@ -209,12 +215,24 @@ public int processBytes(
             len -= gapLen;
             inOff += gapLen;
 
-            while (len > buf.length)
+            if (mbCipher != null)
+            {
+                int blockCount = (len - 1) / blockSize;
+
+                resultLen += mbCipher.processBlocks(in, inOff, blockCount, out, outOff + resultLen);
+
+                len -= blockCount * blockSize;
+                inOff += blockCount * blockSize;
+            }
+            else
             {
-                resultLen += cipher.processBlock(in, inOff, out, outOff + resultLen);
+                while (len > buf.length)
+                {
+                    resultLen += cipher.processBlock(in, inOff, out, outOff + resultLen);
 
-                len -= blockSize;
-                inOff += blockSize;
+                    len -= blockSize;
+                    inOff += blockSize;
+                }
             }
         }
 
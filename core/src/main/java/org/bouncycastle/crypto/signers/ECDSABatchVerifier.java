@@ -0,0 +1,183 @@
+package org.bouncycastle.crypto.signers;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECConstants;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.BigIntegers;
+
+/**
+ * Verifier for batches of ECDSA signatures made with keys on the same domain parameters.
+ * <p>
+ * Each signature is still checked individually, so the results are exactly those of {@link ECDSASigner}, but
+ * the work is shared where possible: the inverses of all the s values are found with a single modular
+ * inversion, and each check is a single interleaved multiplication of the base point and the public key
+ * which reuses the base point's precomputation across the batch.
+ * </p>
+ */
+public class ECDSABatchVerifier
+{
+    // supplies the per-signature steps, so they are exactly those of a single verification
+    private final ECDSASigner signer = new ECDSASigner();
+
+    private ECDomainParameters parameters;
+
+    private ECPoint[] qs = new ECPoint[16];
+    private BigInteger[] es = new BigInteger[16];
+    private BigInteger[] rs = new BigInteger[16];
+    private BigInteger[] ss = new BigInteger[16];
+    private int count = 0;
+
+    public ECDSABatchVerifier()
+    {
+    }
+
+    /**
+     * Add a signature to the batch.
+     *
+     * @param publicKey the public key for the signature, which must have the same domain parameters as the
+     * keys already in the batch.
+     * @param message the message that was signed, as it would be passed to {@link ECDSASigner#verifySignature}
+     * (normally the hash of the real message).
+     * @param r the r value of the signature.
+     * @param s the s value of the signature.
+     */
+    public void add(ECPublicKeyParameters publicKey, byte[] message, BigInteger r, BigInteger s)
+    {
+        if (count == 0)
+        {
+            parameters = publicKey.getParameters();
+        }
+        else if (!parameters.equals(publicKey.getParameters()))
+        {
+            throw new IllegalArgumentException("public key domain parameters differ from the rest of the batch");
+        }
+
+        if (count == qs.length)
+        {
+            int newLength = count * 2;
+            qs = (ECPoint[])grow(qs, new ECPoint[newLength]);
+            es = (BigInteger[])grow(es, new BigInteger[newLength]);
+            rs = (BigInteger[])grow(rs, new BigInteger[newLength]);
+            ss = (BigInteger[])grow(ss, new BigInteger[newLength]);
+        }
+
+        qs[count] = publicKey.getQ();
+        es[count] = signer.calculateE(parameters.getN(), message);
+        rs[count] = r;
+        ss[count] = s;
+        ++count;
+    }
+
+    /**
+     * Return the number of signatures added since the last reset.
+     *
+     * @return the size of the batch.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Verify all the signatures in the batch.
+     *
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public boolean verify()
+    {
+        boolean[] results = verifyEach();
+        for (int i = 0; i < results.length; ++i)
+        {
+            if (!results[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verify each of the signatures in the batch.
+     *
+     * @return an array with the result for each signature, in the order they were added.
+     */
+    public boolean[] verifyEach()
+    {
+        boolean[] results = new boolean[count];
+        if (count == 0)
+        {
+            return results;
+        }
+
+        BigInteger n = parameters.getN();
+
+        // r and s in the range [1,n-1]; the product of the valid s values is accumulated for the shared inversion
+        BigInteger[] products = new BigInteger[count];
+        BigInteger product = ECConstants.ONE;
+        for (int i = 0; i < count; ++i)
+        {
+            results[i] = isInRange(n, rs[i]) && isInRange(n, ss[i]);
+            if (results[i])
+            {
+                product = product.multiply(ss[i]).mod(n);
+            }
+            products[i] = product;
+        }
+
+        BigInteger inverse = BigIntegers.modOddInverseVar(n, product);
+
+        ECPoint G = parameters.getG();
+
+        for (int i = count - 1; i >= 0; --i)
+        {
+            if (!results[i])
+            {
+                continue;
+            }
+
+            // inverse is currently the inverse of products[i], so c = s[i]^-1
+            BigInteger c = (i > 0) ? inverse.multiply(products[i - 1]).mod(n) : inverse;
+            inverse = inverse.multiply(ss[i]).mod(n);
+
+            BigInteger u1 = es[i].multiply(c).mod(n);
+            BigInteger u2 = rs[i].multiply(c).mod(n);
+
+            ECPoint point = ECAlgorithms.sumOfTwoMultiplies(G, u1, qs[i], u2);
+
+            results[i] = !point.isInfinity() && signer.checkX(point, n, rs[i]);
+        }
+
+        return results;
+    }
+
+    /**
+     * Remove all the signatures from the batch.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            qs[i] = null;
+            es[i] = null;
+            rs[i] = null;
+            ss[i] = null;
+        }
+        count = 0;
+        parameters = null;
+    }
+
+    private static boolean isInRange(BigInteger n, BigInteger x)
+    {
+        return x.signum() > 0 && x.compareTo(n) < 0;
+    }
+
+    private static Object[] grow(Object[] a, Object[] b)
+    {
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
@@ -176,6 +176,14 @@ public boolean verifySignature(
             return false;
         }
 
+        return checkX(point, n, r);
+    }
+
+    /**
+     * Check whether the x coordinate of point, reduced modulo n, is r.
+     */
+    boolean checkX(ECPoint point, BigInteger n, BigInteger r)
+    {
         /*
          * If possible, avoid normalizing the point (to save a modular inversion in the curve field).
          * 
@@ -0,0 +1,158 @@
+package org.bouncycastle.crypto.signers;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
+
+/**
+ * Verifier for batches of Ed25519 signatures.
+ * <p>
+ * Signatures are added with their public key and message and are then checked together using
+ * {@link Ed25519#verifyBatch(SecureRandom, byte[][], byte[][], byte[][])}, which is considerably faster
+ * than checking each with an {@link Ed25519Signer}. Note that batch verification uses the cofactored
+ * verification equation, see {@link Ed25519#verifyBatch(SecureRandom, byte[][], byte[][], byte[][])}
+ * for details.
+ * </p>
+ */
+public class Ed25519BatchVerifier
+{
+    private final SecureRandom random;
+
+    private byte[][] sigs = new byte[16][];
+    private byte[][] pks = new byte[16][];
+    private byte[][] ms = new byte[16][];
+    private int count = 0;
+
+    public Ed25519BatchVerifier()
+    {
+        this(null);
+    }
+
+    /**
+     * Base constructor.
+     *
+     * @param random source of randomness for the verification coefficients.
+     */
+    public Ed25519BatchVerifier(SecureRandom random)
+    {
+        this.random = CryptoServicesRegistrar.getSecureRandom(random);
+    }
+
+    /**
+     * Add a signature to the batch. The message is not copied and should not be changed until
+     * the batch has been verified.
+     *
+     * @param publicKey the public key for the signature.
+     * @param message the message that was signed.
+     * @param signature the signature.
+     */
+    public void add(Ed25519PublicKeyParameters publicKey, byte[] message, byte[] signature)
+    {
+        if (count == sigs.length)
+        {
+            sigs = grow(sigs);
+            pks = grow(pks);
+            ms = grow(ms);
+        }
+
+        sigs[count] = signature;
+        pks[count] = publicKey.getEncoded();
+        ms[count] = message;
+        ++count;
+    }
+
+    /**
+     * Return the number of signatures added since the last reset.
+     *
+     * @return the size of the batch.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Verify all the signatures in the batch.
+     *
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public boolean verify()
+    {
+        return verifyRange(0, count);
+    }
+
+    /**
+     * Verify the batch, identifying the invalid signatures. Where the batch as a whole does not verify, it is
+     * split and the parts verified separately, so the cost grows with the number of invalid signatures.
+     *
+     * @return an array with the result for each signature, in the order they were added.
+     */
+    public boolean[] verifyEach()
+    {
+        boolean[] results = new boolean[count];
+        verifyEach(0, count, results);
+        return results;
+    }
+
+    /**
+     * Remove all the signatures from the batch.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            sigs[i] = null;
+            pks[i] = null;
+            ms[i] = null;
+        }
+        count = 0;
+    }
+
+    private void verifyEach(int off, int len, boolean[] results)
+    {
+        if (verifyRange(off, len))
+        {
+            for (int i = 0; i < len; ++i)
+            {
+                results[off + i] = true;
+            }
+        }
+        else if (len > 1)
+        {
+            int half = len / 2;
+            verifyEach(off, half, results);
+            verifyEach(off + half, len - half, results);
+        }
+    }
+
+    private boolean verifyRange(int off, int len)
+    {
+        byte[][] rSigs = new byte[len][];
+        byte[][] rPks = new byte[len][];
+        byte[][] rMs = new byte[len][];
+
+        for (int i = 0; i < len; ++i)
+        {
+            // as for Ed25519Signer, a signature of the wrong length is just invalid
+            if (sigs[off + i].length != Ed25519.SIGNATURE_SIZE)
+            {
+                return false;
+            }
+
+            rSigs[i] = sigs[off + i];
+            rPks[i] = pks[off + i];
+            rMs[i] = ms[off + i];
+        }
+
+        return Ed25519.verifyBatch(random, rSigs, rPks, rMs);
+    }
+
+    private static byte[][] grow(byte[][] a)
+    {
+        byte[][] b = new byte[a.length * 2][];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
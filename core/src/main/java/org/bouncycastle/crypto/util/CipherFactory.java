@@ -30,6 +30,7 @@
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.modes.CCMBlockCipher;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.gcm.Tables16kGCMMultiplier;
 import org.bouncycastle.crypto.paddings.PKCS7Padding;
 import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
@@ -177,7 +178,7 @@ private static AEADBlockCipher createAEADCipher(ASN1ObjectIdentifier algorithm)
             || NISTObjectIdentifiers.id_aes192_GCM.equals(algorithm)
             || NISTObjectIdentifiers.id_aes256_GCM.equals(algorithm))
         {
-            return new GCMBlockCipher(new AESEngine());
+            return new GCMBlockCipher(new AESEngine(), new Tables16kGCMMultiplier());
         }
         if (NISTObjectIdentifiers.id_aes128_CCM.equals(algorithm)
             || NISTObjectIdentifiers.id_aes192_CCM.equals(algorithm)
@@ -8,9 +8,16 @@
 import org.bouncycastle.math.field.FiniteField;
 import org.bouncycastle.math.field.PolynomialExtensionField;
 import org.bouncycastle.math.raw.Nat;
+import org.bouncycastle.util.Integers;
 
 public class ECAlgorithms
 {
+    /*
+     * Below this many points, interleaved wNAF (Straus) beats the bucket method, since it does
+     * fewer additions per point for short inputs and reuses any precomputation cached on the points.
+     */
+    private static final int PIPPENGER_THRESHOLD = 256;
+
     public static boolean isF2mCurve(ECCurve c)
     {
         return isF2mField(c.getField());
@@ -61,6 +68,16 @@ public static ECPoint sumOfMultiplies(ECPoint[] ps, BigInteger[] ks)
         }
 
         ECEndomorphism endomorphism = c.getEndomorphism();
+        if (count >= PIPPENGER_THRESHOLD && isFpCurve(c))
+        {
+            if (endomorphism instanceof GLVEndomorphism)
+            {
+                return implCheckResult(implSumOfMultipliesPippengerGLV(imported, ks, (GLVEndomorphism)endomorphism));
+            }
+
+            return implCheckResult(implSumOfMultipliesPippenger(imported, ks));
+        }
+
         if (endomorphism instanceof GLVEndomorphism)
         {
             return implCheckResult(implSumOfMultipliesGLV(imported, ks, (GLVEndomorphism)endomorphism));
@@ -487,6 +504,147 @@ static ECPoint implSumOfMultiplies(ECEndomorphism endomorphism, ECPoint[] ps, Bi
         return implSumOfMultiplies(negs, infos, wnafs);
     }
 
+    static ECPoint implSumOfMultipliesPippengerGLV(ECPoint[] ps, BigInteger[] ks, GLVEndomorphism glvEndomorphism)
+    {
+        BigInteger n = ps[0].getCurve().getOrder();
+
+        int len = ps.length;
+
+        ECPoint[] pqs = new ECPoint[len << 1];
+        BigInteger[] abs = new BigInteger[len << 1];
+        for (int i = 0, j = 0; i < len; ++i, j += 2)
+        {
+            BigInteger[] ab = glvEndomorphism.decomposeScalar(ks[i].mod(n));
+            abs[j] = ab[0];
+            abs[j + 1] = ab[1];
+
+            ECPoint p = ps[i];
+            pqs[j] = p;
+            pqs[j + 1] = EndoUtil.mapPoint(glvEndomorphism, p);
+        }
+
+        return implSumOfMultipliesPippenger(pqs, abs);
+    }
+
+    /*
+     * Pippenger's bucket method, using signed digits so that only 2^(c-1) buckets are needed for
+     * each c-bit window. The points are normalized first, so that every point added to a bucket
+     * takes the cheaper mixed addition (which the custom curves' Jacobian arithmetic detects);
+     * only the bucket sums need general additions. The cost per window is one addition per point
+     * plus two per bucket, making the total roughly (b / c) * (n + 2^c) for n points and b-bit
+     * scalars, against n * b / (w + 1) for interleaved wNAF.
+     */
+    static ECPoint implSumOfMultipliesPippenger(ECPoint[] ps, BigInteger[] ks)
+    {
+        int count = ps.length;
+
+        ECPoint[] points = new ECPoint[count];
+        BigInteger[] scalars = new BigInteger[count];
+        int bits = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            BigInteger ki = ks[i];
+            points[i] = ki.signum() < 0 ? ps[i].negate() : ps[i];
+            scalars[i] = ki.abs();
+            bits = Math.max(bits, scalars[i].bitLength());
+        }
+
+        ECCurve curve = ps[0].getCurve();
+        ECPoint infinity = curve.getInfinity();
+
+        if (bits == 0)
+        {
+            return infinity;
+        }
+
+        curve.normalizeAll(points);
+
+        ECPoint[] negPoints = new ECPoint[count];
+        for (int i = 0; i < count; ++i)
+        {
+            negPoints[i] = points[i].negate();
+        }
+
+        int c = getPippengerWindowSize(count);
+        int mask = (1 << c) - 1, half = 1 << (c - 1);
+
+        // one more bit than the scalars, for the final carry out of the signed digits
+        int windows = (bits + c) / c;
+        int natLen = (windows * c + 31) >>> 5;
+
+        int[] digits = new int[windows * count];
+        for (int i = 0; i < count; ++i)
+        {
+            int[] x = Nat.fromBigInteger(natLen << 5, scalars[i]);
+
+            int carry = 0;
+            for (int w = 0; w < windows; ++w)
+            {
+                int pos = w * c, word = pos >>> 5, shift = pos & 31;
+
+                int d = x[word] >>> shift;
+                if (shift + c > 32 && word + 1 < natLen)
+                {
+                    d |= x[word + 1] << (32 - shift);
+                }
+                d = (d & mask) + carry;
+
+                carry = (d + half - 1) >>> c;
+                d -= carry << c;
+
+                digits[w * count + i] = d;
+            }
+        }
+
+        ECPoint[] buckets = new ECPoint[half];
+
+        ECPoint R = infinity;
+        for (int w = windows - 1; w >= 0; --w)
+        {
+            R = R.timesPow2(c);
+
+            for (int j = 0; j < half; ++j)
+            {
+                buckets[j] = null;
+            }
+
+            int base = w * count;
+            for (int i = 0; i < count; ++i)
+            {
+                int d = digits[base + i];
+                if (d != 0)
+                {
+                    int j = Math.abs(d) - 1;
+                    ECPoint p = d > 0 ? points[i] : negPoints[i];
+                    ECPoint b = buckets[j];
+                    buckets[j] = b == null ? p : b.add(p);
+                }
+            }
+
+            // sum of (j + 1) * buckets[j], by accumulating running sums from the top bucket down
+            ECPoint sum = infinity, acc = infinity;
+            for (int j = half - 1; j >= 0; --j)
+            {
+                ECPoint b = buckets[j];
+                if (b != null)
+                {
+                    sum = sum.add(b);
+                }
+                acc = acc.add(sum);
+            }
+
+            R = R.add(acc);
+        }
+
+        return R;
+    }
+
+    private static int getPippengerWindowSize(int count)
+    {
+        int log2 = 31 - Integers.numberOfLeadingZeros(count);
+        return Math.max(4, Math.min(16, log2 - 2));
+    }
+
     private static ECPoint implSumOfMultiplies(boolean[] negs, WNafPreCompInfo[] infos, byte[][] wnafs)
     {
         int len = 0, count = wnafs.length;
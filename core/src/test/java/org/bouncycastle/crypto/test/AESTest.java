@@ -7,12 +7,14 @@
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESKeySchedule;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.modes.CFBBlockCipher;
 import org.bouncycastle.crypto.modes.OFBBlockCipher;
 import org.bouncycastle.crypto.modes.SICBlockCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.encoders.Hex;
 import org.bouncycastle.util.test.SimpleTest;
 
@@ -497,6 +499,66 @@ public void performTest()
         skipTest();
         ctrCounterTest();
         ctrFragmentedTest();
+        keyScheduleTest();
+    }
+
+    private void keyScheduleTest()
+    {
+        SecureRandom random = new SecureRandom();
+        byte[] data = new byte[16 * 8];
+        random.nextBytes(data);
+
+        for (int keySize = 16; keySize <= 32; keySize += 8)
+        {
+            byte[] key = new byte[keySize];
+            random.nextBytes(key);
+
+            for (int i = 0; i != 2; i++)
+            {
+                boolean forEncryption = (i == 0);
+
+                AESKeySchedule keySchedule = new AESKeySchedule(key, forEncryption);
+                isEquals("wrong rounds", keySize / 4 + 6, keySchedule.getRounds());
+
+                AESEngine expected = new AESEngine();
+                expected.init(forEncryption, new KeyParameter(key));
+                byte[] expectedOut = new byte[data.length];
+                expected.processBlocks(data, 0, data.length / 16, expectedOut, 0);
+
+                // two engines sharing the one schedule
+                for (int e = 0; e != 2; e++)
+                {
+                    AESEngine engine = new AESEngine();
+                    engine.init(forEncryption, keySchedule);
+                    byte[] out = new byte[data.length];
+                    for (int off = 0; off < data.length; off += 16)
+                    {
+                        engine.processBlock(data, off, out, off);
+                    }
+                    isTrue("key schedule output mismatch", Arrays.areEqual(expectedOut, out));
+                }
+
+                try
+                {
+                    new AESEngine().init(!forEncryption, keySchedule);
+                    fail("key schedule direction not checked");
+                }
+                catch (IllegalArgumentException ex)
+                {
+                    // expected
+                }
+            }
+        }
+
+        try
+        {
+            new AESKeySchedule(new byte[20], true);
+            fail("key schedule key length not checked");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // expected
+        }
     }
 
     public static void main(
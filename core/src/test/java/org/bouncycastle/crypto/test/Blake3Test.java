@@ -1,5 +1,9 @@
 package org.bouncycastle.crypto.test;
 
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.bouncycastle.crypto.digests.Blake3Digest;
 import org.bouncycastle.crypto.params.Blake3Parameters;
 import org.bouncycastle.util.Arrays;
@@ -257,6 +261,73 @@ public void performTest()
         runTestCase(TEST16384);
         runTestCase(TEST31744);
         runTestCase(TEST102400);
+
+        testParallel();
+    }
+
+    /**
+     * Check parallel hashing against sequential hashing.
+     */
+    private void testParallel()
+    {
+        final SecureRandom myRandom = new SecureRandom();
+        final ExecutorService myExecutor = Executors.newFixedThreadPool(3);
+        try
+        {
+            /* Sizes around the task and chunk boundaries */
+            final int[] mySizes = { 128 * 1024, 128 * 1024 + 1, 300 * 1024 - 1, 1024 * 1024 + 77, 3 * 1024 * 1024 };
+            for (int i = 0; i < mySizes.length; i++)
+            {
+                final byte[] myData = new byte[mySizes[i]];
+                myRandom.nextBytes(myData);
+
+                checkParallel(myExecutor, null, myData, myData.length);
+                checkParallel(myExecutor, null, myData, 100000);
+                checkParallel(myExecutor, Blake3Parameters.key(BLAKE3KEY), myData, myData.length);
+                checkParallel(myExecutor, Blake3Parameters.context(BLAKE3CTX), myData, 65);
+            }
+        }
+        finally
+        {
+            myExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Check parallel hashing of data passed in pieces against sequential hashing.
+     *
+     * @param pExecutor the executor
+     * @param pParams   the parameters
+     * @param pData     the data
+     * @param pStep     the length of each update, apart from a short first one
+     */
+    private void checkParallel(final ExecutorService pExecutor,
+                               final Blake3Parameters pParams,
+                               final byte[] pData,
+                               final int pStep)
+    {
+        final Blake3Digest mySequential = new Blake3Digest(64);
+        final Blake3Digest myParallel = new Blake3Digest(64, pExecutor);
+        mySequential.init(pParams);
+        myParallel.init(pParams);
+
+        mySequential.update(pData, 0, pData.length);
+
+        /* Start unaligned, then use the step size */
+        int myPos = Math.min(pData.length, 33);
+        myParallel.update(pData, 0, myPos);
+        while (myPos < pData.length)
+        {
+            final int myLen = Math.min(pStep, pData.length - myPos);
+            myParallel.update(pData, myPos, myLen);
+            myPos += myLen;
+        }
+
+        final byte[] myExpected = new byte[64];
+        final byte[] myResult = new byte[64];
+        mySequential.doFinal(myExpected, 0);
+        myParallel.doFinal(myResult, 0);
+        isTrue("parallel mismatch at " + pData.length, Arrays.areEqual(myExpected, myResult));
     }
 
     /**
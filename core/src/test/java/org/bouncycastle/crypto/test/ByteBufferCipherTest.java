@@ -0,0 +1,206 @@
+package org.bouncycastle.crypto.test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.ChaCha7539Engine;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.modes.ChaCha20Poly1305;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check the ByteBuffer methods on the AEAD and stream ciphers against the byte[] methods, for heap and
+ * direct buffers.
+ */
+public class ByteBufferCipherTest
+    extends SimpleTest
+{
+    private static final int[] SIZES = { 0, 1, 15, 16, 17, 63, 64, 65, 1023, 1024, 1025, 3000, 16384 };
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ByteBufferCipher";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        for (int i = 0; i != SIZES.length; i++)
+        {
+            byte[] data = randomBytes(SIZES[i]);
+
+            testGCM(data, false);
+            testGCM(data, true);
+            testChaCha20Poly1305(data, false);
+            testChaCha20Poly1305(data, true);
+            testSIC(data, false);
+            testSIC(data, true);
+            testChaCha(data, false);
+            testChaCha(data, true);
+        }
+
+        testTagFailure();
+    }
+
+    private void testGCM(byte[] data, boolean direct)
+        throws Exception
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(16)), 128, randomBytes(12));
+
+        GCMBlockCipher ref = new GCMBlockCipher(new AESEngine());
+        ref.init(true, params);
+        byte[] expected = processArray(ref, data);
+
+        GCMBlockCipher gcm = new GCMBlockCipher(new AESEngine());
+        gcm.init(true, params);
+        ByteBuffer out = allocate(gcm.getOutputSize(data.length), direct);
+        gcm.processBytes(wrap(data, direct), out);
+        gcm.doFinal(out);
+        isTrue("GCM encryption mismatch", Arrays.areEqual(expected, toArray(out)));
+
+        gcm.init(false, params);
+        out = allocate(gcm.getOutputSize(expected.length), direct);
+        gcm.processBytes(wrap(expected, direct), out);
+        gcm.doFinal(out);
+        isTrue("GCM decryption mismatch", Arrays.areEqual(data, toArray(out)));
+    }
+
+    private void testChaCha20Poly1305(byte[] data, boolean direct)
+        throws Exception
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(32)), 128, randomBytes(12));
+
+        ChaCha20Poly1305 ref = new ChaCha20Poly1305();
+        ref.init(true, params);
+        byte[] expected = processArray(ref, data);
+
+        ChaCha20Poly1305 cipher = new ChaCha20Poly1305();
+        cipher.init(true, params);
+        ByteBuffer out = allocate(cipher.getOutputSize(data.length), direct);
+        cipher.processBytes(wrap(data, direct), out);
+        cipher.doFinal(out);
+        isTrue("ChaCha20Poly1305 encryption mismatch", Arrays.areEqual(expected, toArray(out)));
+
+        cipher.init(false, params);
+        out = allocate(cipher.getOutputSize(expected.length), direct);
+        cipher.processBytes(wrap(expected, direct), out);
+        cipher.doFinal(out);
+        isTrue("ChaCha20Poly1305 decryption mismatch", Arrays.areEqual(data, toArray(out)));
+    }
+
+    private void testSIC(byte[] data, boolean direct)
+    {
+        ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(16));
+
+        SICBlockCipher ref = new SICBlockCipher(new AESEngine());
+        ref.init(true, params);
+        byte[] expected = new byte[data.length];
+        ref.processBytes(data, 0, data.length, expected, 0);
+
+        SICBlockCipher cipher = new SICBlockCipher(new AESEngine());
+        cipher.init(true, params);
+
+        // in place, split so the second call starts mid-block
+        ByteBuffer buf = wrap(data, direct);
+        ByteBuffer first = buf.duplicate();
+        first.limit(data.length / 3);
+        cipher.processBytes(first, first.duplicate());
+        buf.position(data.length / 3);
+        cipher.processBytes(buf, buf.duplicate());
+
+        isTrue("SIC mismatch", Arrays.areEqual(expected, toArray(buf)));
+    }
+
+    private void testChaCha(byte[] data, boolean direct)
+    {
+        ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(32)), randomBytes(12));
+
+        ChaCha7539Engine ref = new ChaCha7539Engine();
+        ref.init(true, params);
+        byte[] expected = new byte[data.length];
+        ref.processBytes(data, 0, data.length, expected, 0);
+
+        ChaCha7539Engine cipher = new ChaCha7539Engine();
+        cipher.init(true, params);
+        ByteBuffer out = allocate(data.length, direct);
+        isEquals(data.length, cipher.processBytes(wrap(data, direct), out));
+        isTrue("ChaCha7539 mismatch", Arrays.areEqual(expected, toArray(out)));
+    }
+
+    private void testTagFailure()
+        throws Exception
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(16)), 128, randomBytes(12));
+        byte[] data = randomBytes(100);
+
+        GCMBlockCipher gcm = new GCMBlockCipher(new AESEngine());
+        gcm.init(true, params);
+        byte[] cipherText = processArray(gcm, data);
+        cipherText[cipherText.length - 1] ^= 1;
+
+        gcm.init(false, params);
+        ByteBuffer out = ByteBuffer.allocateDirect(gcm.getOutputSize(cipherText.length));
+        gcm.processBytes(wrap(cipherText, true), out);
+        try
+        {
+            gcm.doFinal(out);
+            fail("corrupted tag not detected");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            // expected
+        }
+    }
+
+    private byte[] processArray(AEADCipher cipher, byte[] data)
+        throws Exception
+    {
+        byte[] out = new byte[cipher.getOutputSize(data.length)];
+        int len = cipher.processBytes(data, 0, data.length, out, 0);
+        len += cipher.doFinal(out, len);
+        return Arrays.copyOfRange(out, 0, len);
+    }
+
+    private ByteBuffer allocate(int len, boolean direct)
+    {
+        return direct ? ByteBuffer.allocateDirect(len) : ByteBuffer.allocate(len);
+    }
+
+    private ByteBuffer wrap(byte[] data, boolean direct)
+    {
+        ByteBuffer buf = allocate(data.length, direct);
+        buf.put(data);
+        buf.flip();
+        return buf;
+    }
+
+    private byte[] toArray(ByteBuffer buf)
+    {
+        buf.flip();
+        byte[] data = new byte[buf.remaining()];
+        buf.get(data);
+        return data;
+    }
+
+    private byte[] randomBytes(int len)
+    {
+        byte[] bytes = new byte[len];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(String[] args)
+    {
+        runTest(new ByteBufferCipherTest());
+    }
+}
@@ -0,0 +1,237 @@
+package org.bouncycastle.crypto.test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.Blake2bDigest;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA384Digest;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.digests.SHAKEDigest;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.FileChannelDigestUtil;
+import org.bouncycastle.crypto.macs.CMac;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check the ByteBuffer digest and MAC updates, and FileChannelDigestUtil, against the byte[] methods.
+ */
+public class ByteBufferDigestTest
+    extends SimpleTest
+{
+    private static final int[] SIZES = { 0, 1, 7, 8, 9, 63, 64, 65, 135, 136, 137, 1000, 4097, 20000 };
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ByteBufferDigest";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        for (int i = 0; i != SIZES.length; i++)
+        {
+            byte[] data = randomBytes(SIZES[i]);
+
+            testDigest(new SHA1Digest(), new SHA1Digest(), data);
+            testDigest(new SHA256Digest(), new SHA256Digest(), data);
+            testDigest(new SHA384Digest(), new SHA384Digest(), data);
+            testDigest(new SHA512Digest(), new SHA512Digest(), data);
+            testDigest(new SHA3Digest(256), new SHA3Digest(256), data);
+            testDigest(new SHAKEDigest(128), new SHAKEDigest(128), data);
+            testDigest(new Blake2bDigest(), new Blake2bDigest(), data);
+
+            testMac(new HMac(new SHA256Digest()), new HMac(new SHA256Digest()), data);
+            testMac(new HMac(new SHA512Digest()), new HMac(new SHA512Digest()), data);
+            testMac(new HMac(new SHA3Digest(256)), new HMac(new SHA3Digest(256)), data);
+            testMac(new HMac(new Blake2bDigest()), new HMac(new Blake2bDigest()), data);
+        }
+
+        testFile();
+    }
+
+    private void testDigest(Digest ref, Digest digest, byte[] data)
+    {
+        byte[] expected = new byte[ref.getDigestSize()];
+        ref.update(data, 0, data.length);
+        ref.doFinal(expected, 0);
+
+        for (int type = 0; type != 4; type++)
+        {
+            // start with a partial word so the buffer updates are unaligned with the digest's internal state
+            int split = Math.min(data.length, 3);
+            digest.update(data, 0, split);
+            FileChannelDigestUtil.update(digest, createBuffer(data, split, type));
+
+            byte[] result = new byte[digest.getDigestSize()];
+            digest.doFinal(result, 0);
+
+            isTrue(digest.getAlgorithmName() + " mismatch for buffer type " + type + " length " + data.length,
+                Arrays.areEqual(expected, result));
+        }
+    }
+
+    private void testMac(Mac ref, Mac mac, byte[] data)
+    {
+        KeyParameter key = new KeyParameter(randomBytes(32));
+        ref.init(key);
+        mac.init(key);
+
+        byte[] expected = new byte[ref.getMacSize()];
+        ref.update(data, 0, data.length);
+        ref.doFinal(expected, 0);
+
+        for (int type = 0; type != 4; type++)
+        {
+            ByteBuffer buf = createBuffer(data, 0, type);
+            FileChannelDigestUtil.update(mac, buf);
+            isTrue("buffer not consumed", !buf.hasRemaining());
+
+            byte[] result = new byte[mac.getMacSize()];
+            mac.doFinal(result, 0);
+
+            isTrue(mac.getAlgorithmName() + " mismatch for buffer type " + type + " length " + data.length,
+                Arrays.areEqual(expected, result));
+        }
+    }
+
+    private void testFile()
+        throws Exception
+    {
+        // large enough to be mapped, and to cross at least one word boundary at an odd offset
+        byte[] data = randomBytes(1024 * 1024 + 13);
+
+        File file = File.createTempFile("bcdigest", ".dat");
+        try
+        {
+            FileOutputStream fOut = new FileOutputStream(file);
+            fOut.write(data);
+            fOut.close();
+
+            isTrue("SHA-256 file mismatch", Arrays.areEqual(hash(new SHA256Digest(), data, 0, data.length),
+                FileChannelDigestUtil.calculateDigest(new SHA256Digest(), file)));
+            isTrue("SHA-512 file mismatch", Arrays.areEqual(hash(new SHA512Digest(), data, 0, data.length),
+                FileChannelDigestUtil.calculateDigest(new SHA512Digest(), file)));
+            isTrue("SHA3-256 file mismatch", Arrays.areEqual(hash(new SHA3Digest(256), data, 0, data.length),
+                FileChannelDigestUtil.calculateDigest(new SHA3Digest(256), file)));
+
+            Mac ref = new CMac(new AESEngine());
+            Mac mac = new CMac(new AESEngine());
+            KeyParameter key = new KeyParameter(randomBytes(16));
+            ref.init(key);
+            mac.init(key);
+            byte[] expected = new byte[ref.getMacSize()];
+            ref.update(data, 0, data.length);
+            ref.doFinal(expected, 0);
+            isTrue("CMAC file mismatch", Arrays.areEqual(expected, FileChannelDigestUtil.calculateMac(mac, file)));
+
+            FileInputStream fIn = new FileInputStream(file);
+            try
+            {
+                FileChannel channel = fIn.getChannel();
+
+                // a small region, which is read rather than mapped, and a large one at an odd offset
+                checkRegion(channel, data, 1001, 5000);
+                checkRegion(channel, data, 5, data.length - 5);
+
+                isEquals(0L, channel.position());
+
+                try
+                {
+                    FileChannelDigestUtil.update(new SHA256Digest(), channel, 10, data.length);
+                    fail("region past end of file not detected");
+                }
+                catch (EOFException e)
+                {
+                    // expected
+                }
+            }
+            finally
+            {
+                fIn.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private void checkRegion(FileChannel channel, byte[] data, int off, int len)
+        throws Exception
+    {
+        Digest digest = new SHA512Digest();
+        FileChannelDigestUtil.update(digest, channel, off, len);
+
+        byte[] result = new byte[digest.getDigestSize()];
+        digest.doFinal(result, 0);
+
+        isTrue("region mismatch", Arrays.areEqual(hash(new SHA512Digest(), data, off, len), result));
+    }
+
+    private ByteBuffer createBuffer(byte[] data, int off, int type)
+    {
+        int len = data.length - off;
+
+        // the data is placed part way into the buffer, so position and array offset matter
+        ByteBuffer buf;
+        switch (type)
+        {
+        case 0:
+            buf = ByteBuffer.allocate(len + 10);
+            break;
+        case 1:
+            buf = ByteBuffer.allocateDirect(len + 10);
+            break;
+        case 2:
+            buf = ByteBuffer.allocateDirect(len + 10).order(ByteOrder.LITTLE_ENDIAN);
+            break;
+        default:
+            buf = ByteBuffer.allocate(len + 10);
+            break;
+        }
+
+        buf.position(5);
+        buf.put(data, off, len);
+        buf.limit(buf.position());
+        buf.position(5);
+        buf = buf.slice().order(buf.order());
+
+        return type == 3 ? buf.asReadOnlyBuffer() : buf;
+    }
+
+    private byte[] hash(Digest digest, byte[] data, int off, int len)
+    {
+        byte[] result = new byte[digest.getDigestSize()];
+        digest.update(data, off, len);
+        digest.doFinal(result, 0);
+        return result;
+    }
+
+    private byte[] randomBytes(int len)
+    {
+        byte[] bytes = new byte[len];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(String[] args)
+    {
+        runTest(new ByteBufferDigestTest());
+    }
+}
@@ -31,10 +31,12 @@
 import org.bouncycastle.crypto.params.MQVPublicParameters;
 import org.bouncycastle.crypto.params.ParametersWithRandom;
 import org.bouncycastle.crypto.signers.DSADigestSigner;
+import org.bouncycastle.crypto.signers.ECDSABatchVerifier;
 import org.bouncycastle.crypto.signers.ECDSASigner;
 import org.bouncycastle.math.ec.ECConstants;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.BigIntegers;
 import org.bouncycastle.util.Strings;
 import org.bouncycastle.util.encoders.Hex;
@@ -735,6 +737,101 @@ private void testECDSAKeyGenTest()
         }
     }
 
+    /**
+     * batch verification test
+     */
+    private void testECDSABatchVerify(String curveName)
+    {
+        SecureRandom random = new SecureRandom();
+
+        X9ECParameters x9 = CustomNamedCurves.getByName(curveName);
+        ECDomainParameters params = new ECDomainParameters(x9.getCurve(), x9.getG(), x9.getN(), x9.getH());
+
+        ECKeyPairGenerator pGen = new ECKeyPairGenerator();
+        pGen.init(new ECKeyGenerationParameters(params, random));
+
+        int count = 20;
+        ECPublicKeyParameters[] keys = new ECPublicKeyParameters[count];
+        byte[][] messages = new byte[count][];
+        BigInteger[][] sigs = new BigInteger[count][];
+
+        ECDSASigner ecdsa = new ECDSASigner();
+        for (int i = 0; i < count; ++i)
+        {
+            AsymmetricCipherKeyPair pair = pGen.generateKeyPair();
+
+            keys[i] = (ECPublicKeyParameters)pair.getPublic();
+            messages[i] = new byte[32];
+            random.nextBytes(messages[i]);
+
+            ecdsa.init(true, new ParametersWithRandom(pair.getPrivate(), random));
+            sigs[i] = ecdsa.generateSignature(messages[i]);
+        }
+
+        ECDSABatchVerifier verifier = new ECDSABatchVerifier();
+        isTrue("empty batch failed", verifier.verify());
+
+        for (int i = 0; i < count; ++i)
+        {
+            verifier.add(keys[i], messages[i], sigs[i][0], sigs[i][1]);
+        }
+        isTrue("batch failed on " + curveName, verifier.verify());
+
+        verifier.reset();
+        isEquals(0, verifier.getCount());
+
+        // corrupt a message, a key, and the r and s values of three of the signatures
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] message = messages[i];
+            ECPublicKeyParameters key = keys[i];
+            BigInteger r = sigs[i][0], s = sigs[i][1];
+
+            switch (i)
+            {
+            case 3:
+                message = Arrays.clone(message);
+                message[0] ^= 1;
+                break;
+            case 7:
+                key = keys[i - 1];
+                break;
+            case 11:
+                r = r.add(ECConstants.ONE);
+                break;
+            case 17:
+                s = params.getN();
+                break;
+            }
+
+            verifier.add(key, message, r, s);
+        }
+
+        isTrue("corrupted batch verified on " + curveName, !verifier.verify());
+
+        boolean[] results = verifier.verifyEach();
+        for (int i = 0; i < count; ++i)
+        {
+            boolean expected = i != 3 && i != 7 && i != 11 && i != 17;
+            isTrue("wrong result for signature " + i + " on " + curveName, expected == results[i]);
+        }
+
+        try
+        {
+            X9ECParameters other = CustomNamedCurves.getByName("secp384r1");
+            ECKeyPairGenerator otherGen = new ECKeyPairGenerator();
+            otherGen.init(new ECKeyGenerationParameters(
+                new ECDomainParameters(other.getCurve(), other.getG(), other.getN(), other.getH()), random));
+
+            verifier.add((ECPublicKeyParameters)otherGen.generateKeyPair().getPublic(), messages[0], sigs[0][0], sigs[0][1]);
+            fail("mixed domain parameters not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
     /**
      * Basic Key Agreement Test
      */
@@ -1158,6 +1255,9 @@ public void performTest()
         testECDSASecP224k1sha256();
         testECDSA239bitBinaryAndLargeDigest();
 
+        testECDSABatchVerify("secp256r1");
+        testECDSABatchVerify("secp256k1");
+
         testECDSAP256sha3(224, new BigInteger("84d7d8e68e405064109cd9fc3e3026d74d278aada14ce6b7a9dd0380c154dc94", 16));
         testECDSAP256sha3(256, new BigInteger("99a43bdab4af989aaf2899079375642f2bae2dce05bcd8b72ec8c4a8d9a143f", 16));
         testECDSAP256sha3(384, new BigInteger("aa27726509c37aaf601de6f7e01e11c19add99530c9848381c23365dc505b11a", 16));
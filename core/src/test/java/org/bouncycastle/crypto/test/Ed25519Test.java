@@ -8,6 +8,7 @@
 import org.bouncycastle.crypto.params.Ed25519KeyGenerationParameters;
 import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
 import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519BatchVerifier;
 import org.bouncycastle.crypto.signers.Ed25519Signer;
 import org.bouncycastle.crypto.signers.Ed25519ctxSigner;
 import org.bouncycastle.crypto.signers.Ed25519phSigner;
@@ -43,6 +44,7 @@ public void performTest() throws Exception
         }
 
         basicSigTest();
+        batchVerifyTest();
     }
 
     private void basicSigTest()
@@ -66,6 +68,74 @@ private void basicSigTest()
         isTrue(signer.verifySignature(sig));
     }
 
+    private void batchVerifyTest()
+        throws Exception
+    {
+        Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+        kpg.init(new Ed25519KeyGenerationParameters(RANDOM));
+
+        int count = 40;
+        Ed25519PublicKeyParameters[] publicKeys = new Ed25519PublicKeyParameters[count];
+        byte[][] msgs = new byte[count][];
+        byte[][] sigs = new byte[count][];
+
+        Signer signer = new Ed25519Signer();
+        for (int i = 0; i < count; ++i)
+        {
+            AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+            publicKeys[i] = (Ed25519PublicKeyParameters)kp.getPublic();
+
+            msgs[i] = new byte[RANDOM.nextInt() & 255];
+            RANDOM.nextBytes(msgs[i]);
+
+            signer.init(true, kp.getPrivate());
+            signer.update(msgs[i], 0, msgs[i].length);
+            sigs[i] = signer.generateSignature();
+        }
+
+        Ed25519BatchVerifier verifier = new Ed25519BatchVerifier(RANDOM);
+        isTrue("empty batch failed", verifier.verify());
+
+        for (int i = 0; i < count; ++i)
+        {
+            verifier.add(publicKeys[i], msgs[i], sigs[i]);
+        }
+        isTrue("Ed25519 batch failed to verify", verifier.verify());
+
+        boolean[] results = verifier.verifyEach();
+        for (int i = 0; i < count; ++i)
+        {
+            isTrue("Ed25519 batch signature " + i + " failed to verify", results[i]);
+        }
+
+        verifier.reset();
+        isEquals(0, verifier.getCount());
+
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] sig = sigs[i];
+            if (i == 5)
+            {
+                sig = Arrays.clone(sig);
+                sig[(RANDOM.nextInt() >>> 1) % sig.length] ^= 1 << (RANDOM.nextInt() & 7);
+            }
+            else if (i == 23)
+            {
+                sig = Arrays.append(sig, (byte)0x00);
+            }
+
+            verifier.add(publicKeys[i == 31 ? 0 : i], msgs[i], sig);
+        }
+        isTrue("Ed25519 bad batch incorrectly verified", !verifier.verify());
+
+        results = verifier.verifyEach();
+        for (int i = 0; i < count; ++i)
+        {
+            boolean expected = i != 5 && i != 23 && i != 31;
+            isTrue("Ed25519 batch signature " + i + " wrong result", expected == results[i]);
+        }
+    }
+
     private Signer createSigner(int algorithm, byte[] context)
     {
         switch (algorithm)
@@ -7,13 +7,17 @@
 import org.bouncycastle.crypto.engines.AESEngine;
 import org.bouncycastle.crypto.engines.DESEngine;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.PreparedGCMKey;
 import org.bouncycastle.crypto.modes.gcm.BasicGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.Tables16kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables64kGCMMultiplier;
 import org.bouncycastle.crypto.modes.gcm.Tables8kGCMMultiplier;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
 import org.bouncycastle.util.Strings;
 import org.bouncycastle.util.Times;
 import org.bouncycastle.util.encoders.Hex;
@@ -307,6 +311,7 @@ public void performTest() throws Exception
         randomTests();
         outputSizeTests();
         testExceptions();
+        testPreparedKey();
     }
 
     protected BlockCipher createAESEngine()
@@ -374,6 +379,119 @@ private void testExceptions() throws InvalidCipherTextException
         }
     }
 
+    private void testPreparedKey()
+        throws Exception
+    {
+        SecureRandom random = new SecureRandom();
+        KeyParameter key = new KeyParameter(new byte[32]);
+        random.nextBytes(key.getKey());
+
+        GCMMultiplier[] multipliers = { new Tables4kGCMMultiplier(), new Tables16kGCMMultiplier(), new Tables64kGCMMultiplier() };
+        for (int m = 0; m != multipliers.length; m++)
+        {
+            PreparedGCMKey preparedKey = new PreparedGCMKey(key, multipliers[m]);
+
+            for (int len = 0; len < 300; len += 13)
+            {
+                byte[] P = new byte[len];
+                byte[] A = new byte[len % 40];
+                byte[] N = new byte[12];
+                random.nextBytes(P);
+                random.nextBytes(A);
+                random.nextBytes(N);
+
+                GCMBlockCipher ref = new GCMBlockCipher(createAESEngine());
+                ref.init(true, new AEADParameters(key, 128, N, A));
+                byte[] C = process(ref, P);
+
+                GCMBlockCipher enc = new GCMBlockCipher(preparedKey);
+                enc.init(true, new AEADParameters(null, 128, N, A));
+                isTrue("prepared key encryption mismatch", Arrays.areEqual(C, process(enc, P)));
+
+                GCMBlockCipher dec = new GCMBlockCipher(preparedKey);
+                dec.init(false, new AEADParameters(null, 128, N, A));
+                isTrue("prepared key decryption mismatch", Arrays.areEqual(P, process(dec, C)));
+            }
+        }
+
+        final PreparedGCMKey preparedKey = new PreparedGCMKey(key);
+
+        GCMBlockCipher gcm = new GCMBlockCipher(preparedKey);
+        try
+        {
+            gcm.init(true, new AEADParameters(key, 128, new byte[12]));
+            fail("key accepted on prepared key cipher");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isTrue("wrong message", e.getMessage().equals("GCM cipher created with a prepared key cannot be given a new key"));
+        }
+
+        // the prepared key is shared by ciphers running on several threads, each checking its own round trip
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t != threads.length; t++)
+        {
+            final int id = t;
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        byte[] N = new byte[12];
+                        byte[] P = new byte[200];
+                        Pack.intToBigEndian(id, N, 0);
+                        for (int i = 0; i != 500; i++)
+                        {
+                            Pack.intToBigEndian(i, N, 8);
+                            Pack.intToBigEndian(i, P, id * 4);
+
+                            GCMBlockCipher enc = new GCMBlockCipher(preparedKey);
+                            enc.init(true, new AEADParameters(null, 128, N));
+                            byte[] C = process(enc, P);
+
+                            GCMBlockCipher dec = new GCMBlockCipher(preparedKey);
+                            dec.init(false, new AEADParameters(null, 128, N));
+                            if (!Arrays.areEqual(P, process(dec, C)))
+                            {
+                                throw new IllegalStateException("round trip failed");
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        synchronized (failure)
+                        {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t].join();
+        }
+        synchronized (failure)
+        {
+            if (failure[0] != null)
+            {
+                fail("prepared key failed under concurrent use", failure[0]);
+            }
+        }
+    }
+
+    private static byte[] process(GCMBlockCipher cipher, byte[] in)
+        throws InvalidCipherTextException
+    {
+        byte[] out = new byte[cipher.getOutputSize(in.length)];
+        int len = cipher.processBytes(in, 0, in.length, out, 0);
+        len += cipher.doFinal(out, len);
+        return Arrays.copyOfRange(out, 0, len);
+    }
+
     private void runTestCase(String[] testVector)
         throws InvalidCipherTextException
     {
@@ -406,6 +524,7 @@ private void runTestCase(String[] testVector, int macLength)
         runTestCase(new Tables4kGCMMultiplier(), new Tables4kGCMMultiplier(), testName, K, IV, A, P, C, T);
         runTestCase(new Tables8kGCMMultiplier(), new Tables8kGCMMultiplier(), testName, K, IV, A, P, C, T);
         runTestCase(new Tables64kGCMMultiplier(), new Tables64kGCMMultiplier(), testName, K, IV, A, P, C, T);
+        runTestCase(new Tables16kGCMMultiplier(), new Tables16kGCMMultiplier(), testName, K, IV, A, P, C, T);
     }
 
     private void runTestCase(
@@ -545,6 +664,7 @@ private void randomTests()
         randomTests(srng, new Tables4kGCMMultiplier());
         randomTests(srng, new Tables8kGCMMultiplier());
         randomTests(srng, new Tables64kGCMMultiplier());
+        randomTests(srng, new Tables16kGCMMultiplier());
     }
 
     private void randomTests(SecureRandom srng, GCMMultiplier m)
@@ -0,0 +1,217 @@
+package org.bouncycastle.crypto.test;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.BufferedBlockCipher;
+import org.bouncycastle.crypto.MultiBlockCipher;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESLightEngine;
+import org.bouncycastle.crypto.engines.ARIAEngine;
+import org.bouncycastle.crypto.engines.CamelliaEngine;
+import org.bouncycastle.crypto.engines.SM4Engine;
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check multi-block processing produces the same results as block at a time processing.
+ */
+public class MultiBlockCipherTest
+    extends SimpleTest
+{
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "MultiBlockCipher";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        testEngine(new AESEngine(), new AESEngine(), 16);
+        testEngine(new AESEngine(), new AESEngine(), 24);
+        testEngine(new AESEngine(), new AESEngine(), 32);
+        testEngine(new ARIAEngine(), new ARIAEngine(), 16);
+        testEngine(new ARIAEngine(), new ARIAEngine(), 32);
+        testEngine(new SM4Engine(), new SM4Engine(), 16);
+        testEngine(new CamelliaEngine(), new CamelliaEngine(), 16);
+        testEngine(new CamelliaEngine(), new CamelliaEngine(), 32);
+
+        testCBC();
+        testSIC();
+        testGCM();
+    }
+
+    private void testEngine(MultiBlockCipher mbCipher, BlockCipher cipher, int keySize)
+    {
+        KeyParameter key = new KeyParameter(randomBytes(keySize));
+        int blockSize = cipher.getBlockSize();
+        int blockCount = 37;
+        byte[] input = randomBytes(blockCount * blockSize + 3);
+
+        for (int i = 0; i != 2; i++)
+        {
+            boolean forEncryption = (i == 0);
+
+            mbCipher.init(forEncryption, key);
+            cipher.init(forEncryption, key);
+
+            byte[] expected = new byte[blockCount * blockSize];
+            for (int b = 0; b != blockCount; b++)
+            {
+                cipher.processBlock(input, 3 + b * blockSize, expected, b * blockSize);
+            }
+
+            byte[] output = new byte[blockCount * blockSize + 1];
+            int len = mbCipher.processBlocks(input, 3, blockCount, output, 1);
+
+            isEquals(mbCipher.getAlgorithmName() + " length mismatch", expected.length, len);
+            isTrue(mbCipher.getAlgorithmName() + " output mismatch",
+                Arrays.areEqual(expected, Arrays.copyOfRange(output, 1, output.length)));
+
+            try
+            {
+                mbCipher.processBlocks(input, 3, blockCount + 1, output, 0);
+                fail("no exception on short input");
+            }
+            catch (org.bouncycastle.crypto.DataLengthException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    private void testCBC()
+        throws Exception
+    {
+        ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(16));
+        byte[] plainText = randomBytes(16 * 29);
+
+        BufferedBlockCipher enc = new BufferedBlockCipher(new CBCBlockCipher(new AESLightEngine()));
+        enc.init(true, params);
+        byte[] cipherText = process(enc, plainText);
+
+        BufferedBlockCipher mbEnc = new BufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+        mbEnc.init(true, params);
+        isTrue("CBC encryption mismatch", Arrays.areEqual(cipherText, process(mbEnc, plainText)));
+
+        // in-place decryption
+        BufferedBlockCipher mbDec = new BufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+        mbDec.init(false, params);
+        byte[] buf = Arrays.clone(cipherText);
+        int len = mbDec.processBytes(buf, 0, 16 * 11 + 5, buf, 0);
+        len += mbDec.processBytes(buf, 16 * 11 + 5, buf.length - (16 * 11 + 5), buf, len);
+        len += mbDec.doFinal(buf, len);
+
+        isEquals("CBC decryption length", plainText.length, len);
+        isTrue("CBC decryption mismatch", Arrays.areEqual(plainText, buf));
+    }
+
+    private void testSIC()
+    {
+        ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(12));
+        byte[] plainText = randomBytes(1000);
+
+        SICBlockCipher ref = new SICBlockCipher(new AESLightEngine());
+        SICBlockCipher ctr = new SICBlockCipher(new AESEngine());
+
+        ref.init(true, params);
+        ctr.init(true, params);
+
+        byte[] expected = new byte[plainText.length];
+        ref.processBytes(plainText, 0, plainText.length, expected, 0);
+
+        byte[] output = new byte[plainText.length];
+        int off = 0, chunk = 1;
+        while (off < plainText.length)
+        {
+            int len = Math.min(chunk, plainText.length - off);
+            ctr.processBytes(plainText, off, len, output, off);
+            off += len;
+            chunk = chunk * 3 + 1;
+        }
+
+        isTrue("SIC chunked output mismatch", Arrays.areEqual(expected, output));
+
+        ctr.reset();
+        ctr.processBlocks(output, 0, 60, output, 0);
+        isTrue("SIC processBlocks mismatch", Arrays.areEqual(plainText, 0, 960, output, 0, 960));
+    }
+
+    private void testGCM()
+        throws Exception
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(16)), 128, randomBytes(12),
+            randomBytes(20));
+
+        for (int size = 0; size < 300; size += 7)
+        {
+            byte[] plainText = randomBytes(size);
+
+            AEADBlockCipher ref = new GCMBlockCipher(new AESLightEngine());
+            ref.init(true, params);
+            byte[] expected = new byte[ref.getOutputSize(size)];
+            int len = ref.processBytes(plainText, 0, size, expected, 0);
+            ref.doFinal(expected, len);
+
+            AEADBlockCipher gcm = new GCMBlockCipher(new AESEngine());
+            gcm.init(true, params);
+            isTrue("GCM encryption mismatch", Arrays.areEqual(expected, processChunked(gcm, plainText, 5)));
+
+            gcm.init(false, params);
+            isTrue("GCM decryption mismatch", Arrays.areEqual(plainText, processChunked(gcm, expected, 17)));
+
+            // in-place decryption
+            gcm.init(false, params);
+            byte[] buf = Arrays.clone(expected);
+            len = gcm.processBytes(buf, 0, buf.length, buf, 0);
+            len += gcm.doFinal(buf, len);
+            isTrue("GCM in-place decryption mismatch", Arrays.areEqual(plainText, Arrays.copyOfRange(buf, 0, len)));
+        }
+    }
+
+    private byte[] process(BufferedBlockCipher cipher, byte[] input)
+        throws Exception
+    {
+        byte[] output = new byte[cipher.getOutputSize(input.length)];
+        int len = cipher.processBytes(input, 0, input.length, output, 0);
+        len += cipher.doFinal(output, len);
+        return Arrays.copyOfRange(output, 0, len);
+    }
+
+    private byte[] processChunked(AEADBlockCipher cipher, byte[] input, int chunk)
+        throws Exception
+    {
+        byte[] output = new byte[cipher.getOutputSize(input.length)];
+        int off = 0, len = 0;
+        while (off < input.length)
+        {
+            int inLen = Math.min(chunk, input.length - off);
+            len += cipher.processBytes(input, off, inLen, output, len);
+            off += inLen;
+            chunk = chunk * 2 + 1;
+        }
+        len += cipher.doFinal(output, len);
+        return Arrays.copyOfRange(output, 0, len);
+    }
+
+    private byte[] randomBytes(int len)
+    {
+        byte[] bytes = new byte[len];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(String[] args)
+    {
+        runTest(new MultiBlockCipherTest());
+    }
+}
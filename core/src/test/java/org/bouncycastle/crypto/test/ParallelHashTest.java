@@ -1,5 +1,11 @@
 package org.bouncycastle.crypto.test;
 
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.bouncycastle.crypto.digests.ParallelHash;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Strings;
@@ -116,6 +122,82 @@ public void performTest()
         isTrue("oops!", Arrays.areEqual(Hex.decode("6b3e790b330c889a204c2fbc728d809f19367328d852f4002dc829f73afd6bcefb7fe5b607b13a801c0be5c1170bdb794e339458fdb0e62a6af3d42558970249"), res));
 
         testEmpty();
+        testParallel();
+        testParallelOnOwnWorker();
+    }
+
+    private void testParallel()
+    {
+        SecureRandom random = new SecureRandom();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            int[] sizes = { 100000, 8192 * 16, 8192 * 16 + 1, 1000003, 3 * 1024 * 1024 };
+            int[] blockSizes = { 100, 8192, 70000 };
+            for (int i = 0; i != sizes.length; i++)
+            {
+                byte[] data = new byte[sizes[i]];
+                random.nextBytes(data);
+
+                for (int j = 0; j != blockSizes.length; j++)
+                {
+                    checkParallel(executor, 128, blockSizes[j], data);
+                    checkParallel(executor, 256, blockSizes[j], data);
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void testParallelOnOwnWorker()
+        throws Exception
+    {
+        final byte[] data = new byte[1000003];
+        new SecureRandom().nextBytes(data);
+
+        // hashing from the only worker of the executor must not wait on tasks queued behind itself
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<?> result = executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    checkParallel(executor, 128, 8192, data);
+                }
+            });
+
+            result.get(60, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void checkParallel(ExecutorService executor, int bitLength, int B, byte[] data)
+    {
+        byte[] S = Strings.toByteArray("Parallel Data");
+
+        ParallelHash sequential = new ParallelHash(bitLength, S, B);
+        ParallelHash parallel = new ParallelHash(bitLength, S, B, bitLength * 2, executor);
+
+        sequential.update(data, 0, data.length);
+
+        // an unaligned first update, then the rest in one go
+        int split = Math.min(data.length, 17);
+        parallel.update(data, 0, split);
+        parallel.update(data, split, data.length - split);
+
+        byte[] expected = new byte[sequential.getDigestSize()];
+        byte[] result = new byte[parallel.getDigestSize()];
+        sequential.doFinal(expected, 0);
+        parallel.doFinal(result, 0);
+
+        isTrue("parallel mismatch: " + bitLength + "/" + B + "/" + data.length, Arrays.areEqual(expected, result));
     }
 
     private void testEmpty()
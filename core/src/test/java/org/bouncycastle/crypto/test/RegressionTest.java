@@ -181,7 +181,10 @@
             new KangarooTest(),
             new SP80038GTest(),
             new TupleHashTest(),
-            new ParallelHashTest()
+            new ParallelHashTest(),
+            new MultiBlockCipherTest(),
+            new ByteBufferCipherTest(),
+            new ByteBufferDigestTest()
         };
 
     public static void main(String[] args)
@@ -56,6 +56,64 @@ public void testEd25519Consistency()
         }
     }
     
+//    @Test
+    public void testEd25519BatchVerification()
+    {
+        int count = 70;     // more than one internal batch
+        byte[][] sigs = new byte[count][Ed25519.SIGNATURE_SIZE];
+        byte[][] pks = new byte[count][Ed25519.PUBLIC_KEY_SIZE];
+        byte[][] ms = new byte[count][];
+
+        byte[] sk = new byte[Ed25519.SECRET_KEY_SIZE];
+        for (int i = 0; i < count; ++i)
+        {
+            // a few keys sign more than one message
+            if (i % 3 == 0)
+            {
+                RANDOM.nextBytes(sk);
+            }
+            Ed25519.generatePublicKey(sk, 0, pks[i], 0);
+
+            ms[i] = new byte[RANDOM.nextInt() & 255];
+            RANDOM.nextBytes(ms[i]);
+
+            Ed25519.sign(sk, 0, ms[i], 0, ms[i].length, sigs[i], 0);
+        }
+
+        assertTrue("Ed25519 batch of valid signatures", Ed25519.verifyBatch(RANDOM, sigs, pks, ms));
+        assertTrue("Ed25519 empty batch", Ed25519.verifyBatch(RANDOM, new byte[0][], new byte[0][], new byte[0][]));
+
+        for (int i = 0; i < 10; ++i)
+        {
+            int pos = RANDOM.nextInt(count);
+            int what = RANDOM.nextInt(3);
+
+            byte[][] badSigs = (byte[][])sigs.clone();
+            byte[][] badMs = (byte[][])ms.clone();
+            byte[][] badPks = (byte[][])pks.clone();
+
+            switch (what)
+            {
+            case 0:
+                badSigs[pos] = Arrays.clone(sigs[pos]);
+                badSigs[pos][Ed25519.SIGNATURE_SIZE - 1 - RANDOM.nextInt(4)] ^= 0x01;
+                break;
+            case 1:
+                badMs[pos] = Arrays.append(ms[pos], (byte)0x01);
+                break;
+            default:
+                badPks[pos] = pks[(pos + 1) % count];
+                if (Arrays.areEqual(badPks[pos], pks[pos]))
+                {
+                    badPks[pos] = pks[(pos + 3) % count];
+                }
+                break;
+            }
+
+            assertFalse("Ed25519 batch with invalid signature #" + i, Ed25519.verifyBatch(RANDOM, badSigs, badPks, badMs));
+        }
+    }
+
 //    @Test
     public void testEd25519ctxConsistency()
     {
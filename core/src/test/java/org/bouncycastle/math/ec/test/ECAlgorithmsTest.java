@@ -62,6 +62,59 @@ public void testSumOfTwoMultipliesComplete()
         }
     }
 
+    public void testSumOfManyMultiplies()
+    {
+        doTestSumOfManyMultiplies(CustomNamedCurves.getByName("secp256r1"));
+        doTestSumOfManyMultiplies(CustomNamedCurves.getByName("secp256k1"));
+        doTestSumOfManyMultiplies(ECNamedCurveTable.getByName("brainpoolP256r1"));
+    }
+
+    private void doTestSumOfManyMultiplies(X9ECParameters x9)
+    {
+        // enough points for the bucket method, including repeated points, negative and zero scalars and infinity
+        int count = 300;
+
+        ECPoint[] points = new ECPoint[count];
+        BigInteger[] scalars = new BigInteger[count];
+        for (int i = 0; i < count; ++i)
+        {
+            points[i] = (i % 10 == 9) ? points[i - 1] : getRandomPoint(x9);
+            scalars[i] = getRandomScalar(x9);
+        }
+        scalars[1] = scalars[1].negate();
+        scalars[2] = BigInteger.valueOf(0);
+        scalars[3] = x9.getN().subtract(BigInteger.valueOf(1));
+        points[4] = x9.getCurve().getInfinity();
+        points[5] = points[6].negate();
+        scalars[5] = scalars[6];
+
+        ECPoint u = x9.getCurve().getInfinity();
+        for (int i = 0; i < count; ++i)
+        {
+            u = u.add(points[i].multiply(scalars[i]));
+        }
+
+        ECPoint v = ECAlgorithms.sumOfMultiplies(points, scalars);
+
+        ECPoint[] results = new ECPoint[]{ u, v };
+        x9.getCurve().normalizeAll(results);
+
+        assertPointsEqual("ECAlgorithms.sumOfMultiplies is incorrect for many points", results[0], results[1]);
+
+        // all the digits cancelling should give the point at infinity
+        ECPoint[] pairs = new ECPoint[count];
+        BigInteger[] pairScalars = new BigInteger[count];
+        for (int i = 0; i < count; i += 2)
+        {
+            pairs[i] = points[i];
+            pairs[i + 1] = points[i];
+            pairScalars[i] = scalars[i];
+            pairScalars[i + 1] = scalars[i].negate();
+        }
+
+        assertTrue(ECAlgorithms.sumOfMultiplies(pairs, pairScalars).isInfinity());
+    }
+
     private void doTestSumOfMultiplies(X9ECParameters x9)
     {
         ECPoint[] points = new ECPoint[SCALE];
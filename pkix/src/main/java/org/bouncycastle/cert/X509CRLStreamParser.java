@@ -0,0 +1,429 @@
+package org.bouncycastle.cert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1BitString;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1SequenceParser;
+import org.bouncycastle.asn1.ASN1StreamParser;
+import org.bouncycastle.asn1.ASN1TaggedObject;
+import org.bouncycastle.asn1.ASN1TaggedObjectParser;
+import org.bouncycastle.asn1.ASN1UTCTime;
+import org.bouncycastle.asn1.BERTags;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.operator.ContentVerifier;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.util.io.TeeInputStream;
+
+/**
+ * A streaming parser for (DER encoded) X.509 CRLs, that never holds the whole list of revoked certificates in
+ * memory. Each entry is passed to an {@link EntryHandler} as soon as it has been read, while the signature is
+ * verified incrementally over the same bytes; the handler can then, for example, write the entries to an index of
+ * its own.
+ * <p>
+ * <b>Note:</b> the signature can only be checked once the whole CRL has been read, so entries are handed out before
+ * the CRL is known to be authentic. A caller must discard whatever it built from them unless
+ * {@link Result#isSignatureValid()} returns true.
+ * </p>
+ * <p>
+ * The indirectCRL flag is carried by a CRL extension, which follows the entries, so each entry is processed as if
+ * the CRL were indirect: its certificate issuer is tracked through certificateIssuer entry extensions.
+ * </p>
+ */
+public class X509CRLStreamParser
+{
+    /**
+     * Receives the revoked certificate entries of a CRL, in order.
+     */
+    public interface EntryHandler
+    {
+        void handleEntry(X509CRLEntryHolder entry)
+            throws IOException;
+    }
+
+    /**
+     * The details of a CRL other than its entries.
+     */
+    public static class Result
+    {
+        private final AlgorithmIdentifier signatureAlgorithm;
+        private final X500Name issuer;
+        private final Time thisUpdate;
+        private final Time nextUpdate;
+        private final Extensions extensions;
+        private final long entryCount;
+        private final boolean signatureValid;
+
+        Result(AlgorithmIdentifier signatureAlgorithm, X500Name issuer, Time thisUpdate, Time nextUpdate,
+            Extensions extensions, long entryCount, boolean signatureValid)
+        {
+            this.signatureAlgorithm = signatureAlgorithm;
+            this.issuer = issuer;
+            this.thisUpdate = thisUpdate;
+            this.nextUpdate = nextUpdate;
+            this.extensions = extensions;
+            this.entryCount = entryCount;
+            this.signatureValid = signatureValid;
+        }
+
+        public AlgorithmIdentifier getSignatureAlgorithm()
+        {
+            return signatureAlgorithm;
+        }
+
+        public X500Name getIssuer()
+        {
+            return issuer;
+        }
+
+        public Date getThisUpdate()
+        {
+            return thisUpdate.getDate();
+        }
+
+        public Date getNextUpdate()
+        {
+            return null == nextUpdate ? null : nextUpdate.getDate();
+        }
+
+        public Extensions getExtensions()
+        {
+            return extensions;
+        }
+
+        public long getEntryCount()
+        {
+            return entryCount;
+        }
+
+        public boolean isSignatureValid()
+        {
+            return signatureValid;
+        }
+    }
+
+    private final ContentVerifierProvider verifierProvider;
+
+    /**
+     * Base constructor.
+     *
+     * @param verifierProvider a provider for a verifier of the CRL issuer's signature.
+     */
+    public X509CRLStreamParser(ContentVerifierProvider verifierProvider)
+    {
+        if (null == verifierProvider)
+        {
+            throw new NullPointerException("'verifierProvider' cannot be null");
+        }
+
+        this.verifierProvider = verifierProvider;
+    }
+
+    /**
+     * Parse a CRL from a stream, passing each revoked certificate entry to the handler.
+     *
+     * @param in the stream to read the CRL from. Nothing is read beyond the end of the CRL.
+     * @param handler the handler to receive the revoked certificate entries.
+     * @return the details of the CRL, including whether its signature is valid.
+     * @throws CertIOException if the data is not a correctly encoded CRL.
+     * @throws CertException if the signature cannot be processed.
+     * @throws IOException if reading the stream, or the handler, fails.
+     */
+    public Result parse(InputStream in, EntryHandler handler)
+        throws IOException, CertException
+    {
+        // CertificateList ::= SEQUENCE { tbsCertList, signatureAlgorithm, signatureValue }
+        readHeader(in, null);
+
+        /*
+         * The TBSCertList encoding is buffered only until its signature algorithm identifier (and so the verifier)
+         * is known, and then streamed into the verifier.
+         */
+        ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+        SwitchingOutputStream tbsOut = new SwitchingOutputStream(prefix);
+
+        int tbsLength = readHeader(in, tbsOut);
+        InputStream tbsIn = new TeeInputStream(new BoundedInputStream(in, tbsLength), tbsOut);
+
+        AlgorithmIdentifier signature;
+        X500Name issuer;
+        Time thisUpdate, nextUpdate = null;
+        Extensions extensions = null;
+        long entryCount = 0;
+        ContentVerifier verifier;
+
+        try
+        {
+            ASN1StreamParser tbsParser = new ASN1StreamParser(tbsIn, tbsLength);
+
+            ASN1Encodable element = tbsParser.readObject();
+            if (element instanceof ASN1Integer)
+            {
+                element = tbsParser.readObject();
+            }
+
+            signature = AlgorithmIdentifier.getInstance(element.toASN1Primitive());
+
+            try
+            {
+                verifier = verifierProvider.get(signature);
+            }
+            catch (Exception e)
+            {
+                throw new CertException("unable to process signature: " + e.getMessage(), e);
+            }
+
+            OutputStream sOut = verifier.getOutputStream();
+            prefix.writeTo(sOut);
+            tbsOut.setTarget(sOut);
+
+            issuer = X500Name.getInstance(tbsParser.readObject().toASN1Primitive());
+            thisUpdate = Time.getInstance(tbsParser.readObject().toASN1Primitive());
+
+            element = tbsParser.readObject();
+            if (element instanceof ASN1UTCTime || element instanceof ASN1GeneralizedTime)
+            {
+                nextUpdate = Time.getInstance(element);
+                element = tbsParser.readObject();
+            }
+
+            if (element instanceof ASN1SequenceParser)
+            {
+                ASN1SequenceParser entries = (ASN1SequenceParser)element;
+                GeneralNames currentCA = new GeneralNames(new GeneralName(issuer));
+
+                ASN1Encodable entry;
+                while ((entry = entries.readObject()) != null)
+                {
+                    X509CRLEntryHolder entryHolder = new X509CRLEntryHolder(
+                        TBSCertList.CRLEntry.getInstance(entry.toASN1Primitive()), true, currentCA);
+
+                    handler.handleEntry(entryHolder);
+                    ++entryCount;
+
+                    currentCA = entryHolder.getCertificateIssuer();
+                }
+
+                element = tbsParser.readObject();
+            }
+
+            if (element instanceof ASN1TaggedObjectParser)
+            {
+                ASN1TaggedObject tagged = ASN1TaggedObject.getInstance(element.toASN1Primitive());
+                if (!tagged.hasContextTag(0))
+                {
+                    throw new CertIOException("malformed data: unexpected tag in TBSCertList");
+                }
+
+                extensions = Extensions.getInstance(tagged, true);
+                element = tbsParser.readObject();
+            }
+
+            if (null != element)
+            {
+                throw new CertIOException("malformed data: unexpected element in TBSCertList");
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new CertIOException("malformed data: " + e.getMessage(), e);
+        }
+        catch (ClassCastException e)
+        {
+            throw new CertIOException("malformed data: " + e.getMessage(), e);
+        }
+        catch (IllegalStateException e)
+        {
+            throw new CertIOException("malformed data: " + e.getMessage(), e);
+        }
+        catch (NullPointerException e)
+        {
+            throw new CertIOException("malformed data: truncated TBSCertList", e);
+        }
+
+        tbsOut.setTarget(null);
+        verifier.getOutputStream().close();
+
+        AlgorithmIdentifier signatureAlgorithm;
+        ASN1BitString signatureValue;
+
+        try
+        {
+            ASN1StreamParser parser = new ASN1StreamParser(in);
+
+            signatureAlgorithm = AlgorithmIdentifier.getInstance(parser.readObject().toASN1Primitive());
+            signatureValue = ASN1BitString.getInstance(parser.readObject().toASN1Primitive());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new CertIOException("malformed data: " + e.getMessage(), e);
+        }
+        catch (IllegalStateException e)
+        {
+            throw new CertIOException("malformed data: " + e.getMessage(), e);
+        }
+        catch (NullPointerException e)
+        {
+            throw new CertIOException("malformed data: truncated CRL", e);
+        }
+
+        if (!CertUtils.isAlgIdEqual(signature, signatureAlgorithm))
+        {
+            throw new CertException("signature invalid - algorithm identifier mismatch");
+        }
+
+        boolean signatureValid = verifier.verify(signatureValue.getOctets());
+
+        return new Result(signatureAlgorithm, issuer, thisUpdate, nextUpdate, extensions, entryCount,
+            signatureValid);
+    }
+
+    /**
+     * Read the (DER) header of a SEQUENCE, copying it to the given stream if any.
+     *
+     * @return the length of the contents.
+     */
+    private static int readHeader(InputStream in, OutputStream out)
+        throws IOException
+    {
+        int tag = readByte(in, out);
+        if (tag != (BERTags.SEQUENCE | BERTags.CONSTRUCTED))
+        {
+            throw new CertIOException("malformed data: expected SEQUENCE");
+        }
+
+        int length = readByte(in, out);
+        if (length > 127)
+        {
+            int size = length & 0x7f;
+            if (size == 0 || size > 4)
+            {
+                throw new CertIOException("malformed data: unsupported length encoding");
+            }
+
+            length = 0;
+            for (int i = 0; i < size; ++i)
+            {
+                length = (length << 8) | readByte(in, out);
+            }
+
+            if (length < 0)
+            {
+                throw new CertIOException("malformed data: length too large");
+            }
+        }
+
+        return length;
+    }
+
+    private static int readByte(InputStream in, OutputStream out)
+        throws IOException
+    {
+        int b = in.read();
+        if (b < 0)
+        {
+            throw new EOFException("unexpected end of CRL data");
+        }
+        if (null != out)
+        {
+            out.write(b);
+        }
+        return b;
+    }
+
+    private static class SwitchingOutputStream
+        extends OutputStream
+    {
+        private OutputStream target;
+
+        SwitchingOutputStream(OutputStream target)
+        {
+            this.target = target;
+        }
+
+        void setTarget(OutputStream target)
+        {
+            this.target = target;
+        }
+
+        public void write(int b)
+            throws IOException
+        {
+            if (null != target)
+            {
+                target.write(b);
+            }
+        }
+
+        public void write(byte[] buf, int off, int len)
+            throws IOException
+        {
+            if (null != target)
+            {
+                target.write(buf, off, len);
+            }
+        }
+    }
+
+    private static class BoundedInputStream
+        extends InputStream
+    {
+        private final InputStream in;
+        private int remaining;
+
+        BoundedInputStream(InputStream in, int length)
+        {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        public int read()
+            throws IOException
+        {
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+
+            int b = in.read();
+            if (b < 0)
+            {
+                throw new EOFException("unexpected end of CRL data");
+            }
+
+            --remaining;
+            return b;
+        }
+
+        public int read(byte[] buf, int off, int len)
+            throws IOException
+        {
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+
+            int count = in.read(buf, off, Math.min(len, remaining));
+            if (count < 0)
+            {
+                throw new EOFException("unexpected end of CRL data");
+            }
+
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -51,6 +51,7 @@ public static Test suite()
         suite.addTestSuite(BcAttrCertTest.class);
         suite.addTestSuite(BcCertTest.class);
         suite.addTestSuite(BcPKCS10Test.class);
+        suite.addTestSuite(X509CRLStreamParserTest.class);
         suite.addTest(ConverterTest.suite());
 
         return new BCTestSetup(suite);
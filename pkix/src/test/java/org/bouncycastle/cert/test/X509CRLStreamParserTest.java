@@ -0,0 +1,234 @@
+package org.bouncycastle.cert.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.IssuingDistributionPoint;
+import org.bouncycastle.cert.CertIOException;
+import org.bouncycastle.cert.X509CRLEntryHolder;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CRLStreamParser;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.DefaultDigestAlgorithmIdentifierFinder;
+import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
+import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
+import org.bouncycastle.operator.bc.BcRSAContentVerifierProviderBuilder;
+
+public class X509CRLStreamParserTest
+    extends TestCase
+{
+    private static final X500Name CA_NAME = new X500Name("CN=Test CA");
+    private static final X500Name OTHER_CA_NAME = new X500Name("CN=Other CA");
+
+    private DefaultSignatureAlgorithmIdentifierFinder sigAlgFinder = new DefaultSignatureAlgorithmIdentifierFinder();
+    private DefaultDigestAlgorithmIdentifierFinder digAlgFinder = new DefaultDigestAlgorithmIdentifierFinder();
+
+    private AsymmetricCipherKeyPair pair;
+
+    public void setUp()
+    {
+        RSAKeyPairGenerator kpg = new RSAKeyPairGenerator();
+        kpg.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x1001), new SecureRandom(), 1024, 25));
+
+        pair = kpg.generateKeyPair();
+    }
+
+    public void testLargeCRL()
+        throws Exception
+    {
+        X509CRLHolder crl = createCRL(2000, false);
+
+        CollectingHandler handler = new CollectingHandler();
+        X509CRLStreamParser.Result result = new X509CRLStreamParser(getVerifierProvider())
+            .parse(new ByteArrayInputStream(crl.getEncoded()), handler);
+
+        assertTrue(result.isSignatureValid());
+        assertEquals(CA_NAME, result.getIssuer());
+        assertEquals(crl.getThisUpdate(), result.getThisUpdate());
+        assertEquals(crl.getNextUpdate(), result.getNextUpdate());
+        assertEquals(crl.toASN1Structure().getSignatureAlgorithm(), result.getSignatureAlgorithm());
+        assertEquals(crl.getExtensions(), result.getExtensions());
+        assertEquals(2000, result.getEntryCount());
+
+        checkEntries(crl.getRevokedCertificates(), handler.entries);
+    }
+
+    public void testIndirectCRL()
+        throws Exception
+    {
+        X509CRLHolder crl = createCRL(10, true);
+
+        CollectingHandler handler = new CollectingHandler();
+        X509CRLStreamParser.Result result = new X509CRLStreamParser(getVerifierProvider())
+            .parse(new ByteArrayInputStream(crl.getEncoded()), handler);
+
+        assertTrue(result.isSignatureValid());
+        assertEquals(10, result.getEntryCount());
+
+        checkEntries(crl.getRevokedCertificates(), handler.entries);
+
+        X509CRLEntryHolder last = (X509CRLEntryHolder)handler.entries.lastElement();
+        assertEquals(new GeneralNames(new GeneralName(OTHER_CA_NAME)), last.getCertificateIssuer());
+    }
+
+    public void testEmptyCRL()
+        throws Exception
+    {
+        X509CRLHolder crl = createCRL(0, false);
+
+        CollectingHandler handler = new CollectingHandler();
+        X509CRLStreamParser.Result result = new X509CRLStreamParser(getVerifierProvider())
+            .parse(new ByteArrayInputStream(crl.getEncoded()), handler);
+
+        assertTrue(result.isSignatureValid());
+        assertEquals(0, result.getEntryCount());
+        assertTrue(handler.entries.isEmpty());
+    }
+
+    public void testTamperedCRL()
+        throws Exception
+    {
+        X509CRLHolder crl = createCRL(100, false);
+
+        byte[] encoding = crl.getEncoded();
+
+        // Change the last byte of a revocation date in the middle of the list
+        int pos = encoding.length / 2;
+        while (encoding[pos] != 'Z')
+        {
+            ++pos;
+        }
+        encoding[pos - 1] ^= 0x01;
+
+        X509CRLStreamParser.Result result = new X509CRLStreamParser(getVerifierProvider())
+            .parse(new ByteArrayInputStream(encoding), new CollectingHandler());
+
+        assertFalse(result.isSignatureValid());
+    }
+
+    public void testTruncatedCRL()
+        throws Exception
+    {
+        X509CRLHolder crl = createCRL(100, false);
+
+        byte[] encoding = crl.getEncoded();
+        byte[] truncated = new byte[encoding.length / 2];
+        System.arraycopy(encoding, 0, truncated, 0, truncated.length);
+
+        try
+        {
+            new X509CRLStreamParser(getVerifierProvider())
+                .parse(new ByteArrayInputStream(truncated), new CollectingHandler());
+            fail("truncated CRL not detected");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            new X509CRLStreamParser(getVerifierProvider())
+                .parse(new ByteArrayInputStream(new byte[]{ 0x04, 0x00 }), new CollectingHandler());
+            fail("non-SEQUENCE not detected");
+        }
+        catch (CertIOException e)
+        {
+            // expected
+        }
+    }
+
+    private X509CRLHolder createCRL(int entryCount, boolean indirect)
+        throws Exception
+    {
+        Date now = new Date();
+
+        X509v2CRLBuilder crlGen = new X509v2CRLBuilder(CA_NAME, now);
+
+        crlGen.setNextUpdate(new Date(now.getTime() + 100000));
+
+        for (int i = 0; i < entryCount; ++i)
+        {
+            BigInteger serialNumber = BigInteger.valueOf(1000 + i * 7);
+            Date revocationDate = new Date(now.getTime() - i * 1000L);
+
+            if (indirect && i == entryCount / 2)
+            {
+                ExtensionsGenerator extGen = new ExtensionsGenerator();
+                extGen.addExtension(Extension.certificateIssuer, true,
+                    new GeneralNames(new GeneralName(OTHER_CA_NAME)));
+
+                crlGen.addCRLEntry(serialNumber, revocationDate, extGen.generate());
+            }
+            else
+            {
+                crlGen.addCRLEntry(serialNumber, revocationDate, CRLReason.keyCompromise);
+            }
+        }
+
+        crlGen.addExtension(Extension.cRLNumber, false, new ASN1Integer(entryCount));
+        if (indirect)
+        {
+            crlGen.addExtension(Extension.issuingDistributionPoint, true,
+                new IssuingDistributionPoint(null, false, false, null, true, false));
+        }
+
+        AlgorithmIdentifier sigAlg = sigAlgFinder.find("SHA256withRSAEncryption");
+        AlgorithmIdentifier digAlg = digAlgFinder.find(sigAlg);
+
+        return crlGen.build(new BcRSAContentSignerBuilder(sigAlg, digAlg).build(pair.getPrivate()));
+    }
+
+    private ContentVerifierProvider getVerifierProvider()
+        throws Exception
+    {
+        return new BcRSAContentVerifierProviderBuilder(digAlgFinder).build(pair.getPublic());
+    }
+
+    private void checkEntries(Collection expected, Vector actual)
+    {
+        assertEquals(expected.size(), actual.size());
+
+        int i = 0;
+        for (Iterator it = expected.iterator(); it.hasNext(); ++i)
+        {
+            X509CRLEntryHolder expectedEntry = (X509CRLEntryHolder)it.next();
+            X509CRLEntryHolder actualEntry = (X509CRLEntryHolder)actual.elementAt(i);
+
+            assertEquals(expectedEntry.getSerialNumber(), actualEntry.getSerialNumber());
+            assertEquals(expectedEntry.getRevocationDate(), actualEntry.getRevocationDate());
+            assertEquals(expectedEntry.getExtensions(), actualEntry.getExtensions());
+            assertEquals(expectedEntry.getCertificateIssuer(), actualEntry.getCertificateIssuer());
+        }
+    }
+
+    private static class CollectingHandler
+        implements X509CRLStreamParser.EntryHandler
+    {
+        final Vector entries = new Vector();
+
+        public void handleEntry(X509CRLEntryHolder entry)
+        {
+            entries.addElement(entry);
+        }
+    }
+}
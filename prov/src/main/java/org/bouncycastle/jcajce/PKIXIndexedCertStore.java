@@ -0,0 +1,257 @@
+package org.bouncycastle.jcajce;
+
+import java.math.BigInteger;
+import java.security.cert.CertSelector;
+import java.security.cert.Certificate;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Iterable;
+import org.bouncycastle.util.Selector;
+
+/**
+ * An immutable PKIX certificate store for large sets of X.509 certificates (e.g. trust bundles), indexed by subject
+ * DN, subject key identifier, and issuer DN and serial number.
+ * <p>
+ * When passed a {@link PKIXCertStoreSelector} built on an {@link X509CertSelector} that constrains any of these
+ * (as the PKIX path builder does when looking for the issuer of a certificate), only the certificates in the most
+ * selective matching index entry are tested against the selector, rather than every certificate in the store. For
+ * any other selector the whole store is searched.
+ * </p>
+ * Use it by adding it to the certification path parameters with
+ * {@link PKIXExtendedParameters.Builder#addCertificateStore(PKIXCertStore)}.
+ */
+public class PKIXIndexedCertStore
+    implements PKIXCertStore<X509Certificate>, Iterable<X509Certificate>
+{
+    private final List<X509Certificate> certificates;
+    private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<X500Principal, List<X509Certificate>>();
+    private final Map<KeyIdentifier, List<X509Certificate>> bySubjectKeyId = new HashMap<KeyIdentifier, List<X509Certificate>>();
+    private final Map<IssuerAndSerial, List<X509Certificate>> byIssuerAndSerial = new HashMap<IssuerAndSerial, List<X509Certificate>>();
+
+    /**
+     * Basic constructor.
+     *
+     * @param certificates the certificates to hold, any that are not X.509 certificates are ignored. The collection
+     *                     is copied.
+     */
+    public PKIXIndexedCertStore(Collection<? extends Certificate> certificates)
+    {
+        List<X509Certificate> certs = new ArrayList<X509Certificate>(certificates.size());
+
+        for (Iterator<? extends Certificate> it = certificates.iterator(); it.hasNext();)
+        {
+            Certificate cert = it.next();
+            if (!(cert instanceof X509Certificate))
+            {
+                continue;
+            }
+
+            X509Certificate x509Cert = (X509Certificate)cert;
+            certs.add(x509Cert);
+
+            addToIndex(bySubject, x509Cert.getSubjectX500Principal(), x509Cert);
+            addToIndex(byIssuerAndSerial,
+                new IssuerAndSerial(x509Cert.getIssuerX500Principal(), x509Cert.getSerialNumber()), x509Cert);
+
+            byte[] subjectKeyId = getSubjectKeyIdentifier(x509Cert);
+            if (subjectKeyId != null)
+            {
+                addToIndex(bySubjectKeyId, new KeyIdentifier(subjectKeyId), x509Cert);
+            }
+        }
+
+        this.certificates = Collections.unmodifiableList(certs);
+    }
+
+    /**
+     * Return the number of certificates in the store.
+     *
+     * @return the store size.
+     */
+    public int size()
+    {
+        return certificates.size();
+    }
+
+    /**
+     * Return the matches in the store for the passed in selector.
+     *
+     * @param selector the selector to match against, null for all certificates.
+     * @return a possibly empty collection of matching certificates.
+     */
+    public Collection<X509Certificate> getMatches(Selector<X509Certificate> selector)
+    {
+        if (selector == null)
+        {
+            return new ArrayList<X509Certificate>(certificates);
+        }
+
+        List<X509Certificate> candidates = getCandidates(selector);
+        List<X509Certificate> matches = new ArrayList<X509Certificate>();
+
+        for (int i = 0; i != candidates.size(); i++)
+        {
+            X509Certificate cert = candidates.get(i);
+            if (selector.match(cert))
+            {
+                matches.add(cert);
+            }
+        }
+
+        return matches;
+    }
+
+    public Iterator<X509Certificate> iterator()
+    {
+        return certificates.iterator();
+    }
+
+    private List<X509Certificate> getCandidates(Selector<X509Certificate> selector)
+    {
+        if (!(selector instanceof PKIXCertStoreSelector))
+        {
+            return certificates;
+        }
+
+        CertSelector baseSelector = ((PKIXCertStoreSelector)selector).getBaseSelector();
+        if (!(baseSelector instanceof X509CertSelector))
+        {
+            return certificates;
+        }
+
+        X509CertSelector certSelector = (X509CertSelector)baseSelector;
+        List<X509Certificate> candidates = certificates;
+
+        X509Certificate cert = certSelector.getCertificate();
+        if (cert != null)
+        {
+            candidates = smallest(candidates, bySubject.get(cert.getSubjectX500Principal()));
+        }
+
+        X500Principal issuer = certSelector.getIssuer();
+        BigInteger serialNumber = certSelector.getSerialNumber();
+        if (issuer != null && serialNumber != null)
+        {
+            candidates = smallest(candidates, byIssuerAndSerial.get(new IssuerAndSerial(issuer, serialNumber)));
+        }
+
+        byte[] subjectKeyId = certSelector.getSubjectKeyIdentifier();
+        if (subjectKeyId != null)
+        {
+            candidates = smallest(candidates, bySubjectKeyId.get(new KeyIdentifier(subjectKeyId)));
+        }
+
+        X500Principal subject = certSelector.getSubject();
+        if (subject != null)
+        {
+            candidates = smallest(candidates, bySubject.get(subject));
+        }
+
+        return candidates;
+    }
+
+    private static List<X509Certificate> smallest(List<X509Certificate> candidates, List<X509Certificate> indexed)
+    {
+        // every match of a constrained criterion is in its index entry, so a missing entry means no matches
+        if (indexed == null)
+        {
+            return Collections.emptyList();
+        }
+
+        return indexed.size() < candidates.size() ? indexed : candidates;
+    }
+
+    private static <K> void addToIndex(Map<K, List<X509Certificate>> index, K key, X509Certificate cert)
+    {
+        List<X509Certificate> certs = index.get(key);
+        if (certs == null)
+        {
+            certs = new ArrayList<X509Certificate>(1);
+            index.put(key, certs);
+        }
+        certs.add(cert);
+    }
+
+    /**
+     * Return the subject key identifier in the form X509CertSelector uses (a DER encoded OCTET STRING), or null.
+     */
+    private static byte[] getSubjectKeyIdentifier(X509Certificate cert)
+    {
+        byte[] extValue = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (extValue == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return ASN1OctetString.getInstance(extValue).getOctets();
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    private static final class KeyIdentifier
+    {
+        private final byte[] encoding;
+
+        KeyIdentifier(byte[] encoding)
+        {
+            this.encoding = encoding;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof KeyIdentifier && Arrays.areEqual(encoding, ((KeyIdentifier)o).encoding);
+        }
+
+        public int hashCode()
+        {
+            return Arrays.hashCode(encoding);
+        }
+    }
+
+    private static final class IssuerAndSerial
+    {
+        private final X500Principal issuer;
+        private final BigInteger serialNumber;
+
+        IssuerAndSerial(X500Principal issuer, BigInteger serialNumber)
+        {
+            this.issuer = issuer;
+            this.serialNumber = serialNumber;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof IssuerAndSerial))
+            {
+                return false;
+            }
+
+            IssuerAndSerial other = (IssuerAndSerial)o;
+
+            return serialNumber.equals(other.serialNumber) && issuer.equals(other.issuer);
+        }
+
+        public int hashCode()
+        {
+            return serialNumber.hashCode() ^ issuer.hashCode();
+        }
+    }
+}
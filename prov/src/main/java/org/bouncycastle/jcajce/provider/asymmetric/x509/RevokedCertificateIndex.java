@@ -0,0 +1,126 @@
+package org.bouncycastle.jcajce.provider.asymmetric.x509;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CertificateList;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.TBSCertList;
+
+/**
+ * An index of the revoked certificates of a CRL by serial number, so that a lookup doesn't have to walk (and
+ * re-parse) the whole list.
+ * <p>
+ * Each entry is indexed by the hash code of its serial number, packed with its position in the CRL into a single
+ * sorted long, so the index costs little more than the entries themselves. For an indirect CRL, the certificate
+ * issuer in effect for each entry is tracked as well.
+ */
+class RevokedCertificateIndex
+{
+    private final TBSCertList.CRLEntry[] entries;
+    private final X500Name[] issuers;
+    private final long[] keys;
+
+    RevokedCertificateIndex(CertificateList c, boolean isIndirect)
+    {
+        TBSCertList.CRLEntry[] entries = c.getRevokedCertificates();
+        X500Name[] issuers = isIndirect ? new X500Name[entries.length] : null;
+        long[] keys = new long[entries.length];
+
+        X500Name certificateIssuer = null;
+        for (int i = 0; i < entries.length; ++i)
+        {
+            TBSCertList.CRLEntry entry = entries[i];
+
+            if (isIndirect)
+            {
+                if (entry.hasExtensions())
+                {
+                    Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+
+                    if (currentCaName != null)
+                    {
+                        certificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
+                    }
+                }
+                issuers[i] = certificateIssuer;
+            }
+
+            keys[i] = ((long)entry.getUserCertificate().getValue().hashCode() << 32) | (i & 0xFFFFFFFFL);
+        }
+
+        java.util.Arrays.sort(keys);
+
+        this.entries = entries;
+        this.issuers = issuers;
+        this.keys = keys;
+    }
+
+    /**
+     * Find the first (in CRL order) entry for the given serial number.
+     *
+     * @return the position of the entry in the CRL, or -1 if there is none.
+     */
+    int find(BigInteger serialNumber)
+    {
+        return find(serialNumber, 0);
+    }
+
+    /**
+     * Find the first entry for the given serial number, at or after the given position in the CRL.
+     *
+     * @return the position of the entry in the CRL, or -1 if there is none.
+     */
+    int find(BigInteger serialNumber, int fromPosition)
+    {
+        long hash = (long)serialNumber.hashCode() << 32;
+
+        // Entries with the same hash are sorted by position
+        int index = java.util.Arrays.binarySearch(keys, hash | (fromPosition & 0xFFFFFFFFL));
+        if (index < 0)
+        {
+            index = -(index + 1);
+        }
+
+        for (; index < keys.length; ++index)
+        {
+            long key = keys[index];
+            if ((key & 0xFFFFFFFF00000000L) != hash)
+            {
+                break;
+            }
+
+            int position = (int)key;
+            if (entries[position].getUserCertificate().hasValue(serialNumber))
+            {
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+    TBSCertList.CRLEntry getEntry(int position)
+    {
+        return entries[position];
+    }
+
+    /**
+     * @return the certificate issuer in effect for the entry at the given position (i.e. after processing its
+     * certificateIssuer extension, if any), or null if it is the CRL issuer.
+     */
+    X500Name getCertificateIssuer(int position)
+    {
+        return null == issuers ? null : issuers[position];
+    }
+
+    /**
+     * @return the certificate issuer in effect before the entry at the given position, or null if it is the CRL
+     * issuer.
+     */
+    X500Name getPreviousCertificateIssuer(int position)
+    {
+        return null == issuers || position < 1 ? null : issuers[position - 1];
+    }
+}
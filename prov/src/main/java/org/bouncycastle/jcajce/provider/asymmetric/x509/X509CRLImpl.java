@@ -74,6 +74,8 @@
     protected byte[] sigAlgParams;
     protected boolean isIndirect;
 
+    private volatile RevokedCertificateIndex revokedCertificateIndex;
+
     X509CRLImpl(JcaJceHelper bcHelper, CertificateList c, String sigAlgName, byte[] sigAlgParams, boolean isIndirect)
     {
         this.bcHelper = bcHelper;
@@ -442,32 +444,30 @@ private Set loadCRLEntries()
         return entrySet;
     }
 
-    public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
+    private RevokedCertificateIndex getRevokedCertificateIndex()
     {
-        Enumeration certs = c.getRevokedCertificateEnumeration();
-
-        X500Name previousCertificateIssuer = null; // the issuer
-        while (certs.hasMoreElements())
+        // NOTE: Races may build the index more than once, but any of them can be used
+        RevokedCertificateIndex index = revokedCertificateIndex;
+        if (null == index)
         {
-            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)certs.nextElement();
-
-            if (entry.getUserCertificate().hasValue(serialNumber))
-            {
-                return new X509CRLEntryObject(entry, isIndirect, previousCertificateIssuer);
-            }
+            index = new RevokedCertificateIndex(c, isIndirect);
+            revokedCertificateIndex = index;
+        }
+        return index;
+    }
 
-            if (isIndirect && entry.hasExtensions())
-            {
-                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+    public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
+    {
+        RevokedCertificateIndex index = getRevokedCertificateIndex();
 
-                if (currentCaName != null)
-                {
-                    previousCertificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                }
-            }
+        int position = index.find(serialNumber);
+        if (position < 0)
+        {
+            return null;
         }
 
-        return null;
+        return new X509CRLEntryObject(index.getEntry(position), isIndirect,
+            index.getPreviousCertificateIssuer(position));
     }
 
     public Set getRevokedCertificates()
@@ -641,57 +641,49 @@ public boolean isRevoked(Certificate cert)
             throw new IllegalArgumentException("X.509 CRL used with non X.509 Cert");
         }
 
-        Enumeration certs = c.getRevokedCertificateEnumeration();
+        RevokedCertificateIndex index = getRevokedCertificateIndex();
 
-        X500Name caName = c.getIssuer();
+        BigInteger serial = ((X509Certificate)cert).getSerialNumber();
 
-        if (certs.hasMoreElements())
+        int position = index.find(serial);
+        if (position < 0)
         {
-            BigInteger serial = ((X509Certificate)cert).getSerialNumber();
-
-            while (certs.hasMoreElements())
-            {
-                TBSCertList.CRLEntry entry = TBSCertList.CRLEntry.getInstance(certs.nextElement());
-
-                if (isIndirect && entry.hasExtensions())
-                {
-                    Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
-
-                    if (currentCaName != null)
-                    {
-                        caName = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                    }
-                }
+            return false;
+        }
 
-                if (entry.getUserCertificate().hasValue(serial))
-                {
-                    X500Name issuer;
+        X500Name issuer;
 
-                    if (cert instanceof X509Certificate)
-                    {
-                        issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
-                    }
-                    else
-                    {
-                        try
-                        {
-                            issuer = org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
-                        }
-                        catch (CertificateEncodingException e)
-                        {
-                            throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
-                        }
-                    }
+        if (cert instanceof X509Certificate)
+        {
+            issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
+        }
+        else
+        {
+            try
+            {
+                issuer = org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
+            }
+            catch (CertificateEncodingException e)
+            {
+                throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
+            }
+        }
 
-                    if (!caName.equals(issuer))
-                    {
-                        return false;
-                    }
+        // NOTE: An indirect CRL may list the same serial number for several certificate issuers
+        do
+        {
+            X500Name caName = index.getCertificateIssuer(position);
+            if (null == caName)
+            {
+                caName = c.getIssuer();
+            }
 
-                    return true;
-                }
+            if (caName.equals(issuer))
+            {
+                return true;
             }
         }
+        while (isIndirect && (position = index.find(serial, position + 1)) >= 0);
 
         return false;
     }
@@ -1384,6 +1384,18 @@ static Collection findIssuerCerts(
     protected static void verifyX509Certificate(X509Certificate cert, PublicKey publicKey, String sigProvider)
         throws GeneralSecurityException
     {
+        CertificateSignatureCache signatureCache = CertificateSignatureCache.getInstance();
+        CertificateSignatureCache.LinkKey linkKey = null;
+
+        if (signatureCache != null)
+        {
+            linkKey = signatureCache.getLinkKey(cert, publicKey, sigProvider);
+            if (linkKey != null && signatureCache.isVerified(linkKey))
+            {
+                return;
+            }
+        }
+
         if (sigProvider == null)
         {
             cert.verify(publicKey);
@@ -1392,6 +1404,11 @@ protected static void verifyX509Certificate(X509Certificate cert, PublicKey publ
         {
             cert.verify(publicKey, sigProvider);
         }
+
+        if (linkKey != null)
+        {
+            signatureCache.addVerified(linkKey);
+        }
     }
 
     static void checkCRLsNotEmpty(PKIXCertRevocationCheckerParameters params, Set crls, Object cert)
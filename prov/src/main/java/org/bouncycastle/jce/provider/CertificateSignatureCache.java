@@ -0,0 +1,166 @@
+package org.bouncycastle.jce.provider;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Properties;
+import org.bouncycastle.util.Strings;
+
+/**
+ * An opt-in cache of verified certificate signatures, so that validating the same certification paths repeatedly
+ * doesn't repeat the public key operation for every link.
+ * <p>
+ * A link is identified by a SHA-256 digest over the issuer public key, the subject certificate encoding and the
+ * signature provider, and only successful verifications are recorded. The cache is enabled by setting the property
+ * "org.bouncycastle.x509.sig_cache_size" to the maximum number of links to hold; entries are kept for
+ * "org.bouncycastle.x509.sig_cache_ttl" seconds (default 3600).
+ * </p>
+ */
+class CertificateSignatureCache
+{
+    private static final String SIZE_PROPERTY = "org.bouncycastle.x509.sig_cache_size";
+    private static final String TTL_PROPERTY = "org.bouncycastle.x509.sig_cache_ttl";
+
+    private static final long DEFAULT_TTL = 3600;
+
+    private static CertificateSignatureCache instance = null;
+
+    /**
+     * Return the cache, or null if it isn't enabled.
+     */
+    static CertificateSignatureCache getInstance()
+    {
+        BigInteger size = Properties.asBigInteger(SIZE_PROPERTY);
+        if (size == null || size.signum() <= 0)
+        {
+            return null;
+        }
+
+        synchronized (CertificateSignatureCache.class)
+        {
+            if (instance == null)
+            {
+                BigInteger ttl = Properties.asBigInteger(TTL_PROPERTY);
+
+                instance = new CertificateSignatureCache(size.intValue(),
+                    (ttl != null && ttl.signum() > 0) ? ttl.longValue() : DEFAULT_TTL);
+            }
+
+            return instance;
+        }
+    }
+
+    private final Map<LinkKey, Long> links;
+    private final long ttlMillis;
+
+    CertificateSignatureCache(final int maxSize, long ttlSeconds)
+    {
+        this.links = new LinkedHashMap<LinkKey, Long>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<LinkKey, Long> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * Calculate the key for the link between a certificate and the public key of its issuer.
+     *
+     * @return the key, or null if the certificate or key has no encoding.
+     */
+    LinkKey getLinkKey(X509Certificate cert, PublicKey publicKey, String sigProvider)
+    {
+        byte[] keyEnc = publicKey.getEncoded();
+        if (keyEnc == null)
+        {
+            return null;
+        }
+
+        byte[] certEnc;
+        try
+        {
+            certEnc = cert.getEncoded();
+        }
+        catch (CertificateEncodingException e)
+        {
+            return null;
+        }
+
+        Digest digest = new SHA256Digest();
+
+        update(digest, keyEnc);
+        update(digest, certEnc);
+        if (sigProvider != null)
+        {
+            update(digest, Strings.toUTF8ByteArray(sigProvider));
+        }
+
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+
+        return new LinkKey(hash);
+    }
+
+    synchronized boolean isVerified(LinkKey key)
+    {
+        Long expiry = links.get(key);
+        if (expiry == null)
+        {
+            return false;
+        }
+
+        if (System.currentTimeMillis() > expiry.longValue())
+        {
+            links.remove(key);
+            return false;
+        }
+
+        return true;
+    }
+
+    synchronized void addVerified(LinkKey key)
+    {
+        links.put(key, Long.valueOf(System.currentTimeMillis() + ttlMillis));
+    }
+
+    private static void update(Digest digest, byte[] data)
+    {
+        // length prefix, so the boundaries between the inputs are unambiguous
+        digest.update((byte)(data.length >>> 24));
+        digest.update((byte)(data.length >>> 16));
+        digest.update((byte)(data.length >>> 8));
+        digest.update((byte)data.length);
+        digest.update(data, 0, data.length);
+    }
+
+    static final class LinkKey
+    {
+        private final byte[] hash;
+        private final int hashCode;
+
+        LinkKey(byte[] hash)
+        {
+            this.hash = hash;
+            this.hashCode = Arrays.hashCode(hash);
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof LinkKey && Arrays.areEqual(hash, ((LinkKey)o).hash);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+}
@@ -3,7 +3,6 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.security.cert.CRL;
@@ -12,13 +11,11 @@
 import java.security.cert.X509CRL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 import javax.naming.Context;
 import javax.naming.NamingException;
@@ -36,42 +33,60 @@
 class CrlCache
 {
     private static final int DEFAULT_TIMEOUT = 15000;
+    private static final int DEFAULT_MAX_SIZE = 64;
 
-    private static Map<URI, WeakReference<PKIXCRLStore>> cache =
-        Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<PKIXCRLStore>>());
-
-    static synchronized PKIXCRLStore getCrl(CertificateFactory certFact, Date validDate, URI distributionPoint)
-        throws IOException, CRLException
-    {
-        PKIXCRLStore crlStore = null;
-
-        WeakReference<PKIXCRLStore> markerRef = (WeakReference)cache.get(distributionPoint);
-        if (markerRef != null)
-        {
-            crlStore = (PKIXCRLStore)markerRef.get();
-        }
-
-        if (crlStore != null)
+    private static final RevocationDataCache<URI, PKIXCRLStore> cache =
+        new RevocationDataCache<URI, PKIXCRLStore>("org.bouncycastle.x509.crl_cache_size", DEFAULT_MAX_SIZE)
         {
-            boolean isExpired = false;
-            for (Iterator it = crlStore.getMatches(null).iterator(); it.hasNext();)
+            Date getNextUpdate(URI distributionPoint, PKIXCRLStore crlStore)
             {
-                X509CRL crl = (X509CRL)it.next();
-
-                Date nextUpdate = crl.getNextUpdate();
-                if (nextUpdate != null && nextUpdate.before(validDate))
+                // the store is only as current as its earliest nextUpdate
+                Date nextUpdate = null;
+                for (Iterator it = crlStore.getMatches(null).iterator(); it.hasNext();)
                 {
-                    isExpired = true;
-                    break;
+                    Date crlNextUpdate = ((X509CRL)it.next()).getNextUpdate();
+                    if (crlNextUpdate != null && (nextUpdate == null || crlNextUpdate.before(nextUpdate)))
+                    {
+                        nextUpdate = crlNextUpdate;
+                    }
                 }
+                return nextUpdate;
             }
+        };
 
-            if (!isExpired)
+    static PKIXCRLStore getCrl(final CertificateFactory certFact, Date validDate, final URI distributionPoint)
+        throws IOException, CRLException
+    {
+        try
+        {
+            return cache.get(distributionPoint, validDate, new RevocationDataCache.Fetcher<PKIXCRLStore>()
             {
-                return crlStore;
-            }
+                public PKIXCRLStore fetch()
+                    throws Exception
+                {
+                    // the fetch may run on the refresh thread, so it mustn't share the caller's factory
+                    return fetchCrl(CertificateFactory.getInstance(certFact.getType(), certFact.getProvider()),
+                        distributionPoint);
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            throw e;
+        }
+        catch (CRLException e)
+        {
+            throw e;
         }
+        catch (Exception e)
+        {
+            throw new CRLException("unable to fetch CRL from: " + distributionPoint + ": " + e.getMessage(), e);
+        }
+    }
 
+    private static PKIXCRLStore fetchCrl(CertificateFactory certFact, URI distributionPoint)
+        throws IOException, CRLException
+    {
         Collection crls;
 
         if (distributionPoint.getScheme().equals("ldap"))
@@ -84,11 +99,7 @@ static synchronized PKIXCRLStore getCrl(CertificateFactory certFact, Date validD
             crls = getCrls(certFact, distributionPoint);
         }
 
-        LocalCRLStore localCRLStore = new LocalCRLStore(new CollectionStore<CRL>(crls));
-
-        cache.put(distributionPoint, new WeakReference<PKIXCRLStore>(localCRLStore));
-
-        return localCRLStore;
+        return new LocalCRLStore(new CollectionStore<CRL>(crls));
     }
 
     private static Collection getCrlsFromLDAP(CertificateFactory certFact, URI distributionPoint)
@@ -3,7 +3,6 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -12,11 +11,8 @@
 import java.security.cert.Extension;
 import java.security.cert.X509Certificate;
 import java.text.ParseException;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 import org.bouncycastle.asn1.ASN1EncodableVector;
 import org.bouncycastle.asn1.ASN1GeneralizedTime;
@@ -45,28 +41,12 @@
 {
     private static final int DEFAULT_TIMEOUT = 15000;
     private static final int DEFAULT_MAX_RESPONSE_SIZE = 32 * 1024;
+    private static final int DEFAULT_MAX_SIZE = 1024;
 
-    private static Map<URI, WeakReference<Map<CertID, OCSPResponse>>> cache
-        = Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<Map<CertID, OCSPResponse>>>());
-
-    static OCSPResponse getOcspResponse(
-        CertID certID, PKIXCertRevocationCheckerParameters parameters,
-        URI ocspResponder, X509Certificate responderCert, List<Extension> ocspExtensions,
-        JcaJceHelper helper)
-        throws CertPathValidatorException
-    {
-        Map<CertID, OCSPResponse> responseMap = null;
-
-        WeakReference<Map<CertID, OCSPResponse>> markerRef = cache.get(ocspResponder);
-        if (markerRef != null)
-        {
-            responseMap = markerRef.get();
-        }
-
-        if (responseMap != null)
+    private static final RevocationDataCache<ResponseKey, OCSPResponse> cache =
+        new RevocationDataCache<ResponseKey, OCSPResponse>("org.bouncycastle.x509.ocsp_cache_size", DEFAULT_MAX_SIZE)
         {
-            OCSPResponse response = responseMap.get(certID);
-            if (response != null)
+            Date getNextUpdate(ResponseKey key, OCSPResponse response)
             {
                 BasicOCSPResponse basicResp = BasicOCSPResponse.getInstance(
                     ASN1OctetString.getInstance(response.getResponseBytes().getResponse()).getOctets());
@@ -79,32 +59,60 @@ static OCSPResponse getOcspResponse(
                 {
                     SingleResponse resp = SingleResponse.getInstance(s.getObjectAt(i));
 
-                    if (certID.equals(resp.getCertID()))
+                    if (key.certID.equals(resp.getCertID()))
                     {
                         ASN1GeneralizedTime nextUp = resp.getNextUpdate();
                         try
                         {
-                            if (nextUp != null && parameters.getValidDate().after(nextUp.getDate()))
-                            {
-                                responseMap.remove(certID);
-                                response = null;
-                            }
+                            return nextUp != null ? nextUp.getDate() : null;
                         }
                         catch (ParseException e)
                         {
                             // this should never happen, but...
-                            responseMap.remove(certID);
-                            response = null;
+                            return new Date(0);
                         }
                     }
                 }
-                if (response != null)
-                {
-                    return response;
-                }
+                return null;
             }
+        };
+
+    static OCSPResponse getOcspResponse(
+        final CertID certID, final PKIXCertRevocationCheckerParameters parameters,
+        final URI ocspResponder, final X509Certificate responderCert, final List<Extension> ocspExtensions,
+        final JcaJceHelper helper)
+        throws CertPathValidatorException
+    {
+        try
+        {
+            return cache.get(new ResponseKey(ocspResponder, certID), parameters.getValidDate(),
+                new RevocationDataCache.Fetcher<OCSPResponse>()
+                {
+                    public OCSPResponse fetch()
+                        throws CertPathValidatorException
+                    {
+                        return fetchOcspResponse(certID, parameters, ocspResponder, responderCert, ocspExtensions,
+                            helper);
+                    }
+                });
+        }
+        catch (CertPathValidatorException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new CertPathValidatorException("unable to fetch OCSP response: " + e.getMessage(),
+                e, parameters.getCertPath(), parameters.getIndex());
         }
+    }
 
+    private static OCSPResponse fetchOcspResponse(
+        CertID certID, PKIXCertRevocationCheckerParameters parameters,
+        URI ocspResponder, X509Certificate responderCert, List<Extension> ocspExtensions,
+        JcaJceHelper helper)
+        throws CertPathValidatorException
+    {
         URL ocspUrl;
         try
         {
@@ -192,19 +200,6 @@ static OCSPResponse getOcspResponse(
                         "OCSP response failed to validate", null, parameters.getCertPath(), parameters.getIndex());
                 }
 
-                markerRef = cache.get(ocspResponder);
-                if (markerRef != null)
-                {
-                    responseMap = markerRef.get();
-                    responseMap.put(certID, response);
-                }
-                else
-                {
-                    responseMap = new HashMap<CertID, OCSPResponse>();
-                    responseMap.put(certID, response);
-                    cache.put(ocspResponder, new WeakReference<Map<CertID, OCSPResponse>>(responseMap));
-                }
-
                 return response;
             }
             else
@@ -220,4 +215,33 @@ static OCSPResponse getOcspResponse(
                      e, parameters.getCertPath(), parameters.getIndex());
         }
     }
+
+    private static class ResponseKey
+    {
+        final URI ocspResponder;
+        final CertID certID;
+
+        ResponseKey(URI ocspResponder, CertID certID)
+        {
+            this.ocspResponder = ocspResponder;
+            this.certID = certID;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof ResponseKey))
+            {
+                return false;
+            }
+
+            ResponseKey other = (ResponseKey)o;
+
+            return ocspResponder.equals(other.ocspResponder) && certID.equals(other.certID);
+        }
+
+        public int hashCode()
+        {
+            return ocspResponder.hashCode() * 31 + certID.hashCode();
+        }
+    }
 }
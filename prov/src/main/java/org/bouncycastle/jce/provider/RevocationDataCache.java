@@ -0,0 +1,226 @@
+package org.bouncycastle.jce.provider;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.bouncycastle.util.Properties;
+
+/**
+ * A bounded cache of revocation data (CRLs, OCSP responses) fetched from the network.
+ * <p>
+ * Entries are held by strong reference, up to a maximum number of entries after which the least recently used are
+ * dropped. An entry expires once its nextUpdate is before the validation date, or, if it has no nextUpdate, a fixed
+ * time after it was fetched. Once three quarters of an entry's lifetime have passed, a lookup that finds it schedules a
+ * refresh on a background thread and returns the current value meanwhile.
+ * </p>
+ * <p>
+ * Fetches are single-flight: concurrent lookups of a missing (or expired) entry wait for one fetch rather than each
+ * making their own, and a background refresh is likewise shared with any lookup that needs its result.
+ * </p>
+ */
+abstract class RevocationDataCache<K, V>
+{
+    /**
+     * Fetches the current value for a cache key.
+     */
+    interface Fetcher<V>
+    {
+        V fetch()
+            throws Exception;
+    }
+
+    // how long to keep an entry without a nextUpdate
+    private static final long DEFAULT_MAX_AGE = 60L * 60 * 1000;
+    // the least time between attempts to refresh an entry
+    private static final long RETRY_INTERVAL = 60L * 1000;
+
+    private static Executor refreshExecutor = null;
+
+    private final Map<K, CachedValue<V>> entries;
+    private final Map<K, FutureTask<CachedValue<V>>> inFlight = new HashMap<K, FutureTask<CachedValue<V>>>();
+
+    /**
+     * Base constructor.
+     *
+     * @param sizeProperty name of the property which may override the default maximum size.
+     * @param defaultMaxSize the maximum number of entries to hold by default.
+     */
+    RevocationDataCache(String sizeProperty, int defaultMaxSize)
+    {
+        BigInteger size = Properties.asBigInteger(sizeProperty);
+        final int maxSize = (size != null && size.signum() > 0) ? size.intValue() : defaultMaxSize;
+
+        this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Return the nextUpdate time of the value for a key, or null if it has none.
+     */
+    abstract Date getNextUpdate(K key, V value);
+
+    /**
+     * Return the value for the given key, fetching it if it is absent or has expired as of validDate.
+     *
+     * @param key the cache key.
+     * @param validDate the date the value is to be used for.
+     * @param fetcher the means of fetching the value, if required. It may be retained for a background refresh.
+     * @return the cached or fetched value.
+     * @throws Exception any exception thrown by the fetcher.
+     */
+    V get(K key, Date validDate, Fetcher<V> fetcher)
+        throws Exception
+    {
+        long now = System.currentTimeMillis();
+        FutureTask<CachedValue<V>> fetch;
+        boolean fetchHere = false;
+
+        synchronized (this)
+        {
+            CachedValue<V> cached = entries.get(key);
+            if (cached != null && !cached.isExpired(validDate, now))
+            {
+                if (now >= cached.refreshTime && !inFlight.containsKey(key))
+                {
+                    cached.refreshTime = now + RETRY_INTERVAL;
+
+                    fetch = createFetch(key, fetcher);
+                    inFlight.put(key, fetch);
+                    try
+                    {
+                        getRefreshExecutor().execute(fetch);
+                    }
+                    catch (RejectedExecutionException e)
+                    {
+                        // the current value remains usable, the refresh will be attempted later.
+                        inFlight.remove(key);
+                    }
+                }
+
+                return cached.value;
+            }
+
+            fetch = inFlight.get(key);
+            if (fetch == null)
+            {
+                fetch = createFetch(key, fetcher);
+                inFlight.put(key, fetch);
+                fetchHere = true;
+            }
+        }
+
+        if (fetchHere)
+        {
+            fetch.run();
+        }
+
+        try
+        {
+            return fetch.get().value;
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+            {
+                throw (Exception)cause;
+            }
+            throw (Error)cause;
+        }
+    }
+
+    private FutureTask<CachedValue<V>> createFetch(final K key, final Fetcher<V> fetcher)
+    {
+        return new FutureTask<CachedValue<V>>(new Callable<CachedValue<V>>()
+        {
+            public CachedValue<V> call()
+                throws Exception
+            {
+                CachedValue<V> cached = null;
+                try
+                {
+                    V value = fetcher.fetch();
+
+                    cached = new CachedValue<V>(value, getNextUpdate(key, value), System.currentTimeMillis());
+
+                    return cached;
+                }
+                finally
+                {
+                    synchronized (RevocationDataCache.this)
+                    {
+                        if (cached != null)
+                        {
+                            entries.put(key, cached);
+                        }
+                        inFlight.remove(key);
+                    }
+                }
+            }
+        });
+    }
+
+    private static synchronized Executor getRefreshExecutor()
+    {
+        if (refreshExecutor == null)
+        {
+            refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "BC revocation data refresh");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        return refreshExecutor;
+    }
+
+    private static class CachedValue<V>
+    {
+        final V value;
+        final Date nextUpdate;
+        final long fetchTime;
+
+        // guarded by the cache
+        long refreshTime;
+
+        CachedValue(V value, Date nextUpdate, long fetchTime)
+        {
+            this.value = value;
+            this.nextUpdate = nextUpdate;
+            this.fetchTime = fetchTime;
+
+            long expiryTime = (nextUpdate != null) ? nextUpdate.getTime() : fetchTime + DEFAULT_MAX_AGE;
+
+            this.refreshTime = fetchTime + Math.max(0, expiryTime - fetchTime) / 4 * 3;
+        }
+
+        boolean isExpired(Date validDate, long now)
+        {
+            if (nextUpdate != null)
+            {
+                return nextUpdate.before(validDate);
+            }
+
+            return now - fetchTime > DEFAULT_MAX_AGE;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.bouncycastle.jce.provider.test;
 
 import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
 import java.security.Security;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
@@ -251,11 +252,46 @@ public void directCRLTest()
         }
     }
     
+    public void lookupTest(byte[] encoding)
+        throws Exception
+    {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509", "BC");
+        X509CRL crl = (X509CRL) cf.generateCRL(new ByteArrayInputStream(encoding));
+        Set set = crl.getRevokedCertificates();
+        Iterator it = set.iterator();
+        while (it.hasNext())
+        {
+            X509CRLEntry entry = (X509CRLEntry)it.next();
+            X509CRLEntry found = crl.getRevokedCertificate(entry.getSerialNumber());
+
+            if (found == null || !entry.getSerialNumber().equals(found.getSerialNumber()))
+            {
+                fail("revoked certificate " + entry.getSerialNumber() + " not found");
+            }
+            if (!areEqual(entry.getCertificateIssuer(), found.getCertificateIssuer()))
+            {
+                fail("certificate issuer mismatch for " + entry.getSerialNumber());
+            }
+        }
+
+        if (crl.getRevokedCertificate(BigInteger.valueOf(-1)) != null)
+        {
+            fail("unrevoked certificate found");
+        }
+    }
+
+    private static boolean areEqual(Object a, Object b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+
     public void performTest()
         throws Exception
     {
         indirectCRLTest();
         directCRLTest();
+        lookupTest(inDirectCrl);
+        lookupTest(directCRL);
     }
 
     public static void main(
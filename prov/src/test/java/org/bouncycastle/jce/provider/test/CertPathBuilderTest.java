@@ -16,13 +16,24 @@
 import java.security.cert.X509CertSelector;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.jcajce.PKIXCertStoreSelector;
+import org.bouncycastle.jcajce.PKIXExtendedBuilderParameters;
+import org.bouncycastle.jcajce.PKIXExtendedParameters;
+import org.bouncycastle.jcajce.PKIXIndexedCertStore;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.Selector;
 import org.bouncycastle.util.test.SimpleTest;
 
 public class CertPathBuilderTest
@@ -203,6 +214,95 @@ private void eeOnlyInSelectorTest()
         }
     }
 
+    private void indexedStoreTest()
+        throws Exception
+    {
+        KeyPair         rootPair = TestUtils.generateRSAKeyPair();
+        KeyPair         interPair = TestUtils.generateRSAKeyPair();
+        KeyPair         endPair = TestUtils.generateRSAKeyPair();
+        KeyPair         miscPair = TestUtils.generateRSAKeyPair();
+
+        X509Certificate rootCert = TestUtils.generateRootCert(rootPair);
+        X509Certificate interCert = TestUtils.generateIntermediateCert(interPair.getPublic(), rootPair.getPrivate(), rootCert);
+        X509Certificate endCert = TestUtils.generateEndEntityCert(endPair.getPublic(), interPair.getPrivate(), interCert);
+
+        // an intermediate with the same subject but another key, and unrelated certificates
+        X509Certificate otherInterCert = TestUtils.generateIntermediateCert(miscPair.getPublic(), rootPair.getPrivate(), rootCert);
+
+        List list = new ArrayList();
+
+        for (int i = 0; i != 100; i++)
+        {
+            list.add(TestUtils.generateEndEntityCert(miscPair.getPublic(), new X500Name("CN=Misc " + i), rootPair.getPrivate(), rootCert));
+        }
+        list.add(otherInterCert);
+        list.add(interCert);
+        list.add(endCert);
+
+        PKIXIndexedCertStore store = new PKIXIndexedCertStore(list);
+
+        isEquals(list.size(), store.size());
+
+        // lookups through the indexes
+        X509CertSelector selector = new X509CertSelector();
+        selector.setSubject(interCert.getSubjectX500Principal());
+        isEquals(2, store.getMatches(toSelector(selector)).size());
+
+        selector.setSubjectKeyIdentifier(new DEROctetString(getSubjectKeyIdentifier(interCert)).getEncoded());
+        Collection matches = store.getMatches(toSelector(selector));
+        isEquals(1, matches.size());
+        isTrue(matches.contains(interCert));
+
+        selector = new X509CertSelector();
+        selector.setIssuer(endCert.getIssuerX500Principal());
+        selector.setSerialNumber(endCert.getSerialNumber());
+        matches = store.getMatches(toSelector(selector));
+        isEquals(1, matches.size());
+        isTrue(matches.contains(endCert));
+
+        selector = new X509CertSelector();
+        selector.setSubject(new X500Name("CN=Not Present").getEncoded());
+        isTrue(store.getMatches(toSelector(selector)).isEmpty());
+
+        isEquals(list.size(), store.getMatches(null).size());
+
+        // build the path
+        X509CertSelector pathConstraints = new X509CertSelector();
+
+        pathConstraints.setSubject(endCert.getSubjectX500Principal());
+
+        PKIXBuilderParameters buildParams = new PKIXBuilderParameters(Collections.singleton(new TrustAnchor(rootCert, null)), pathConstraints);
+
+        buildParams.setDate(new Date());
+        buildParams.setRevocationEnabled(false);
+
+        PKIXExtendedParameters.Builder extParams = new PKIXExtendedParameters.Builder(buildParams);
+
+        extParams.addCertificateStore(store);
+
+        CertPathBuilder  builder = CertPathBuilder.getInstance("PKIX", "BC");
+
+        PKIXCertPathBuilderResult result = (PKIXCertPathBuilderResult)builder.build(
+            new PKIXExtendedBuilderParameters.Builder(extParams.build()).build());
+        List                      path = result.getCertPath().getCertificates();
+
+        if (path.size() != 2 || !path.get(0).equals(endCert) || !path.get(1).equals(interCert))
+        {
+            fail("wrong path in indexedStoreTest");
+        }
+    }
+
+    private static Selector toSelector(X509CertSelector selector)
+    {
+        return new PKIXCertStoreSelector.Builder(selector).build();
+    }
+
+    private static byte[] getSubjectKeyIdentifier(X509Certificate cert)
+    {
+        return SubjectKeyIdentifier.getInstance(
+            ASN1OctetString.getInstance(cert.getExtensionValue(Extension.subjectKeyIdentifier.getId())).getOctets()).getKeyIdentifier();
+    }
+
     public void performTest()
         throws Exception
     {
@@ -210,6 +310,7 @@ public void performTest()
         v0Test();
         eeInSelectorTest();
         eeOnlyInSelectorTest();
+        indexedStoreTest();
     }
     
     public String getName()
@@ -0,0 +1,124 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check path validation with the certificate signature cache enabled.
+ */
+public class CertPathValidatorCacheTest
+    extends SimpleTest
+{
+    private static final String SIZE_PROPERTY = "org.bouncycastle.x509.sig_cache_size";
+
+    public String getName()
+    {
+        return "CertPathValidatorCache";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        String oldSize = System.getProperty(SIZE_PROPERTY);
+
+        System.setProperty(SIZE_PROPERTY, "100");
+        try
+        {
+            cacheTest();
+        }
+        finally
+        {
+            if (oldSize == null)
+            {
+                System.clearProperty(SIZE_PROPERTY);
+            }
+            else
+            {
+                System.setProperty(SIZE_PROPERTY, oldSize);
+            }
+        }
+    }
+
+    private void cacheTest()
+        throws Exception
+    {
+        KeyPair rootPair = TestUtils.generateRSAKeyPair();
+        KeyPair interPair = TestUtils.generateRSAKeyPair();
+        KeyPair endPair = TestUtils.generateRSAKeyPair();
+        KeyPair otherPair = TestUtils.generateRSAKeyPair();
+
+        X509Certificate rootCert = TestUtils.generateRootCert(rootPair);
+        X509Certificate interCert = TestUtils.generateIntermediateCert(interPair.getPublic(), rootPair.getPrivate(), rootCert);
+        X509Certificate endCert = TestUtils.generateEndEntityCert(endPair.getPublic(), interPair.getPrivate(), interCert);
+
+        // the same names as the real path, but signed with another key
+        X509Certificate otherRootCert = TestUtils.generateRootCert(otherPair);
+        X509Certificate forgedEndCert = TestUtils.generateEndEntityCert(endPair.getPublic(), otherPair.getPrivate(), interCert);
+
+        // repeated validations, the later ones using the cached signature checks
+        for (int i = 0; i != 3; i++)
+        {
+            validate(rootCert, endCert, interCert);
+        }
+
+        try
+        {
+            validate(rootCert, forgedEndCert, interCert);
+            fail("forged end entity certificate accepted");
+        }
+        catch (CertPathValidatorException e)
+        {
+            isEquals(0, e.getIndex());
+        }
+
+        try
+        {
+            validate(otherRootCert, endCert, interCert);
+            fail("path accepted with wrong trust anchor key");
+        }
+        catch (CertPathValidatorException e)
+        {
+            // expected
+        }
+
+        validate(rootCert, endCert, interCert);
+    }
+
+    private void validate(X509Certificate rootCert, X509Certificate endCert, X509Certificate interCert)
+        throws Exception
+    {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509", "BC");
+
+        List certList = new ArrayList();
+        certList.add(endCert);
+        certList.add(interCert);
+
+        CertPath certPath = cf.generateCertPath(certList);
+
+        PKIXParameters params = new PKIXParameters(Collections.singleton(new TrustAnchor(rootCert, null)));
+        params.setRevocationEnabled(false);
+
+        CertPathValidator.getInstance("PKIX", "BC").validate(certPath, params);
+    }
+
+    public static void main(
+        String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new CertPathValidatorCacheTest());
+    }
+}
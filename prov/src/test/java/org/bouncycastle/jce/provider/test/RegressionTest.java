@@ -54,6 +54,7 @@
         new CertPathTest(),
         new CertStoreTest(),
         new CertPathValidatorTest(),
+        new CertPathValidatorCacheTest(),
         new CertPathBuilderTest(),
         new ECEncodingTest(),
         new AlgorithmParametersTest(),
@@ -71,6 +72,7 @@
         new OCBTest(),
         new DSTU4145Test(),
         new CRL5Test(),
+        new RevocationDataCacheTest(),
         new Poly1305Test(),
         new SipHashTest(),
         new KeccakTest(),
@@ -0,0 +1,342 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.jce.PrincipalUtil;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.test.SimpleTest;
+import org.bouncycastle.x509.X509V2CRLGenerator;
+
+/**
+ * Check the caching of CRLs fetched from CRL distribution points during path validation.
+ */
+public class RevocationDataCacheTest
+    extends SimpleTest
+{
+    private static final String CRLDP_PROPERTY = "org.bouncycastle.x509.enableCRLDP";
+
+    // more than the number of CRLs the cache holds by default
+    private static final int LRU_PATH_COUNT = 65;
+
+    private KeyPair caPair;
+    private X509Certificate caCert;
+    private KeyPair endPair;
+    private HttpServer server;
+
+    // the CRL served for each path, and the number of requests for it; guarded by the map itself
+    private final Map crls = new HashMap();
+    private final Map requests = new HashMap();
+
+    private volatile long responseDelay = 0;
+    private volatile boolean failRequests = false;
+
+    public String getName()
+    {
+        return "RevocationDataCache";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        String oldCrldp = System.getProperty(CRLDP_PROPERTY);
+
+        caPair = TestUtils.generateRSAKeyPair();
+        caCert = TestUtils.generateRootCert(caPair);
+        endPair = TestUtils.generateRSAKeyPair();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new CrlHandler());
+        server.start();
+
+        System.setProperty(CRLDP_PROPERTY, "true");
+        try
+        {
+            nextUpdateTest();
+            singleFlightTest();
+            failedRefreshTest();
+            sizeBoundTest();
+        }
+        finally
+        {
+            server.stop(0);
+
+            if (oldCrldp == null)
+            {
+                System.clearProperty(CRLDP_PROPERTY);
+            }
+            else
+            {
+                System.setProperty(CRLDP_PROPERTY, oldCrldp);
+            }
+        }
+    }
+
+    private void nextUpdateTest()
+        throws Exception
+    {
+        long now = System.currentTimeMillis();
+        X509Certificate endCert = createEndCert("/next-update.crl");
+        setCrl("/next-update.crl", now - 60000, now + 1500);
+
+        validate(endCert, new Date(now));
+        validate(endCert, new Date(now));
+        isEquals("cached CRL not used", 1, getRequests("/next-update.crl"));
+
+        Thread.sleep(2000);
+
+        // the CRL's nextUpdate is now before the validation date, so a current CRL is needed
+        try
+        {
+            validate(endCert, new Date());
+        }
+        catch (CertPathValidatorException e)
+        {
+            // the refetched CRL is no more current than the cached one
+        }
+        isEquals("expired CRL not refetched", 2, getRequests("/next-update.crl"));
+    }
+
+    private void singleFlightTest()
+        throws Exception
+    {
+        final long now = System.currentTimeMillis();
+        final X509Certificate endCert = createEndCert("/single-flight.crl");
+        setCrl("/single-flight.crl", now - 60000, now + 10 * 60000);
+
+        // hold the response so every validation reaches the cache before the fetch completes
+        responseDelay = 500;
+
+        final Exception[] failures = new Exception[8];
+        Thread[] threads = new Thread[failures.length];
+        for (int i = 0; i != threads.length; i++)
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        validate(endCert, new Date(now));
+                    }
+                    catch (Exception e)
+                    {
+                        failures[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (int i = 0; i != threads.length; i++)
+        {
+            threads[i].join(30000);
+        }
+        responseDelay = 0;
+
+        for (int i = 0; i != failures.length; i++)
+        {
+            if (failures[i] != null)
+            {
+                fail("validation " + i + " failed: " + failures[i].getMessage(), failures[i]);
+            }
+        }
+        isEquals("concurrent validations not sharing one fetch", 1, getRequests("/single-flight.crl"));
+    }
+
+    private void failedRefreshTest()
+        throws Exception
+    {
+        long now = System.currentTimeMillis();
+        X509Certificate endCert = createEndCert("/failed-refresh.crl");
+
+        // a background refresh is due once three quarters of the time to nextUpdate have passed
+        setCrl("/failed-refresh.crl", now - 60000, now + 4000);
+
+        Date validDate = new Date(now);
+        validate(endCert, validDate);
+
+        Thread.sleep(3500);
+
+        failRequests = true;
+        try
+        {
+            validate(endCert, validDate);
+
+            for (int i = 0; i != 100 && getRequests("/failed-refresh.crl") < 2; i++)
+            {
+                Thread.sleep(50);
+            }
+            isEquals("refresh not attempted", 2, getRequests("/failed-refresh.crl"));
+
+            // give the failed refresh time to complete
+            Thread.sleep(200);
+
+            // the cached CRL is still used, and the failed refresh is not immediately retried
+            validate(endCert, validDate);
+            isEquals("failed refresh retried", 2, getRequests("/failed-refresh.crl"));
+        }
+        finally
+        {
+            failRequests = false;
+        }
+    }
+
+    private void sizeBoundTest()
+        throws Exception
+    {
+        long now = System.currentTimeMillis();
+        Date validDate = new Date(now);
+
+        X509Certificate[] endCerts = new X509Certificate[LRU_PATH_COUNT];
+        for (int i = 0; i != endCerts.length; i++)
+        {
+            endCerts[i] = createEndCert("/lru-" + i + ".crl");
+            setCrl("/lru-" + i + ".crl", now - 60000, now + 10 * 60000);
+
+            validate(endCerts[i], validDate);
+        }
+
+        // the most recently used CRL is still cached, the least recently used has been dropped
+        validate(endCerts[LRU_PATH_COUNT - 1], validDate);
+        isEquals("recent CRL not cached", 1, getRequests("/lru-" + (LRU_PATH_COUNT - 1) + ".crl"));
+
+        validate(endCerts[0], validDate);
+        isEquals("cache not bounded", 2, getRequests("/lru-0.crl"));
+    }
+
+    private X509Certificate createEndCert(String path)
+        throws Exception
+    {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + path;
+
+        ExtensionsGenerator extGen = new ExtensionsGenerator();
+        extGen.addExtension(Extension.cRLDistributionPoints, false, new CRLDistPoint(new DistributionPoint[]{
+            new DistributionPoint(new DistributionPointName(
+                new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier, url))), null, null) }));
+
+        return TestUtils.createCert(TestUtils.getCertSubject(caCert), caPair.getPrivate(),
+            new X500Name("CN=Test End Certificate"), "SHA256withRSA", extGen.generate(),
+            endPair.getPublic());
+    }
+
+    private void setCrl(String path, long thisUpdate, long nextUpdate)
+        throws Exception
+    {
+        X509V2CRLGenerator crlGen = new X509V2CRLGenerator();
+
+        crlGen.setIssuerDN(PrincipalUtil.getSubjectX509Principal(caCert));
+        crlGen.setThisUpdate(new Date(thisUpdate));
+        crlGen.setNextUpdate(new Date(nextUpdate));
+        crlGen.setSignatureAlgorithm("SHA256WithRSAEncryption");
+        crlGen.addCRLEntry(BigInteger.valueOf(1), new Date(thisUpdate), CRLReason.privilegeWithdrawn);
+
+        X509CRL crl = crlGen.generate(caPair.getPrivate(), "BC");
+
+        synchronized (crls)
+        {
+            crls.put(path, crl.getEncoded());
+        }
+    }
+
+    private int getRequests(String path)
+    {
+        synchronized (crls)
+        {
+            Integer count = (Integer)requests.get(path);
+            return count == null ? 0 : count.intValue();
+        }
+    }
+
+    private void validate(X509Certificate endCert, Date validDate)
+        throws Exception
+    {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509", "BC");
+        CertPath certPath = cf.generateCertPath(Collections.singletonList(endCert));
+
+        PKIXParameters params = new PKIXParameters(Collections.singleton(new TrustAnchor(caCert, null)));
+        params.setRevocationEnabled(true);
+        params.setDate(validDate);
+
+        CertPathValidator.getInstance("PKIX", "BC").validate(certPath, params);
+    }
+
+    private class CrlHandler
+        implements HttpHandler
+    {
+        public void handle(HttpExchange exchange)
+            throws IOException
+        {
+            String path = exchange.getRequestURI().getPath();
+            byte[] crl;
+
+            synchronized (crls)
+            {
+                Integer count = (Integer)requests.get(path);
+                requests.put(path, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+                crl = (byte[])crls.get(path);
+            }
+
+            if (responseDelay > 0)
+            {
+                try
+                {
+                    Thread.sleep(responseDelay);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (crl == null || failRequests)
+            {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, crl.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(crl);
+            out.close();
+        }
+    }
+
+    public static void main(
+        String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new RevocationDataCacheTest());
+    }
+}
@@ -0,0 +1,51 @@
+package org.bouncycastle.jsse;
+
+/**
+ * A BCJSSE-specific interface providing access to statistics for the session cache of an
+ * {@link javax.net.ssl.SSLSessionContext}.
+ * <p>
+ * The methods follow MXBean conventions, so the statistics can be exported over JMX by registering
+ * {@code new StandardMBean(context, BCSSLSessionContext.class, true)}.
+ * </p>
+ */
+public interface BCSSLSessionContext
+{
+    /**
+     * Returns the number of sessions currently held in the cache.
+     *
+     * @return The number of cached sessions.
+     */
+    int getCachedSessionCount();
+
+    /**
+     * Returns the number of lookups of a session for resumption that found a valid cached session. Sessions
+     * retrieved by the application, e.g. through {@link javax.net.ssl.SSLSessionContext#getSession(byte[])}, are
+     * not counted.
+     *
+     * @return The number of cache hits.
+     */
+    long getSessionCacheHits();
+
+    /**
+     * Returns the number of lookups of a session for resumption that didn't find a valid cached session. Handshakes
+     * that don't attempt resumption are not counted.
+     *
+     * @return The number of cache misses.
+     */
+    long getSessionCacheMisses();
+
+    /**
+     * Returns the number of sessions removed from the cache to keep it within the session cache size.
+     *
+     * @return The number of cache evictions.
+     */
+    long getSessionCacheEvictions();
+
+    /**
+     * Returns the number of sessions removed from the cache because they had timed out. Sessions invalidated
+     * by the application, or reclaimed by the garbage collector, are not counted.
+     *
+     * @return The number of cache expirations.
+     */
+    long getSessionCacheExpirations();
+}
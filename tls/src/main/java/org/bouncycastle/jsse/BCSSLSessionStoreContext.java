@@ -0,0 +1,33 @@
+package org.bouncycastle.jsse;
+
+import org.bouncycastle.tls.TlsSessionStore;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * A BCJSSE-specific interface for sharing the resumption state of a server {@link javax.net.ssl.SSLSessionContext}
+ * through a {@link TlsSessionStore}, so that clients can resume sessions with any server of a cluster.
+ * <p>
+ * Sessions that can be resumed by session ID are written to the store, and looked up in it when not found in the
+ * local cache. TLS 1.3 session tickets are protected with a key ring shared through the store. A client session
+ * context ignores the store.
+ * </p>
+ */
+public interface BCSSLSessionStoreContext
+{
+    /**
+     * Returns the store currently used to share resumption state.
+     *
+     * @return The {@link TlsSessionStore}, or null if resumption state is not shared.
+     */
+    TlsSessionStore getSessionStore();
+
+    /**
+     * Sets the store to be used to share resumption state. Tickets issued before the change are no longer
+     * accepted, unless their keys are found in the new store.
+     *
+     * @param sessionStore
+     *            The {@link TlsSessionStore} to use, or null to stop sharing resumption state.
+     */
+    void setSessionStore(TlsSessionStore sessionStore);
+}
@@ -33,10 +33,14 @@
 import org.bouncycastle.tls.TlsServerProtocol;
 
 /*
- * TODO[jsse] Known limitations (relative to SSLEngine javadoc): 1. The wrap() and unwrap() methods
- * are synchronized, so will not execute concurrently with each other. 2. Never delegates tasks i.e.
- * getDelegatedTasks() will always return null; CPU-intensive parts of the handshake will execute
- * during wrap/unwrap calls.
+ * NOTE: Once the handshake is complete, wrap() and unwrap() lock separately, so the two directions run
+ * concurrently. While handshaking, both locks are held (always in the order unwrapLock, wrapLock), since
+ * either direction may then advance the handshake.
+ *
+ * Inbound handshake records are processed by the protocol's delegated tasks (see
+ * TlsProtocol.setDelegatedTasksEnabled), handed out by getDelegatedTask(), so CPU-intensive parts of the
+ * handshake (key exchange, signing, certificate path validation) don't run during unwrap calls.
+ * This can be disabled with the "org.bouncycastle.jsse.engine.delegatedTasks" system property.
  */
 class ProvSSLEngine
     extends SSLEngine
@@ -44,6 +48,9 @@
 {
     private static final Logger LOG = Logger.getLogger(ProvSSLEngine.class.getName());
 
+    private static final boolean provEngineDelegatedTasks = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.engine.delegatedTasks", true);
+
     protected final ContextData contextData;
     protected final ProvSSLParameters sslParameters;
 
@@ -51,15 +58,25 @@
     protected boolean useClientMode = true;
     protected boolean useClientModeSet = false;
 
-    protected boolean closedEarly = false;
-    protected boolean initialHandshakeBegun = false;
-    protected HandshakeStatus handshakeStatus = HandshakeStatus.NOT_HANDSHAKING; 
-    protected TlsProtocol protocol = null;
-    protected ProvTlsPeer protocolPeer = null;
+    private final Object unwrapLock = new Object();
+    private final Object wrapLock = new Object();
+
+    protected volatile boolean closedEarly = false;
+    protected volatile boolean initialHandshakeBegun = false;
+    protected volatile HandshakeStatus handshakeStatus = HandshakeStatus.NOT_HANDSHAKING; 
+    protected volatile TlsProtocol protocol = null;
+    protected volatile ProvTlsPeer protocolPeer = null;
     protected ProvSSLConnection connection = null;
     protected ProvSSLSessionHandshake handshakeSession = null;
 
     protected SSLException deferredException = null;
+    protected Runnable delegatedTask = null;
+
+    // Guarded by wrapLock; application data gathered from several buffers for a single record
+    private byte[] wrapBuffer = new byte[0];
+
+    // Guarded by unwrapLock; each inbound record is copied here and decrypted in place, leaving 'src' untouched
+    private byte[] unwrapBuffer = new byte[0];
 
     protected ProvSSLEngine(ContextData contextData)
     {
@@ -80,7 +97,19 @@ public ContextData getContextData()
     }
 
     @Override
-    public synchronized void beginHandshake()
+    public void beginHandshake()
+        throws SSLException
+    {
+        synchronized (unwrapLock)
+        {
+            synchronized (wrapLock)
+            {
+                implBeginHandshake();
+            }
+        }
+    }
+
+    protected synchronized void implBeginHandshake()
         throws SSLException
     {
         if (!useClientModeSet)
@@ -103,6 +132,7 @@ public synchronized void beginHandshake()
             if (this.useClientMode)
             {
                 TlsClientProtocol clientProtocol = new TlsClientProtocol();
+                clientProtocol.setDelegatedTasksEnabled(provEngineDelegatedTasks);
                 this.protocol = clientProtocol;
 
                 ProvTlsClient client = new ProvTlsClient(this, sslParameters);
@@ -114,6 +144,7 @@ public synchronized void beginHandshake()
             else
             {
                 TlsServerProtocol serverProtocol = new TlsServerProtocol();
+                serverProtocol.setDelegatedTasksEnabled(provEngineDelegatedTasks);
                 this.protocol = serverProtocol;
 
                 ProvTlsServer server = new ProvTlsServer(this, sslParameters);
@@ -168,7 +199,19 @@ public BCX509Key chooseServerKey(String[] keyTypes, Principal[] issuers)
     }
 
     @Override
-    public synchronized void closeInbound()
+    public void closeInbound()
+        throws SSLException
+    {
+        synchronized (unwrapLock)
+        {
+            synchronized (wrapLock)
+            {
+                implCloseInbound();
+            }
+        }
+    }
+
+    protected void implCloseInbound()
         throws SSLException
     {
         if (closedEarly)
@@ -193,7 +236,18 @@ else if (null == protocol)
     }
 
     @Override
-    public synchronized void closeOutbound()
+    public void closeOutbound()
+    {
+        synchronized (unwrapLock)
+        {
+            synchronized (wrapLock)
+            {
+                implCloseOutbound();
+            }
+        }
+    }
+
+    protected void implCloseOutbound()
     {
         if (closedEarly)
         {
@@ -245,7 +299,21 @@ public synchronized BCSSLConnection getConnection()
     @Override
     public synchronized Runnable getDelegatedTask()
     {
-        return null;
+        if (null == delegatedTask)
+        {
+            return null;
+        }
+
+        final Runnable task = delegatedTask;
+        this.delegatedTask = null;
+
+        return new Runnable()
+        {
+            public void run()
+            {
+                runDelegatedTask(task);
+            }
+        };
     }
 
     @Override
@@ -279,7 +347,7 @@ public synchronized SSLSession getHandshakeSession()
     }
 
     @Override
-    public synchronized SSLEngineResult.HandshakeStatus getHandshakeStatus()
+    public SSLEngineResult.HandshakeStatus getHandshakeStatus()
     {
         return handshakeStatus;
     }
@@ -332,13 +400,13 @@ public synchronized boolean getWantClientAuth()
     }
 
     @Override
-    public synchronized boolean isInboundDone()
+    public boolean isInboundDone()
     {
         return closedEarly || (null != protocol && protocol.isClosed());
     }
 
     @Override
-    public synchronized boolean isOutboundDone()
+    public boolean isOutboundDone()
     {
         return closedEarly || (null != protocol && protocol.isClosed() && protocol.getAvailableOutputBytes() < 1);
     }
@@ -426,14 +494,36 @@ public synchronized void setWantClientAuth(boolean want)
     }
 
     @Override
-    public synchronized SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length)
+    public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length)
+        throws SSLException
+    {
+        synchronized (unwrapLock)
+        {
+            if (!isHandshakePhase())
+            {
+                return implUnwrap(src, dsts, offset, length);
+            }
+
+            synchronized (wrapLock)
+            {
+                return implUnwrap(src, dsts, offset, length);
+            }
+        }
+    }
+
+    protected SSLEngineResult implUnwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length)
         throws SSLException
     {
         // TODO[jsse] Argument checks - see javadoc
 
         if (!initialHandshakeBegun)
         {
-            beginHandshake();
+            implBeginHandshake();
+        }
+
+        if (handshakeStatus == HandshakeStatus.NEED_TASK)
+        {
+            return new SSLEngineResult(Status.OK, HandshakeStatus.NEED_TASK, 0, 0);
         }
 
         Status resultStatus = Status.OK;
@@ -458,28 +548,40 @@ else if (hasInsufficientSpace(dsts, offset, length, preview.getContentLimit()))
                 }
                 else
                 {
-                    byte[] record = new byte[preview.getRecordSize()];
-                    src.get(record);
+                    int recordSize = preview.getRecordSize();
+                    bytesConsumed += recordSize;
+
+                    byte[] record = unwrapBuffer;
+                    if (record.length < recordSize)
+                    {
+                        this.unwrapBuffer = record = new byte[recordSize];
+                    }
 
-                    protocol.offerInput(record, 0, record.length);
-                    bytesConsumed += record.length;
+                    src.get(record, 0, recordSize);
 
-                    int appDataAvailable = protocol.getAvailableInputBytes();
-                    for (int dstIndex = 0; dstIndex < length && appDataAvailable > 0; ++dstIndex)
+                    protocol.offerInput(record, 0, recordSize);
+
+                    // During the handshake, the protocol only queues the record, for a delegated task to process
+                    Runnable task = protocol.getDelegatedTask();
+                    if (null != task)
                     {
-                        ByteBuffer dst = dsts[offset + dstIndex];
-                        int count = Math.min(dst.remaining(), appDataAvailable);
-                        if (count > 0)
+                        synchronized (this)
                         {
-                            byte[] appData = new byte[count];
-                            int numRead = protocol.readInput(appData, 0, count);
-                            assert numRead == count;
-                
-                            dst.put(appData);
-                
-                            bytesProduced += count;
-                            appDataAvailable -= count;
+                            this.delegatedTask = task;
                         }
+
+                        handshakeStatus = HandshakeStatus.NEED_TASK;
+
+                        return new SSLEngineResult(Status.OK, HandshakeStatus.NEED_TASK, bytesConsumed, bytesProduced);
+                    }
+
+                    int appDataAvailable = protocol.getAvailableInputBytes();
+                    for (int dstIndex = 0; dstIndex < length && appDataAvailable > 0; ++dstIndex)
+                    {
+                        int count = protocol.readInput(dsts[offset + dstIndex]);
+
+                        bytesProduced += count;
+                        appDataAvailable -= count;
                     }
 
                     // We pre-checked the output would fit, so there should be nothing left over.
@@ -550,7 +652,27 @@ else if (protocol.isClosed())
     }
 
     @Override
-    public synchronized SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst)
+    public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst)
+        throws SSLException
+    {
+        if (!isHandshakePhase())
+        {
+            synchronized (wrapLock)
+            {
+                return implWrap(srcs, offset, length, dst);
+            }
+        }
+
+        synchronized (unwrapLock)
+        {
+            synchronized (wrapLock)
+            {
+                return implWrap(srcs, offset, length, dst);
+            }
+        }
+    }
+
+    protected SSLEngineResult implWrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst)
         throws SSLException
     {
         if (deferredException != null)
@@ -564,7 +686,12 @@ public synchronized SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int leng
 
         if (!initialHandshakeBegun)
         {
-            beginHandshake();
+            implBeginHandshake();
+        }
+
+        if (handshakeStatus == HandshakeStatus.NEED_TASK)
+        {
+            return new SSLEngineResult(Status.OK, HandshakeStatus.NEED_TASK, 0, 0);
         }
 
         Status resultStatus = Status.OK;
@@ -606,22 +733,35 @@ else if (protocol.getAvailableOutputBytes() > 0)
                         }
                         else
                         {
-                            // TODO Support writing application data using ByteBuffer array directly
-
-                            byte[] applicationData = new byte[srcLimit];
-
-                            for (int srcIndex = 0; srcIndex < length && bytesConsumed < srcLimit; ++srcIndex)
+                            ByteBuffer src = getFirstRemaining(srcs, offset, length);
+                            if (src.hasArray() && src.remaining() >= srcLimit)
+                            {
+                                // Write the application data straight from the caller's array
+                                protocol.writeApplicationData(src.array(), src.arrayOffset() + src.position(),
+                                    srcLimit);
+                                src.position(src.position() + srcLimit);
+                                bytesConsumed = srcLimit;
+                            }
+                            else
                             {
-                                ByteBuffer src = srcs[offset + srcIndex];
-                                int count = Math.min(src.remaining(), srcLimit - bytesConsumed);
-                                if (count > 0)
+                                if (wrapBuffer.length < srcLimit)
                                 {
-                                    src.get(applicationData, bytesConsumed, count);
-                                    bytesConsumed += count;
+                                    wrapBuffer = new byte[srcLimit];
+                                }
+
+                                for (int srcIndex = 0; srcIndex < length && bytesConsumed < srcLimit; ++srcIndex)
+                                {
+                                    src = srcs[offset + srcIndex];
+                                    int count = Math.min(src.remaining(), srcLimit - bytesConsumed);
+                                    if (count > 0)
+                                    {
+                                        src.get(wrapBuffer, bytesConsumed, count);
+                                        bytesConsumed += count;
+                                    }
                                 }
-                            }
 
-                            protocol.writeApplicationData(applicationData, 0, bytesConsumed);
+                                protocol.writeApplicationData(wrapBuffer, 0, bytesConsumed);
+                            }
                         }
                     }
                 }
@@ -639,15 +779,10 @@ else if (protocol.getAvailableOutputBytes() > 0)
         int outputAvailable = protocol.getAvailableOutputBytes();
         if (outputAvailable > 0)
         {
-            int count = Math.min(dst.remaining(), outputAvailable);
-            if (count > 0)
+            if (dst.hasRemaining())
             {
-                byte[] output = new byte[count];
-                int numRead = protocol.readOutput(output, 0, count);
-                assert numRead == count;
-    
-                dst.put(output);
-    
+                int count = protocol.readOutput(dst);
+
                 bytesProduced += count;
                 outputAvailable -= count;
             }
@@ -748,6 +883,49 @@ ProvSSLSession getSessionImpl()
         return null == connection ? ProvSSLSession.NULL_SESSION : connection.getSession();
     }
 
+    /*
+     * NOTE: Once the handshake is over (NOT_HANDSHAKING after it began), it stays over, so a false result
+     * can't be invalidated by a concurrent call.
+     */
+    private boolean isHandshakePhase()
+    {
+        return !initialHandshakeBegun || handshakeStatus != HandshakeStatus.NOT_HANDSHAKING;
+    }
+
+    private void runDelegatedTask(Runnable task)
+    {
+        synchronized (unwrapLock)
+        {
+            synchronized (wrapLock)
+            {
+                task.run();
+
+                IOException e = protocol.getDelegatedTaskException();
+                if (null != e && this.deferredException == null)
+                {
+                    // See the note on 'deferredException' in implUnwrap
+                    this.deferredException = new SSLException(e);
+                }
+
+                /*
+                 * NOTE: A wrap call then sends any output, or reports the handshake as FINISHED (or the
+                 * connection as closed), exactly as if the record had been processed during that wrap call.
+                 */
+                if (deferredException != null
+                    || protocol.getAvailableOutputBytes() > 0
+                    || protocolPeer.isHandshakeComplete()
+                    || protocol.isClosed())
+                {
+                    handshakeStatus = HandshakeStatus.NEED_WRAP;
+                }
+                else
+                {
+                    handshakeStatus = HandshakeStatus.NEED_UNWRAP;
+                }
+            }
+        }
+    }
+
     private RecordPreview getRecordPreview(ByteBuffer src)
         throws IOException
     {
@@ -765,6 +943,19 @@ private RecordPreview getRecordPreview(ByteBuffer src)
         return protocol.previewInputRecord(recordHeader);
     }
 
+    private ByteBuffer getFirstRemaining(ByteBuffer[] bufs, int off, int len)
+    {
+        for (int i = 0; i < len; ++i)
+        {
+            ByteBuffer buf = bufs[off + i];
+            if (buf.hasRemaining())
+            {
+                return buf;
+            }
+        }
+        return null;
+    }
+
     private int getTotalRemaining(ByteBuffer[] bufs, int off, int len, int limit)
     {
         int result = 0;
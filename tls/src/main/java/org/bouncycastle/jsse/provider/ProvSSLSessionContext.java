@@ -1,58 +1,90 @@
 package org.bouncycastle.jsse.provider;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSessionContext;
 
+import org.bouncycastle.jsse.BCSNIServerName;
+import org.bouncycastle.jsse.BCSSLSessionContext;
+import org.bouncycastle.jsse.BCSSLSessionStoreContext;
+import org.bouncycastle.tls.DefaultTlsTicketProtector;
+import org.bouncycastle.tls.ServerName;
 import org.bouncycastle.tls.SessionID;
+import org.bouncycastle.tls.SessionParameters;
 import org.bouncycastle.tls.TlsSession;
+import org.bouncycastle.tls.TlsSessionStore;
 import org.bouncycastle.tls.TlsUtils;
 import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
 
+/*
+ * NOTE: The cache is split into shards (by session ID), each a simple LRU cache with its own lock, so that
+ * concurrent handshakes rarely contend. The session cache size bounds the total across all shards: once it is
+ * exceeded, the least recently used sessions of the shard just added to are evicted first (then those of the other
+ * shards, if need be), so eviction is only approximately LRU overall. Expired sessions are removed lazily, as they
+ * are found.
+ *
+ * With a session store, a server context also writes resumable sessions to the store, and looks them up there
+ * on a local cache miss. Store failures only cost a full handshake, so they are logged rather than reported.
+ */
 class ProvSSLSessionContext
-    implements SSLSessionContext
+    implements SSLSessionContext, BCSSLSessionContext, BCSSLSessionStoreContext
 {
     private static final Logger LOG = Logger.getLogger(ProvSSLSessionContext.class.getName());
 
     private static final int provSessionCacheSize = PropertyUtils
         .getIntegerSystemProperty("javax.net.ssl.sessionCacheSize", 20480, 0, Integer.MAX_VALUE);
 
-    // NOTE: This is configured as a simple LRU cache using the "access order" constructor
-    @SuppressWarnings("serial")
-    protected final Map<SessionID, SessionEntry> sessionsByID = new LinkedHashMap<SessionID, SessionEntry>(16, 0.75f, true)
-    {
-        protected boolean removeEldestEntry(Map.Entry<SessionID, SessionEntry> eldest)
-        {
-            boolean shouldRemove = sessionCacheSize > 0 && size() > sessionCacheSize;
-            if (shouldRemove)
-            {
-                removeSessionByPeer(eldest.getValue());
-            }
-            return shouldRemove;
-        }
-    };
-    protected final Map<String, SessionEntry> sessionsByPeer = new HashMap<String, SessionEntry>();
+    private static final int SHARD_COUNT = 16;
+
+    private static final short STORE_FORMAT = 1;
+
+    protected final Shard[] shards = new Shard[SHARD_COUNT];
+    protected final Map<String, SessionEntry> sessionsByPeer = new ConcurrentHashMap<String, SessionEntry>();
     protected final ReferenceQueue<ProvSSLSession> sessionsQueue = new ReferenceQueue<ProvSSLSession>();
 
     protected final ContextData contextData;
 
-    protected int sessionCacheSize = provSessionCacheSize;
-    protected int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+    protected volatile int sessionCacheSize = provSessionCacheSize;
+    protected volatile int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+
+    // NOTE: Created on first use; replaced if the session timeout changes
+    protected volatile DefaultTlsTicketProtector ticketProtector = null;
+
+    protected volatile TlsSessionStore sessionStore = null;
+
+    // The number of sessions in all shards, updated under the lock of the shard concerned
+    private final AtomicInteger cachedSessionCount = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
 
     ProvSSLSessionContext(ContextData contextData)
     {
         this.contextData = contextData;
+
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            shards[i] = new Shard();
+        }
     }
 
     ProvSSLContextSpi getSSLContext()
@@ -65,77 +97,318 @@ JcaTlsCrypto getCrypto()
         return contextData.getCrypto();
     }
 
-    synchronized ProvSSLSession getSessionImpl(byte[] sessionID)
+    DefaultTlsTicketProtector getTicketProtector()
+    {
+        DefaultTlsTicketProtector result = ticketProtector;
+        if (null == result)
+        {
+            synchronized (this)
+            {
+                result = ticketProtector;
+                if (null == result)
+                {
+                    long ticketLifetime = DefaultTlsTicketProtector.MAX_TICKET_LIFETIME;
+                    if (sessionTimeoutSeconds > 0)
+                    {
+                        ticketLifetime = Math.min(ticketLifetime, sessionTimeoutSeconds);
+                    }
+
+                    result = new DefaultTlsTicketProtector(getCrypto(), ticketLifetime,
+                        Math.max(1L, ticketLifetime / 24), sessionStore);
+                    this.ticketProtector = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    ProvSSLSession getSessionImpl(byte[] sessionID)
     {
         processQueue();
 
-        return accessSession(mapGet(sessionsByID, makeSessionID(sessionID)));
+        SessionEntry sessionEntry = null;
+
+        SessionID id = makeSessionID(sessionID);
+        if (null != id)
+        {
+            Shard shard = getShard(id);
+            synchronized (shard)
+            {
+                sessionEntry = shard.sessionsByID.get(id);
+            }
+        }
+
+        return accessSession(sessionEntry);
     }
 
-    synchronized ProvSSLSession getSessionImpl(String hostName, int port)
+    /*
+     * Look up a session ID offered by a client for resumption. Unlike application lookups through getSession, this
+     * is counted as a cache hit or miss.
+     */
+    ProvSSLSession getSessionToResume(byte[] sessionID)
+    {
+        ProvSSLSession session = getSessionImpl(sessionID);
+        if (null != makeSessionID(sessionID))
+        {
+            countLookup(session);
+        }
+        return session;
+    }
+
+    /*
+     * Look up a session to offer to the given peer for resumption, counting it as a cache hit or miss.
+     */
+    ProvSSLSession getSessionImpl(String hostName, int port)
     {
         processQueue();
 
-        SessionEntry sessionEntry = mapGet(sessionsByPeer, makePeerKey(hostName, port));
+        String peerKey = makePeerKey(hostName, port);
+        if (null == peerKey)
+        {
+            return null;
+        }
+
+        SessionEntry sessionEntry = mapGet(sessionsByPeer, peerKey);
         ProvSSLSession session = accessSession(sessionEntry);
         if (session != null)
         {
             // NOTE: For the current simple cache implementation, need to 'access' the sessionByIDs entry
-            sessionsByID.get(sessionEntry.getSessionID());
+            Shard shard = getShard(sessionEntry.getSessionID());
+            synchronized (shard)
+            {
+                shard.sessionsByID.get(sessionEntry.getSessionID());
+            }
         }
+        countLookup(session);
         return session;
     }
 
-    synchronized void removeSession(byte[] sessionID)
+    /*
+     * Look up a session in the session store (after a miss in the local cache), adding it to the cache if found.
+     */
+    ProvSSLSession importSession(byte[] sessionID, String peerHost, int peerPort)
     {
-        SessionEntry sessionEntry = mapRemove(sessionsByID, makeSessionID(sessionID));
-        if (null != sessionEntry)
+        TlsSessionStore store = sessionStore;
+        SessionID id = makeSessionID(sessionID);
+        if (null == store || null == id)
         {
-            removeSessionByPeer(sessionEntry);
+            return null;
+        }
+
+        try
+        {
+            byte[] encoding = store.getSession(sessionID);
+            if (null == encoding)
+            {
+                return null;
+            }
+
+            ByteArrayInputStream buf = new ByteArrayInputStream(encoding);
+            if (TlsUtils.readUint8(buf) != STORE_FORMAT)
+            {
+                return null;
+            }
+
+            // The session's lifetime runs from its original creation, not from its import here
+            long creationTime = (TlsUtils.readUint32(buf) << 32) | TlsUtils.readUint32(buf);
+            if (creationTime < getCreationTimeLimit(System.currentTimeMillis()))
+            {
+                return null;
+            }
+
+            BCSNIServerName matchedSNIServerName = null;
+            if (TlsUtils.readUint8(buf) != 0)
+            {
+                matchedSNIServerName = JsseUtils.convertSNIServerName(ServerName.parse(buf));
+            }
+
+            SessionParameters sessionParameters = SessionParameters.parse(getCrypto(),
+                TlsUtils.readOpaque24(buf, 1));
+            if (null == sessionParameters)
+            {
+                return null;
+            }
+
+            TlsSession tlsSession = TlsUtils.importSession(sessionID, sessionParameters);
+            JsseSessionParameters jsseSessionParameters = new JsseSessionParameters(null, matchedSNIServerName);
+
+            return addSession(id, peerHost, peerPort, tlsSession, jsseSessionParameters, creationTime);
+        }
+        catch (Exception e)
+        {
+            LOG.log(Level.WARNING, "Failed to import session from session store", e);
+            return null;
+        }
+    }
+
+    /*
+     * Write a session to the session store, if there is one.
+     */
+    void exportSession(ProvSSLSession session)
+    {
+        TlsSessionStore store = sessionStore;
+        byte[] sessionID = session.getId();
+        if (null == store || TlsUtils.isNullOrEmpty(sessionID))
+        {
+            return;
+        }
+
+        try
+        {
+            SessionParameters sessionParameters = session.getTlsSession().exportSessionParameters();
+            if (null == sessionParameters)
+            {
+                return;
+            }
+
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            TlsUtils.writeUint8(STORE_FORMAT, buf);
+            TlsUtils.writeUint64(session.getCreationTime(), buf);
+
+            BCSNIServerName matchedSNIServerName = session.getJsseSessionParameters().getMatchedSNIServerName();
+            if (null == matchedSNIServerName)
+            {
+                TlsUtils.writeUint8(0, buf);
+            }
+            else
+            {
+                TlsUtils.writeUint8(1, buf);
+                new ServerName((short)matchedSNIServerName.getType(), matchedSNIServerName.getEncoded()).encode(buf);
+            }
+
+            TlsUtils.writeOpaque24(sessionParameters.encode(getCrypto()), buf);
+
+            int timeoutSeconds = sessionTimeoutSeconds;
+            long expiresAt = timeoutSeconds < 1 ? Long.MAX_VALUE
+                : session.getCreationTime() + 1000L * timeoutSeconds;
+
+            store.putSession(sessionID, buf.toByteArray(), expiresAt);
+        }
+        catch (Exception e)
+        {
+            LOG.log(Level.WARNING, "Failed to export session to session store", e);
+        }
+    }
+
+    void removeSession(byte[] sessionID)
+    {
+        SessionID id = makeSessionID(sessionID);
+        if (null == id)
+        {
+            return;
+        }
+
+        TlsSessionStore store = sessionStore;
+        if (null != store)
+        {
+            try
+            {
+                store.removeSession(sessionID);
+            }
+            catch (IOException e)
+            {
+                LOG.log(Level.WARNING, "Failed to remove session from session store", e);
+            }
+        }
+
+        Shard shard = getShard(id);
+        synchronized (shard)
+        {
+            SessionEntry sessionEntry = shard.sessionsByID.remove(id);
+            if (null != sessionEntry)
+            {
+                cachedSessionCount.decrementAndGet();
+                removeSessionByPeer(sessionEntry);
+            }
         }
     }
 
-    synchronized ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
+    ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
         JsseSessionParameters jsseSessionParameters, boolean addToCache)
     {
         processQueue();
 
-        if (!addToCache)
+        SessionID sessionID = addToCache ? makeSessionID(tlsSession.getSessionID()) : null;
+        if (null == sessionID)
         {
             return new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters);
         }
 
-        SessionID sessionID = makeSessionID(tlsSession.getSessionID());
-        SessionEntry sessionEntry = mapGet(sessionsByID, sessionID);
+        return addSession(sessionID, peerHost, peerPort, tlsSession, jsseSessionParameters,
+            System.currentTimeMillis());
+    }
+
+    public TlsSessionStore getSessionStore()
+    {
+        return sessionStore;
+    }
 
-        ProvSSLSession session = sessionEntry == null ? null : sessionEntry.get();
-        if (null == session || session.getTlsSession() != tlsSession)
+    public synchronized void setSessionStore(TlsSessionStore sessionStore)
+    {
+        if (this.sessionStore == sessionStore)
         {
-            session = new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters);
+            return;
+        }
 
-            if (null != sessionID)
-            {
-                sessionEntry = new SessionEntry(sessionID, session, sessionsQueue);
-                sessionsByID.put(sessionID, sessionEntry);
-            }
+        this.sessionStore = sessionStore;
+
+        // The ticket keys should come from the new store
+        if (null != ticketProtector)
+        {
+            ticketProtector.clearKeys();
+            this.ticketProtector = null;
         }
+    }
 
-        if (null != sessionEntry)
+    public int getCachedSessionCount()
+    {
+        int count = 0;
+        for (int i = 0; i < SHARD_COUNT; ++i)
         {
-            mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+            Shard shard = shards[i];
+            synchronized (shard)
+            {
+                count += shard.sessionsByID.size();
+            }
         }
+        return count;
+    }
 
-        return session;
+    public long getSessionCacheHits()
+    {
+        return hits.get();
     }
 
-    public synchronized Enumeration<byte[]> getIds()
+    public long getSessionCacheMisses()
+    {
+        return misses.get();
+    }
+
+    public long getSessionCacheEvictions()
+    {
+        return evictions.get();
+    }
+
+    public long getSessionCacheExpirations()
+    {
+        return expirations.get();
+    }
+
+    public Enumeration<byte[]> getIds()
     {
         removeAllExpiredSessions();
 
-        ArrayList<byte[]> ids = new ArrayList<byte[]>(sessionsByID.size());
-        for (SessionID sessionID : sessionsByID.keySet())
+        ArrayList<byte[]> ids = new ArrayList<byte[]>();
+        for (int i = 0; i < SHARD_COUNT; ++i)
         {
-            ids.add(sessionID.getBytes());
+            Shard shard = shards[i];
+            synchronized (shard)
+            {
+                for (SessionID sessionID : shard.sessionsByID.keySet())
+                {
+                    ids.add(sessionID.getBytes());
+                }
+            }
         }
         return Collections.enumeration(ids);
     }
@@ -150,12 +423,12 @@ public SSLSession getSession(byte[] sessionID)
         return getSessionImpl(sessionID);
     }
 
-    public synchronized int getSessionCacheSize()
+    public int getSessionCacheSize()
     {
         return sessionCacheSize;
     }
 
-    public synchronized int getSessionTimeout()
+    public int getSessionTimeout()
     {
         return sessionTimeoutSeconds;
     }
@@ -177,21 +450,7 @@ public synchronized void setSessionCacheSize(int size) throws IllegalArgumentExc
         removeAllExpiredSessions();
 
         // Immediately remove LRU sessions in excess of the new limit
-        if (sessionCacheSize > 0)
-        {
-            int currentSize = sessionsByID.size();
-            if (currentSize > sessionCacheSize)
-            {
-                Iterator<SessionEntry> iter = sessionsByID.values().iterator();
-                while (iter.hasNext() && currentSize > sessionCacheSize)
-                {
-                    SessionEntry sessionEntry = iter.next();
-                    iter.remove();
-                    removeSessionByPeer(sessionEntry);
-                    --currentSize;
-                }
-            }
-        }
+        evictExcessSessions(0, null);
     }
 
     public synchronized void setSessionTimeout(int seconds) throws IllegalArgumentException
@@ -208,6 +467,13 @@ public synchronized void setSessionTimeout(int seconds) throws IllegalArgumentEx
 
         this.sessionTimeoutSeconds = seconds;
 
+        // Outstanding tickets were issued with the old lifetime
+        if (null != ticketProtector)
+        {
+            ticketProtector.clearKeys();
+            this.ticketProtector = null;
+        }
+
         removeAllExpiredSessions();
     }
 
@@ -228,14 +494,113 @@ private ProvSSLSession accessSession(SessionEntry sessionEntry)
 
             removeSession(sessionEntry);
         }
+
         return null;
     }
 
+    private void countLookup(ProvSSLSession session)
+    {
+        if (null != session)
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+        }
+    }
+
+    private ProvSSLSession addSession(SessionID sessionID, String peerHost, int peerPort, TlsSession tlsSession,
+        JsseSessionParameters jsseSessionParameters, long creationTime)
+    {
+        int shardIndex = getShardIndex(sessionID);
+        Shard shard = shards[shardIndex];
+
+        ProvSSLSession session;
+        SessionEntry sessionEntry;
+        synchronized (shard)
+        {
+            sessionEntry = shard.sessionsByID.get(sessionID);
+
+            session = sessionEntry == null ? null : sessionEntry.get();
+            if (null == session || session.getTlsSession() != tlsSession)
+            {
+                session = new ProvSSLSession(this, peerHost, peerPort, tlsSession, jsseSessionParameters,
+                    creationTime);
+
+                sessionEntry = new SessionEntry(sessionID, session, sessionsQueue);
+                if (null == shard.sessionsByID.put(sessionID, sessionEntry))
+                {
+                    cachedSessionCount.incrementAndGet();
+                }
+            }
+
+            mapAdd(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+        }
+
+        evictExcessSessions(shardIndex, sessionEntry);
+
+        return session;
+    }
+
+    /*
+     * Evict LRU sessions until the cache size is respected, starting with the given shard (but sparing the session
+     * just added to it).
+     */
+    private void evictExcessSessions(int shardIndex, SessionEntry spare)
+    {
+        int cacheSize = sessionCacheSize;
+        if (cacheSize < 1)
+        {
+            return;
+        }
+
+        for (int i = 0; i < SHARD_COUNT && cachedSessionCount.get() > cacheSize; ++i)
+        {
+            Shard shard = shards[(shardIndex + i) & (SHARD_COUNT - 1)];
+            synchronized (shard)
+            {
+                Iterator<SessionEntry> iter = shard.sessionsByID.values().iterator();
+                while (iter.hasNext() && cachedSessionCount.get() > cacheSize)
+                {
+                    SessionEntry sessionEntry = iter.next();
+                    if (sessionEntry == spare)
+                    {
+                        continue;
+                    }
+
+                    iter.remove();
+                    cachedSessionCount.decrementAndGet();
+                    removeSessionByPeer(sessionEntry);
+
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
     private long getCreationTimeLimit(long expiryTimeMillis)
     {
-        return sessionTimeoutSeconds < 1 ? Long.MIN_VALUE : (expiryTimeMillis - 1000L * sessionTimeoutSeconds);
+        int timeoutSeconds = sessionTimeoutSeconds;
+        return timeoutSeconds < 1 ? Long.MIN_VALUE : (expiryTimeMillis - 1000L * timeoutSeconds);
+    }
+
+    private Shard getShard(SessionID sessionID)
+    {
+        return shards[getShardIndex(sessionID)];
+    }
+
+    private static int getShardIndex(SessionID sessionID)
+    {
+        int hash = sessionID.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (SHARD_COUNT - 1);
     }
 
+    /*
+     * Returns true if the session is no longer usable, invalidating it first if it has timed out. Only timeouts are
+     * counted as expirations; sessions reclaimed by the garbage collector or invalidated elsewhere are not.
+     */
     private boolean invalidateIfCreatedBefore(SessionEntry sessionEntry, long creationTimeLimit)
     {
         ProvSSLSession session = sessionEntry.get();
@@ -243,9 +608,10 @@ private boolean invalidateIfCreatedBefore(SessionEntry sessionEntry, long creati
         {
             return true;
         }
-        if (session.getCreationTime() < creationTimeLimit)
+        if (session.getCreationTime() < creationTimeLimit && session.isValid())
         {
             session.invalidatedBySessionContext();
+            expirations.incrementAndGet();
         }
         return !session.isValid();
     }
@@ -273,28 +639,44 @@ private void removeAllExpiredSessions()
 
         long creationTimeLimit = getCreationTimeLimit(System.currentTimeMillis());
 
-        Iterator<SessionEntry> iter = sessionsByID.values().iterator();
-        while (iter.hasNext())
+        for (int i = 0; i < SHARD_COUNT; ++i)
         {
-            SessionEntry sessionEntry = iter.next();
-            if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
+            Shard shard = shards[i];
+            synchronized (shard)
             {
-                iter.remove();
-                removeSessionByPeer(sessionEntry);
+                Iterator<SessionEntry> iter = shard.sessionsByID.values().iterator();
+                while (iter.hasNext())
+                {
+                    SessionEntry sessionEntry = iter.next();
+                    if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
+                    {
+                        iter.remove();
+                        cachedSessionCount.decrementAndGet();
+                        removeSessionByPeer(sessionEntry);
+                    }
+                }
             }
         }
     }
 
     private void removeSession(SessionEntry sessionEntry)
     {
-        mapRemove(sessionsByID, sessionEntry.getSessionID(), sessionEntry);
+        Shard shard = getShard(sessionEntry.getSessionID());
+        synchronized (shard)
+        {
+            if (mapRemove(shard.sessionsByID, sessionEntry.getSessionID(), sessionEntry))
+            {
+                cachedSessionCount.decrementAndGet();
+            }
+        }
 
         removeSessionByPeer(sessionEntry);
     }
 
     private boolean removeSessionByPeer(SessionEntry sessionEntry)
     {
-        return mapRemove(sessionsByPeer, sessionEntry.getPeerKey(), sessionEntry);
+        String peerKey = sessionEntry.getPeerKey();
+        return null != peerKey && sessionsByPeer.remove(peerKey, sessionEntry);
     }
 
     private static String makePeerKey(ProvSSLSession session)
@@ -333,15 +715,6 @@ private static <K, V> V mapGet(Map<K, V> map, K key)
         return key == null ? null : map.get(key);
     }
 
-    private static <K, V> V mapRemove(Map<K, V> map, K key)
-    {
-        if (map == null)
-        {
-            throw new NullPointerException();
-        }
-        return key == null ? null : map.remove(key);
-    }
-
     private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
     {
         if (map == null || value == null)
@@ -364,6 +737,29 @@ private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
         return false;
     }
 
+    protected final class Shard
+    {
+        // NOTE: This is configured as a simple LRU cache using the "access order" constructor
+        @SuppressWarnings("serial")
+        protected final Map<SessionID, SessionEntry> sessionsByID = new LinkedHashMap<SessionID, SessionEntry>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<SessionID, SessionEntry> eldest)
+            {
+                SessionEntry sessionEntry = eldest.getValue();
+
+                // The eldest entry is checked for expiry as new entries are added
+                if (!invalidateIfCreatedBefore(sessionEntry, getCreationTimeLimit(System.currentTimeMillis())))
+                {
+                    return false;
+                }
+
+                cachedSessionCount.decrementAndGet();
+                removeSessionByPeer(sessionEntry);
+                return true;
+            }
+        };
+    }
+
     private static final class SessionEntry
         extends SoftReference<ProvSSLSession>
     {
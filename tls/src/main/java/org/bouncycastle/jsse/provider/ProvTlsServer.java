@@ -32,6 +32,7 @@
 import org.bouncycastle.tls.KeyExchangeAlgorithm;
 import org.bouncycastle.tls.ProtocolName;
 import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.PskKeyExchangeMode;
 import org.bouncycastle.tls.SecurityParameters;
 import org.bouncycastle.tls.ServerName;
 import org.bouncycastle.tls.SessionParameters;
@@ -42,6 +43,7 @@
 import org.bouncycastle.tls.TlsExtensionsUtils;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.TlsSession;
+import org.bouncycastle.tls.TlsTicketProtector;
 import org.bouncycastle.tls.TlsUtils;
 import org.bouncycastle.tls.TrustedAuthority;
 import org.bouncycastle.tls.crypto.DHGroup;
@@ -74,6 +76,9 @@
     private static final boolean provServerEnableSessionResumption = PropertyUtils
         .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableSessionResumption", true);
 
+    private static final boolean provServerAllowPSKOnlyKeyExchange = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.server.allowPSKOnlyKeyExchange", false);
+
     // TODO[jsse] Support status_request and status_request_v2 extensions
 //    private static final boolean provServerEnableStatusRequest = PropertyUtils.getBooleanSystemProperty(
 //        "jdk.tls.server.enableStatusRequestExtension", false);
@@ -175,6 +180,7 @@ private static BigInteger parseDHParameter(String s, int beginIndex, int endInde
     protected Set<String> keyManagerMissCache = null;
     protected TlsCredentials credentials = null;
     protected boolean handshakeComplete = false;
+    protected boolean resumedFromTicket = false;
 
     ProvTlsServer(ProvTlsManager manager, ProvSSLParameters sslParameters)
     {
@@ -487,6 +493,32 @@ public int[] getSupportedGroups() throws IOException
 
     @Override
     public int getSelectedCipherSuite() throws IOException
+    {
+        final ContextData contextData = manager.getContextData();
+
+        setupPeerParameters();
+
+        if (DummyX509KeyManager.INSTANCE == contextData.getX509KeyManager())
+        {
+            // We don't support anonymous cipher suites, so there has to be a (real) key manager
+            throw new TlsFatalAlert(AlertDescription.handshake_failure);
+        }
+
+        keyManagerMissCache = new HashSet<String>();
+
+        int selectedCipherSuite = super.getSelectedCipherSuite();
+
+        keyManagerMissCache = null;
+
+        String selectedCipherSuiteName = manager.getContextData().getContext()
+            .validateNegotiatedCipherSuite(sslParameters, selectedCipherSuite);
+
+        LOG.fine("Server selected cipher suite: " + selectedCipherSuiteName);
+
+        return selectedCipherSuite;
+    }
+
+    protected void setupPeerParameters()
     {
         final ContextData contextData = manager.getContextData();
         final SecurityParameters securityParameters = context.getSecurityParametersHandshake();
@@ -529,25 +561,6 @@ public int getSelectedCipherSuite() throws IOException
                 }
             }
         }
-
-        if (DummyX509KeyManager.INSTANCE == contextData.getX509KeyManager())
-        {
-            // We don't support anonymous cipher suites, so there has to be a (real) key manager
-            throw new TlsFatalAlert(AlertDescription.handshake_failure);
-        }
-
-        keyManagerMissCache = new HashSet<String>();
-
-        int selectedCipherSuite = super.getSelectedCipherSuite();
-
-        keyManagerMissCache = null;
-
-        String selectedCipherSuiteName = manager.getContextData().getContext()
-            .validateNegotiatedCipherSuite(sslParameters, selectedCipherSuite);
-
-        LOG.fine("Server selected cipher suite: " + selectedCipherSuiteName);
-
-        return selectedCipherSuite;
     }
 
     @Override
@@ -578,7 +591,12 @@ public TlsSession getSessionToResume(byte[] sessionID)
 
         if (provServerEnableSessionResumption)
         {
-            ProvSSLSession availableSSLSession = sslSessionContext.getSessionImpl(sessionID);
+            ProvSSLSession availableSSLSession = sslSessionContext.getSessionToResume(sessionID);
+            if (null == availableSSLSession)
+            {
+                availableSSLSession = sslSessionContext.importSession(sessionID, manager.getPeerHost(),
+                    manager.getPeerPort());
+            }
 
             if (null != availableSSLSession)
             {
@@ -595,10 +613,70 @@ public TlsSession getSessionToResume(byte[] sessionID)
         return null;
     }
 
+    @Override
+    public TlsTicketProtector getTicketProtector()
+    {
+        if (!provServerEnableSessionResumption || !TlsUtils.isTLSv13(context))
+        {
+            return null;
+        }
+
+        return manager.getContextData().getServerSessionContext().getTicketProtector();
+    }
+
+    @Override
+    public boolean allowResumption(TlsSession session) throws IOException
+    {
+        SessionParameters sessionParameters = session.exportSessionParameters();
+        if (null == sessionParameters
+            || !context.getServerVersion().equals(sessionParameters.getNegotiatedVersion()))
+        {
+            return false;
+        }
+
+        int cipherSuite = sessionParameters.getCipherSuite();
+        if (!Arrays.contains(getCipherSuites(), cipherSuite)
+            || !Arrays.contains(offeredCipherSuites, cipherSuite))
+        {
+            return false;
+        }
+
+        if (sslParameters.getNeedClientAuth())
+        {
+            Certificate peerCertificate = sessionParameters.getPeerCertificate();
+            if (null == peerCertificate || peerCertificate.isEmpty())
+            {
+                LOG.finest("Session not resumable - client authentication required");
+                return false;
+            }
+        }
+
+        setupPeerParameters();
+
+        String cipherSuiteName = manager.getContextData().getContext()
+            .validateNegotiatedCipherSuite(sslParameters, cipherSuite);
+
+        LOG.fine("Server resumed cipher suite: " + cipherSuiteName);
+
+        this.resumedFromTicket = true;
+        return true;
+    }
+
+    @Override
+    public short[] getPskKeyExchangeModes()
+    {
+        if (provServerAllowPSKOnlyKeyExchange)
+        {
+            return new short[]{ PskKeyExchangeMode.psk_dhe_ke, PskKeyExchangeMode.psk_ke };
+        }
+
+        return super.getPskKeyExchangeModes();
+    }
+
     @Override
     public byte[] getNewSessionID()
     {
-        // TODO[tls13] Resumption/PSK
+        // NOTE: TLS 1.3 resumption uses session tickets instead (see getTicketProtector)
         if (!provServerEnableSessionResumption || TlsUtils.isTLSv13(context))
         {
             return null;
@@ -617,6 +695,12 @@ public void notifySession(TlsSession session)
         {
             LOG.fine("Server resumed session: " + Hex.toHexString(sessionID));
         }
+        else if (resumedFromTicket)
+        {
+            this.sslSession = null;
+
+            LOG.fine("Server resumed session from ticket");
+        }
         else
         {
             this.sslSession = null;
@@ -756,12 +840,17 @@ public synchronized void notifyHandshakeComplete() throws IOException
             String peerHost = manager.getPeerHost();
             int peerPort = manager.getPeerPort();
             JsseSessionParameters jsseSessionParameters = new JsseSessionParameters(null, matchedSNIServerName);
-            // TODO[tls13] Resumption/PSK
+            // NOTE: TLS 1.3 sessions are resumed from tickets, so there is no need to cache them
             boolean addToCache = provServerEnableSessionResumption && !TlsUtils.isTLSv13(context)
                 && context.getSecurityParametersConnection().isExtendedMasterSecret();
 
             this.sslSession = sslSessionContext.reportSession(peerHost, peerPort, connectionTlsSession,
                 jsseSessionParameters, addToCache);
+
+            if (addToCache)
+            {
+                sslSessionContext.exportSession(sslSession);
+            }
         }
 
         manager.notifyHandshakeComplete(new ProvSSLConnection(context, sslSession));
@@ -216,6 +216,16 @@ public Vector getExternalPSKs()
         return null;
     }
 
+    public TlsPSKResumption getResumptionPSK()
+    {
+        return null;
+    }
+
+    public byte[] getEarlyData()
+    {
+        return null;
+    }
+
     public boolean isFallback()
     {
         /*
@@ -450,4 +460,9 @@ public void notifyNewSessionTicket(NewSessionTicket newSessionTicket)
         throws IOException
     {
     }
+
+    public void notifyResumptionPSK(TlsPSKResumption resumptionPSK)
+        throws IOException
+    {
+    }
 }
@@ -7,6 +7,7 @@
 import org.bouncycastle.tls.crypto.TlsCrypto;
 import org.bouncycastle.tls.crypto.TlsDHConfig;
 import org.bouncycastle.tls.crypto.TlsECConfig;
+import org.bouncycastle.util.Arrays;
 
 /**
  * Base class for a TLS server.
@@ -278,6 +279,47 @@ public TlsPSKExternal getExternalPSK(Vector identities)
         return null;
     }
 
+    public TlsTicketProtector getTicketProtector()
+    {
+        return null;
+    }
+
+    public boolean allowResumption(TlsSession session) throws IOException
+    {
+        SessionParameters sessionParameters = session.exportSessionParameters();
+        if (null == sessionParameters)
+        {
+            return false;
+        }
+
+        int cipherSuite = sessionParameters.getCipherSuite();
+
+        if (!context.getServerVersion().equals(sessionParameters.getNegotiatedVersion())
+            || !Arrays.contains(getCipherSuites(), cipherSuite)
+            || !Arrays.contains(offeredCipherSuites, cipherSuite))
+        {
+            return false;
+        }
+
+        this.selectedCipherSuite = cipherSuite;
+        return true;
+    }
+
+    public long getMaxEarlyDataSize()
+    {
+        return 0L;
+    }
+
+    public TlsAntiReplay getAntiReplay()
+    {
+        return null;
+    }
+
+    public boolean acceptEarlyData() throws IOException
+    {
+        return false;
+    }
+
     public void notifySession(TlsSession session)
     {
     }
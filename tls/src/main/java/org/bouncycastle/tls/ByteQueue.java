@@ -2,6 +2,7 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A queue for bytes. This file could be more optimized.
@@ -140,6 +141,27 @@ public void read(byte[] buf, int offset, int len, int skip)
         System.arraycopy(databuf, skipped + skip, buf, offset, len);
     }
 
+    /**
+     * Read data from the buffer.
+     *
+     * @param buf  The buffer where the read data will be copied to, starting at its position.
+     * @param len  How many bytes to read at all.
+     * @param skip How many bytes from our data to skip.
+     */
+    public void read(ByteBuffer buf, int len, int skip)
+    {
+        if (buf.remaining() < len)
+        {
+            throw new IllegalArgumentException("Buffer size of " + buf.remaining()
+                + " is too small for a read of " + len + " bytes");
+        }
+        if ((available - skip) < len)
+        {
+            throw new IllegalStateException("Not enough data to read");
+        }
+        buf.put(databuf, skipped + skip, len);
+    }
+
     /**
      * Return a {@link HandshakeMessageInput} over some bytes at the beginning of the data.
      * 
@@ -204,6 +226,19 @@ public void removeData(byte[] buf, int off, int len, int skip)
         removeData(skip + len);
     }
 
+    /**
+     * Remove data from the buffer.
+     *
+     * @param buf The buffer where the removed data will be copied to, starting at its position.
+     * @param len How many bytes to read at all.
+     * @param skip How many bytes from our data to skip.
+     */
+    public void removeData(ByteBuffer buf, int len, int skip)
+    {
+        read(buf, len, skip);
+        removeData(skip + len);
+    }
+
     public byte[] removeData(int len, int skip)
     {
         byte[] buf = new byte[len];
@@ -0,0 +1,589 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * A DTLS server front-end sharing a single {@link DatagramPacketTransport} (e.g. one UDP socket, see
+ * {@link UDPServerTransport}) between many clients. Received datagrams are demultiplexed by peer address to a
+ * {@link DatagramTransport} per association, so each association can use {@link DTLSServerProtocol} as usual.
+ * </p>
+ * <p>
+ * Peers are partitioned into shards by address. Each shard has its own worker thread, {@link DTLSVerifier} and
+ * association table, so datagrams from new peers are demultiplexed and their cookies verified in parallel across
+ * shards. Once a peer's cookie is verified, its handshake is submitted to an {@link Executor} (by default a pool
+ * of at most {@link #DEFAULT_HANDSHAKE_THREADS} threads), so a peer that stalls mid-handshake holds up only its
+ * own association and one executor thread. At most a given number of handshakes are in progress at once; beyond
+ * that, verified ClientHellos are dropped and clients retransmit them until a handshake finishes.
+ * </p>
+ * <p>
+ * Each established connection is passed to {@link ConnectionHandler#notifyConnection(SocketAddress, DTLSTransport)}
+ * on the executor thread that ran its handshake, which should hand it off rather than serve it there.
+ * </p>
+ */
+public class DTLSServerDispatcher
+    implements TlsCloseable
+{
+    /**
+     * Creates the {@link TlsServer} for each new association, and receives the established connections.
+     */
+    public interface ConnectionHandler
+    {
+        TlsServer createServer(SocketAddress peerAddress) throws IOException;
+
+        void notifyConnection(SocketAddress peerAddress, DTLSTransport transport) throws IOException;
+    }
+
+    public static final int DEFAULT_HANDSHAKE_LIMIT = 1024;
+    public static final int DEFAULT_HANDSHAKE_THREADS = 32;
+
+    private static final int RECEIVE_WAIT_MILLIS = 1000;
+
+    // The most datagrams queued for one association, or from new peers of one shard, before more are dropped
+    private static final int ASSOCIATION_QUEUE_LIMIT = 64;
+    private static final int SHARD_QUEUE_LIMIT = 256;
+
+    private final DatagramPacketTransport transport;
+    private final ConnectionHandler handler;
+    private final Shard[] shards;
+    private final int handshakeLimit;
+    private final Executor handshakeExecutor;
+    // The default executor, which is ours to shut down; null if one was supplied
+    private final ExecutorService defaultExecutor;
+
+    private Thread receiverThread = null;
+    private volatile boolean closed = false;
+    private int handshakeCount = 0;
+
+    public DTLSServerDispatcher(TlsCrypto crypto, DatagramPacketTransport transport, ConnectionHandler handler,
+        int shardCount)
+    {
+        this(crypto, transport, handler, shardCount, DEFAULT_HANDSHAKE_LIMIT);
+    }
+
+    /**
+     * @param crypto the crypto used for cookie verification.
+     * @param transport the transport shared by all associations.
+     * @param handler creates the server for each association and receives the established connections.
+     * @param shardCount the number of shards (and worker threads) to partition peers into.
+     * @param handshakeLimit the most handshakes to run at once.
+     */
+    public DTLSServerDispatcher(TlsCrypto crypto, DatagramPacketTransport transport, ConnectionHandler handler,
+        int shardCount, int handshakeLimit)
+    {
+        this(crypto, transport, handler, shardCount, handshakeLimit, null);
+    }
+
+    /**
+     * @param crypto the crypto used for cookie verification.
+     * @param transport the transport shared by all associations.
+     * @param handler creates the server for each association and receives the established connections.
+     * @param shardCount the number of shards (and worker threads) to partition peers into.
+     * @param handshakeLimit the most handshakes to run at once.
+     * @param handshakeExecutor the executor to run handshakes on, or null for a pool of at most
+     *            {@link #DEFAULT_HANDSHAKE_THREADS} daemon threads, shut down by {@link #close()}. A
+     *            handshake rejected by the executor is dropped, and the client retransmits its ClientHello.
+     */
+    public DTLSServerDispatcher(TlsCrypto crypto, DatagramPacketTransport transport, ConnectionHandler handler,
+        int shardCount, int handshakeLimit, Executor handshakeExecutor)
+    {
+        if (crypto == null)
+        {
+            throw new IllegalArgumentException("'crypto' cannot be null");
+        }
+        if (transport == null)
+        {
+            throw new IllegalArgumentException("'transport' cannot be null");
+        }
+        if (handler == null)
+        {
+            throw new IllegalArgumentException("'handler' cannot be null");
+        }
+        if (shardCount < 1)
+        {
+            throw new IllegalArgumentException("'shardCount' must be > 0");
+        }
+        if (handshakeLimit < 1)
+        {
+            throw new IllegalArgumentException("'handshakeLimit' must be > 0");
+        }
+
+        this.transport = transport;
+        this.handler = handler;
+        this.shards = new Shard[shardCount];
+        this.handshakeLimit = handshakeLimit;
+
+        if (null == handshakeExecutor)
+        {
+            int threads = Math.min(handshakeLimit, DEFAULT_HANDSHAKE_THREADS);
+
+            // The handshake limit bounds the queue
+            this.defaultExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue(), new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "DTLSServerDispatcher-handshake");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            this.handshakeExecutor = defaultExecutor;
+        }
+        else
+        {
+            this.defaultExecutor = null;
+            this.handshakeExecutor = handshakeExecutor;
+        }
+
+        for (int i = 0; i < shardCount; ++i)
+        {
+            shards[i] = new Shard(new DTLSVerifier(crypto));
+        }
+    }
+
+    /**
+     * Start the receiver thread and the worker thread of each shard.
+     */
+    public synchronized void start()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Dispatcher is closed");
+        }
+        if (null != receiverThread)
+        {
+            return;
+        }
+
+        for (int i = 0; i < shards.length; ++i)
+        {
+            Thread worker = new Thread(shards[i], "DTLSServerDispatcher-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        this.receiverThread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                receiveDatagrams();
+            }
+        }, "DTLSServerDispatcher-receiver");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    /**
+     * @return The number of associations currently handshaking or connected.
+     */
+    public int getAssociationCount()
+    {
+        int count = 0;
+        for (int i = 0; i < shards.length; ++i)
+        {
+            count += shards[i].associations.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of handshakes currently in progress.
+     */
+    public synchronized int getHandshakeCount()
+    {
+        return handshakeCount;
+    }
+
+    /**
+     * Stop the threads, close every association and then the underlying transport. A supplied handshake executor
+     * is not shut down.
+     */
+    public void close() throws IOException
+    {
+        this.closed = true;
+
+        for (int i = 0; i < shards.length; ++i)
+        {
+            shards[i].close();
+        }
+
+        if (null != defaultExecutor)
+        {
+            // Handshakes still running fail promptly now that their associations are closed
+            defaultExecutor.shutdown();
+        }
+
+        transport.close();
+    }
+
+    private void receiveDatagrams()
+    {
+        try
+        {
+            byte[] buf = new byte[transport.getReceiveLimit()];
+            DatagramPacket packet = new DatagramPacket(buf, buf.length);
+
+            while (!closed)
+            {
+                packet.setData(buf, 0, buf.length);
+                if (!transport.receive(packet, RECEIVE_WAIT_MILLIS))
+                {
+                    continue;
+                }
+
+                SocketAddress peerAddress = packet.getSocketAddress();
+                byte[] datagram = Arrays.copyOfRange(buf, packet.getOffset(), packet.getOffset() + packet.getLength());
+
+                getShard(peerAddress).dispatch(peerAddress, datagram);
+            }
+        }
+        catch (IOException e)
+        {
+            // NOTE: Expected once the transport is closed
+        }
+    }
+
+    private synchronized boolean beginHandshake()
+    {
+        if (handshakeCount >= handshakeLimit)
+        {
+            return false;
+        }
+
+        ++handshakeCount;
+        return true;
+    }
+
+    private synchronized void endHandshake()
+    {
+        --handshakeCount;
+    }
+
+    private Shard getShard(SocketAddress peerAddress)
+    {
+        return shards[(peerAddress.hashCode() & 0x7FFFFFFF) % shards.length];
+    }
+
+    private static byte[] getClientID(SocketAddress peerAddress)
+    {
+        if (peerAddress instanceof InetSocketAddress)
+        {
+            InetSocketAddress inetAddress = (InetSocketAddress)peerAddress;
+            if (null != inetAddress.getAddress())
+            {
+                byte[] address = inetAddress.getAddress().getAddress();
+                byte[] clientID = Arrays.copyOf(address, address.length + 2);
+                TlsUtils.writeUint16(inetAddress.getPort(), clientID, address.length);
+                return clientID;
+            }
+        }
+
+        return Strings.toUTF8ByteArray(peerAddress.toString());
+    }
+
+    private class Shard
+        implements Runnable
+    {
+        private final DTLSVerifier verifier;
+        private final Hashtable associations = new Hashtable();
+        private final Vector pending = new Vector();
+
+        Shard(DTLSVerifier verifier)
+        {
+            this.verifier = verifier;
+        }
+
+        void dispatch(SocketAddress peerAddress, byte[] datagram)
+        {
+            Association association = (Association)associations.get(peerAddress);
+            if (null != association)
+            {
+                association.enqueue(datagram);
+                return;
+            }
+
+            synchronized (pending)
+            {
+                if (pending.size() < SHARD_QUEUE_LIMIT)
+                {
+                    pending.addElement(new DatagramPacket(datagram, datagram.length, peerAddress));
+                    pending.notify();
+                }
+            }
+        }
+
+        void close()
+        {
+            synchronized (pending)
+            {
+                pending.removeAllElements();
+                pending.notifyAll();
+            }
+
+            Vector all = new Vector(associations.values());
+            for (int i = 0; i < all.size(); ++i)
+            {
+                ((Association)all.elementAt(i)).close();
+            }
+        }
+
+        public void run()
+        {
+            while (!closed)
+            {
+                DatagramPacket packet;
+
+                synchronized (pending)
+                {
+                    try
+                    {
+                        while (!closed && pending.isEmpty())
+                        {
+                            pending.wait();
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+
+                    if (closed)
+                    {
+                        return;
+                    }
+
+                    packet = (DatagramPacket)pending.elementAt(0);
+                    pending.removeElementAt(0);
+                }
+
+                handleDatagram(packet.getSocketAddress(), packet.getData());
+            }
+        }
+
+        private void handleDatagram(final SocketAddress peerAddress, byte[] datagram)
+        {
+            // A handshake for this peer may have begun after the datagram was queued
+            Association association = (Association)associations.get(peerAddress);
+            if (null != association)
+            {
+                association.enqueue(datagram);
+                return;
+            }
+
+            DTLSRequest request = verifier.verifyRequest(getClientID(peerAddress), datagram, 0, datagram.length,
+                new DatagramSender()
+                {
+                    public int getSendLimit() throws IOException
+                    {
+                        return transport.getSendLimit();
+                    }
+
+                    public void send(byte[] buf, int off, int len) throws IOException
+                    {
+                        sendDatagram(peerAddress, buf, off, len);
+                    }
+                });
+            if (null == request)
+            {
+                return;
+            }
+
+            // NOTE: At the limit, the client will retransmit its ClientHello (and cookie) later
+            if (!beginHandshake())
+            {
+                return;
+            }
+
+            association = new Association(this, peerAddress);
+            associations.put(peerAddress, association);
+
+            boolean submitted = false;
+            try
+            {
+                handshakeExecutor.execute(new Handshake(association, request));
+                submitted = true;
+            }
+            catch (RejectedExecutionException e)
+            {
+                // NOTE: As at the limit, the client will retransmit its ClientHello later
+            }
+            finally
+            {
+                if (!submitted)
+                {
+                    association.close();
+                    endHandshake();
+                }
+            }
+        }
+    }
+
+    private class Handshake
+        implements Runnable
+    {
+        private final Association association;
+        private final DTLSRequest request;
+
+        Handshake(Association association, DTLSRequest request)
+        {
+            this.association = association;
+            this.request = request;
+        }
+
+        public void run()
+        {
+            SocketAddress peerAddress = association.peerAddress;
+            DTLSTransport dtlsTransport = null;
+            try
+            {
+                TlsServer server = handler.createServer(peerAddress);
+                dtlsTransport = new DTLSServerProtocol().accept(server, association, request);
+                handler.notifyConnection(peerAddress, dtlsTransport);
+            }
+            catch (Exception e)
+            {
+                if (null != dtlsTransport)
+                {
+                    try
+                    {
+                        dtlsTransport.close();
+                    }
+                    catch (IOException ce)
+                    {
+                        // Ignore
+                    }
+                }
+
+                association.close();
+            }
+            finally
+            {
+                endHandshake();
+            }
+        }
+    }
+
+    private void sendDatagram(SocketAddress peerAddress, byte[] buf, int off, int len) throws IOException
+    {
+        if (len > transport.getSendLimit())
+        {
+            // See UDPTransport.send
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        transport.send(new DatagramPacket(buf, off, len, peerAddress));
+    }
+
+    private class Association
+        implements DatagramTransport
+    {
+        private final Shard shard;
+        private final SocketAddress peerAddress;
+        private final Vector receiveQueue = new Vector();
+        private boolean associationClosed = false;
+
+        Association(Shard shard, SocketAddress peerAddress)
+        {
+            this.shard = shard;
+            this.peerAddress = peerAddress;
+        }
+
+        public int getReceiveLimit() throws IOException
+        {
+            return transport.getReceiveLimit();
+        }
+
+        public int getSendLimit() throws IOException
+        {
+            return transport.getSendLimit();
+        }
+
+        public int receive(byte[] buf, int off, int len, int waitMillis) throws IOException
+        {
+            byte[] datagram;
+
+            synchronized (receiveQueue)
+            {
+                if (!associationClosed && receiveQueue.isEmpty())
+                {
+                    try
+                    {
+                        receiveQueue.wait(waitMillis);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (associationClosed)
+                {
+                    throw new IOException("Association is closed");
+                }
+                if (receiveQueue.isEmpty())
+                {
+                    return -1;
+                }
+
+                datagram = (byte[])receiveQueue.elementAt(0);
+                receiveQueue.removeElementAt(0);
+            }
+
+            int copyLength = Math.min(len, datagram.length);
+            System.arraycopy(datagram, 0, buf, off, copyLength);
+            return copyLength;
+        }
+
+        public void send(byte[] buf, int off, int len) throws IOException
+        {
+            sendDatagram(peerAddress, buf, off, len);
+        }
+
+        public void close()
+        {
+            synchronized (receiveQueue)
+            {
+                this.associationClosed = true;
+                receiveQueue.removeAllElements();
+                receiveQueue.notifyAll();
+            }
+
+            synchronized (shard.associations)
+            {
+                if (this == shard.associations.get(peerAddress))
+                {
+                    shard.associations.remove(peerAddress);
+                }
+            }
+        }
+
+        void enqueue(byte[] datagram)
+        {
+            synchronized (receiveQueue)
+            {
+                if (!associationClosed && receiveQueue.size() < ASSOCIATION_QUEUE_LIMIT)
+                {
+                    receiveQueue.addElement(datagram);
+                    receiveQueue.notify();
+                }
+            }
+        }
+    }
+}
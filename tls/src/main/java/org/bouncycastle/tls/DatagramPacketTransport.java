@@ -0,0 +1,29 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+
+/**
+ * Base interface for an unconnected datagram endpoint (e.g. a server's UDP socket), exchanging datagrams with many
+ * peers. See {@link DTLSServerDispatcher}.
+ */
+public interface DatagramPacketTransport
+    extends TlsCloseable
+{
+    int getReceiveLimit() throws IOException;
+
+    int getSendLimit() throws IOException;
+
+    /**
+     * Receive a datagram into the buffer of the given packet, setting the packet's length and the address of the
+     * peer that sent it.
+     *
+     * @return false if no datagram arrived within the given time.
+     */
+    boolean receive(DatagramPacket packet, int waitMillis) throws IOException;
+
+    /**
+     * Send the given packet to the address it holds.
+     */
+    void send(DatagramPacket packet) throws IOException;
+}
@@ -0,0 +1,167 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * A {@link TlsAntiReplay} that records ClientHellos in a fixed-size bloom filter held in memory.
+ * <p>
+ * The filter is split into independently locked stripes (selected by the binder), so that concurrent
+ * handshakes rarely contend. Each stripe keeps two generations of bits, each covering twice the window, and
+ * the older generation is dropped when a new one starts. Since a ClientHello can only pass the ticket age
+ * check during a period of twice the window, it is remembered for as long as a replay could be accepted, and
+ * the memory used never grows. A false positive only causes early data to be rejected (the handshake then
+ * continues without it), never accepted.
+ * </p>
+ * <p>
+ * The record is not shared, so servers sharing tickets across a cluster need a {@link TlsAntiReplay} with state
+ * shared between them, or must accept that early data may be replayed once to each server.
+ * </p>
+ */
+public class DefaultTlsAntiReplay
+    implements TlsAntiReplay
+{
+    private static final int STRIPE_COUNT = 16;
+    private static final int BITS_PER_ENTRY = 16;
+    private static final int HASH_COUNT = 8;
+
+    protected final long window;
+    protected final int capacity;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    /**
+     * Create an anti-replay record with a 10 second window, sized for 65536 ClientHellos per window.
+     */
+    public DefaultTlsAntiReplay()
+    {
+        this(10000L, 1 << 16);
+    }
+
+    /**
+     * Base constructor.
+     *
+     * @param window the ticket age window in milliseconds.
+     * @param capacity the number of ClientHellos expected per window, which sets the size of the filter. Above
+     *            this rate the false positive rate (and so the rate of needlessly rejected early data) rises.
+     */
+    public DefaultTlsAntiReplay(long window, int capacity)
+    {
+        if (window < 1)
+        {
+            throw new IllegalArgumentException("'window' must be positive");
+        }
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("'capacity' must be positive");
+        }
+
+        this.window = window;
+        this.capacity = capacity;
+
+        // Each generation spans two windows, so allow for twice the capacity
+        long bits = 2L * capacity * BITS_PER_ENTRY / STRIPE_COUNT;
+        int words = (int)Math.min(Integer.MAX_VALUE, Math.max(1L, (bits + 63) >>> 6));
+
+        for (int i = 0; i < STRIPE_COUNT; ++i)
+        {
+            stripes[i] = new Stripe(words);
+        }
+    }
+
+    public long getWindow()
+    {
+        return window;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public boolean recordClientHello(byte[] binder, long currentTimeMillis) throws IOException
+    {
+        if (null == binder || binder.length < 16)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        // NOTE: The binder is an HMAC output, so its bytes can be used directly as the hash values
+        long h1 = Pack.bigEndianToLong(binder, 0);
+        long h2 = Pack.bigEndianToLong(binder, 8) | 1L;
+
+        Stripe stripe = stripes[(int)(h1 >>> 60) & (STRIPE_COUNT - 1)];
+
+        return stripe.record(h1, h2, currentTimeMillis, 2 * window);
+    }
+
+    /**
+     * Forget every ClientHello recorded so far.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < STRIPE_COUNT; ++i)
+        {
+            stripes[i].clear();
+        }
+    }
+
+    private static class Stripe
+    {
+        private long[] current, previous;
+        private long currentStart = Long.MIN_VALUE;
+
+        Stripe(int words)
+        {
+            this.current = new long[words];
+            this.previous = new long[words];
+        }
+
+        synchronized void clear()
+        {
+            Arrays.fill(current, 0L);
+            Arrays.fill(previous, 0L);
+            this.currentStart = Long.MIN_VALUE;
+        }
+
+        synchronized boolean record(long h1, long h2, long now, long generationPeriod)
+        {
+            if (Long.MIN_VALUE == currentStart || now - currentStart >= 2 * generationPeriod)
+            {
+                Arrays.fill(current, 0L);
+                Arrays.fill(previous, 0L);
+                this.currentStart = now;
+            }
+            else if (now - currentStart >= generationPeriod)
+            {
+                long[] tmp = previous;
+                Arrays.fill(tmp, 0L);
+                this.previous = current;
+                this.current = tmp;
+                this.currentStart += generationPeriod;
+            }
+
+            long bitCount = (long)current.length << 6;
+
+            boolean seen = true;
+            for (int i = 0; i < HASH_COUNT; ++i)
+            {
+                int bit = (int)(((h1 + i * h2) & Long.MAX_VALUE) % bitCount);
+                int word = bit >>> 6;
+                long mask = 1L << (bit & 63);
+
+                if (0L == (current[word] & mask) && 0L == (previous[word] & mask))
+                {
+                    seen = false;
+                }
+                current[word] |= mask;
+            }
+
+            return !seen;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Vector;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * A {@link TlsTicketProtector} using a set of rotating, randomly generated keys held in memory.
+ * <p>
+ * A new key is brought into use each key rotation period, and keys are kept for decryption until every
+ * ticket they protected has expired. Tickets are encrypted with AES-256-GCM under a random 96-bit nonce, with
+ * the key name and nonce authenticated as additional data, in the layout of RFC 5077 4. The cipher comes from
+ * {@link #createCipher()}; the {@link TlsCrypto} only supplies the randomness for keys and nonces.
+ * </p>
+ * <p>
+ * Without a {@link TlsSessionStore}, the keys are not shared, so a ticket is only accepted by the instance that
+ * issued it. Given a store, the key ring is loaded from the store when a key is due for rotation, or a ticket
+ * names an unknown key, and written back to it after each rotation, so that every instance sharing the store
+ * accepts tickets issued by any of them. Instances rotating at the same moment can each write a new key, and
+ * only one survives in the store; tickets protected under the other are then only accepted by its instance.
+ * If the store fails, or holds a key ring that can't be decoded, the keys held locally stay in use: tickets are
+ * still accepted under any key already known, but no ticket is issued while a due rotation can't be shared.
+ * </p>
+ */
+public class DefaultTlsTicketProtector
+    implements TlsTicketProtector
+{
+    public static final long MAX_TICKET_LIFETIME = 604800L;
+
+    private static final int KEY_NAME_LENGTH = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final int KEY_LENGTH = 32;
+    private static final int TAG_LENGTH = 16;
+
+    // Minimum time between store lookups caused by tickets naming an unknown key
+    private static final long RELOAD_INTERVAL = 1000L;
+
+    protected final TlsCrypto crypto;
+    protected final long ticketLifetime;
+    protected final long keyRotationPeriod;
+    protected final TlsSessionStore keyStore;
+
+    /*
+     * Newest key first; the first key is the one currently used to protect new tickets. Keys are used outside the
+     * lock once looked up, so key material is never zeroed in place; discarded keys are just dropped from here.
+     */
+    private final Vector keys = new Vector();
+    private long lastLoadedAt = Long.MIN_VALUE;
+
+    /**
+     * Create a ticket protector issuing tickets valid for one day, rotating its key every hour.
+     *
+     * @param crypto the crypto to use for generating keys and nonces.
+     */
+    public DefaultTlsTicketProtector(TlsCrypto crypto)
+    {
+        this(crypto, 86400L, 3600L);
+    }
+
+    /**
+     * Base constructor.
+     *
+     * @param crypto the crypto to use for generating keys and nonces.
+     * @param ticketLifetime the lifetime of issued tickets in seconds, at most {@link #MAX_TICKET_LIFETIME}.
+     * @param keyRotationPeriod the time in seconds each key is used for protecting new tickets.
+     */
+    public DefaultTlsTicketProtector(TlsCrypto crypto, long ticketLifetime, long keyRotationPeriod)
+    {
+        this(crypto, ticketLifetime, keyRotationPeriod, null);
+    }
+
+    /**
+     * Constructor for a ticket protector sharing its keys through a {@link TlsSessionStore}.
+     *
+     * @param crypto the crypto to use for generating keys and nonces.
+     * @param ticketLifetime the lifetime of issued tickets in seconds, at most {@link #MAX_TICKET_LIFETIME}.
+     * @param keyRotationPeriod the time in seconds each key is used for protecting new tickets.
+     * @param keyStore the store holding the shared key ring, or null if the keys are not shared.
+     */
+    public DefaultTlsTicketProtector(TlsCrypto crypto, long ticketLifetime, long keyRotationPeriod,
+        TlsSessionStore keyStore)
+    {
+        if (null == crypto)
+        {
+            throw new NullPointerException("'crypto' cannot be null");
+        }
+        if (ticketLifetime < 1 || ticketLifetime > MAX_TICKET_LIFETIME)
+        {
+            throw new IllegalArgumentException("'ticketLifetime' must be from 1 to " + MAX_TICKET_LIFETIME);
+        }
+        if (keyRotationPeriod < 1)
+        {
+            throw new IllegalArgumentException("'keyRotationPeriod' must be positive");
+        }
+
+        this.crypto = crypto;
+        this.ticketLifetime = ticketLifetime;
+        this.keyRotationPeriod = keyRotationPeriod;
+        this.keyStore = keyStore;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetime;
+    }
+
+    public long getKeyRotationPeriod()
+    {
+        return keyRotationPeriod;
+    }
+
+    public TlsSessionStore getKeyStore()
+    {
+        return keyStore;
+    }
+
+    /**
+     * Bring a new key into use immediately. Tickets already issued remain valid until they expire.
+     *
+     * @throws IOException if the key ring can't be written to the key store, in which case the keys are left
+     *         unchanged.
+     */
+    public synchronized void rotateKeys() throws IOException
+    {
+        rotateKeys(System.currentTimeMillis());
+    }
+
+    /**
+     * Discard all keys held by this instance, invalidating every ticket issued so far (unless the keys are
+     * loaded from the key store again).
+     */
+    public synchronized void clearKeys()
+    {
+        keys.removeAllElements();
+    }
+
+    public byte[] protect(byte[] state) throws IOException
+    {
+        TicketKey key = getCurrentKey(System.currentTimeMillis());
+        if (null == key)
+        {
+            return null;
+        }
+
+        byte[] nonce = new byte[NONCE_LENGTH];
+        crypto.getSecureRandom().nextBytes(nonce);
+
+        AEADBlockCipher cipher = createCipher();
+        cipher.init(true, new AEADParameters(new KeyParameter(key.key), TAG_LENGTH * 8, nonce));
+
+        int ctOff = KEY_NAME_LENGTH + NONCE_LENGTH;
+
+        byte[] ticket = new byte[ctOff + cipher.getOutputSize(state.length)];
+        System.arraycopy(key.name, 0, ticket, 0, KEY_NAME_LENGTH);
+        System.arraycopy(nonce, 0, ticket, KEY_NAME_LENGTH, NONCE_LENGTH);
+
+        cipher.processAADBytes(ticket, 0, ctOff);
+
+        try
+        {
+            int len = cipher.processBytes(state, 0, state.length, ticket, ctOff);
+            cipher.doFinal(ticket, ctOff + len);
+        }
+        catch (InvalidCipherTextException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+
+        return ticket;
+    }
+
+    public byte[] unprotect(byte[] ticket) throws IOException
+    {
+        int ctOff = KEY_NAME_LENGTH + NONCE_LENGTH;
+        if (null == ticket || ticket.length < ctOff + TAG_LENGTH)
+        {
+            return null;
+        }
+
+        TicketKey key = findKey(ticket, System.currentTimeMillis());
+        if (null == key)
+        {
+            return null;
+        }
+
+        byte[] nonce = Arrays.copyOfRange(ticket, KEY_NAME_LENGTH, ctOff);
+
+        AEADBlockCipher cipher = createCipher();
+        cipher.init(false, new AEADParameters(new KeyParameter(key.key), TAG_LENGTH * 8, nonce));
+        cipher.processAADBytes(ticket, 0, ctOff);
+
+        byte[] state = new byte[cipher.getOutputSize(ticket.length - ctOff)];
+        try
+        {
+            int len = cipher.processBytes(ticket, ctOff, ticket.length - ctOff, state, 0);
+            cipher.doFinal(state, len);
+        }
+        catch (InvalidCipherTextException e)
+        {
+            return null;
+        }
+
+        return state;
+    }
+
+    /**
+     * Create the AEAD cipher used to protect and unprotect a ticket. The cipher is initialised with a 256-bit
+     * key, a 96-bit nonce and a 128-bit tag.
+     *
+     * @return a new, uninitialised AEAD cipher.
+     */
+    protected AEADBlockCipher createCipher()
+    {
+        return new GCMBlockCipher(new AESEngine());
+    }
+
+    private synchronized TicketKey getCurrentKey(long now)
+    {
+        if (isRotationDue(now))
+        {
+            try
+            {
+                // Another instance may already have rotated the shared keys
+                if (null != keyStore)
+                {
+                    loadKeys(now);
+                }
+
+                if (isRotationDue(now))
+                {
+                    rotateKeys(now);
+                }
+            }
+            catch (IOException e)
+            {
+                // The shared keys are unavailable; skip this ticket rather than fail the connection
+                return null;
+            }
+        }
+
+        return (TicketKey)keys.elementAt(0);
+    }
+
+    private synchronized TicketKey findKey(byte[] ticket, long now)
+    {
+        removeExpiredKeys(now);
+
+        TicketKey key = findKey(ticket);
+        if (null == key && null != keyStore && lastLoadedAt + RELOAD_INTERVAL <= now)
+        {
+            try
+            {
+                loadKeys(now);
+            }
+            catch (IOException e)
+            {
+                // The shared keys are unavailable; the ticket is just not recognised
+                return null;
+            }
+
+            key = findKey(ticket);
+        }
+        return key;
+    }
+
+    private TicketKey findKey(byte[] ticket)
+    {
+        for (int i = 0; i < keys.size(); ++i)
+        {
+            TicketKey key = (TicketKey)keys.elementAt(i);
+            if (Arrays.constantTimeAreEqual(KEY_NAME_LENGTH, key.name, 0, ticket, 0))
+            {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private boolean isRotationDue(long now)
+    {
+        return keys.isEmpty() || ((TicketKey)keys.elementAt(0)).createdAt + keyRotationPeriod * 1000L <= now;
+    }
+
+    private void loadKeys(long now) throws IOException
+    {
+        this.lastLoadedAt = now;
+
+        byte[] encoding = keyStore.getTicketKeys();
+        if (null == encoding)
+        {
+            return;
+        }
+
+        // Decode the whole key ring before merging, so a bad encoding leaves the local keys untouched
+        Vector loaded = new Vector();
+
+        ByteArrayInputStream buf = new ByteArrayInputStream(encoding);
+        int count = TlsUtils.readUint16(buf);
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] name = TlsUtils.readFully(KEY_NAME_LENGTH, buf);
+            byte[] key = TlsUtils.readFully(KEY_LENGTH, buf);
+            long createdAt = (TlsUtils.readUint32(buf) << 32) | TlsUtils.readUint32(buf);
+
+            loaded.addElement(new TicketKey(name, key, createdAt));
+        }
+        TlsProtocol.assertEmpty(buf);
+
+        for (int i = 0; i < loaded.size(); ++i)
+        {
+            TicketKey key = (TicketKey)loaded.elementAt(i);
+            if (null != findKey(key.name))
+            {
+                continue;
+            }
+
+            // Keep the keys ordered newest first
+            int pos = 0;
+            while (pos < keys.size() && ((TicketKey)keys.elementAt(pos)).createdAt > key.createdAt)
+            {
+                ++pos;
+            }
+            keys.insertElementAt(key, pos);
+        }
+
+        // Each key was retired when the next newer key was created
+        for (int i = 1; i < keys.size(); ++i)
+        {
+            TicketKey key = (TicketKey)keys.elementAt(i);
+            key.retiredAt = Math.min(key.retiredAt, ((TicketKey)keys.elementAt(i - 1)).createdAt);
+        }
+
+        removeExpiredKeys(now);
+    }
+
+    private void storeKeys() throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        TlsUtils.writeUint16(keys.size(), buf);
+        for (int i = 0; i < keys.size(); ++i)
+        {
+            TicketKey key = (TicketKey)keys.elementAt(i);
+            buf.write(key.name);
+            buf.write(key.key);
+            TlsUtils.writeUint64(key.createdAt, buf);
+        }
+
+        byte[] encoding = buf.toByteArray();
+        try
+        {
+            keyStore.putTicketKeys(encoding);
+        }
+        finally
+        {
+            Arrays.fill(encoding, (byte)0);
+        }
+    }
+
+    private void removeExpiredKeys(long now)
+    {
+        // A key can go once it has been retired for longer than the ticket lifetime
+        long retiredLimit = now - ticketLifetime * 1000L;
+
+        for (int i = keys.size() - 1; i > 0; --i)
+        {
+            TicketKey key = (TicketKey)keys.elementAt(i);
+            if (key.retiredAt >= retiredLimit)
+            {
+                break;
+            }
+
+            keys.removeElementAt(i);
+        }
+    }
+
+    private void rotateKeys(long now) throws IOException
+    {
+        TicketKey current = keys.isEmpty() ? null : (TicketKey)keys.elementAt(0);
+        long currentRetiredAt = null == current ? 0L : current.retiredAt;
+
+        if (null != current)
+        {
+            current.retiredAt = now;
+        }
+
+        byte[] name = new byte[KEY_NAME_LENGTH];
+        byte[] key = new byte[KEY_LENGTH];
+
+        crypto.getSecureRandom().nextBytes(name);
+        crypto.getSecureRandom().nextBytes(key);
+
+        keys.insertElementAt(new TicketKey(name, key, now), 0);
+
+        removeExpiredKeys(now);
+
+        if (null != keyStore)
+        {
+            try
+            {
+                storeKeys();
+            }
+            catch (IOException e)
+            {
+                // Keep using the current key; the rotation is tried again with the next ticket
+                keys.removeElementAt(0);
+                if (null != current)
+                {
+                    current.retiredAt = currentRetiredAt;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class TicketKey
+    {
+        final byte[] name;
+        final byte[] key;
+        final long createdAt;
+        long retiredAt = Long.MAX_VALUE;
+
+        TicketKey(byte[] name, byte[] key, long createdAt)
+        {
+            this.name = name;
+            this.key = key;
+            this.createdAt = createdAt;
+        }
+    }
+}
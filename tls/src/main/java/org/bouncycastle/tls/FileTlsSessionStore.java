@@ -0,0 +1,224 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.io.Streams;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * A {@link TlsSessionStore} keeping each session, and the ticket keys, in a file of its own in a directory. Any
+ * number of servers (in any number of processes) can share the directory.
+ * <p>
+ * Files are written to a temporary file first and then renamed into place, so a reader never sees a partly
+ * written file. Expired sessions are removed as they are found, or by {@link #removeExpiredSessions()}.
+ * </p>
+ * <p>
+ * The files hold secret key material. Each file is made accessible only to its owner (where the platform
+ * supports it) before anything is written to it, but the directory should also only be accessible to the servers
+ * using it.
+ * </p>
+ */
+public class FileTlsSessionStore
+    implements TlsSessionStore
+{
+    private static final String SESSION_PREFIX = "session-";
+    private static final String TICKET_KEYS_NAME = "ticket-keys";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    protected final File directory;
+
+    /**
+     * @param directory the directory holding the store, which is created if it doesn't exist.
+     * @throws IOException if the directory can't be created.
+     */
+    public FileTlsSessionStore(File directory) throws IOException
+    {
+        if (null == directory)
+        {
+            throw new NullPointerException("'directory' cannot be null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Unable to create directory: " + directory);
+        }
+
+        this.directory = directory;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public byte[] getSession(byte[] sessionID) throws IOException
+    {
+        File file = getSessionFile(sessionID);
+
+        byte[] contents = readFile(file);
+        if (null == contents)
+        {
+            return null;
+        }
+
+        ByteArrayInputStream buf = new ByteArrayInputStream(contents);
+        long expiresAt = readExpiry(buf);
+        if (expiresAt < System.currentTimeMillis())
+        {
+            file.delete();
+            return null;
+        }
+        return Streams.readAll(buf);
+    }
+
+    public void putSession(byte[] sessionID, byte[] encoding, long expiresAt) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        TlsUtils.writeUint64(expiresAt, buf);
+        buf.write(encoding);
+
+        writeFile(getSessionFile(sessionID), buf.toByteArray());
+    }
+
+    public void removeSession(byte[] sessionID) throws IOException
+    {
+        getSessionFile(sessionID).delete();
+    }
+
+    public byte[] getTicketKeys() throws IOException
+    {
+        return readFile(new File(directory, TICKET_KEYS_NAME));
+    }
+
+    public void putTicketKeys(byte[] encoding) throws IOException
+    {
+        writeFile(new File(directory, TICKET_KEYS_NAME), encoding);
+    }
+
+    /**
+     * Delete the files of all expired sessions, and any temporary files left behind by an interrupted write.
+     *
+     * @throws IOException
+     */
+    public void removeExpiredSessions() throws IOException
+    {
+        long now = System.currentTimeMillis();
+
+        File[] files = directory.listFiles();
+        if (null == files)
+        {
+            throw new IOException("Unable to list directory: " + directory);
+        }
+
+        for (int i = 0; i < files.length; ++i)
+        {
+            File file = files[i];
+            String name = file.getName();
+
+            if (name.endsWith(TEMP_SUFFIX))
+            {
+                // Allow time for a write in progress to complete
+                if (file.lastModified() < now - 60000L)
+                {
+                    file.delete();
+                }
+            }
+            else if (name.startsWith(SESSION_PREFIX))
+            {
+                byte[] contents = readFile(file);
+                if (null != contents && readExpiry(new ByteArrayInputStream(contents)) < now)
+                {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    protected File getSessionFile(byte[] sessionID)
+    {
+        if (TlsUtils.isNullOrEmpty(sessionID))
+        {
+            throw new IllegalArgumentException("'sessionID' cannot be null or empty");
+        }
+
+        return new File(directory, SESSION_PREFIX + Hex.toHexString(sessionID));
+    }
+
+    private static long readExpiry(InputStream input) throws IOException
+    {
+        return (TlsUtils.readUint32(input) << 32) | TlsUtils.readUint32(input);
+    }
+
+    private static byte[] readFile(File file) throws IOException
+    {
+        InputStream input;
+        try
+        {
+            input = new FileInputStream(file);
+        }
+        catch (FileNotFoundException e)
+        {
+            return null;
+        }
+
+        try
+        {
+            return Streams.readAll(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private void writeFile(File file, byte[] contents) throws IOException
+    {
+        File temp = File.createTempFile(file.getName() + "-", TEMP_SUFFIX, directory);
+        try
+        {
+            restrictToOwner(temp);
+
+            OutputStream output = new FileOutputStream(temp);
+            try
+            {
+                output.write(contents);
+            }
+            finally
+            {
+                output.close();
+            }
+
+            // NOTE: On some platforms, renaming over an existing file fails
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+            {
+                throw new IOException("Unable to replace file: " + file);
+            }
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+
+    /*
+     * Remove all access by others before any secret is written. Where the platform doesn't support this, only the
+     * directory permissions protect the file.
+     */
+    private static void restrictToOwner(File file)
+    {
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+        file.setExecutable(false, false);
+    }
+}
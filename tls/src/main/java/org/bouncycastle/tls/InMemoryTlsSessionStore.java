@@ -0,0 +1,113 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * A {@link TlsSessionStore} held in memory. This is a reference implementation, useful for tests and for
+ * sharing resumption state between servers running in the same process.
+ * <p>
+ * Expired sessions are removed as they are found, and by a sweep of the whole store once the number of
+ * sessions stored since the last sweep reaches the number of sessions held.
+ * </p>
+ */
+public class InMemoryTlsSessionStore
+    implements TlsSessionStore
+{
+    private final Hashtable sessions = new Hashtable();
+
+    private byte[] ticketKeys = null;
+    private int putsSinceSweep = 0;
+
+    public synchronized byte[] getSession(byte[] sessionID) throws IOException
+    {
+        SessionID id = new SessionID(sessionID);
+
+        StoredSession storedSession = (StoredSession)sessions.get(id);
+        if (null == storedSession)
+        {
+            return null;
+        }
+        if (storedSession.expiresAt < System.currentTimeMillis())
+        {
+            sessions.remove(id);
+            return null;
+        }
+        return Arrays.clone(storedSession.encoding);
+    }
+
+    public synchronized void putSession(byte[] sessionID, byte[] encoding, long expiresAt) throws IOException
+    {
+        sessions.put(new SessionID(sessionID), new StoredSession(Arrays.clone(encoding), expiresAt));
+
+        if (++putsSinceSweep >= sessions.size())
+        {
+            removeExpiredSessions(System.currentTimeMillis());
+        }
+    }
+
+    public synchronized void removeSession(byte[] sessionID) throws IOException
+    {
+        sessions.remove(new SessionID(sessionID));
+    }
+
+    public synchronized byte[] getTicketKeys() throws IOException
+    {
+        return Arrays.clone(ticketKeys);
+    }
+
+    public synchronized void putTicketKeys(byte[] encoding) throws IOException
+    {
+        this.ticketKeys = Arrays.clone(encoding);
+    }
+
+    /**
+     * Return the number of sessions held, including any that have expired but not yet been removed.
+     *
+     * @return the number of sessions held.
+     */
+    public synchronized int getSessionCount()
+    {
+        return sessions.size();
+    }
+
+    private void removeExpiredSessions(long now)
+    {
+        Vector expired = new Vector();
+
+        Enumeration keys = sessions.keys();
+        while (keys.hasMoreElements())
+        {
+            Object id = keys.nextElement();
+            if (((StoredSession)sessions.get(id)).expiresAt < now)
+            {
+                expired.addElement(id);
+            }
+        }
+
+        for (int i = 0; i < expired.size(); ++i)
+        {
+            sessions.remove(expired.elementAt(i));
+        }
+
+        putsSinceSweep = 0;
+    }
+
+    private static class StoredSession
+    {
+        final byte[] encoding;
+        final long expiresAt;
+
+        StoredSession(byte[] encoding, long expiresAt)
+        {
+            this.encoding = encoding;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
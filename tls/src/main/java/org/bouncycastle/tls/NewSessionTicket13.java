@@ -0,0 +1,105 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Hashtable;
+
+/**
+ * The TLS 1.3 NewSessionTicket message (RFC 8446 4.6.1).
+ */
+public class NewSessionTicket13
+{
+    protected final long ticketLifetime;
+    protected final long ticketAgeAdd;
+    protected final byte[] ticketNonce;
+    protected final byte[] ticket;
+    protected final Hashtable extensions;
+
+    public NewSessionTicket13(long ticketLifetime, long ticketAgeAdd, byte[] ticketNonce, byte[] ticket,
+        Hashtable extensions)
+    {
+        if (!TlsUtils.isValidUint32(ticketLifetime))
+        {
+            throw new IllegalArgumentException("'ticketLifetime' should be a uint32");
+        }
+        if (!TlsUtils.isValidUint32(ticketAgeAdd))
+        {
+            throw new IllegalArgumentException("'ticketAgeAdd' should be a uint32");
+        }
+        if (null == ticketNonce || !TlsUtils.isValidUint8(ticketNonce.length))
+        {
+            throw new IllegalArgumentException("'ticketNonce' cannot be null or longer than 255");
+        }
+        if (null == ticket || ticket.length < 1 || !TlsUtils.isValidUint16(ticket.length))
+        {
+            throw new IllegalArgumentException("'ticket' should have length from 1 to 65535");
+        }
+
+        this.ticketLifetime = ticketLifetime;
+        this.ticketAgeAdd = ticketAgeAdd;
+        this.ticketNonce = ticketNonce;
+        this.ticket = ticket;
+        this.extensions = null == extensions ? new Hashtable() : extensions;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetime;
+    }
+
+    public long getTicketAgeAdd()
+    {
+        return ticketAgeAdd;
+    }
+
+    public byte[] getTicketNonce()
+    {
+        return ticketNonce;
+    }
+
+    public byte[] getTicket()
+    {
+        return ticket;
+    }
+
+    public Hashtable getExtensions()
+    {
+        return extensions;
+    }
+
+    /**
+     * Encode this {@link NewSessionTicket13} to an {@link OutputStream}.
+     *
+     * @param output the {@link OutputStream} to encode to.
+     * @throws IOException
+     */
+    public void encode(OutputStream output) throws IOException
+    {
+        TlsUtils.writeUint32(ticketLifetime, output);
+        TlsUtils.writeUint32(ticketAgeAdd, output);
+        TlsUtils.writeOpaque8(ticketNonce, output);
+        TlsUtils.writeOpaque16(ticket, output);
+        TlsUtils.writeOpaque16(TlsProtocol.writeExtensionsData(extensions), output);
+    }
+
+    /**
+     * Parse a {@link NewSessionTicket13} from an {@link InputStream}.
+     *
+     * @param input the {@link InputStream} to parse from.
+     * @return a {@link NewSessionTicket13} object.
+     * @throws IOException
+     */
+    public static NewSessionTicket13 parse(InputStream input) throws IOException
+    {
+        long ticketLifetime = TlsUtils.readUint32(input);
+        long ticketAgeAdd = TlsUtils.readUint32(input);
+        byte[] ticketNonce = TlsUtils.readOpaque8(input);
+        byte[] ticket = TlsUtils.readOpaque16(input, 1);
+
+        byte[] extEncoding = TlsUtils.readOpaque16(input);
+        Hashtable extensions = TlsProtocol.readExtensionsData13(HandshakeType.new_session_ticket, extEncoding);
+
+        return new NewSessionTicket13(ticketLifetime, ticketAgeAdd, ticketNonce, ticket, extensions);
+    }
+}
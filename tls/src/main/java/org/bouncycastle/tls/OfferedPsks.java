@@ -33,15 +33,22 @@
     static class SelectedConfig
     {
         final int index;
+        final PskIdentity identity;
+        final byte[] binder;
         final TlsPSK psk;
         final short[] pskKeyExchangeModes;
+        final short pskKeyExchangeMode;
         final TlsSecret earlySecret;
 
-        SelectedConfig(int index, TlsPSK psk, short[] pskKeyExchangeModes, TlsSecret earlySecret)
+        SelectedConfig(int index, PskIdentity identity, byte[] binder, TlsPSK psk, short[] pskKeyExchangeModes,
+            short pskKeyExchangeMode, TlsSecret earlySecret)
         {
             this.index = index;
+            this.identity = identity;
+            this.binder = binder;
             this.psk = psk;
             this.pskKeyExchangeModes = pskKeyExchangeModes;
+            this.pskKeyExchangeMode = pskKeyExchangeMode;
             this.earlySecret = earlySecret;
         }
     }
@@ -160,8 +167,7 @@ static void encodeBinders(OutputStream output, TlsCrypto crypto, TlsHandshakeHas
             TlsPSK psk = psks[i];
             TlsSecret earlySecret = earlySecrets[i];
 
-            // TODO[tls13-psk] Handle resumption PSKs
-            boolean isExternalPSK = true;
+            boolean isExternalPSK = !(psk instanceof TlsPSKResumption);
             int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
 
             // TODO[tls13-psk] Cache the transcript hashes per algorithm to avoid duplicates for multiple PSKs
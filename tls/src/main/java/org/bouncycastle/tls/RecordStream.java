@@ -18,6 +18,9 @@
 {
     private static int DEFAULT_PLAINTEXT_LIMIT = (1 << 14);
 
+    // The most output a batch of records collects before it is written
+    private static final int BATCH_LIMIT = (1 << 16);
+
     private final Record inputRecord = new Record();
     private final SequenceNumber readSeqNo = new SequenceNumber(), writeSeqNo = new SequenceNumber();
 
@@ -35,6 +38,15 @@
     private int ciphertextLimit = DEFAULT_PLAINTEXT_LIMIT;
     private boolean ignoreChangeCipherSpec = false;
 
+    // TLS 1.3 early data: accepted early data being read, or rejected early data being skipped (in bytes)
+    private boolean earlyDataRead = false;
+    private long earlyDataSkipLimit = 0L;
+
+    // While batching, application data records are collected and then written to the output together
+    private boolean batching = false;
+    private byte[] batchBuf = TlsUtils.EMPTY_BYTES;
+    private int batchLen = 0;
+
     RecordStream(TlsProtocol handler, InputStream input, OutputStream output)
     {
         this.handler = handler;
@@ -102,6 +114,47 @@ void enablePendingCipherRead(boolean deferred)
         }
     }
 
+    void enableEarlyDataRead()
+        throws IOException
+    {
+        if (pendingCipher == null || readCipherDeferred != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        // NOTE: Until notifyEndOfEarlyDataReceived(), a deferred read cipher is not brought into use
+        this.earlyDataRead = true;
+        this.readCipher = pendingCipher;
+        this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+        readSeqNo.reset();
+    }
+
+    void notifyEndOfEarlyDataReceived()
+        throws IOException
+    {
+        if (!earlyDataRead || readCipherDeferred == null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        this.earlyDataRead = false;
+        this.readCipher = readCipherDeferred;
+        this.readCipherDeferred = null;
+        this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+        readSeqNo.reset();
+    }
+
+    void skipEarlyData(long skipLimit)
+    {
+        this.earlyDataSkipLimit = skipLimit;
+    }
+
+    void disableEarlyDataWrite()
+    {
+        this.writeCipher = TlsNullNullCipher.INSTANCE;
+        writeSeqNo.reset();
+    }
+
     void enablePendingCipherWrite()
         throws IOException
     {
@@ -142,11 +195,16 @@ void notifyKeyUpdateSent() throws IOException
 
     RecordPreview previewRecordHeader(byte[] recordHeader) throws IOException
     {
-        short recordType = checkRecordType(recordHeader, RecordFormat.TYPE_OFFSET);
+        return previewRecordHeader(recordHeader, 0);
+    }
+
+    RecordPreview previewRecordHeader(byte[] buf, int off) throws IOException
+    {
+        short recordType = checkRecordType(buf, off + RecordFormat.TYPE_OFFSET);
 
-//        ProtocolVersion recordVersion = TlsUtils.readVersion(recordHeader, RecordFormat.VERSION_OFFSET);
+//        ProtocolVersion recordVersion = TlsUtils.readVersion(buf, off + RecordFormat.VERSION_OFFSET);
 
-        int length = TlsUtils.readUint16(recordHeader, RecordFormat.LENGTH_OFFSET);
+        int length = TlsUtils.readUint16(buf, off + RecordFormat.LENGTH_OFFSET);
 
         checkLength(length, ciphertextLimit, AlertDescription.record_overflow);
 
@@ -201,10 +259,15 @@ boolean readFullRecord(byte[] input, int inputOff, int inputLen)
             return true;
         }
 
-        TlsDecodeResult decoded = decodeAndVerify(recordType, recordVersion, input,
-            inputOff + RecordFormat.FRAGMENT_OFFSET, length);
+        TlsDecodeResult decoded = earlyDataSkipLimit > 0L
+            ?   decodeOrSkipEarlyData(recordType, recordVersion, input, inputOff + RecordFormat.FRAGMENT_OFFSET,
+                    length)
+            :   decodeAndVerify(recordType, recordVersion, input, inputOff + RecordFormat.FRAGMENT_OFFSET, length);
 
-        handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        if (null != decoded)
+        {
+            handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        }
         return true;
     }
 
@@ -235,14 +298,20 @@ boolean readRecord()
                 return true;
             }
 
-            decoded = decodeAndVerify(recordType, recordVersion, inputRecord.buf, RecordFormat.FRAGMENT_OFFSET, length);
+            decoded = earlyDataSkipLimit > 0L
+                ?   decodeOrSkipEarlyData(recordType, recordVersion, inputRecord.buf, RecordFormat.FRAGMENT_OFFSET,
+                        length)
+                :   decodeAndVerify(recordType, recordVersion, inputRecord.buf, RecordFormat.FRAGMENT_OFFSET, length);
         }
         finally
         {
             inputRecord.reset();
         }
 
-        handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        if (null != decoded)
+        {
+            handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        }
         return true;
     }
 
@@ -252,6 +321,70 @@ TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion,
         long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
         TlsDecodeResult decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
 
+        checkDecoded(decoded);
+        return decoded;
+    }
+
+    /**
+     * RFC 8446 4.2.10. A server rejecting early data skips past it, up to the max_early_data_size. With a
+     * HelloRetryRequest, the records to skip are those of application_data type before the second ClientHello;
+     * otherwise they are the records that fail to decrypt with the handshake traffic keys.
+     *
+     * @return the decoded record, or null if the record was skipped.
+     */
+    private TlsDecodeResult decodeOrSkipEarlyData(short recordType, ProtocolVersion recordVersion,
+        byte[] ciphertext, int off, int len) throws IOException
+    {
+        if (ContentType.application_data == recordType)
+        {
+            if (!readCipher.usesOpaqueRecordType())
+            {
+                skipEarlyDataRecord(len);
+                return null;
+            }
+
+            TlsDecodeResult decoded;
+            try
+            {
+                decoded = readCipher.decodeCiphertext(readSeqNo.currentValue(), recordType, recordVersion,
+                    ciphertext, off, len);
+            }
+            catch (TlsFatalAlert e)
+            {
+                if (AlertDescription.bad_record_mac != e.getAlertDescription())
+                {
+                    throw e;
+                }
+
+                skipEarlyDataRecord(len);
+                return null;
+            }
+
+            readSeqNo.nextValue(AlertDescription.unexpected_message);
+            this.earlyDataSkipLimit = 0L;
+
+            checkDecoded(decoded);
+            return decoded;
+        }
+
+        this.earlyDataSkipLimit = 0L;
+
+        return decodeAndVerify(recordType, recordVersion, ciphertext, off, len);
+    }
+
+    private void skipEarlyDataRecord(int len)
+        throws IOException
+    {
+        earlyDataSkipLimit -= len;
+        if (earlyDataSkipLimit < 0L)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Too much early data");
+        }
+    }
+
+    private void checkDecoded(TlsDecodeResult decoded)
+        throws IOException
+    {
         checkLength(decoded.len, plaintextLimit, AlertDescription.record_overflow);
 
         /*
@@ -262,8 +395,6 @@ TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion,
         {
             throw new TlsFatalAlert(AlertDescription.illegal_parameter);
         }
-
-        return decoded;
     }
 
     void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int plaintextLength)
@@ -302,9 +433,82 @@ void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int p
         TlsUtils.writeVersion(recordVersion, encoded.buf, encoded.off + RecordFormat.VERSION_OFFSET);
         TlsUtils.writeUint16(ciphertextLength, encoded.buf, encoded.off + RecordFormat.LENGTH_OFFSET);
 
+        if (batching && ContentType.application_data == contentType)
+        {
+            addToBatch(encoded.buf, encoded.off, encoded.len);
+            return;
+        }
+
+        // Any other record (e.g. an alert) is sent at once, after the records already batched
+        writeBatch();
+        writeOutput(encoded.buf, encoded.off, encoded.len);
+    }
+
+    /**
+     * Start collecting application data records, so that they can be written to the output together by
+     * {@link #endBatch(boolean)}.
+     */
+    void beginBatch()
+    {
+        this.batching = true;
+    }
+
+    /**
+     * Stop collecting application data records.
+     *
+     * @param write whether to write the collected records, or discard them (after a failure).
+     */
+    void endBatch(boolean write)
+        throws IOException
+    {
+        this.batching = false;
+
+        if (write)
+        {
+            writeBatch();
+        }
+        else
+        {
+            this.batchLen = 0;
+        }
+    }
+
+    private void addToBatch(byte[] buf, int off, int len)
+        throws IOException
+    {
+        if (batchLen + len > BATCH_LIMIT)
+        {
+            writeBatch();
+        }
+
+        if (batchBuf.length < batchLen + len)
+        {
+            byte[] tmp = new byte[Math.max(batchLen + len, Math.min(BATCH_LIMIT, batchBuf.length * 2))];
+            System.arraycopy(batchBuf, 0, tmp, 0, batchLen);
+            this.batchBuf = tmp;
+        }
+
+        System.arraycopy(buf, off, batchBuf, batchLen, len);
+        this.batchLen += len;
+    }
+
+    private void writeBatch()
+        throws IOException
+    {
+        int len = batchLen;
+        if (len > 0)
+        {
+            this.batchLen = 0;
+            writeOutput(batchBuf, 0, len);
+        }
+    }
+
+    private void writeOutput(byte[] buf, int off, int len)
+        throws IOException
+    {
         try
         {
-            output.write(encoded.buf, encoded.off, encoded.len);
+            output.write(buf, off, len);
         }
         catch (InterruptedIOException e)
         {
@@ -316,7 +520,11 @@ void writeRecord(short contentType, byte[] plaintext, int plaintextOffset, int p
 
     void close() throws IOException
     {
-        inputRecord.reset();
+        inputRecord.release();
+
+        this.batching = false;
+        this.batchBuf = TlsUtils.EMPTY_BYTES;
+        this.batchLen = 0;
 
         IOException io = null;
         try
@@ -366,7 +574,7 @@ private short checkRecordType(byte[] buf, int off)
     {
         short recordType = TlsUtils.readUint8(buf, off);
 
-        if (null != readCipherDeferred && recordType == ContentType.application_data)
+        if (null != readCipherDeferred && !earlyDataRead && recordType == ContentType.application_data)
         {
             this.readCipher = readCipherDeferred;
             this.readCipherDeferred = null;
@@ -394,7 +602,8 @@ else if (readCipher.usesOpaqueRecordType())
             {
             case ContentType.application_data:
             {
-                if (!handler.isApplicationDataReady())
+                // NOTE: After a HelloRetryRequest, rejected early data arrives before the second ClientHello
+                if (!handler.isApplicationDataReady() && earlyDataSkipLimit < 1L)
                 {
                     throw new TlsFatalAlert(AlertDescription.unexpected_message,
                         "Not ready for " + ContentType.getText(ContentType.application_data));
@@ -424,6 +633,10 @@ private static void checkLength(int length, int limit, short alertDescription)
         }
     }
 
+    /*
+     * NOTE: Records are decrypted in place, and the buffer is kept from one record to the next (until the
+     * stream is closed), so that reading doesn't allocate once it has grown to the largest record size.
+     */
     private static class Record
     {
         private final byte[] header = new byte[RecordFormat.FRAGMENT_OFFSET];
@@ -488,12 +701,17 @@ boolean readHeader(InputStream input) throws IOException
             return true;
         }
 
-        void reset()
+        void release()
         {
             buf = header;
             pos = 0;
         }
 
+        void reset()
+        {
+            pos = 0;
+        }
+
         private void resize(int length)
         {
             if (buf.length < length)
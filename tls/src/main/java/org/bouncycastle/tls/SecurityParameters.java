@@ -28,6 +28,7 @@
     TlsSecret exporterMasterSecret = null;
     TlsSecret handshakeSecret = null;
     TlsSecret masterSecret = null;
+    TlsSecret resumptionMasterSecret = null;
     TlsSecret trafficSecretClient = null;
     TlsSecret trafficSecretServer = null;
     byte[] clientRandom = null;
@@ -38,6 +39,7 @@
     byte[] srpIdentity = null;
     byte[] tlsServerEndPoint = null;
     byte[] tlsUnique = null;
+    boolean earlyDataAccepted = false;
     boolean encryptThenMAC = false;
     boolean extendedMasterSecret = false;
     boolean extendedPadding = false;
@@ -83,6 +85,7 @@ void clear()
         this.exporterMasterSecret = clearSecret(exporterMasterSecret);
         this.handshakeSecret = clearSecret(handshakeSecret);
         this.masterSecret = clearSecret(masterSecret);
+        this.resumptionMasterSecret = clearSecret(resumptionMasterSecret);
     }
 
     /**
@@ -246,6 +249,11 @@ public TlsSecret getMasterSecret()
         return masterSecret;
     }
 
+    public TlsSecret getResumptionMasterSecret()
+    {
+        return resumptionMasterSecret;
+    }
+
     public TlsSecret getTrafficSecretClient()
     {
         return trafficSecretClient;
@@ -316,6 +324,14 @@ public boolean isTruncatedHMac()
         return truncatedHMac;
     }
 
+    /**
+     * @return true if early data sent by the client was accepted by the server (RFC 8446 4.2.10).
+     */
+    public boolean isEarlyDataAccepted()
+    {
+        return earlyDataAccepted;
+    }
+
     public ProtocolName getApplicationProtocol()
     {
         return applicationProtocol;
@@ -3,8 +3,13 @@
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Hashtable;
+import java.util.Vector;
 
+import org.bouncycastle.tls.crypto.TlsCertificate;
+import org.bouncycastle.tls.crypto.TlsCrypto;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.util.Arrays;
 
@@ -115,6 +120,8 @@ private void validate(boolean condition, String parameter)
         }
     }
 
+    private static final short ENCODING_FORMAT = 0;
+
     private int cipherSuite;
     private short compressionAlgorithm;
     private Certificate localCertificate;
@@ -157,6 +164,87 @@ public SessionParameters copy()
             extendedMasterSecret);
     }
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     *
+     * Encode these session parameters, e.g. for a {@link TlsSessionStore}. The encoding contains the master
+     * secret in the clear, so it must be protected accordingly.
+     *
+     * @param crypto the crypto used to obtain a copy of the master secret.
+     * @return the encoding, which can be parsed by {@link #parse(TlsCrypto, byte[])}.
+     * @throws IOException
+     */
+    public byte[] encode(TlsCrypto crypto) throws IOException
+    {
+        // NOTE: Extracting a secret destroys it, so extract from a copy
+        byte[] master = crypto.adoptSecret(masterSecret).extract();
+
+        try
+        {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+            TlsUtils.writeUint8(ENCODING_FORMAT, buf);
+            TlsUtils.writeVersion(negotiatedVersion, buf);
+            TlsUtils.writeUint16(cipherSuite, buf);
+            TlsUtils.writeUint8(compressionAlgorithm, buf);
+            TlsUtils.writeUint8(extendedMasterSecret ? 1 : 0, buf);
+            TlsUtils.writeOpaque8(master, buf);
+            writeCertificate(localCertificate, buf);
+            writeCertificate(peerCertificate, buf);
+            TlsUtils.writeOpaque16(null == pskIdentity ? TlsUtils.EMPTY_BYTES : pskIdentity, buf);
+            TlsUtils.writeOpaque8(null == srpIdentity ? TlsUtils.EMPTY_BYTES : srpIdentity, buf);
+            TlsUtils.writeOpaque24(null == encodedServerExtensions ? TlsUtils.EMPTY_BYTES : encodedServerExtensions,
+                buf);
+
+            return buf.toByteArray();
+        }
+        finally
+        {
+            Arrays.fill(master, (byte)0);
+        }
+    }
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     *
+     * Parse session parameters encoded by {@link #encode(TlsCrypto)}.
+     *
+     * @param crypto the crypto used to create the master secret and certificates.
+     * @param encoding the encoded session parameters.
+     * @return the session parameters, or null if the encoding is not in a format we understand.
+     * @throws IOException if the encoding is malformed.
+     */
+    public static SessionParameters parse(TlsCrypto crypto, byte[] encoding) throws IOException
+    {
+        ByteArrayInputStream buf = new ByteArrayInputStream(encoding);
+
+        if (TlsUtils.readUint8(buf) != ENCODING_FORMAT)
+        {
+            return null;
+        }
+
+        ProtocolVersion negotiatedVersion = TlsUtils.readVersion(buf);
+        int cipherSuite = TlsUtils.readUint16(buf);
+        short compressionAlgorithm = TlsUtils.readUint8(buf);
+        boolean extendedMasterSecret = TlsUtils.readUint8(buf) != 0;
+        byte[] master = TlsUtils.readOpaque8(buf, 1);
+        Certificate localCertificate = readCertificate(crypto, negotiatedVersion, buf);
+        Certificate peerCertificate = readCertificate(crypto, negotiatedVersion, buf);
+        byte[] pskIdentity = TlsUtils.readOpaque16(buf);
+        byte[] srpIdentity = TlsUtils.readOpaque8(buf);
+        byte[] encodedServerExtensions = TlsUtils.readOpaque24(buf);
+
+        TlsProtocol.assertEmpty(buf);
+
+        TlsSecret masterSecret = crypto.createSecret(master);
+        Arrays.fill(master, (byte)0);
+
+        return new SessionParameters(cipherSuite, compressionAlgorithm, localCertificate, masterSecret,
+            negotiatedVersion, peerCertificate, pskIdentity.length < 1 ? null : pskIdentity,
+            srpIdentity.length < 1 ? null : srpIdentity,
+            encodedServerExtensions.length < 1 ? null : encodedServerExtensions, extendedMasterSecret);
+    }
+
     public int getCipherSuite()
     {
         return cipherSuite;
@@ -212,4 +300,49 @@ public Hashtable readServerExtensions() throws IOException
         ByteArrayInputStream buf = new ByteArrayInputStream(encodedServerExtensions);
         return TlsProtocol.readExtensions(buf);
     }
+
+    private static Certificate readCertificate(TlsCrypto crypto, ProtocolVersion negotiatedVersion,
+        InputStream input) throws IOException
+    {
+        byte[] certs = TlsUtils.readOpaque24(input);
+        if (certs.length < 1)
+        {
+            return null;
+        }
+
+        ByteArrayInputStream buf = new ByteArrayInputStream(certs);
+        Vector chain = new Vector();
+        do
+        {
+            chain.addElement(crypto.createCertificate(TlsUtils.readOpaque24(buf, 1)));
+        }
+        while (buf.available() > 0);
+
+        if (!TlsUtils.isTLSv13(negotiatedVersion))
+        {
+            TlsCertificate[] certificateList = new TlsCertificate[chain.size()];
+            chain.copyInto(certificateList);
+            return new Certificate(certificateList);
+        }
+
+        CertificateEntry[] entries = new CertificateEntry[chain.size()];
+        for (int i = 0; i < entries.length; ++i)
+        {
+            entries[i] = new CertificateEntry((TlsCertificate)chain.elementAt(i), null);
+        }
+        return new Certificate(TlsUtils.EMPTY_BYTES, entries);
+    }
+
+    private static void writeCertificate(Certificate certificate, OutputStream output) throws IOException
+    {
+        ByteArrayOutputStream certs = new ByteArrayOutputStream();
+        if (null != certificate)
+        {
+            for (int i = 0; i < certificate.getLength(); ++i)
+            {
+                TlsUtils.writeOpaque24(certificate.getCertificateAt(i).getEncoded(), certs);
+            }
+        }
+        TlsUtils.writeOpaque24(certs.toByteArray(), output);
+    }
 }
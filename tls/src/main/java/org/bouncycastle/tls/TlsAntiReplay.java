@@ -0,0 +1,33 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * Interface for the anti-replay protection a server needs before accepting TLS 1.3 early data (RFC 8446 8).
+ * Early data is accepted only for a ClientHello whose ticket age is consistent with the time the ticket was
+ * issued (to within {@link #getWindow()}), and which has not been recorded before.
+ */
+public interface TlsAntiReplay
+{
+    /**
+     * Return the tolerance allowed between the ticket age reported by the client and the age of the ticket as
+     * seen by the server (RFC 8446 8.3). A ClientHello outside this window is not accepted for early data, so
+     * only ClientHellos received within the window need to be remembered.
+     *
+     * @return the window in milliseconds.
+     */
+    long getWindow();
+
+    /**
+     * Record a ClientHello for which early data is about to be accepted (RFC 8446 8.2).
+     *
+     * @param binder the PSK binder of the ClientHello, which uniquely identifies it.
+     * @param currentTimeMillis the current time in milliseconds since the epoch.
+     * @return true if the ClientHello was not seen before, false if it may be a replay (early data must then
+     *         be rejected).
+     * @throws IOException
+     */
+    boolean recordClientHello(byte[] binder, long currentTimeMillis) throws IOException;
+}
@@ -32,6 +32,33 @@
      */
     Vector getExternalPSKs();
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return a {@link TlsPSKResumption resumption PSK} to offer in the ClientHello, to resume a TLS 1.3
+     * session. Note that this will only be called when TLS 1.3 or higher is amongst the offered protocol
+     * versions. The PSK is not offered if it has expired, or if none of the offered cipher suites use its
+     * hash algorithm.
+     * 
+     * @return a {@link TlsPSKResumption} previously passed to {@link #notifyResumptionPSK(TlsPSKResumption)},
+     *         or null if none should be offered.
+     */
+    TlsPSKResumption getResumptionPSK();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return application data to send as TLS 1.3 early data (RFC 8446 4.2.10), immediately after the
+     * ClientHello. This is only called when the {@link #getResumptionPSK() resumption PSK} allows early data,
+     * and the data is only sent if it is no longer than {@link TlsPSKResumption#getMaxEarlyDataSize()}. Early
+     * data has no protection against replay, so it should only be used for requests that are safe to repeat.
+     * The server may reject it, in which case it is not resent automatically; check
+     * {@link SecurityParameters#isEarlyDataAccepted()} once the handshake completes.
+     * 
+     * @return the early data, or null to send none.
+     */
+    byte[] getEarlyData();
+
     boolean isFallback();
 
     // Hashtable is (Integer -> byte[])
@@ -121,4 +148,17 @@ Vector getClientSupplementalData()
      */
     void notifyNewSessionTicket(NewSessionTicket newSessionTicket)
         throws IOException;
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Notifies the client of a TLS 1.3 resumption PSK established by a NewSessionTicket message. This may be
+     * called any number of times after the handshake completes. To resume the session in a later connection,
+     * return the PSK from {@link #getResumptionPSK()}.
+     * 
+     * @param resumptionPSK the PSK for the ticket.
+     * @throws IOException
+     */
+    void notifyResumptionPSK(TlsPSKResumption resumptionPSK)
+        throws IOException;
 }
@@ -22,6 +22,8 @@
 
     protected Hashtable clientAgreements = null;
     OfferedPsks.BindersConfig clientBinders = null;
+    TlsPSKResumption selectedResumptionPSK = null;
+    TlsPSKResumption earlyDataPSK = null;
     protected ClientHello clientHello = null;
     protected TlsKeyExchange keyExchange = null;
     protected TlsAuthentication authentication = null;
@@ -113,6 +115,8 @@ protected void cleanupHandshake()
 
         this.clientAgreements = null;
         this.clientBinders = null;
+        this.selectedResumptionPSK = null;
+        this.earlyDataPSK = null;
         this.clientHello = null;
         this.keyExchange = null;
         this.authentication = null;
@@ -243,10 +247,17 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 recordStream.setIgnoreChangeCipherSpec(false);
 
                 /*
-                 * TODO[tls13] After receiving the server's Finished message, if the server has accepted early
-                 * data, an EndOfEarlyData message will be sent to indicate the key change. This message will
-                 * be encrypted with the 0-RTT traffic keys.
+                 * RFC 8446 4.5. If the server sent an "early_data" extension in EncryptedExtensions, the
+                 * client MUST send an EndOfEarlyData message after receiving the server Finished. [..] This
+                 * message will be encrypted with the 0-RTT traffic keys.
                  */
+                if (tlsClientContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+                {
+                    send13EndOfEarlyDataMessage();
+                    this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+
+                    recordStream.enablePendingCipherWrite();
+                }
 
                 if (null != certificateRequest)
                 {
@@ -280,6 +291,9 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 send13FinishedMessage();
                 this.connection_state = CS_CLIENT_FINISHED;
 
+                TlsUtils.establish13ResumptionMasterSecret(tlsClientContext,
+                    TlsUtils.getCurrentPRFHash(handshakeHash));
+
                 TlsUtils.establish13PhaseApplication(tlsClientContext, serverFinishedTranscriptHash, recordStream);
 
                 recordStream.enablePendingCipherWrite();
@@ -1010,6 +1024,11 @@ protected void process13ServerHello(ServerHello serverHello, boolean afterHelloR
                 pskEarlySecret = clientBinders.earlySecrets[selected_identity];
 
                 this.selectedPSK13 = true;
+
+                if (selectedPSK instanceof TlsPSKResumption)
+                {
+                    this.selectedResumptionPSK = (TlsPSKResumption)selectedPSK;
+                }
             }
 
             tlsClient.notifySelectedPSK(selectedPSK);
@@ -1063,14 +1082,10 @@ protected void process13ServerHelloCoda(ServerHello serverHello, boolean afterHe
         TlsUtils.establish13PhaseHandshake(tlsClientContext, serverHelloTranscriptHash, recordStream);
 
         // See RFC 8446 D.4.
-        if (!afterHelloRetryRequest)
+        if (!afterHelloRetryRequest && null == earlyDataPSK)
         {
             recordStream.setIgnoreChangeCipherSpec(true);
 
-            /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
-             * ClientHello.
-             */
             /*
              * TODO[tls13] Ideally wait until just after Server Finished received, but then we'd need to defer
              * the enabling of the pending write cipher
@@ -1078,7 +1093,14 @@ protected void process13ServerHelloCoda(ServerHello serverHello, boolean afterHe
             sendChangeCipherSpecMessage();
         }
 
-        recordStream.enablePendingCipherWrite();
+        /*
+         * NOTE: If early data was sent, writes stay under the early traffic keys until EncryptedExtensions shows
+         * whether the server accepted it.
+         */
+        if (null == earlyDataPSK)
+        {
+            recordStream.enablePendingCipherWrite();
+        }
         recordStream.enablePendingCipherRead(false);
     }
 
@@ -1140,6 +1162,15 @@ protected void processServerHello(ServerHello serverHello)
             return;
         }
 
+        /*
+         * RFC 8446 D.3. A client that attempts to send 0-RTT data MUST fail a connection if it receives a
+         * ServerHello with TLS 1.2 or older.
+         */
+        if (null != earlyDataPSK)
+        {
+            throw new TlsFatalAlert(AlertDescription.protocol_version);
+        }
+
         int[] offeredCipherSuites = clientHello.getCipherSuites();
 
         this.clientHello = null;
@@ -1496,6 +1527,36 @@ protected void receive13EncryptedExtensions(ByteArrayInputStream buf)
         securityParameters.applicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(serverExtensions);
         securityParameters.applicationProtocolSet = true;
 
+        if (null != earlyDataPSK)
+        {
+            if (TlsExtensionsUtils.hasEarlyDataIndication(serverExtensions))
+            {
+                /*
+                 * RFC 8446 4.2.10. If the server has supplied an "early_data" extension, the client MUST verify
+                 * that the server's selected_identity is 0. [..] If the server accepts early data, the client
+                 * [..] MUST verify that the selected ALPN protocol is the same as the one associated with the
+                 * selected PSK.
+                 */
+                ProtocolName applicationProtocol = securityParameters.getApplicationProtocol();
+                if (earlyDataPSK != selectedResumptionPSK
+                    || securityParameters.getCipherSuite() != earlyDataPSK.getSessionParameters().getCipherSuite()
+                    || (null == applicationProtocol
+                        ?   null != earlyDataPSK.getApplicationProtocol()
+                        :   !applicationProtocol.equals(earlyDataPSK.getApplicationProtocol())))
+                {
+                    throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+                }
+
+                securityParameters.earlyDataAccepted = true;
+            }
+            else
+            {
+                this.earlyDataPSK = null;
+
+                recordStream.enablePendingCipherWrite();
+            }
+        }
+
         Hashtable sessionClientExtensions = clientExtensions, sessionServerExtensions = serverExtensions;
         if (resumedSession)
         {
@@ -1542,22 +1603,33 @@ protected void receive13NewSessionTicket(ByteArrayInputStream buf)
             throw new TlsFatalAlert(AlertDescription.unexpected_message);
         }
 
-        // TODO[tls13] Do something more than just ignore them
-
-//        struct {
-//            uint32 ticket_lifetime;
-//            uint32 ticket_age_add;
-//            opaque ticket_nonce<0..255>;
-//            opaque ticket<1..2^16-1>;
-//            Extension extensions<0..2^16-2>;
-//        } NewSessionTicket;
+        NewSessionTicket13 newSessionTicket = NewSessionTicket13.parse(buf);
 
-        TlsUtils.readUint32(buf);
-        TlsUtils.readUint32(buf);
-        TlsUtils.readOpaque8(buf);
-        TlsUtils.readOpaque16(buf);
-        TlsUtils.readOpaque16(buf);
         assertEmpty(buf);
+
+        SecurityParameters securityParameters = tlsClientContext.getSecurityParametersConnection();
+
+        long maxEarlyDataSize = Math.max(0L,
+            TlsExtensionsUtils.getEarlyDataMaxSize(newSessionTicket.getExtensions()));
+
+        TlsSecret psk = TlsUtils.derive13ResumptionPSK(securityParameters, resumptionMasterSecret,
+            newSessionTicket.getTicketNonce());
+
+        SessionParameters sessionParameters = new SessionParameters.Builder()
+            .setCipherSuite(securityParameters.getCipherSuite())
+            .setCompressionAlgorithm(CompressionMethod._null)
+            .setExtendedMasterSecret(true)
+            .setLocalCertificate(securityParameters.getLocalCertificate())
+            .setMasterSecret(psk)
+            .setNegotiatedVersion(securityParameters.getNegotiatedVersion())
+            .setPeerCertificate(securityParameters.getPeerCertificate())
+            .build();
+
+        TlsPSKResumption resumptionPSK = new TlsPSKResumption(newSessionTicket.getTicket(), sessionParameters,
+            newSessionTicket.getTicketAgeAdd(), newSessionTicket.getTicketLifetime(), System.currentTimeMillis(),
+            maxEarlyDataSize, securityParameters.getApplicationProtocol());
+
+        tlsClient.notifyResumptionPSK(resumptionPSK);
     }
 
     protected void receive13ServerCertificate(ByteArrayInputStream buf)
@@ -1692,13 +1764,16 @@ protected void send13ClientHelloRetry() throws IOException
          */
 
         // See RFC 8446 D.4.
+        if (null != earlyDataPSK)
         {
-            recordStream.setIgnoreChangeCipherSpec(true);
+            // The early data (after a change_cipher_spec) was sent with the first ClientHello, and is now rejected
+            this.earlyDataPSK = null;
 
-            /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
-             * ClientHello.
-             */
+            recordStream.disableEarlyDataWrite();
+        }
+        else
+        {
+            recordStream.setIgnoreChangeCipherSpec(true);
             sendChangeCipherSpecMessage();
         }
 
@@ -1814,6 +1889,9 @@ protected void sendClientHello()
         this.clientBinders = TlsUtils.addPreSharedKeyToClientHello(tlsClientContext, tlsClient, clientExtensions,
             offeredCipherSuites);
 
+        byte[] earlyData = TlsUtils.addEarlyDataToClientHello(tlsClient, clientBinders, offeredCipherSuites,
+            clientExtensions);
+
         // TODO[tls13-psk] Perhaps don't add key_share if external PSK(s) offered and 'psk_dhe_ke' not offered  
         this.clientAgreements = TlsUtils.addKeyShareToClientHello(tlsClientContext, tlsClient, clientExtensions);
 
@@ -1896,6 +1974,40 @@ else if (!offeringTLSv13Plus && tlsClient.requiresExtendedMasterSecret())
             null, offeredCipherSuites, clientExtensions, bindersSize);
 
         sendClientHelloMessage();
+
+        if (null != earlyData)
+        {
+            send13EarlyData(earlyData);
+        }
+    }
+
+    protected void send13EarlyData(byte[] earlyData) throws IOException
+    {
+        TlsPSKResumption pskResumption = (TlsPSKResumption)clientBinders.psks[0];
+
+        // See RFC 8446 D.4.
+        recordStream.setIgnoreChangeCipherSpec(true);
+        sendChangeCipherSpecMessage();
+
+        TlsUtils.establish13PhaseEarlyClient(tlsClientContext, pskResumption, clientBinders.earlySecrets[0],
+            handshakeHash, recordStream);
+
+        recordStream.enablePendingCipherWrite();
+
+        int offset = 0;
+        while (offset < earlyData.length)
+        {
+            int toWrite = Math.min(earlyData.length - offset, recordStream.getPlaintextLimit());
+            safeWriteRecord(ContentType.application_data, earlyData, offset, toWrite);
+            offset += toWrite;
+        }
+
+        this.earlyDataPSK = pskResumption;
+    }
+
+    protected void send13EndOfEarlyDataMessage() throws IOException
+    {
+        HandshakeMessageOutput.send(this, HandshakeType.end_of_early_data, TlsUtils.EMPTY_BYTES);
     }
 
     protected void sendClientHelloMessage() throws IOException
@@ -1936,5 +2048,14 @@ protected void skip13ServerCertificate()
         }
 
         this.authentication = TlsUtils.skip13ServerCertificate(tlsClientContext);
+
+        if (null != selectedResumptionPSK)
+        {
+            // The server was authenticated in the handshake that issued the ticket
+            SessionParameters sessionParameters = selectedResumptionPSK.getSessionParameters();
+            SecurityParameters securityParameters = tlsClientContext.getSecurityParametersHandshake();
+            securityParameters.localCertificate = sessionParameters.getLocalCertificate();
+            securityParameters.peerCertificate = sessionParameters.getPeerCertificate();
+        }
     }
 }
@@ -0,0 +1,255 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Vector;
+
+import org.bouncycastle.tls.crypto.TlsCertificate;
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.TlsSecret;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * A TLS 1.3 resumption PSK, established by a NewSessionTicket message. The identity of the PSK is the ticket,
+ * and the {@link SessionParameters} hold the PSK itself (as the master secret) along with the details of the
+ * session it resumes.
+ */
+public class TlsPSKResumption
+    implements TlsPSK
+{
+    private static final short STATE_FORMAT = 1;
+
+    protected final byte[] identity;
+    protected final SessionParameters sessionParameters;
+    protected final long ticketAgeAdd;
+    protected final long ticketLifetime;
+    protected final long ticketTime;
+    protected final long maxEarlyDataSize;
+    protected final ProtocolName applicationProtocol;
+
+    /**
+     * @param identity the ticket.
+     * @param sessionParameters the parameters of the session, with the PSK as the master secret.
+     * @param ticketAgeAdd the ticket_age_add value from the NewSessionTicket message.
+     * @param ticketLifetime the ticket lifetime in seconds.
+     * @param ticketTime the time (in milliseconds since the epoch) the ticket was issued or received.
+     */
+    public TlsPSKResumption(byte[] identity, SessionParameters sessionParameters, long ticketAgeAdd,
+        long ticketLifetime, long ticketTime)
+    {
+        this(identity, sessionParameters, ticketAgeAdd, ticketLifetime, ticketTime, 0L, null);
+    }
+
+    /**
+     * @param identity the ticket.
+     * @param sessionParameters the parameters of the session, with the PSK as the master secret.
+     * @param ticketAgeAdd the ticket_age_add value from the NewSessionTicket message.
+     * @param ticketLifetime the ticket lifetime in seconds.
+     * @param ticketTime the time (in milliseconds since the epoch) the ticket was issued or received.
+     * @param maxEarlyDataSize the max_early_data_size from the NewSessionTicket message (0 if early data is
+     *            not allowed).
+     * @param applicationProtocol the application protocol negotiated for the session (or null).
+     */
+    public TlsPSKResumption(byte[] identity, SessionParameters sessionParameters, long ticketAgeAdd,
+        long ticketLifetime, long ticketTime, long maxEarlyDataSize, ProtocolName applicationProtocol)
+    {
+        if (null == identity || identity.length < 1 || !TlsUtils.isValidUint16(identity.length))
+        {
+            throw new IllegalArgumentException("'identity' should have length from 1 to 65535");
+        }
+        if (null == sessionParameters || TlsUtils.getPRFAlgorithm13(sessionParameters.getCipherSuite()) < 0)
+        {
+            throw new IllegalArgumentException("'sessionParameters' must be for a TLS 1.3 cipher suite");
+        }
+        if (!TlsUtils.isValidUint32(ticketAgeAdd))
+        {
+            throw new IllegalArgumentException("'ticketAgeAdd' should be a uint32");
+        }
+        if (!TlsUtils.isValidUint32(ticketLifetime))
+        {
+            throw new IllegalArgumentException("'ticketLifetime' should be a uint32");
+        }
+        if (!TlsUtils.isValidUint32(maxEarlyDataSize))
+        {
+            throw new IllegalArgumentException("'maxEarlyDataSize' should be a uint32");
+        }
+
+        this.identity = Arrays.clone(identity);
+        this.sessionParameters = sessionParameters;
+        this.ticketAgeAdd = ticketAgeAdd;
+        this.ticketLifetime = ticketLifetime;
+        this.ticketTime = ticketTime;
+        this.maxEarlyDataSize = maxEarlyDataSize;
+        this.applicationProtocol = applicationProtocol;
+    }
+
+    public byte[] getIdentity()
+    {
+        return identity;
+    }
+
+    public TlsSecret getKey()
+    {
+        return sessionParameters.getMasterSecret();
+    }
+
+    public int getPRFAlgorithm()
+    {
+        return TlsUtils.getPRFAlgorithm13(sessionParameters.getCipherSuite());
+    }
+
+    public SessionParameters getSessionParameters()
+    {
+        return sessionParameters;
+    }
+
+    public long getTicketAgeAdd()
+    {
+        return ticketAgeAdd;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetime;
+    }
+
+    public long getTicketTime()
+    {
+        return ticketTime;
+    }
+
+    /**
+     * @return the maximum amount of early data that may be sent when resuming with this PSK (0 if early data
+     *         is not allowed).
+     */
+    public long getMaxEarlyDataSize()
+    {
+        return maxEarlyDataSize;
+    }
+
+    public ProtocolName getApplicationProtocol()
+    {
+        return applicationProtocol;
+    }
+
+    /**
+     * Return the obfuscated_ticket_age to send when offering this PSK (RFC 8446 4.2.11.1).
+     *
+     * @param currentTimeMillis the current time in milliseconds since the epoch.
+     * @return the obfuscated ticket age.
+     */
+    public long getObfuscatedTicketAge(long currentTimeMillis)
+    {
+        return (currentTimeMillis - ticketTime + ticketAgeAdd) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Check whether the ticket has passed its lifetime.
+     *
+     * @param currentTimeMillis the current time in milliseconds since the epoch.
+     * @return true if the ticket should no longer be offered (or accepted).
+     */
+    public boolean isExpired(long currentTimeMillis)
+    {
+        long age = currentTimeMillis - ticketTime;
+
+        return age < 0 || age >= ticketLifetime * 1000L;
+    }
+
+    static byte[] encodeTicketState(ProtocolVersion negotiatedVersion, int cipherSuite, byte[] psk,
+        long ticketAgeAdd, long ticketTime, long maxEarlyDataSize, ProtocolName applicationProtocol,
+        Certificate peerCertificate) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+        TlsUtils.writeUint8(STATE_FORMAT, buf);
+        TlsUtils.writeVersion(negotiatedVersion, buf);
+        TlsUtils.writeUint16(cipherSuite, buf);
+        TlsUtils.writeOpaque8(psk, buf);
+        TlsUtils.writeUint32(ticketAgeAdd, buf);
+        TlsUtils.writeUint64(ticketTime, buf);
+        TlsUtils.writeUint32(maxEarlyDataSize, buf);
+        TlsUtils.writeOpaque8(null == applicationProtocol ? TlsUtils.EMPTY_BYTES : applicationProtocol.getBytes(),
+            buf);
+
+        ByteArrayOutputStream certs = new ByteArrayOutputStream();
+        if (null != peerCertificate)
+        {
+            for (int i = 0; i < peerCertificate.getLength(); ++i)
+            {
+                TlsUtils.writeOpaque24(peerCertificate.getCertificateAt(i).getEncoded(), certs);
+            }
+        }
+        TlsUtils.writeOpaque24(certs.toByteArray(), buf);
+
+        return buf.toByteArray();
+    }
+
+    /**
+     * Parse the ticket state written by {@link #encodeTicketState}, returning null if the state is not in a
+     * format we understand.
+     */
+    static TlsPSKResumption parseTicketState(TlsCrypto crypto, byte[] ticket, byte[] state, long ticketLifetime)
+        throws IOException
+    {
+        ByteArrayInputStream buf = new ByteArrayInputStream(state);
+
+        if (TlsUtils.readUint8(buf) != STATE_FORMAT)
+        {
+            return null;
+        }
+
+        ProtocolVersion negotiatedVersion = TlsUtils.readVersion(buf);
+        int cipherSuite = TlsUtils.readUint16(buf);
+        byte[] psk = TlsUtils.readOpaque8(buf, 1);
+        long ticketAgeAdd = TlsUtils.readUint32(buf);
+        long ticketTime = (TlsUtils.readUint32(buf) << 32) | TlsUtils.readUint32(buf);
+        long maxEarlyDataSize = TlsUtils.readUint32(buf);
+        byte[] alpn = TlsUtils.readOpaque8(buf);
+        ProtocolName applicationProtocol = alpn.length < 1 ? null : ProtocolName.asRawBytes(alpn);
+
+        Certificate peerCertificate = null;
+        byte[] certs = TlsUtils.readOpaque24(buf);
+        if (certs.length > 0)
+        {
+            ByteArrayInputStream certBuf = new ByteArrayInputStream(certs);
+            Vector chain = new Vector();
+            do
+            {
+                chain.addElement(crypto.createCertificate(TlsUtils.readOpaque24(certBuf, 1)));
+            }
+            while (certBuf.available() > 0);
+
+            CertificateEntry[] entries = new CertificateEntry[chain.size()];
+            for (int i = 0; i < entries.length; ++i)
+            {
+                entries[i] = new CertificateEntry((TlsCertificate)chain.elementAt(i), null);
+            }
+            peerCertificate = new Certificate(TlsUtils.EMPTY_BYTES, entries);
+        }
+
+        TlsProtocol.assertEmpty(buf);
+
+        if (TlsUtils.getPRFAlgorithm13(cipherSuite) < 0)
+        {
+            return null;
+        }
+
+        SessionParameters sessionParameters = new SessionParameters.Builder()
+            .setCipherSuite(cipherSuite)
+            .setCompressionAlgorithm(CompressionMethod._null)
+            .setExtendedMasterSecret(true)
+            .setMasterSecret(crypto.createSecret(psk))
+            .setNegotiatedVersion(negotiatedVersion)
+            .setPeerCertificate(peerCertificate)
+            .build();
+
+        Arrays.fill(psk, (byte)0);
+
+        return new TlsPSKResumption(ticket, sessionParameters, ticketAgeAdd, ticketLifetime, ticketTime,
+            maxEarlyDataSize, applicationProtocol);
+    }
+}
@@ -7,6 +7,7 @@
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
@@ -154,6 +155,7 @@ protected boolean isTLSv13ConnectionState()
     protected TlsSession tlsSession = null;
     protected SessionParameters sessionParameters = null;
     protected TlsSecret sessionMasterSecret = null;
+    protected TlsSecret resumptionMasterSecret = null;
 
     protected byte[] retryCookie = null;
     protected int retryGroup = -1;
@@ -170,6 +172,27 @@ protected boolean isTLSv13ConnectionState()
     protected ByteQueueInputStream inputBuffers;
     protected ByteQueueOutputStream outputBuffer;
 
+    // Largest TLSCiphertext record, header included (RFC 5246 6.2.3)
+    private static final int MAX_RECORD_SIZE = RecordFormat.FRAGMENT_OFFSET + (1 << 14) + 2048;
+
+    // Used by offerInput(ByteBuffer) for buffers without an accessible array; at most MAX_RECORD_SIZE long
+    private byte[] inputScratch = TlsUtils.EMPTY_BYTES;
+
+    /*
+     * Delegated tasks (non-blocking mode only). While a task is available or running, offered input is only queued
+     * in inputBuffers, which is then guarded by its own monitor.
+     */
+    private static final int TASK_NONE = 0;
+    private static final int TASK_AVAILABLE = 1;
+    private static final int TASK_RUNNING = 2;
+
+    private boolean delegatedTasksEnabled = false;
+    private int delegatedTaskState = TASK_NONE;
+    private IOException delegatedTaskException = null;
+
+    // Used by writeApplicationData(ByteBuffer[], int, int) to gather small buffers into whole records
+    private byte[] gatherBuffer = TlsUtils.EMPTY_BYTES;
+
     protected TlsProtocol()
     {
         this.blocking = false;
@@ -215,6 +238,16 @@ public void resumeHandshake() throws IOException
     protected void closeConnection() throws IOException
     {
         recordStream.close();
+
+        // Records are decrypted in place, so the scratch buffer can hold plaintext
+        Arrays.fill(inputScratch, (byte)0);
+        this.inputScratch = TlsUtils.EMPTY_BYTES;
+
+        if (null != resumptionMasterSecret)
+        {
+            resumptionMasterSecret.destroy();
+            this.resumptionMasterSecret = null;
+        }
     }
 
     protected abstract TlsContext getContext();
@@ -467,6 +500,12 @@ protected void cleanupHandshake()
         this.selectedPSK13 = false;
         this.receivedChangeCipherSpec = false;
         this.expectSessionTicket = false;
+
+        /*
+         * Not zeroed here: with delegated tasks this can run while offerInput(ByteBuffer) is still copying into
+         * the buffer. It is reallocated (at most once) if more input arrives from a buffer without an array.
+         */
+        this.inputScratch = TlsUtils.EMPTY_BYTES;
     }
 
     protected void completeHandshake()
@@ -500,6 +539,16 @@ protected void completeHandshake()
 
             this.keyUpdateEnabled = TlsUtils.isTLSv13(negotiatedVersion);
 
+            /*
+             * The handshake's copy is destroyed below, but NewSessionTicket messages can be sent or received for
+             * as long as the connection is open.
+             */
+            TlsSecret resumptionMasterSecret = securityParameters.getResumptionMasterSecret();
+            if (null != resumptionMasterSecret)
+            {
+                this.resumptionMasterSecret = context.getCrypto().adoptSecret(resumptionMasterSecret);
+            }
+
             if (blocking)
             {
                 this.tlsInputStream = new TlsInputStream(this);
@@ -560,7 +609,8 @@ protected void processRecord(short protocol, byte[] buf, int off, int len)
         {
             if (!appDataReady)
             {
-                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                // NOTE: Early data accepted by a TLS 1.3 server arrives before the handshake completes
+                receive13EarlyData(len);
             }
             applicationDataQueue.addData(buf, off, len);
             processApplicationDataQueue();
@@ -709,6 +759,12 @@ private void processHandshakeQueue(ByteQueue queue)
         }
     }
 
+    protected void receive13EarlyData(int len)
+        throws IOException
+    {
+        throw new TlsFatalAlert(AlertDescription.unexpected_message);
+    }
+
     private void processApplicationDataQueue()
     {
         /*
@@ -826,10 +882,16 @@ public int readApplicationData(byte[] buf, int offset, int len)
 
     protected RecordPreview safePreviewRecordHeader(byte[] recordHeader)
         throws IOException
+    {
+        return safePreviewRecordHeader(recordHeader, 0);
+    }
+
+    protected RecordPreview safePreviewRecordHeader(byte[] buf, int off)
+        throws IOException
     {
         try
         {
-            return recordStream.previewRecordHeader(recordHeader);
+            return recordStream.previewRecordHeader(buf, off);
         }
         catch (TlsFatalAlert e)
         {
@@ -924,7 +986,10 @@ protected void safeWriteRecord(short type, byte[] buf, int offset, int len)
     {
         try
         {
-            recordStream.writeRecord(type, buf, offset, len);
+            synchronized (recordWriteLock)
+            {
+                recordStream.writeRecord(type, buf, offset, len);
+            }
         }
         catch (TlsFatalAlert e)
         {
@@ -975,69 +1040,240 @@ public void writeApplicationData(byte[] buf, int offset, int len)
 
         synchronized (recordWriteLock)
         {
-            while (len > 0)
+            beginWriteBatch();
+            boolean completed = false;
+            try
             {
-                if (closed)
+                implWriteApplicationData(buf, offset, len);
+                completed = true;
+            }
+            finally
+            {
+                endWriteBatch(completed);
+            }
+        }
+    }
+
+    /**
+     * Write the remaining application data of a sequence of buffers, as if they had been concatenated. Small buffers
+     * are gathered into records of the maximum size, so that the records can all be sent with a single write to the
+     * underlying transport (blocking mode), or read as one contiguous block of output (non-blocking mode). Usable in
+     * both blocking/non-blocking modes.<br>
+     * <br>
+     * This method must not be called until after the initial handshake is complete. Attempting to
+     * call it earlier will result in an {@link IllegalStateException}.
+     *
+     * @param srcs
+     *            The buffers containing application data to send. All their remaining bytes are consumed.
+     * @param offset
+     *            The index of the first buffer to send from
+     * @param length
+     *            The number of buffers to send from
+     * @throws IllegalStateException
+     *             If called before the initial handshake has completed.
+     * @throws IOException
+     *             If connection is already closed, or for encryption or transport errors. The connection can't
+     *             be used after such an error.
+     */
+    public void writeApplicationData(ByteBuffer[] srcs, int offset, int length)
+        throws IOException
+    {
+        if (offset < 0 || length < 0 || offset > srcs.length - length)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int i = offset; i < offset + length; ++i)
+        {
+            if (null == srcs[i])
+            {
+                throw new NullPointerException("'srcs' cannot contain null elements");
+            }
+        }
+        if (!appDataReady)
+        {
+            throw new IllegalStateException("Cannot write application data until initial handshake completed.");
+        }
+
+        synchronized (recordWriteLock)
+        {
+            beginWriteBatch();
+            boolean completed = false;
+            try
+            {
+                int limit = recordStream.getPlaintextLimit();
+                if (gatherBuffer.length < limit)
                 {
-                    throw new IOException("Cannot write application data on closed/failed TLS connection");
+                    this.gatherBuffer = new byte[limit];
                 }
 
-                /*
-                 * RFC 5246 6.2.1. Zero-length fragments of Application data MAY be sent as they are
-                 * potentially useful as a traffic analysis countermeasure.
-                 * 
-                 * NOTE: Actually, implementations appear to have settled on 1/n-1 record splitting.
-                 */
-                if (appDataSplitEnabled)
+                int gathered = 0;
+                for (int i = offset; i < offset + length; ++i)
                 {
-                    /*
-                     * Protect against known IV attack!
-                     * 
-                     * DO NOT REMOVE THIS CODE, EXCEPT YOU KNOW EXACTLY WHAT YOU ARE DOING HERE.
-                     */
-                    switch (appDataSplitMode)
-                    {
-                    case ADS_MODE_0_N_FIRSTONLY:
-                    {
-                        this.appDataSplitEnabled = false;
-                        // NB: Fall through to next case label
-                    }
-                    case ADS_MODE_0_N:
-                    {
-                        safeWriteRecord(ContentType.application_data, TlsUtils.EMPTY_BYTES, 0, 0);
-                        break;
-                    }
-                    case ADS_MODE_1_Nsub1:
-                    default:
+                    ByteBuffer src = srcs[i];
+                    while (src.hasRemaining())
                     {
-                        if (len > 1)
+                        int remaining = src.remaining();
+                        if (gathered == 0 && remaining >= limit && src.hasArray())
                         {
-                            safeWriteRecord(ContentType.application_data, buf, offset, 1);
-                            ++offset;
-                            --len;
+                            // Whole records are encrypted straight from the caller's array
+                            int count = remaining - (remaining % limit);
+                            implWriteApplicationData(src.array(), src.arrayOffset() + src.position(), count);
+                            src.position(src.position() + count);
+                        }
+                        else
+                        {
+                            int count = Math.min(remaining, limit - gathered);
+                            src.get(gatherBuffer, gathered, count);
+                            gathered += count;
+
+                            if (gathered == limit)
+                            {
+                                implWriteApplicationData(gatherBuffer, 0, gathered);
+                                gathered = 0;
+                            }
                         }
-                        break;
-                    }
                     }
                 }
-                else if (keyUpdateEnabled)
+
+                implWriteApplicationData(gatherBuffer, 0, gathered);
+                completed = true;
+            }
+            finally
+            {
+                endWriteBatch(completed);
+            }
+        }
+    }
+
+    private void beginWriteBatch()
+    {
+        /*
+         * In non-blocking mode the records are already collected in the output buffer, so only a blocking
+         * transport benefits from having them written together.
+         */
+        if (blocking)
+        {
+            recordStream.beginBatch();
+        }
+    }
+
+    private void endWriteBatch(boolean completed)
+        throws IOException
+    {
+        if (!blocking)
+        {
+            return;
+        }
+
+        if (!completed)
+        {
+            recordStream.endBatch(false);
+
+            /*
+             * Usually the connection has already failed, and any alert sent the records collected before it.
+             * Otherwise (e.g. the transport write was interrupted) the discarded records have used up their
+             * sequence numbers, so the connection can't continue either.
+             */
+            if (!closed)
+            {
+                try
                 {
-                    if (keyUpdatePendingSend)
-                    {
-                        send13KeyUpdate(false);
-                    }
-                    else if (recordStream.needsKeyUpdate())
+                    handleFailure();
+                }
+                catch (IOException e)
+                {
+                    // The original failure is what gets reported
+                }
+            }
+            return;
+        }
+
+        try
+        {
+            recordStream.endBatch(true);
+        }
+        catch (TlsFatalAlert e)
+        {
+            handleException(e.getAlertDescription(), "Failed to write record", e);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to write record", e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to write record", e);
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+
+    private void implWriteApplicationData(byte[] buf, int offset, int len)
+        throws IOException
+    {
+        while (len > 0)
+        {
+            if (closed)
+            {
+                throw new IOException("Cannot write application data on closed/failed TLS connection");
+            }
+
+            /*
+             * RFC 5246 6.2.1. Zero-length fragments of Application data MAY be sent as they are
+             * potentially useful as a traffic analysis countermeasure.
+             * 
+             * NOTE: Actually, implementations appear to have settled on 1/n-1 record splitting.
+             */
+            if (appDataSplitEnabled)
+            {
+                /*
+                 * Protect against known IV attack!
+                 * 
+                 * DO NOT REMOVE THIS CODE, EXCEPT YOU KNOW EXACTLY WHAT YOU ARE DOING HERE.
+                 */
+                switch (appDataSplitMode)
+                {
+                case ADS_MODE_0_N_FIRSTONLY:
+                {
+                    this.appDataSplitEnabled = false;
+                    // NB: Fall through to next case label
+                }
+                case ADS_MODE_0_N:
+                {
+                    safeWriteRecord(ContentType.application_data, TlsUtils.EMPTY_BYTES, 0, 0);
+                    break;
+                }
+                case ADS_MODE_1_Nsub1:
+                default:
+                {
+                    if (len > 1)
                     {
-                        send13KeyUpdate(true);
+                        safeWriteRecord(ContentType.application_data, buf, offset, 1);
+                        ++offset;
+                        --len;
                     }
+                    break;
+                }
                 }
-
-                // Fragment data according to the current fragment limit.
-                int toWrite = Math.min(len, recordStream.getPlaintextLimit());
-                safeWriteRecord(ContentType.application_data, buf, offset, toWrite);
-                offset += toWrite;
-                len -= toWrite;
             }
+            else if (keyUpdateEnabled)
+            {
+                if (keyUpdatePendingSend)
+                {
+                    send13KeyUpdate(false);
+                }
+                else if (recordStream.needsKeyUpdate())
+                {
+                    send13KeyUpdate(true);
+                }
+            }
+
+            // Fragment data according to the current fragment limit.
+            int toWrite = Math.min(len, recordStream.getPlaintextLimit());
+            safeWriteRecord(ContentType.application_data, buf, offset, toWrite);
+            offset += toWrite;
+            len -= toWrite;
         }
     }
 
@@ -1287,7 +1523,10 @@ public void offerInput(byte[] input) throws IOException
      * can be obtained using {@link #readInput(byte[], int, int)}. If any records
      * containing protocol data were processed, a response may have been generated.
      * You should always check to see if there is any available output after calling
-     * this method by calling {@link #getAvailableOutputBytes()}.
+     * this method by calling {@link #getAvailableOutputBytes()}.<br>
+     * <br>
+     * If delegated tasks are enabled (see {@link #setDelegatedTasksEnabled(boolean)}), input offered during the
+     * initial handshake is only queued, and is processed by the task returned from {@link #getDelegatedTask()}.
      * @param input The input buffer to offer
      * @param inputOff The offset within the input buffer that input begins
      * @param inputLen The number of bytes of input being offered
@@ -1299,30 +1538,51 @@ public void offerInput(byte[] input, int inputOff, int inputLen) throws IOExcept
         {
             throw new IllegalStateException("Cannot use offerInput() in blocking mode! Use getInputStream() instead.");
         }
-        if (closed)
-        {
-            throw new IOException("Connection is closed, cannot accept any more input");
-        }
 
-        // Fast path if the input is arriving one record at a time
-        if (inputBuffers.available() == 0 && safeReadFullRecord(input, inputOff, inputLen))
+        if (delegatedTasksEnabled)
         {
-            if (closed)
+            synchronized (inputBuffers)
             {
-                if (!appDataReady)
+                if (null != delegatedTaskException)
+                {
+                    throw delegatedTaskException;
+                }
+                if (closed)
                 {
-                    // NOTE: Any close during the handshake should have raised an exception.
-                    throw new TlsFatalAlert(AlertDescription.internal_error);
+                    throw new IOException("Connection is closed, cannot accept any more input");
+                }
+
+                if (TASK_NONE != delegatedTaskState || !appDataReady)
+                {
+                    inputBuffers.addBytes(input, inputOff, inputLen);
+
+                    if (TASK_NONE == delegatedTaskState && getQueuedRecordSize() > 0)
+                    {
+                        this.delegatedTaskState = TASK_AVAILABLE;
+                    }
+                    return;
                 }
             }
-            return;
         }
 
-        inputBuffers.addBytes(input, inputOff, inputLen);
+        if (closed)
+        {
+            throw new IOException("Connection is closed, cannot accept any more input");
+        }
 
-        // loop while there are enough bytes to read the length of the next record
-        while (inputBuffers.available() >= RecordFormat.FRAGMENT_OFFSET)
+        // First complete any record left partially received by an earlier call
+        while (inputBuffers.available() > 0 && inputLen > 0)
         {
+            int available = inputBuffers.available();
+            if (available < RecordFormat.FRAGMENT_OFFSET)
+            {
+                int count = Math.min(RecordFormat.FRAGMENT_OFFSET - available, inputLen);
+                inputBuffers.addBytes(input, inputOff, count);
+                inputOff += count;
+                inputLen -= count;
+                continue;
+            }
+
             byte[] recordHeader = new byte[RecordFormat.FRAGMENT_OFFSET];
             if (RecordFormat.FRAGMENT_OFFSET != inputBuffers.peek(recordHeader))
             {
@@ -1330,25 +1590,257 @@ public void offerInput(byte[] input, int inputOff, int inputLen) throws IOExcept
             }
 
             RecordPreview preview = safePreviewRecordHeader(recordHeader);
+
+            int count = Math.min(preview.getRecordSize() - available, inputLen);
+            inputBuffers.addBytes(input, inputOff, count);
+            inputOff += count;
+            inputLen -= count;
+
             if (inputBuffers.available() < preview.getRecordSize())
             {
                 // not enough bytes to read a whole record
-                break;
+                return;
             }
 
             // NOTE: This is actually reading from inputBuffers, so InterruptedIOException shouldn't be possible
             safeReadRecord();
 
-            if (closed)
+            if (checkClosedByInput())
+            {
+                return;
+            }
+        }
+
+        /*
+         * Whole records are processed directly from the caller's buffer (and decrypted in place), so only a
+         * trailing partial record is copied into inputBuffers.
+         */
+        while (inputLen >= RecordFormat.FRAGMENT_OFFSET)
+        {
+            RecordPreview preview = safePreviewRecordHeader(input, inputOff);
+
+            int recordSize = preview.getRecordSize();
+            if (inputLen < recordSize)
+            {
+                break;
+            }
+
+            safeReadFullRecord(input, inputOff, recordSize);
+            inputOff += recordSize;
+            inputLen -= recordSize;
+
+            if (checkClosedByInput())
             {
-                if (!appDataReady)
+                return;
+            }
+        }
+
+        if (inputLen > 0)
+        {
+            inputBuffers.addBytes(input, inputOff, inputLen);
+        }
+    }
+
+    /**
+     * Offer input from an arbitrary source. Only allowed in non-blocking mode.<br>
+     * <br>
+     * Equivalent to {@link #offerInput(byte[], int, int)}, consuming all the remaining bytes of the buffer.
+     * For a buffer with an accessible backing array, the records are decrypted in place (so the consumed part
+     * of the buffer is overwritten); otherwise they are copied, up to a record's worth at a time, into a buffer
+     * owned by this protocol.
+     * @param input The input buffer to offer
+     * @throws IOException If an error occurs while decrypting or processing a record
+     */
+    public void offerInput(ByteBuffer input) throws IOException
+    {
+        int inputLen = input.remaining();
+
+        if (input.hasArray())
+        {
+            offerInput(input.array(), input.arrayOffset() + input.position(), inputLen);
+        }
+        else
+        {
+            byte[] buf = inputScratch;
+            if (buf.length < inputLen && buf.length < MAX_RECORD_SIZE)
+            {
+                this.inputScratch = buf = new byte[Math.min(inputLen, MAX_RECORD_SIZE)];
+            }
+
+            // A record split between chunks is completed from inputBuffers by the next offerInput call
+            while (inputLen > 0 && !closed)
+            {
+                int count = Math.min(inputLen, buf.length);
+                input.get(buf, 0, count);
+                inputLen -= count;
+
+                offerInput(buf, 0, count);
+            }
+        }
+
+        input.position(input.position() + inputLen);
+    }
+
+    /**
+     * Enable or disable delegated tasks. Only allowed in non-blocking mode.<br>
+     * <br>
+     * When enabled, records received during the initial handshake are not processed by
+     * {@link #offerInput(byte[], int, int)}, but by a task obtained from {@link #getDelegatedTask()}. The
+     * expensive parts of the handshake (signing, key agreement, decryption and certificate validation) then run on
+     * whatever thread runs the task, e.g. a worker pool, so that the thread driving the connection (e.g. an event
+     * loop) is never blocked by them.
+     *
+     * @param delegatedTasksEnabled
+     *            Whether to use delegated tasks. Disabled by default.
+     */
+    public void setDelegatedTasksEnabled(boolean delegatedTasksEnabled)
+    {
+        if (blocking)
+        {
+            throw new IllegalStateException("Cannot use delegated tasks in blocking mode!");
+        }
+
+        synchronized (inputBuffers)
+        {
+            if (TASK_NONE != delegatedTaskState)
+            {
+                throw new IllegalStateException("Cannot change delegated tasks while a task is outstanding");
+            }
+
+            this.delegatedTasksEnabled = delegatedTasksEnabled;
+        }
+    }
+
+    public boolean isDelegatedTasksEnabled()
+    {
+        return delegatedTasksEnabled;
+    }
+
+    /**
+     * Get a task that processes the input queued by {@link #offerInput(byte[], int, int)}, if there is one. Only
+     * relevant when delegated tasks are enabled.<br>
+     * <br>
+     * Once the task has run, check for output by calling {@link #getAvailableOutputBytes()}, then for a further
+     * task. Until the task has run, input may still be offered (it will be queued), and output read, but no other
+     * method may be called. If processing the input fails, the connection is failed and the exception is thrown by
+     * the next call to {@link #offerInput(byte[], int, int)}.
+     *
+     * @return A {@link Runnable} processing the queued input, or null if there is no task to run.
+     */
+    public Runnable getDelegatedTask()
+    {
+        synchronized (inputBuffers)
+        {
+            if (TASK_AVAILABLE != delegatedTaskState)
+            {
+                return null;
+            }
+
+            this.delegatedTaskState = TASK_RUNNING;
+        }
+
+        return new Runnable()
+        {
+            public void run()
+            {
+                runDelegatedTask();
+            }
+        };
+    }
+
+    /**
+     * Get the exception, if any, with which a delegated task failed the connection. It is also thrown by any
+     * later call to {@link #offerInput(byte[], int, int)}.
+     *
+     * @return The {@link IOException} raised while processing queued input, or null if there was none.
+     */
+    public IOException getDelegatedTaskException()
+    {
+        synchronized (inputBuffers)
+        {
+            return delegatedTaskException;
+        }
+    }
+
+    private void runDelegatedTask()
+    {
+        for (;;)
+        {
+            byte[] record;
+
+            synchronized (inputBuffers)
+            {
+                try
+                {
+                    // NOTE: Any records following the handshake are processed here too, to preserve their order
+                    int recordSize = closed ? -1 : getQueuedRecordSize();
+                    if (recordSize < 0)
+                    {
+                        this.delegatedTaskState = TASK_NONE;
+                        return;
+                    }
+
+                    record = new byte[recordSize];
+                    inputBuffers.read(record, 0, recordSize);
+                }
+                catch (IOException e)
                 {
-                    // NOTE: Any close during the handshake should have raised an exception.
-                    throw new TlsFatalAlert(AlertDescription.internal_error);
+                    this.delegatedTaskException = e;
+                    this.delegatedTaskState = TASK_NONE;
+                    return;
                 }
-                break;
             }
+
+            try
+            {
+                safeReadFullRecord(record, 0, record.length);
+                checkClosedByInput();
+            }
+            catch (IOException e)
+            {
+                synchronized (inputBuffers)
+                {
+                    this.delegatedTaskException = e;
+                    this.delegatedTaskState = TASK_NONE;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The size of the first record queued in inputBuffers, or -1 if it hasn't been wholly received.
+     */
+    private int getQueuedRecordSize() throws IOException
+    {
+        int available = inputBuffers.available();
+        if (available < RecordFormat.FRAGMENT_OFFSET)
+        {
+            return -1;
+        }
+
+        byte[] recordHeader = new byte[RecordFormat.FRAGMENT_OFFSET];
+        if (RecordFormat.FRAGMENT_OFFSET != inputBuffers.peek(recordHeader))
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        int recordSize = safePreviewRecordHeader(recordHeader).getRecordSize();
+        return available < recordSize ? -1 : recordSize;
+    }
+
+    private boolean checkClosedByInput() throws IOException
+    {
+        if (closed)
+        {
+            if (!appDataReady)
+            {
+                // NOTE: Any close during the handshake should have raised an exception.
+                throw new TlsFatalAlert(AlertDescription.internal_error);
+            }
+            return true;
         }
+        return false;
     }
 
     public int getApplicationDataLimit()
@@ -1402,6 +1894,29 @@ public int readInput(byte[] buffer, int offset, int length)
         return length;
     }
 
+    /**
+     * Retrieves received application data into a {@link ByteBuffer}, copying as much as is available and
+     * fits in the remaining space of the buffer. Otherwise as for {@link #readInput(byte[], int, int)}.
+     * @param buffer The buffer to hold the application data
+     * @return The total number of bytes copied to the buffer.
+     */
+    public int readInput(ByteBuffer buffer)
+    {
+        if (blocking)
+        {
+            throw new IllegalStateException("Cannot use readInput() in blocking mode! Use getInputStream() instead.");
+        }
+
+        int length = Math.min(buffer.remaining(), applicationDataQueue.available());
+        if (length < 1)
+        {
+            return 0;
+        }
+
+        applicationDataQueue.removeData(buffer, length, 0);
+        return length;
+    }
+
     /**
      * Gets the amount of encrypted data available to be sent. A call to
      * {@link #readOutput(byte[], int, int)} is guaranteed to be able to return at
@@ -1416,8 +1931,11 @@ public int getAvailableOutputBytes()
         {
             throw new IllegalStateException("Cannot use getAvailableOutputBytes() in blocking mode! Use getOutputStream() instead.");
         }
-        
-        return outputBuffer.getBuffer().available();
+
+        synchronized (recordWriteLock)
+        {
+            return outputBuffer.getBuffer().available();
+        }
     }
 
     /**
@@ -1440,9 +1958,34 @@ public int readOutput(byte[] buffer, int offset, int length)
             throw new IllegalStateException("Cannot use readOutput() in blocking mode! Use getOutputStream() instead.");
         }
         
-        int bytesToRead = Math.min(getAvailableOutputBytes(), length);
-        outputBuffer.getBuffer().removeData(buffer, offset, bytesToRead, 0);
-        return bytesToRead;
+        // NOTE: Records may be written while reading input, so this can run concurrently with record writes
+        synchronized (recordWriteLock)
+        {
+            int bytesToRead = Math.min(getAvailableOutputBytes(), length);
+            outputBuffer.getBuffer().removeData(buffer, offset, bytesToRead, 0);
+            return bytesToRead;
+        }
+    }
+
+    /**
+     * Retrieves encrypted data to be sent into a {@link ByteBuffer}, copying as much as is available and fits
+     * in the remaining space of the buffer. Otherwise as for {@link #readOutput(byte[], int, int)}.
+     * @param buffer The buffer to hold the encrypted data
+     * @return The total number of bytes copied to the buffer.
+     */
+    public int readOutput(ByteBuffer buffer)
+    {
+        if (blocking)
+        {
+            throw new IllegalStateException("Cannot use readOutput() in blocking mode! Use getOutputStream() instead.");
+        }
+
+        synchronized (recordWriteLock)
+        {
+            int bytesToRead = Math.min(getAvailableOutputBytes(), buffer.remaining());
+            outputBuffer.getBuffer().removeData(buffer, bytesToRead, 0);
+            return bytesToRead;
+        }
     }
 
     protected boolean establishSession(TlsSession sessionToResume)
@@ -1584,7 +2127,10 @@ protected void raiseAlertFatal(short alertDescription, String message, Throwable
 
         try
         {
-            recordStream.writeRecord(ContentType.alert, alert, 0, 2);
+            synchronized (recordWriteLock)
+            {
+                recordStream.writeRecord(ContentType.alert, alert, 0, 2);
+            }
         }
         catch (Exception e)
         {
@@ -1626,7 +2172,15 @@ protected void receive13KeyUpdate(ByteArrayInputStream buf) throws IOException
         recordStream.notifyKeyUpdateReceived();
 
 //        this.keyUpdatePendingReceive &= updateRequested;
-        this.keyUpdatePendingSend |= updateRequested;
+
+        /*
+         * NOTE: This runs on the input side while send13KeyUpdate may be running on the output side, so the flag is
+         * only ever written (never read-modify-written) here and there.
+         */
+        if (updateRequested)
+        {
+            this.keyUpdatePendingSend = true;
+        }
     }
 
     protected void sendCertificateMessage(Certificate certificate, OutputStream endPointHash)
@@ -1752,13 +2306,21 @@ protected void send13KeyUpdate(boolean updateRequested) throws IOException
             ? KeyUpdateRequest.update_requested
             : KeyUpdateRequest.update_not_requested;
 
+        /*
+         * Clear the pending flag before sending, so that a request received meanwhile is answered by a further
+         * KeyUpdate rather than lost.
+         */
+        if (!updateRequested)
+        {
+            this.keyUpdatePendingSend = false;
+        }
+
         HandshakeMessageOutput.send(this, HandshakeType.key_update, TlsUtils.encodeUint8(requestUpdate));
 
         TlsUtils.update13TrafficSecretLocal(getContext());
         recordStream.notifyKeyUpdateSent();
 
 //        this.keyUpdatePendingReceive |= updateRequested;
-        this.keyUpdatePendingSend &= updateRequested;
     }
 
     protected void sendSupplementalDataMessage(Vector supplementalData)
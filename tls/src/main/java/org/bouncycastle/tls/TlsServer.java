@@ -39,6 +39,65 @@
      */
     TlsPSKExternal getExternalPSK(Vector identities);
 
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return the {@link TlsTicketProtector} used to issue TLS 1.3 session tickets, and to recover the sessions
+     * from tickets offered for resumption. Return null to neither issue nor accept tickets.
+     * 
+     * @return the {@link TlsTicketProtector}, or null.
+     */
+    TlsTicketProtector getTicketProtector();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Check whether a TLS 1.3 session recovered from a valid ticket should be resumed. This is called after
+     * {@link #processClientExtensions(Hashtable)}; the session's cipher suite will be used for the connection
+     * without calling {@link #getSelectedCipherSuite()}. Note that the peer's certificate chain for the
+     * session (if any) may need to be revalidated.
+     * 
+     * @param session the {@link TlsSession} recovered from the ticket.
+     * @return true to resume the session, or false to continue with a full handshake.
+     * @see SessionParameters#getPeerCertificate()
+     */
+    boolean allowResumption(TlsSession session) throws IOException;
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return the max_early_data_size to advertise in TLS 1.3 session tickets, i.e. the most early data
+     * (RFC 8446 4.2.10) a client may send when resuming with one of them. Return 0 to not allow early data.
+     * 
+     * @return the maximum early data size in bytes (a uint32).
+     */
+    long getMaxEarlyDataSize();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Return the {@link TlsAntiReplay} used to detect replayed early data. Early data is never accepted if this
+     * returns null.
+     * 
+     * @return the {@link TlsAntiReplay}, or null.
+     */
+    TlsAntiReplay getAntiReplay();
+
+    /**
+     * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+     * 
+     * Check whether early data should be accepted from a client resuming a session. This is called after
+     * {@link #allowResumption(TlsSession)}, once the ticket age and the application protocol have been checked,
+     * and only for a ClientHello not yet recorded by the {@link #getAntiReplay() anti-replay} mechanism. Early
+     * data can still be replayed across servers that don't share anti-replay state, so it should only be
+     * accepted for requests that are safe to repeat. Accepted early data is available to read when the handshake
+     * completes.
+     * 
+     * @return true to accept the early data, or false to reject it (the handshake continues without it).
+     * @see SecurityParameters#isEarlyDataAccepted()
+     */
+    boolean acceptEarlyData() throws IOException;
+
     void notifySession(TlsSession session);
 
     void notifyClientVersion(ProtocolVersion clientVersion) throws IOException;
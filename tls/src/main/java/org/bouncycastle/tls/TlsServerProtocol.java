@@ -24,6 +24,8 @@
     protected int[] offeredCipherSuites = null;
     protected TlsKeyExchange keyExchange = null;
     protected CertificateRequest certificateRequest = null;
+    protected long ticketCount = 0L;
+    protected long earlyDataRemaining = 0L;
 
     /**
      * Constructor for non-blocking mode.<br>
@@ -102,6 +104,7 @@ protected void cleanupHandshake()
         this.offeredCipherSuites = null;
         this.keyExchange = null;
         this.certificateRequest = null;
+        this.earlyDataRemaining = 0L;
     }
 
     protected boolean expectCertificateVerifyMessage()
@@ -167,7 +170,7 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
         ProtocolVersion serverVersion = securityParameters.getNegotiatedVersion();
         TlsCrypto crypto = tlsServerContext.getCrypto();
 
-        // NOTE: Will only select for psk_dhe_ke
+        // NOTE: After a HelloRetryRequest, will only select for psk_dhe_ke
         OfferedPsks.SelectedConfig selectedPSK = TlsUtils.selectPreSharedKey(tlsServerContext, tlsServer,
             clientHelloExtensions, clientHelloMessage, handshakeHash, afterHelloRetryRequest);
 
@@ -181,6 +184,19 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
                 throw new TlsFatalAlert(AlertDescription.internal_error);
             }
 
+            if (null != selectedPSK && selectedPSK.psk instanceof TlsPSKResumption)
+            {
+                // A resumption PSK declined in the first ClientHello stays declined
+                if (null == this.sessionParameters)
+                {
+                    selectedPSK = null;
+                }
+            }
+            else if (null != this.sessionParameters)
+            {
+                throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+            }
+
             if (null == selectedPSK)
             {
                 /*
@@ -250,18 +266,36 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
 
             tlsServer.processClientExtensions(clientHelloExtensions);
 
-            /*
-             * NOTE: Currently no server support for session resumption
-             * 
-             * If adding support, ensure securityParameters.tlsUnique is set to the localVerifyData, but
-             * ONLY when extended_master_secret has been negotiated (otherwise NULL).
-             */
+            this.tlsSession = null;
+            this.sessionParameters = null;
+            this.sessionMasterSecret = null;
+
+            if (null != selectedPSK && selectedPSK.psk instanceof TlsPSKResumption)
             {
-                // TODO[tls13] Resumption/PSK
+                TlsPSKResumption pskResumption = (TlsPSKResumption)selectedPSK.psk;
+                TlsSession resumableSession = TlsUtils.importSession(TlsUtils.EMPTY_BYTES,
+                    pskResumption.getSessionParameters());
+
+                if (tlsServer.allowResumption(resumableSession))
+                {
+                    this.tlsSession = resumableSession;
+                    this.sessionParameters = pskResumption.getSessionParameters();
+                    this.sessionMasterSecret = sessionParameters.getMasterSecret();
+                }
+                else
+                {
+                    selectedPSK = null;
 
+                    if (null == securityParameters.getClientSigAlgs())
+                    {
+                        throw new TlsFatalAlert(AlertDescription.missing_extension);
+                    }
+                }
+            }
+
+            if (null == this.tlsSession)
+            {
                 this.tlsSession = TlsUtils.importSession(TlsUtils.EMPTY_BYTES, null);
-                this.sessionParameters = null;
-                this.sessionMasterSecret = null;
             }
 
             securityParameters.sessionID = tlsSession.getSessionID();
@@ -280,8 +314,10 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             }
 
             {
-                // TODO[tls13] Constrain selection when PSK selected
-                int cipherSuite = tlsServer.getSelectedCipherSuite();
+                // TODO[tls13] Constrain selection when external PSK selected
+                int cipherSuite = null != sessionParameters
+                    ? sessionParameters.getCipherSuite()
+                    : tlsServer.getSelectedCipherSuite();
 
                 if (!TlsUtils.isValidCipherSuiteSelection(offeredCipherSuites, cipherSuite) ||
                     !TlsUtils.isValidVersionForCipherSuite(cipherSuite, serverVersion))
@@ -295,10 +331,13 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             int[] clientSupportedGroups = securityParameters.getClientSupportedGroups();
             int[] serverSupportedGroups = securityParameters.getServerSupportedGroups();
 
-            clientShare = TlsUtils.selectKeyShare(crypto, serverVersion, clientShares, clientSupportedGroups,
-                serverSupportedGroups);
+            if (!isPSKOnly(selectedPSK))
+            {
+                clientShare = TlsUtils.selectKeyShare(crypto, serverVersion, clientShares, clientSupportedGroups,
+                    serverSupportedGroups);
+            }
 
-            if (null == clientShare)
+            if (null == clientShare && !isPSKOnly(selectedPSK))
             {
                 this.retryGroup = TlsUtils.selectKeyShareGroup(crypto, serverVersion, clientSupportedGroups,
                     serverSupportedGroups);
@@ -309,10 +348,16 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
 
                 this.retryCookie = tlsServerContext.getNonceGenerator().generateNonce(16);
 
+                // NOTE: The HelloRetryRequest rejects any early data sent with this ClientHello
+                if (TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+                {
+                    recordStream.skipEarlyData(getEarlyDataSkipLimit(selectedPSK));
+                }
+
                 return generate13HelloRetryRequest(clientHello);
             }
 
-            if (clientShare.getNamedGroup() != serverSupportedGroups[0])
+            if (null != clientShare && clientShare.getNamedGroup() != serverSupportedGroups[0])
             {
                 /*
                  * TODO[tls13] RFC 8446 4.2.7. As of TLS 1.3, servers are permitted to send the
@@ -353,6 +398,27 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
         securityParameters.applicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(serverEncryptedExtensions);
         securityParameters.applicationProtocolSet = true;
 
+        /*
+         * RFC 8446 4.2.10. A server which receives an "early_data" extension MUST behave in one of three ways:
+         * [..] Ignore the extension and return a regular 1-RTT response [..], [..] Request that the client send
+         * another ClientHello [..], [..] Return its own "early_data" extension in EncryptedExtensions,
+         * indicating that it intends to process the early data.
+         */
+        if (!afterHelloRetryRequest && TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+        {
+            if (accept13EarlyData(selectedPSK))
+            {
+                TlsExtensionsUtils.addEarlyDataIndication(serverEncryptedExtensions);
+                securityParameters.earlyDataAccepted = true;
+
+                this.earlyDataRemaining = ((TlsPSKResumption)selectedPSK.psk).getMaxEarlyDataSize();
+            }
+            else
+            {
+                recordStream.skipEarlyData(getEarlyDataSkipLimit(selectedPSK));
+            }
+        }
+
         if (!serverEncryptedExtensions.isEmpty())
         {
             securityParameters.maxFragmentLength = processMaxFragmentLengthExtension(clientHelloExtensions,
@@ -382,7 +448,8 @@ protected ServerHello generate13ServerHello(ClientHello clientHello, HandshakeMe
             TlsExtensionsUtils.addPreSharedKeyServerHello(serverHelloExtensions, selectedPSK.index);
         }
 
-        TlsSecret sharedSecret;
+        TlsSecret sharedSecret = null;
+        if (null != clientShare)
         {
             int namedGroup = clientShare.getNamedGroup();
     
@@ -837,10 +904,9 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         if (resumedSession)
         {
             /*
-             * TODO[tls13] Abbreviated handshakes (PSK resumption)
-             * 
-             * NOTE: No CertificateRequest, Certificate, CertificateVerify messages, but client
-             * might now send EndOfEarlyData after receiving server Finished message.
+             * NOTE: TLS 1.3 resumption is a PSK handshake (see selectedPSK13), which skips the
+             * CertificateRequest, Certificate, CertificateVerify messages the same way as for an
+             * external PSK, so resumedSession is never set.
              */
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
@@ -852,6 +918,7 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
+            case CS_CLIENT_END_OF_EARLY_DATA:
             {
                 receive13ClientCertificate(buf);
                 this.connection_state = CS_CLIENT_CERTIFICATE;
@@ -904,11 +971,27 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
             }
             break;
         }
+        case HandshakeType.end_of_early_data:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_FINISHED:
+            {
+                receive13EndOfEarlyData(buf);
+                this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
         case HandshakeType.finished:
         {
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
+            case CS_CLIENT_END_OF_EARLY_DATA:
             {
                 skip13ClientCertificate();
                 // NB: Fall through to next case label
@@ -923,6 +1006,15 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 receive13ClientFinished(buf);
                 this.connection_state = CS_CLIENT_FINISHED;
 
+                TlsTicketProtector ticketProtector = tlsServer.getTicketProtector();
+                if (null != ticketProtector)
+                {
+                    buf.updateHash(handshakeHash);
+
+                    TlsUtils.establish13ResumptionMasterSecret(tlsServerContext,
+                        TlsUtils.getCurrentPRFHash(handshakeHash));
+                }
+
                 // See RFC 8446 D.4.
                 recordStream.setIgnoreChangeCipherSpec(false);
 
@@ -930,6 +1022,11 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
                 recordStream.enablePendingCipherRead(false);
 
                 completeHandshake();
+
+                if (null != ticketProtector)
+                {
+                    send13NewSessionTicketMessage(ticketProtector);
+                }
                 break;
             }
             default:
@@ -948,7 +1045,6 @@ protected void handle13HandshakeMessage(short type, HandshakeMessageInput buf)
         case HandshakeType.certificate_url:
         case HandshakeType.client_key_exchange:
         case HandshakeType.encrypted_extensions:
-        case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
         case HandshakeType.message_hash:
@@ -1036,6 +1132,15 @@ protected void handleHandshakeMessage(short type, HandshakeMessageInput buf)
                     }
                     else
                     {
+                        if (securityParameters.isEarlyDataAccepted())
+                        {
+                            byte[] clientHelloTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+
+                            TlsUtils.establish13PhaseEarly(tlsServerContext, clientHelloTranscriptHash, recordStream);
+
+                            recordStream.enableEarlyDataRead();
+                        }
+
                         sendServerHelloMessage(serverHello);
                         this.connection_state = CS_SERVER_HELLO;
 
@@ -1378,6 +1483,39 @@ protected void notifyClientCertificate(Certificate clientCertificate)
         TlsUtils.processClientCertificate(tlsServerContext, clientCertificate, keyExchange, tlsServer);
     }
 
+    protected void receive13EarlyData(int len)
+        throws IOException
+    {
+        if (CS_SERVER_FINISHED != connection_state
+            || !tlsServerContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        /*
+         * RFC 8446 4.2.10. If the server [..] receives more than max_early_data_size bytes of 0-RTT data, it
+         * SHOULD abort the connection with an "unexpected_message" alert.
+         */
+        this.earlyDataRemaining -= len;
+        if (earlyDataRemaining < 0L)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Too much early data");
+        }
+    }
+
+    protected void receive13EndOfEarlyData(ByteArrayInputStream buf)
+        throws IOException
+    {
+        if (!tlsServerContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        assertEmpty(buf);
+
+        recordStream.notifyEndOfEarlyDataReceived();
+    }
+
     protected void receive13ClientCertificate(ByteArrayInputStream buf)
         throws IOException
     {
@@ -1416,6 +1554,72 @@ protected void receive13ClientCertificateVerify(ByteArrayInputStream buf)
             handshakeHash);
     }
 
+    private static boolean isPSKOnly(OfferedPsks.SelectedConfig selectedPSK)
+    {
+        return null != selectedPSK && selectedPSK.pskKeyExchangeMode == PskKeyExchangeMode.psk_ke;
+    }
+
+    private boolean accept13EarlyData(OfferedPsks.SelectedConfig selectedPSK) throws IOException
+    {
+        // RFC 8446 4.2.10. [..] the PSK used to encrypt the early data MUST be the first PSK listed [..]
+        if (null == selectedPSK || 0 != selectedPSK.index || null == sessionParameters
+            || !(selectedPSK.psk instanceof TlsPSKResumption))
+        {
+            return false;
+        }
+
+        TlsPSKResumption pskResumption = (TlsPSKResumption)selectedPSK.psk;
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+
+        /*
+         * RFC 8446 4.2.10. [..] the server MUST verify that the following values are the same as those
+         * associated with the selected PSK: [..] cipher suite [..] selected ALPN protocol, if any.
+         */
+        ProtocolName applicationProtocol = securityParameters.getApplicationProtocol();
+        if (pskResumption.getMaxEarlyDataSize() < 1
+            || securityParameters.getCipherSuite() != sessionParameters.getCipherSuite()
+            || (null == applicationProtocol
+                ?   null != pskResumption.getApplicationProtocol()
+                :   !applicationProtocol.equals(pskResumption.getApplicationProtocol())))
+        {
+            return false;
+        }
+
+        TlsAntiReplay antiReplay = tlsServer.getAntiReplay();
+        if (null == antiReplay)
+        {
+            return false;
+        }
+
+        /*
+         * RFC 8446 8.3. [..] the server can determine the time at which the ClientHello was sent [..] If the
+         * expected_arrival_time is not within the window, the server [..] SHOULD reject 0-RTT [..]
+         */
+        long now = System.currentTimeMillis();
+        long clientTicketAge = (selectedPSK.identity.getObfuscatedTicketAge() - pskResumption.getTicketAgeAdd())
+            & 0xFFFFFFFFL;
+        long serverTicketAge = now - pskResumption.getTicketTime();
+        if (Math.abs(serverTicketAge - clientTicketAge) > antiReplay.getWindow())
+        {
+            return false;
+        }
+
+        return antiReplay.recordClientHello(selectedPSK.binder, now) && tlsServer.acceptEarlyData();
+    }
+
+    private long getEarlyDataSkipLimit(OfferedPsks.SelectedConfig selectedPSK)
+    {
+        long maxEarlyDataSize = tlsServer.getMaxEarlyDataSize();
+        if (null != selectedPSK && selectedPSK.psk instanceof TlsPSKResumption)
+        {
+            maxEarlyDataSize = Math.max(maxEarlyDataSize,
+                ((TlsPSKResumption)selectedPSK.psk).getMaxEarlyDataSize());
+        }
+
+        // Skipped records are counted whole, so allow for the record protection overhead (RFC 8446 5.2)
+        return maxEarlyDataSize + 256L * (1L + maxEarlyDataSize / (1 << 14));
+    }
+
     protected void receive13ClientFinished(ByteArrayInputStream buf) throws IOException
     {
         process13FinishedMessage(buf);
@@ -1605,6 +1809,58 @@ protected void sendHelloRequestMessage()
         HandshakeMessageOutput.send(this, HandshakeType.hello_request, TlsUtils.EMPTY_BYTES);
     }
 
+    protected void send13NewSessionTicketMessage(TlsTicketProtector ticketProtector)
+        throws IOException
+    {
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersConnection();
+
+        long ticketLifetime = Math.min(ticketProtector.getTicketLifetime(), DefaultTlsTicketProtector.MAX_TICKET_LIFETIME);
+        if (ticketLifetime < 1)
+        {
+            return;
+        }
+
+        long ticketAgeAdd = TlsUtils.readUint32(tlsServerContext.getNonceGenerator().generateNonce(4), 0);
+
+        // Each ticket on a connection must have a distinct nonce
+        byte[] ticketNonce = new byte[8];
+        TlsUtils.writeUint64(ticketCount++, ticketNonce, 0);
+
+        long maxEarlyDataSize = tlsServer.getMaxEarlyDataSize();
+        if (!TlsUtils.isValidUint32(maxEarlyDataSize))
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        byte[] psk = TlsUtils.derive13ResumptionPSK(securityParameters, resumptionMasterSecret, ticketNonce)
+            .extract();
+        byte[] state = TlsPSKResumption.encodeTicketState(securityParameters.getNegotiatedVersion(),
+            securityParameters.getCipherSuite(), psk, ticketAgeAdd, System.currentTimeMillis(), maxEarlyDataSize,
+            securityParameters.getApplicationProtocol(), securityParameters.getPeerCertificate());
+        Arrays.fill(psk, (byte)0);
+
+        byte[] ticket = ticketProtector.protect(state);
+        Arrays.fill(state, (byte)0);
+
+        if (null == ticket)
+        {
+            return;
+        }
+
+        Hashtable extensions = new Hashtable();
+        if (maxEarlyDataSize > 0L)
+        {
+            TlsExtensionsUtils.addEarlyDataMaxSize(extensions, maxEarlyDataSize);
+        }
+
+        NewSessionTicket13 newSessionTicket = new NewSessionTicket13(ticketLifetime, ticketAgeAdd, ticketNonce,
+            ticket, extensions);
+
+        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.new_session_ticket);
+        newSessionTicket.encode(message);
+        message.send(this);
+    }
+
     protected void sendNewSessionTicketMessage(NewSessionTicket newSessionTicket)
         throws IOException
     {
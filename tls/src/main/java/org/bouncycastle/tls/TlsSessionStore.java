@@ -0,0 +1,67 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * Interface for a store of resumption state that can be shared between servers, so that a client can resume
+ * a session with any server of a cluster. The store holds opaque byte arrays: encoded sessions (see
+ * {@link SessionParameters#encode(org.bouncycastle.tls.crypto.TlsCrypto)}) keyed by session ID, and the ring of
+ * keys protecting session tickets (see {@link DefaultTlsTicketProtector}).
+ * <p>
+ * Both contain secret key material, so the store must be protected at least as well as the private keys of
+ * the servers using it.
+ * </p>
+ * <p>
+ * Lookups are made during the handshake, which can't continue without the result, so the methods here are
+ * synchronous. An implementation backed by a remote service may complete {@link #putSession} and
+ * {@link #removeSession} asynchronously, as long as a later lookup failing to see the change is harmless (it
+ * only causes a full handshake, or resumption of a session that was just invalidated).
+ * </p>
+ */
+public interface TlsSessionStore
+{
+    /**
+     * Look up a session by its ID.
+     *
+     * @param sessionID the session ID.
+     * @return the encoded session, or null if there is no such session or it has expired.
+     * @throws IOException
+     */
+    byte[] getSession(byte[] sessionID) throws IOException;
+
+    /**
+     * Store a session, replacing any existing session with the same ID.
+     *
+     * @param sessionID the session ID.
+     * @param encoding the encoded session.
+     * @param expiresAt the time (in milliseconds since the epoch) after which the session may be discarded.
+     * @throws IOException
+     */
+    void putSession(byte[] sessionID, byte[] encoding, long expiresAt) throws IOException;
+
+    /**
+     * Remove a session, if present.
+     *
+     * @param sessionID the session ID.
+     * @throws IOException
+     */
+    void removeSession(byte[] sessionID) throws IOException;
+
+    /**
+     * Return the current ring of ticket keys.
+     *
+     * @return the encoded ticket keys, or null if none have been stored.
+     * @throws IOException
+     */
+    byte[] getTicketKeys() throws IOException;
+
+    /**
+     * Replace the ring of ticket keys.
+     *
+     * @param encoding the encoded ticket keys.
+     * @throws IOException
+     */
+    void putTicketKeys(byte[] encoding) throws IOException;
+}
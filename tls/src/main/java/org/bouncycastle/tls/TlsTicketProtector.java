@@ -0,0 +1,39 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ *
+ * Interface for the protection of TLS 1.3 session tickets. A server issuing stateless tickets places the
+ * state needed to resume the session in the ticket itself, so that state must be encrypted and authenticated
+ * with keys known only to the server (or the group of servers that should accept the ticket).
+ */
+public interface TlsTicketProtector
+{
+    /**
+     * Return the lifetime of the tickets protected by this instance. The server will not accept a ticket
+     * older than this, and it is the value sent to the client in the NewSessionTicket message.
+     *
+     * @return the ticket lifetime in seconds, which should not be more than 604800 (7 days).
+     */
+    long getTicketLifetime();
+
+    /**
+     * Protect the state for a new ticket.
+     *
+     * @param state the session state to be carried in the ticket.
+     * @return the ticket to send to the client, or null if no ticket should be issued.
+     * @throws IOException
+     */
+    byte[] protect(byte[] state) throws IOException;
+
+    /**
+     * Recover the session state from a ticket offered by a client.
+     *
+     * @param ticket the ticket offered by the client.
+     * @return the session state carried in the ticket, or null if the ticket is not recognised or not valid.
+     * @throws IOException
+     */
+    byte[] unprotect(byte[] ticket) throws IOException;
+}
@@ -1795,11 +1795,25 @@ private static void establish13TrafficSecrets(TlsContext context, byte[] transcr
         {
             securityParameters.trafficSecretServer = deriveSecret(securityParameters, phaseSecret, serverLabel,
                 transcriptHash);
-        }
 
-        // TODO[tls13] Early data (client->server only)
+            recordStream.setPendingCipher(initCipher(context));
+            return;
+        }
 
-        recordStream.setPendingCipher(initCipher(context));
+        /*
+         * Early data is client->server only. The cipher still needs a key for the server->client direction,
+         * so use the client secret there too; that direction is never used.
+         */
+        TlsSecret trafficSecretServer = securityParameters.trafficSecretServer;
+        securityParameters.trafficSecretServer = securityParameters.trafficSecretClient;
+        try
+        {
+            recordStream.setPendingCipher(initCipher(context));
+        }
+        finally
+        {
+            securityParameters.trafficSecretServer = trafficSecretServer;
+        }
     }
 
     static void establish13PhaseApplication(TlsContext context, byte[] serverFinishedTranscriptHash,
@@ -1815,6 +1829,27 @@ static void establish13PhaseApplication(TlsContext context, byte[] serverFinishe
             serverFinishedTranscriptHash);
     }
 
+    static void establish13ResumptionMasterSecret(TlsContext context, byte[] clientFinishedTranscriptHash)
+        throws IOException
+    {
+        SecurityParameters securityParameters = context.getSecurityParametersHandshake();
+
+        securityParameters.resumptionMasterSecret = deriveSecret(securityParameters,
+            securityParameters.getMasterSecret(), "res master", clientFinishedTranscriptHash);
+    }
+
+    static TlsSecret derive13ResumptionPSK(SecurityParameters securityParameters, TlsSecret resumptionMasterSecret,
+        byte[] ticketNonce) throws IOException
+    {
+        if (null == resumptionMasterSecret)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        return TlsCryptoUtils.hkdfExpandLabel(resumptionMasterSecret, securityParameters.getPRFCryptoHashAlgorithm(),
+            "resumption", ticketNonce, securityParameters.getPRFHashLength());
+    }
+
     static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscriptHash, RecordStream recordStream)
         throws IOException
     {
@@ -1823,7 +1858,6 @@ static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscri
 
         // TODO[tls13] binder_key
 
-        // TODO[tls13] Early data (client->server only)
         if (null != recordStream)
         {
             establish13TrafficSecrets(context, clientHelloTranscriptHash, phaseSecret, "c e traffic", null,
@@ -1834,6 +1868,55 @@ static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscri
             clientHelloTranscriptHash);
     }
 
+    /**
+     * Establish the early traffic keys for a client sending early data. The client sends early data before it
+     * knows the outcome of the handshake, so the early secrets are derived, and the cipher created, under the
+     * version, cipher suite and PRF of the resumption PSK it is offered under. These are kept in security
+     * parameters of their own; the handshake parameters only gain the early exporter master secret.
+     */
+    static void establish13PhaseEarlyClient(TlsClientContext clientContext, TlsPSKResumption pskResumption,
+        TlsSecret earlySecret, TlsHandshakeHash handshakeHash, RecordStream recordStream) throws IOException
+    {
+        SessionParameters sessionParameters = pskResumption.getSessionParameters();
+
+        SecurityParameters earlyParameters = new SecurityParameters();
+        earlyParameters.entity = ConnectionEnd.client;
+        earlyParameters.negotiatedVersion = sessionParameters.getNegotiatedVersion();
+        negotiatedCipherSuite(earlyParameters, sessionParameters.getCipherSuite());
+
+        byte[] clientHelloTranscriptHash;
+        {
+            TlsHash hash = clientContext.getCrypto().createHash(earlyParameters.getPRFCryptoHashAlgorithm());
+            handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+            clientHelloTranscriptHash = hash.calculateHash();
+        }
+
+        TlsSecret trafficSecretClient = deriveSecret(earlyParameters, earlySecret, "c e traffic",
+            clientHelloTranscriptHash);
+        try
+        {
+            /*
+             * Early data is client->server only. The cipher still needs a key for the server->client direction,
+             * so use the client secret there too; that direction is never used.
+             */
+            earlyParameters.trafficSecretClient = trafficSecretClient;
+            earlyParameters.trafficSecretServer = trafficSecretClient;
+
+            recordStream.setPendingCipher(initCipher(clientContext, earlyParameters));
+        }
+        finally
+        {
+            earlyParameters.trafficSecretClient = null;
+            earlyParameters.trafficSecretServer = null;
+
+            trafficSecretClient.destroy();
+        }
+
+        SecurityParameters securityParameters = clientContext.getSecurityParametersHandshake();
+        securityParameters.earlyExporterMasterSecret = deriveSecret(earlyParameters, earlySecret, "e exp master",
+            clientHelloTranscriptHash);
+    }
+
     static void establish13PhaseHandshake(TlsContext context, byte[] serverHelloTranscriptHash,
         RecordStream recordStream) throws IOException
     {
@@ -4595,6 +4678,42 @@ static TlsCipher initCipher(TlsContext context) throws IOException
         return context.getCrypto().createCipher(new TlsCryptoParameters(context), encryptionAlgorithm, macAlgorithm);
     }
 
+    /**
+     * Create a cipher from security parameters other than those of the context (e.g. for early data).
+     */
+    private static TlsCipher initCipher(TlsContext context, final SecurityParameters securityParameters)
+        throws IOException
+    {
+        int cipherSuite = securityParameters.getCipherSuite();
+        int encryptionAlgorithm = getEncryptionAlgorithm(cipherSuite);
+        int macAlgorithm = getMACAlgorithm(cipherSuite);
+
+        if (encryptionAlgorithm < 0 || macAlgorithm < 0)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        TlsCryptoParameters cryptoParams = new TlsCryptoParameters(context)
+        {
+            public SecurityParameters getSecurityParametersConnection()
+            {
+                return securityParameters;
+            }
+
+            public SecurityParameters getSecurityParametersHandshake()
+            {
+                return securityParameters;
+            }
+
+            public ProtocolVersion getServerVersion()
+            {
+                return securityParameters.getNegotiatedVersion();
+            }
+        };
+
+        return context.getCrypto().createCipher(cryptoParams, encryptionAlgorithm, macAlgorithm);
+    }
+
     /**
      * Check the signature algorithm for certificates in the peer's CertPath as specified in RFC
      * 5246 7.4.2, 7.4.4, 7.4.6 and similar rules for earlier TLS versions. The supplied CertPath
@@ -5859,8 +5978,13 @@ static void addPreSharedKeyToClientExtensions(TlsPSK[] psks, Hashtable clientExt
         {
             TlsPSK psk = psks[i];
 
-            // TODO[tls13-psk] Handle obfuscated_ticket_age for resumption PSKs
-            identities.add(new PskIdentity(psk.getIdentity(), 0L));
+            long obfuscatedTicketAge = 0L;
+            if (psk instanceof TlsPSKResumption)
+            {
+                obfuscatedTicketAge = ((TlsPSKResumption)psk).getObfuscatedTicketAge(System.currentTimeMillis());
+            }
+
+            identities.add(new PskIdentity(psk.getIdentity(), obfuscatedTicketAge));
         }
 
         TlsExtensionsUtils.addPreSharedKeyClientHello(clientExtensions, new OfferedPsks(identities));
@@ -5874,8 +5998,9 @@ static OfferedPsks.BindersConfig addPreSharedKeyToClientHello(TlsClientContext c
             return null;
         }
 
+        TlsPSKResumption pskResumption = getPSKResumptionClient(client, offeredCipherSuites);
         TlsPSKExternal[] pskExternals = getPSKExternalsClient(client, offeredCipherSuites);
-        if (null == pskExternals)
+        if (null == pskResumption && null == pskExternals)
         {
             return null;
         }
@@ -5884,17 +6009,33 @@ static OfferedPsks.BindersConfig addPreSharedKeyToClientHello(TlsClientContext c
         if (isNullOrEmpty(pskKeyExchangeModes))
         {
             throw new TlsFatalAlert(AlertDescription.internal_error,
-                "External PSKs configured but no PskKeyExchangeMode available");
+                "PSKs configured but no PskKeyExchangeMode available");
         }
 
-        TlsSecret[] pskEarlySecrets = getPSKEarlySecrets(clientContext.getCrypto(), pskExternals);
+        TlsPSK[] psks;
+        if (null == pskResumption)
+        {
+            psks = pskExternals;
+        }
+        else if (null == pskExternals)
+        {
+            psks = new TlsPSK[]{ pskResumption };
+        }
+        else
+        {
+            psks = new TlsPSK[1 + pskExternals.length];
+            psks[0] = pskResumption;
+            System.arraycopy(pskExternals, 0, psks, 1, pskExternals.length);
+        }
 
-        int bindersSize = OfferedPsks.getBindersSize(pskExternals);
+        TlsSecret[] pskEarlySecrets = getPSKEarlySecrets(clientContext.getCrypto(), psks);
 
-        addPreSharedKeyToClientExtensions(pskExternals, clientExtensions);
+        int bindersSize = OfferedPsks.getBindersSize(psks);
+
+        addPreSharedKeyToClientExtensions(psks, clientExtensions);
         TlsExtensionsUtils.addPSKKeyExchangeModesExtension(clientExtensions, pskKeyExchangeModes);
 
-        return new OfferedPsks.BindersConfig(pskExternals, pskKeyExchangeModes, pskEarlySecrets, bindersSize);
+        return new OfferedPsks.BindersConfig(psks, pskKeyExchangeModes, pskEarlySecrets, bindersSize);
     }
 
     static OfferedPsks.BindersConfig addPreSharedKeyToClientHelloRetry(TlsClientContext clientContext,
@@ -5952,52 +6093,68 @@ static OfferedPsks.SelectedConfig selectPreSharedKey(TlsServerContext serverCont
                 throw new TlsFatalAlert(AlertDescription.missing_extension);
             }
 
-            // TODO[tls13] Add support for psk_ke?
-            if (Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
+            short pskKeyExchangeMode = selectPskKeyExchangeMode(server, pskKeyExchangeModes, afterHelloRetryRequest);
+            if (pskKeyExchangeMode >= 0)
             {
-                // TODO[tls13] Prefer to get the exact index from the server?
-                TlsPSKExternal psk = server.getExternalPSK(offeredPsks.getIdentities());
-                if (null != psk)
+                TlsPSK psk = null;
+                int index = -1;
+
+                TlsPSKResumption pskResumption = selectPSKResumption(serverContext, server, offeredPsks);
+                if (null != pskResumption)
                 {
-                    int index = offeredPsks.getIndexOfIdentity(new PskIdentity(psk.getIdentity(), 0L));
-                    if (index >= 0)
+                    psk = pskResumption;
+                    index = getIndexOfTicket(offeredPsks, pskResumption.getIdentity());
+                }
+                else
+                {
+                    // TODO[tls13] Prefer to get the exact index from the server?
+                    TlsPSKExternal pskExternal = server.getExternalPSK(offeredPsks.getIdentities());
+                    if (null != pskExternal)
                     {
-                        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
+                        psk = pskExternal;
+                        index = offeredPsks.getIndexOfIdentity(new PskIdentity(pskExternal.getIdentity(), 0L));
+                    }
+                }
 
-                        TlsCrypto crypto = serverContext.getCrypto();
-                        TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
+                if (index >= 0)
+                {
+                    byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
 
-                        // TODO[tls13-psk] Handle resumption PSKs
-                        boolean isExternalPSK = true;
-                        int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
+                    TlsCrypto crypto = serverContext.getCrypto();
+                    TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
 
-                        byte[] transcriptHash;
-                        {
-                            handshakeHashUpdated = true;
-                            int bindersSize = offeredPsks.getBindersSize();
-                            clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
-
-                            if (afterHelloRetryRequest)
-                            {
-                                transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
-                            }
-                            else
-                            {
-                                TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
-                                handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
-                                transcriptHash = hash.calculateHash();
-                            }
-
-                            clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
-                        }
+                    boolean isExternalPSK = !(psk instanceof TlsPSKResumption);
+                    int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
 
-                        byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
-                            earlySecret, transcriptHash);
+                    byte[] transcriptHash;
+                    {
+                        handshakeHashUpdated = true;
+                        int bindersSize = offeredPsks.getBindersSize();
+                        clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
 
-                        if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
+                        if (afterHelloRetryRequest)
                         {
-                            return new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
+                            transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
                         }
+                        else
+                        {
+                            TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
+                            handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+                            transcriptHash = hash.calculateHash();
+                        }
+
+                        clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
+                    }
+
+                    byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
+                        earlySecret, transcriptHash);
+
+                    if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
+                    {
+                        PskIdentity identity = (PskIdentity)offeredPsks.getIdentities().elementAt(index);
+
+                        return new OfferedPsks.SelectedConfig(index, identity, binder, psk, pskKeyExchangeModes,
+                            pskKeyExchangeMode, earlySecret);
                     }
                 }
             }
@@ -6011,6 +6168,92 @@ static OfferedPsks.SelectedConfig selectPreSharedKey(TlsServerContext serverCont
         return null;
     }
 
+    private static short selectPskKeyExchangeMode(TlsServer server, short[] clientModes,
+        boolean afterHelloRetryRequest)
+    {
+        /*
+         * A HelloRetryRequest is only sent to get a key share, so after one we only accept psk_dhe_ke.
+         */
+        if (afterHelloRetryRequest)
+        {
+            return Arrays.contains(clientModes, PskKeyExchangeMode.psk_dhe_ke) ? PskKeyExchangeMode.psk_dhe_ke : -1;
+        }
+
+        short[] serverModes = server.getPskKeyExchangeModes();
+        if (null != serverModes)
+        {
+            for (int i = 0; i < serverModes.length; ++i)
+            {
+                short serverMode = serverModes[i];
+                if (Arrays.contains(clientModes, serverMode))
+                {
+                    return serverMode;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int getIndexOfTicket(OfferedPsks offeredPsks, byte[] ticket)
+    {
+        // The obfuscated_ticket_age differs between offers, so match on the ticket alone
+        Vector identities = offeredPsks.getIdentities();
+        for (int i = 0, count = identities.size(); i < count; ++i)
+        {
+            if (Arrays.areEqual(ticket, ((PskIdentity)identities.elementAt(i)).getIdentity()))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static TlsPSKResumption selectPSKResumption(TlsServerContext serverContext, TlsServer server,
+        OfferedPsks offeredPsks) throws IOException
+    {
+        TlsTicketProtector ticketProtector = server.getTicketProtector();
+        if (null == ticketProtector)
+        {
+            return null;
+        }
+
+        TlsCrypto crypto = serverContext.getCrypto();
+        long ticketLifetime = Math.min(ticketProtector.getTicketLifetime(), DefaultTlsTicketProtector.MAX_TICKET_LIFETIME);
+        long now = System.currentTimeMillis();
+
+        Vector identities = offeredPsks.getIdentities();
+        for (int i = 0; i < identities.size(); ++i)
+        {
+            byte[] ticket = ((PskIdentity)identities.elementAt(i)).getIdentity();
+
+            byte[] state = ticketProtector.unprotect(ticket);
+            if (null == state)
+            {
+                continue;
+            }
+
+            TlsPSKResumption pskResumption;
+            try
+            {
+                pskResumption = TlsPSKResumption.parseTicketState(crypto, ticket, state, ticketLifetime);
+            }
+            catch (IOException e)
+            {
+                pskResumption = null;
+            }
+            finally
+            {
+                Arrays.fill(state, (byte)0);
+            }
+
+            if (null != pskResumption && !pskResumption.isExpired(now))
+            {
+                return pskResumption;
+            }
+        }
+        return null;
+    }
+
     static TlsSecret getPSKEarlySecret(TlsCrypto crypto, TlsPSK psk)
     {
         int cryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
@@ -6031,6 +6274,61 @@ static TlsSecret[] getPSKEarlySecrets(TlsCrypto crypto, TlsPSK[] psks)
         return earlySecrets;
     }
 
+    static TlsPSKResumption getPSKResumptionClient(TlsClient client, int[] offeredCipherSuites)
+    {
+        TlsPSKResumption pskResumption = client.getResumptionPSK();
+        if (null == pskResumption
+            || pskResumption.isExpired(System.currentTimeMillis())
+            || !Arrays.contains(getPRFAlgorithms13(offeredCipherSuites), pskResumption.getPRFAlgorithm()))
+        {
+            return null;
+        }
+        return pskResumption;
+    }
+
+    static byte[] addEarlyDataToClientHello(TlsClient client, OfferedPsks.BindersConfig clientBinders,
+        int[] offeredCipherSuites, Hashtable clientExtensions) throws IOException
+    {
+        // RFC 8446 4.2.10. [..] the PSK used to encrypt the early data MUST be the first PSK listed [..]
+        if (null == clientBinders || !(clientBinders.psks[0] instanceof TlsPSKResumption))
+        {
+            return null;
+        }
+
+        TlsPSKResumption pskResumption = (TlsPSKResumption)clientBinders.psks[0];
+
+        long maxEarlyDataSize = pskResumption.getMaxEarlyDataSize();
+        if (maxEarlyDataSize < 1
+            || !Arrays.contains(offeredCipherSuites, pskResumption.getSessionParameters().getCipherSuite()))
+        {
+            return null;
+        }
+
+        /*
+         * RFC 8446 4.2.10. [..] the server MUST verify that [..] the selected ALPN protocol [is the same as the
+         * one] associated with the selected PSK. So only send early data if that protocol is being offered.
+         */
+        ProtocolName applicationProtocol = pskResumption.getApplicationProtocol();
+        if (null != applicationProtocol)
+        {
+            Vector protocolNames = TlsExtensionsUtils.getALPNExtensionClient(clientExtensions);
+            if (null == protocolNames || !protocolNames.contains(applicationProtocol))
+            {
+                return null;
+            }
+        }
+
+        byte[] earlyData = client.getEarlyData();
+        if (null == earlyData || earlyData.length < 1 || earlyData.length > maxEarlyDataSize)
+        {
+            return null;
+        }
+
+        TlsExtensionsUtils.addEarlyDataIndication(clientExtensions);
+
+        return earlyData;
+    }
+
     static TlsPSKExternal[] getPSKExternalsClient(TlsClient client, int[] offeredCipherSuites) throws IOException
     {
         Vector externalPSKs = client.getExternalPSKs();
@@ -0,0 +1,74 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketTimeoutException;
+
+public class UDPServerTransport
+    implements DatagramPacketTransport
+{
+    protected final static int MIN_IP_OVERHEAD = 20;
+    protected final static int MAX_IP_OVERHEAD = MIN_IP_OVERHEAD + 64;
+    protected final static int UDP_OVERHEAD = 8;
+
+    protected final DatagramSocket socket;
+    protected final int receiveLimit, sendLimit;
+
+    public UDPServerTransport(DatagramSocket socket, int mtu)
+        throws IOException
+    {
+        if (!socket.isBound() || socket.isConnected())
+        {
+            throw new IllegalArgumentException("'socket' must be bound and not connected");
+        }
+
+        this.socket = socket;
+
+        this.receiveLimit = mtu - MIN_IP_OVERHEAD - UDP_OVERHEAD;
+        this.sendLimit = mtu - MAX_IP_OVERHEAD - UDP_OVERHEAD;
+    }
+
+    public int getReceiveLimit()
+    {
+        return receiveLimit;
+    }
+
+    public int getSendLimit()
+    {
+        return sendLimit;
+    }
+
+    public boolean receive(DatagramPacket packet, int waitMillis)
+        throws IOException
+    {
+        socket.setSoTimeout(waitMillis);
+        try
+        {
+            socket.receive(packet);
+            return true;
+        }
+        catch (SocketTimeoutException e)
+        {
+            return false;
+        }
+    }
+
+    public void send(DatagramPacket packet)
+        throws IOException
+    {
+        if (packet.getLength() > getSendLimit())
+        {
+            // See UDPTransport.send
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        socket.send(packet);
+    }
+
+    public void close()
+        throws IOException
+    {
+        socket.close();
+    }
+}
@@ -50,6 +50,9 @@ public int doFinal(byte[] input, int inputOffset, int inputLength, byte[] output
         }
         catch (InvalidCipherTextException e)
         {
+            // NOTE: A failed decryption can be survived (when skipping rejected early data), so leave no state behind
+            cipher.reset();
+
             throw new TlsFatalAlert(AlertDescription.bad_record_mac, e);
         }
 
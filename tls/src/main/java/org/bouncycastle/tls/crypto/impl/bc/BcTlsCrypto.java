@@ -27,6 +27,7 @@
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.modes.CCMBlockCipher;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.gcm.Tables16kGCMMultiplier;
 import org.bouncycastle.crypto.params.SRP6GroupParameters;
 import org.bouncycastle.crypto.prng.DigestRandomGenerator;
 import org.bouncycastle.tls.AlertDescription;
@@ -77,11 +78,33 @@
 {
     private final SecureRandom entropySource;
 
+    private volatile BcTlsKeySharePool keySharePool = null;
+
     public BcTlsCrypto(SecureRandom entropySource)
     {
         this.entropySource = entropySource;
     }
 
+    /**
+     * @return The pool of pre-generated ephemeral key pairs, or null if key pairs are always generated inline.
+     */
+    public BcTlsKeySharePool getKeySharePool()
+    {
+        return keySharePool;
+    }
+
+    /**
+     * Set a pool of pre-generated ephemeral key pairs for ECDHE, X25519 and X448 key exchange. The caller remains
+     * responsible for starting and stopping the pool.
+     *
+     * @param keySharePool
+     *            The {@link BcTlsKeySharePool} to take key pairs from, or null to generate them inline.
+     */
+    public void setKeySharePool(BcTlsKeySharePool keySharePool)
+    {
+        this.keySharePool = keySharePool;
+    }
+
     BcTlsSecret adoptLocalSecret(byte[] data)
     {
         return new BcTlsSecret(this, data);
@@ -583,7 +606,7 @@ protected AEADBlockCipher createCCMMode(BlockCipher engine)
     protected AEADBlockCipher createGCMMode(BlockCipher engine)
     {
         // TODO Consider allowing custom configuration of multiplier
-        return new GCMBlockCipher(engine);
+        return new GCMBlockCipher(engine, new Tables16kGCMMultiplier());
     }
 
     protected AEADBlockCipher createAEADBlockCipher_AES_CCM()
@@ -25,7 +25,12 @@ public BcTlsECDH(BcTlsECDomain domain)
 
     public byte[] generateEphemeral() throws IOException
     {
-        this.localKeyPair = domain.generateKeyPair();
+        BcTlsKeySharePool keySharePool = domain.crypto.getKeySharePool();
+        AsymmetricCipherKeyPair keyPair = null == keySharePool
+            ?   null
+            :   keySharePool.takeECKeyPair(domain.ecConfig.getNamedGroup());
+
+        this.localKeyPair = null != keyPair ? keyPair : domain.generateKeyPair();
 
         return domain.encodePublicKey((ECPublicKeyParameters)localKeyPair.getPublic());
     }
@@ -0,0 +1,309 @@
+package org.bouncycastle.tls.crypto.impl.bc;
+
+import java.security.SecureRandom;
+import java.util.Vector;
+
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
+import org.bouncycastle.math.ec.rfc7748.X25519;
+import org.bouncycastle.math.ec.rfc7748.X448;
+import org.bouncycastle.tls.NamedGroup;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * WARNING: EXPERIMENTAL FEATURE, UNSTABLE API
+ * <p>
+ * A bounded pool of ephemeral key pairs for {@link BcTlsECDH}, {@link BcX25519} and {@link BcX448}, generated in
+ * advance by a background thread, so that key generation is taken out of the handshake during bursts of new
+ * connections. Install it with {@link BcTlsCrypto#setKeySharePool(BcTlsKeySharePool)}.
+ * </p>
+ * <p>
+ * Each key pair is removed from the pool when it is taken, so it is used by at most one key exchange. When the pool
+ * for a group is empty, the key pair is generated inline as usual.
+ * </p>
+ */
+public class BcTlsKeySharePool
+{
+    private final SecureRandom random;
+    private final int[] namedGroups;
+    private final ECDomainParameters[] ecDomains;
+    private final Vector[] pools;
+    private final int capacity;
+
+    private Thread refillThread = null;
+
+    /**
+     * @param random
+     *            The {@link SecureRandom} to generate the key pairs with.
+     * @param namedGroups
+     *            The groups (see {@link NamedGroup}) to hold key pairs for: x25519, x448, or specific EC curves.
+     * @param capacity
+     *            The number of key pairs to hold for each group.
+     */
+    public BcTlsKeySharePool(SecureRandom random, int[] namedGroups, int capacity)
+    {
+        if (null == random)
+        {
+            throw new NullPointerException("'random' cannot be null");
+        }
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("'capacity' must be > 0");
+        }
+
+        this.random = random;
+        this.namedGroups = Arrays.clone(namedGroups);
+        this.ecDomains = new ECDomainParameters[namedGroups.length];
+        this.pools = new Vector[namedGroups.length];
+        this.capacity = capacity;
+
+        for (int i = 0; i < namedGroups.length; ++i)
+        {
+            int namedGroup = namedGroups[i];
+            if (NamedGroup.x25519 != namedGroup && NamedGroup.x448 != namedGroup)
+            {
+                ECDomainParameters ecDomain = BcTlsECDomain.getDomainParameters(namedGroup);
+                if (null == ecDomain)
+                {
+                    throw new IllegalArgumentException("'namedGroups' contains an unsupported group: "
+                        + NamedGroup.getText(namedGroup));
+                }
+                ecDomains[i] = ecDomain;
+            }
+            pools[i] = new Vector(capacity);
+        }
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return The number of key pairs currently held for the given group.
+     */
+    public synchronized int getAvailable(int namedGroup)
+    {
+        int index = getIndex(namedGroup);
+        return index < 0 ? 0 : pools[index].size();
+    }
+
+    /**
+     * Fill the pool on the calling thread, e.g. to warm it up before accepting connections.
+     */
+    public void fill()
+    {
+        int index;
+        while ((index = getDepletedIndex()) >= 0)
+        {
+            addKeyPair(index, generateKeyPair(index));
+        }
+    }
+
+    /**
+     * Start a daemon thread that keeps the pool filled. Has no effect if it is already running.
+     */
+    public synchronized void start()
+    {
+        if (null != refillThread)
+        {
+            return;
+        }
+
+        Thread thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                refill();
+            }
+        }, "BcTlsKeySharePool");
+        thread.setDaemon(true);
+
+        this.refillThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Stop the refill thread (if running) and discard the key pairs held by the pool.
+     */
+    public synchronized void stop()
+    {
+        this.refillThread = null;
+        notifyAll();
+
+        for (int i = 0; i < pools.length; ++i)
+        {
+            Vector pool = pools[i];
+            for (int j = 0; j < pool.size(); ++j)
+            {
+                clearKeyPair(pool.elementAt(j));
+            }
+            pool.removeAllElements();
+        }
+    }
+
+    AsymmetricCipherKeyPair takeECKeyPair(int namedGroup)
+    {
+        return (AsymmetricCipherKeyPair)takeKeyPair(namedGroup);
+    }
+
+    boolean takeRawKeyPair(int namedGroup, byte[] privateKey, byte[] publicKey)
+    {
+        byte[][] keyPair = (byte[][])takeKeyPair(namedGroup);
+        if (null == keyPair)
+        {
+            return false;
+        }
+
+        System.arraycopy(keyPair[0], 0, privateKey, 0, privateKey.length);
+        System.arraycopy(keyPair[1], 0, publicKey, 0, publicKey.length);
+        clearKeyPair(keyPair);
+        return true;
+    }
+
+    private synchronized Object takeKeyPair(int namedGroup)
+    {
+        int index = getIndex(namedGroup);
+        if (index < 0 || pools[index].isEmpty())
+        {
+            return null;
+        }
+
+        Object keyPair = pools[index].elementAt(0);
+        pools[index].removeElementAt(0);
+        notifyAll();
+        return keyPair;
+    }
+
+    private void refill()
+    {
+        Thread current = Thread.currentThread();
+
+        for (;;)
+        {
+            int index = -1;
+
+            synchronized (this)
+            {
+                try
+                {
+                    while (current == refillThread && (index = getDepletedIndex()) < 0)
+                    {
+                        wait();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    if (current == refillThread)
+                    {
+                        this.refillThread = null;
+                    }
+                    return;
+                }
+
+                if (current != refillThread)
+                {
+                    return;
+                }
+            }
+
+            // NOTE: The key pair is generated without holding the lock, so handshakes can keep taking key pairs
+            Object keyPair = generateKeyPair(index);
+
+            synchronized (this)
+            {
+                if (current != refillThread)
+                {
+                    clearKeyPair(keyPair);
+                    return;
+                }
+
+                addKeyPair(index, keyPair);
+            }
+        }
+    }
+
+    private synchronized void addKeyPair(int index, Object keyPair)
+    {
+        Vector pool = pools[index];
+        if (pool.size() < capacity)
+        {
+            pool.addElement(keyPair);
+        }
+        else
+        {
+            clearKeyPair(keyPair);
+        }
+    }
+
+    private Object generateKeyPair(int index)
+    {
+        switch (namedGroups[index])
+        {
+        case NamedGroup.x25519:
+        {
+            byte[] privateKey = new byte[X25519.SCALAR_SIZE];
+            random.nextBytes(privateKey);
+
+            byte[] publicKey = new byte[X25519.POINT_SIZE];
+            X25519.scalarMultBase(privateKey, 0, publicKey, 0);
+            return new byte[][]{ privateKey, publicKey };
+        }
+        case NamedGroup.x448:
+        {
+            byte[] privateKey = new byte[X448.SCALAR_SIZE];
+            random.nextBytes(privateKey);
+
+            byte[] publicKey = new byte[X448.POINT_SIZE];
+            X448.scalarMultBase(privateKey, 0, publicKey, 0);
+            return new byte[][]{ privateKey, publicKey };
+        }
+        default:
+        {
+            ECKeyPairGenerator keyPairGenerator = new ECKeyPairGenerator();
+            keyPairGenerator.init(new ECKeyGenerationParameters(ecDomains[index], random));
+            return keyPairGenerator.generateKeyPair();
+        }
+        }
+    }
+
+    /**
+     * @return The index of the group holding the fewest key pairs, or -1 if every group is full.
+     */
+    private synchronized int getDepletedIndex()
+    {
+        int result = -1, fewest = capacity;
+        for (int i = 0; i < pools.length; ++i)
+        {
+            int size = pools[i].size();
+            if (size < fewest)
+            {
+                result = i;
+                fewest = size;
+            }
+        }
+        return result;
+    }
+
+    private int getIndex(int namedGroup)
+    {
+        for (int i = 0; i < namedGroups.length; ++i)
+        {
+            if (namedGroup == namedGroups[i])
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void clearKeyPair(Object keyPair)
+    {
+        if (keyPair instanceof byte[][])
+        {
+            Arrays.fill(((byte[][])keyPair)[0], (byte)0);
+        }
+    }
+}
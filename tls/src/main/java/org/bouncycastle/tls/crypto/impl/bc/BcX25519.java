@@ -4,6 +4,7 @@
 
 import org.bouncycastle.math.ec.rfc7748.X25519;
 import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.NamedGroup;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.crypto.TlsAgreement;
 import org.bouncycastle.tls.crypto.TlsSecret;
@@ -25,10 +26,14 @@ public BcX25519(BcTlsCrypto crypto)
 
     public byte[] generateEphemeral() throws IOException
     {
-        crypto.getSecureRandom().nextBytes(privateKey);
-
         byte[] publicKey = new byte[X25519.POINT_SIZE];
-        X25519.scalarMultBase(privateKey, 0, publicKey, 0);
+
+        BcTlsKeySharePool keySharePool = crypto.getKeySharePool();
+        if (null == keySharePool || !keySharePool.takeRawKeyPair(NamedGroup.x25519, privateKey, publicKey))
+        {
+            crypto.getSecureRandom().nextBytes(privateKey);
+            X25519.scalarMultBase(privateKey, 0, publicKey, 0);
+        }
         return publicKey;
     }
 
@@ -4,6 +4,7 @@
 
 import org.bouncycastle.math.ec.rfc7748.X448;
 import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.NamedGroup;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.crypto.TlsAgreement;
 import org.bouncycastle.tls.crypto.TlsSecret;
@@ -25,10 +26,14 @@ public BcX448(BcTlsCrypto crypto)
 
     public byte[] generateEphemeral() throws IOException
     {
-        crypto.getSecureRandom().nextBytes(privateKey);
-
         byte[] publicKey = new byte[X448.POINT_SIZE];
-        X448.scalarMultBase(privateKey, 0, publicKey, 0);
+
+        BcTlsKeySharePool keySharePool = crypto.getKeySharePool();
+        if (null == keySharePool || !keySharePool.takeRawKeyPair(NamedGroup.x448, privateKey, publicKey))
+        {
+            crypto.getSecureRandom().nextBytes(privateKey);
+            X448.scalarMultBase(privateKey, 0, publicKey, 0);
+        }
         return publicKey;
     }
 
@@ -116,10 +116,10 @@ private void runTestConnection() throws Throwable
             clientToServer.flip();
             serverToClient.flip();
 
-            clientResult = clientEngine.unwrap(serverToClient, clientIn);
+            clientResult = unwrap(clientEngine, serverToClient, clientIn);
             runDelegatedTasks(clientEngine, clientResult);
 
-            serverResult = serverEngine.unwrap(clientToServer, serverIn);
+            serverResult = unwrap(serverEngine, clientToServer, serverIn);
             runDelegatedTasks(serverEngine, serverResult);
 
             clientToServer.compact();
@@ -138,6 +138,22 @@ private void runTestConnection() throws Throwable
         }
     }
 
+    private static SSLEngineResult unwrap(SSLEngine engine, ByteBuffer src, ByteBuffer dst) throws Exception
+    {
+        ByteBuffer original = ByteBuffer.allocate(src.remaining());
+        original.put(src.duplicate());
+        original.flip();
+
+        ByteBuffer input = src.duplicate();
+
+        SSLEngineResult result = engine.unwrap(src, dst);
+
+        // The engine must not modify 'src' (e.g. by decrypting records in place)
+        assertEquals(original, input);
+
+        return result;
+    }
+
     private static void checkData(ByteBuffer a, ByteBuffer b) throws Exception
     {
         a.flip();
@@ -180,17 +196,20 @@ private static boolean isEngineClosed(SSLEngine engine)
         return (engine.isOutboundDone() && engine.isInboundDone());
     }
 
-    private static void runDelegatedTasks(SSLEngine engine, SSLEngineResult result)
+    private static void runDelegatedTasks(SSLEngine engine, SSLEngineResult result) throws InterruptedException
     {
         if (HandshakeStatus.NEED_TASK != result.getHandshakeStatus())
         {
             return;
         }
 
+        // Run the tasks on another thread, as an application would
         Runnable runnable;
         while ((runnable = engine.getDelegatedTask()) != null)
         {
-            runnable.run();
+            Thread thread = new Thread(runnable);
+            thread.start();
+            thread.join();
         }
 
         assertTrue(HandshakeStatus.NEED_TASK != engine.getHandshakeStatus());
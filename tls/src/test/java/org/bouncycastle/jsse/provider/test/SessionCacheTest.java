@@ -0,0 +1,263 @@
+package org.bouncycastle.jsse.provider.test;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.bouncycastle.jsse.BCSSLSessionContext;
+
+import junit.framework.TestCase;
+
+public class SessionCacheTest
+    extends TestCase
+{
+    private static final String HOST = "localhost";
+
+    private SSLContext clientContext;
+    private SSLContext serverContext;
+    private int nextPort = 1000;
+
+    protected void setUp() throws Exception
+    {
+        ProviderUtils.setupLowPriority(false);
+
+        char[] keyPass = "keyPassword".toCharArray();
+
+        KeyPair caKeyPair = TestUtils.generateECKeyPair();
+        X509Certificate caCert = TestUtils.generateRootCert(caKeyPair);
+
+        KeyStore serverKs = KeyStore.getInstance("PKCS12", ProviderUtils.PROVIDER_NAME_BC);
+        serverKs.load(null, null);
+        serverKs.setKeyEntry("server", caKeyPair.getPrivate(), keyPass, new X509Certificate[]{ caCert });
+
+        KeyStore trustStore = KeyStore.getInstance("PKCS12", ProviderUtils.PROVIDER_NAME_BC);
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("server", caCert);
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        kmf.init(serverKs, keyPass);
+
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        tmf.init(trustStore);
+
+        SecureRandom random = SecureRandom.getInstance("DEFAULT", ProviderUtils.PROVIDER_NAME_BC);
+
+        this.serverContext = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        serverContext.init(kmf.getKeyManagers(), null, random);
+
+        this.clientContext = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        clientContext.init(null, tmf.getTrustManagers(), random);
+    }
+
+    public void testResumptionCounters() throws Exception
+    {
+        BCSSLSessionContext stats = getServerStats();
+
+        int port = nextPort();
+
+        // A client with no session to offer doesn't cause a lookup
+        SSLSession session = connect(port);
+        assertEquals(1, stats.getCachedSessionCount());
+        assertEquals(0, stats.getSessionCacheHits());
+        assertEquals(0, stats.getSessionCacheMisses());
+
+        SSLSession resumed = connect(port);
+        assertTrue(Arrays.equals(session.getId(), resumed.getId()));
+        assertEquals(1, stats.getSessionCacheHits());
+        assertEquals(0, stats.getSessionCacheMisses());
+
+        // The client still offers the session, but the server no longer has it
+        resumed.invalidate();
+        assertEquals(0, stats.getCachedSessionCount());
+
+        SSLSession full = connect(port);
+        assertFalse(Arrays.equals(session.getId(), full.getId()));
+        assertEquals(1, stats.getSessionCacheHits());
+        assertEquals(1, stats.getSessionCacheMisses());
+
+        // Invalidated sessions are not expirations
+        assertEquals(0, stats.getSessionCacheExpirations());
+    }
+
+    public void testApplicationLookupsNotCounted() throws Exception
+    {
+        BCSSLSessionContext stats = getServerStats();
+        SSLSessionContext sessionContext = serverContext.getServerSessionContext();
+
+        SSLSession session = connect(nextPort());
+
+        assertNotNull(sessionContext.getSession(session.getId()));
+        assertNull(sessionContext.getSession(new byte[32]));
+
+        assertEquals(0, stats.getSessionCacheHits());
+        assertEquals(0, stats.getSessionCacheMisses());
+    }
+
+    public void testTimeoutExpiration() throws Exception
+    {
+        BCSSLSessionContext stats = getServerStats();
+        SSLSessionContext sessionContext = serverContext.getServerSessionContext();
+
+        sessionContext.setSessionTimeout(1);
+
+        SSLSession session = connect(nextPort());
+
+        Thread.sleep(1100);
+
+        assertNull(sessionContext.getSession(session.getId()));
+        assertEquals(0, stats.getCachedSessionCount());
+        assertEquals(1, stats.getSessionCacheExpirations());
+    }
+
+    public void testCachedSessionCount() throws Exception
+    {
+        BCSSLSessionContext stats = getServerStats();
+
+        for (int i = 0; i < 10; ++i)
+        {
+            connect(nextPort());
+        }
+
+        assertEquals(10, stats.getCachedSessionCount());
+        assertEquals(10, Collections.list(serverContext.getServerSessionContext().getIds()).size());
+        assertEquals(0, stats.getSessionCacheEvictions());
+    }
+
+    public void testCacheSizeIsGlobal() throws Exception
+    {
+        BCSSLSessionContext stats = getServerStats();
+
+        serverContext.getServerSessionContext().setSessionCacheSize(1);
+
+        SSLSession session = null;
+        for (int i = 0; i < 20; ++i)
+        {
+            session = connect(nextPort());
+        }
+
+        // The newest session is the one kept
+        assertEquals(1, stats.getCachedSessionCount());
+        assertEquals(19, stats.getSessionCacheEvictions());
+        assertNotNull(serverContext.getServerSessionContext().getSession(session.getId()));
+
+        serverContext.getServerSessionContext().setSessionCacheSize(5);
+
+        for (int i = 0; i < 10; ++i)
+        {
+            connect(nextPort());
+        }
+
+        assertEquals(5, stats.getCachedSessionCount());
+        assertEquals(19 + 6, stats.getSessionCacheEvictions());
+    }
+
+    public void testReduceCacheSize() throws Exception
+    {
+        BCSSLSessionContext stats = getServerStats();
+
+        for (int i = 0; i < 20; ++i)
+        {
+            connect(nextPort());
+        }
+
+        assertEquals(20, stats.getCachedSessionCount());
+
+        serverContext.getServerSessionContext().setSessionCacheSize(5);
+
+        assertEquals(5, stats.getCachedSessionCount());
+        assertEquals(15, stats.getSessionCacheEvictions());
+        assertEquals(5, Collections.list(serverContext.getServerSessionContext().getIds()).size());
+    }
+
+    private BCSSLSessionContext getServerStats()
+    {
+        return (BCSSLSessionContext)serverContext.getServerSessionContext();
+    }
+
+    private int nextPort()
+    {
+        return nextPort++;
+    }
+
+    /*
+     * Runs a TLS 1.2 handshake between in-memory engines, using the client's peer port to choose whether the
+     * client offers a cached session, and returns the server's session.
+     */
+    private SSLSession connect(int port) throws Exception
+    {
+        SSLEngine clientEngine = clientContext.createSSLEngine(HOST, port);
+        clientEngine.setEnabledProtocols(new String[]{ "TLSv1.2" });
+        clientEngine.setUseClientMode(true);
+
+        SSLEngine serverEngine = serverContext.createSSLEngine();
+        serverEngine.setEnabledProtocols(new String[]{ "TLSv1.2" });
+        serverEngine.setUseClientMode(false);
+
+        int appBufSize = Math.max(clientEngine.getSession().getApplicationBufferSize(),
+            serverEngine.getSession().getApplicationBufferSize());
+        int netBufSize = Math.max(clientEngine.getSession().getPacketBufferSize(),
+            serverEngine.getSession().getPacketBufferSize());
+
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer clientIn = ByteBuffer.allocate(appBufSize);
+        ByteBuffer serverIn = ByteBuffer.allocate(appBufSize);
+        ByteBuffer clientToServer = ByteBuffer.allocate(netBufSize);
+        ByteBuffer serverToClient = ByteBuffer.allocate(netBufSize);
+
+        clientEngine.beginHandshake();
+        serverEngine.beginHandshake();
+
+        for (int i = 0; isHandshaking(clientEngine) || isHandshaking(serverEngine); ++i)
+        {
+            assertTrue("handshake did not complete", i < 100);
+
+            runDelegatedTasks(clientEngine, clientEngine.wrap(empty, clientToServer));
+            runDelegatedTasks(serverEngine, serverEngine.wrap(empty, serverToClient));
+
+            clientToServer.flip();
+            serverToClient.flip();
+
+            runDelegatedTasks(clientEngine, clientEngine.unwrap(serverToClient, clientIn));
+            runDelegatedTasks(serverEngine, serverEngine.unwrap(clientToServer, serverIn));
+
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+
+        SSLSession serverSession = serverEngine.getSession();
+        assertTrue(Arrays.equals(clientEngine.getSession().getId(), serverSession.getId()));
+        return serverSession;
+    }
+
+    private static boolean isHandshaking(SSLEngine engine)
+    {
+        return HandshakeStatus.NOT_HANDSHAKING != engine.getHandshakeStatus();
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine, SSLEngineResult result)
+    {
+        if (HandshakeStatus.NEED_TASK != result.getHandshakeStatus())
+        {
+            return;
+        }
+
+        Runnable runnable;
+        while ((runnable = engine.getDelegatedTask()) != null)
+        {
+            runnable.run();
+        }
+    }
+}
@@ -2,7 +2,13 @@
 
 import java.security.SecureRandom;
 
+import org.bouncycastle.tls.NamedGroup;
+import org.bouncycastle.tls.crypto.TlsAgreement;
+import org.bouncycastle.tls.crypto.TlsECConfig;
+import org.bouncycastle.tls.crypto.TlsECDomain;
 import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsKeySharePool;
+import org.bouncycastle.util.Arrays;
 
 public class BcTlsCryptoTest
     extends TlsCryptoTest
@@ -11,4 +17,58 @@ public BcTlsCryptoTest()
     {
         super(new BcTlsCrypto(new SecureRandom()));
     }
+
+    public void testKeySharePool() throws Exception
+    {
+        int[] namedGroups = new int[]{ NamedGroup.x25519, NamedGroup.x448, NamedGroup.secp256r1 };
+
+        BcTlsCrypto pooledCrypto = new BcTlsCrypto(new SecureRandom());
+        BcTlsKeySharePool pool = new BcTlsKeySharePool(pooledCrypto.getSecureRandom(), namedGroups, 2);
+        pooledCrypto.setKeySharePool(pool);
+
+        pool.fill();
+
+        for (int i = 0; i < namedGroups.length; ++i)
+        {
+            int namedGroup = namedGroups[i];
+            assertEquals(2, pool.getAvailable(namedGroup));
+
+            TlsECDomain pooledDomain = pooledCrypto.createECDomain(new TlsECConfig(namedGroup));
+            TlsECDomain domain = crypto.createECDomain(new TlsECConfig(namedGroup));
+
+            byte[][] publicKeys = new byte[3][];
+            for (int j = 0; j < publicKeys.length; ++j)
+            {
+                TlsAgreement pooled = pooledDomain.createECDH();
+                TlsAgreement other = domain.createECDH();
+
+                publicKeys[j] = pooled.generateEphemeral();
+                other.receivePeerValue(publicKeys[j]);
+                pooled.receivePeerValue(other.generateEphemeral());
+
+                assertTrue(Arrays.areEqual(pooled.calculateSecret().extract(), other.calculateSecret().extract()));
+            }
+
+            // Two key pairs came from the pool, then the pool was empty and one was generated inline
+            assertEquals(0, pool.getAvailable(namedGroup));
+            assertFalse(Arrays.areEqual(publicKeys[0], publicKeys[1]));
+            assertFalse(Arrays.areEqual(publicKeys[1], publicKeys[2]));
+        }
+
+        pool.start();
+        try
+        {
+            long deadline = System.currentTimeMillis() + 10000L;
+            while (pool.getAvailable(NamedGroup.secp256r1) < 2 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10L);
+            }
+            assertEquals(2, pool.getAvailable(NamedGroup.secp256r1));
+        }
+        finally
+        {
+            pool.stop();
+        }
+        assertEquals(0, pool.getAvailable(NamedGroup.x25519));
+    }
 }
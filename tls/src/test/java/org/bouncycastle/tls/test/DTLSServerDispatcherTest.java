@@ -0,0 +1,462 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.security.SecureRandom;
+import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.tls.DTLSClientProtocol;
+import org.bouncycastle.tls.DTLSServerDispatcher;
+import org.bouncycastle.tls.DTLSTransport;
+import org.bouncycastle.tls.DatagramPacketTransport;
+import org.bouncycastle.tls.DatagramTransport;
+import org.bouncycastle.tls.TlsServer;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class DTLSServerDispatcherTest
+    extends TestCase
+{
+    private static final int MTU = 1500;
+
+    public void testManyClients() throws Exception
+    {
+        MockDatagramNetwork network = new MockDatagramNetwork();
+
+        DTLSServerDispatcher dispatcher = new DTLSServerDispatcher(new BcTlsCrypto(new SecureRandom()),
+            network.getServer(), new EchoHandler(), 2);
+        dispatcher.start();
+
+        try
+        {
+            ClientThread[] clients = new ClientThread[4];
+            for (int i = 0; i < clients.length; ++i)
+            {
+                clients[i] = new ClientThread(network.createClient(i), i);
+                clients[i].start();
+            }
+
+            for (int i = 0; i < clients.length; ++i)
+            {
+                clients[i].join(60000L);
+                assertTrue("client " + i + " failed", clients[i].success);
+            }
+        }
+        finally
+        {
+            dispatcher.close();
+        }
+
+        assertEquals(0, dispatcher.getAssociationCount());
+    }
+
+    public void testStalledPeer() throws Exception
+    {
+        MockDatagramNetwork network = new MockDatagramNetwork();
+
+        // A single shard, so every peer shares the stalled peer's worker
+        DTLSServerDispatcher dispatcher = new DTLSServerDispatcher(new BcTlsCrypto(new SecureRandom()),
+            network.getServer(), new EchoHandler(), 1);
+        dispatcher.start();
+
+        try
+        {
+            // Completes the cookie exchange, then goes silent mid-handshake
+            ClientThread stalled = new ClientThread(new StallingTransport(network.createClient(100), 2), 100);
+            stalled.setDaemon(true);
+            stalled.start();
+
+            for (int i = 0; i < 100 && dispatcher.getHandshakeCount() < 1; ++i)
+            {
+                Thread.sleep(50L);
+            }
+            assertEquals(1, dispatcher.getHandshakeCount());
+
+            ClientThread[] clients = new ClientThread[2];
+            for (int i = 0; i < clients.length; ++i)
+            {
+                clients[i] = new ClientThread(network.createClient(i), i);
+                clients[i].start();
+            }
+
+            for (int i = 0; i < clients.length; ++i)
+            {
+                clients[i].join(60000L);
+                assertTrue("client " + i + " failed", clients[i].success);
+            }
+
+            assertEquals(1, dispatcher.getHandshakeCount());
+        }
+        finally
+        {
+            dispatcher.close();
+        }
+    }
+
+    public void testHandshakeLimit() throws Exception
+    {
+        MockDatagramNetwork network = new MockDatagramNetwork();
+
+        DTLSServerDispatcher dispatcher = new DTLSServerDispatcher(new BcTlsCrypto(new SecureRandom()),
+            network.getServer(), new EchoHandler(), 1, 1);
+        dispatcher.start();
+
+        try
+        {
+            ClientThread stalled = new ClientThread(new StallingTransport(network.createClient(100), 2), 100);
+            stalled.setDaemon(true);
+            stalled.start();
+
+            for (int i = 0; i < 100 && dispatcher.getHandshakeCount() < 1; ++i)
+            {
+                Thread.sleep(50L);
+            }
+            assertEquals(1, dispatcher.getHandshakeCount());
+
+            // No handshake slot is free, so the new peer is kept waiting
+            ClientThread client = new ClientThread(network.createClient(0), 0);
+            client.setDaemon(true);
+            client.start();
+            client.join(3000L);
+
+            assertFalse(client.success);
+            assertEquals(1, dispatcher.getAssociationCount());
+        }
+        finally
+        {
+            dispatcher.close();
+        }
+    }
+
+    public void testHandshakeExecutor() throws Exception
+    {
+        MockDatagramNetwork network = new MockDatagramNetwork();
+
+        // A single thread runs every handshake, one after another
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        final int[] submitted = new int[1];
+        Executor executor = new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                synchronized (submitted)
+                {
+                    ++submitted[0];
+                }
+                pool.execute(command);
+            }
+        };
+
+        DTLSServerDispatcher dispatcher = new DTLSServerDispatcher(new BcTlsCrypto(new SecureRandom()),
+            network.getServer(), new EchoHandler(), 2, DTLSServerDispatcher.DEFAULT_HANDSHAKE_LIMIT, executor);
+        dispatcher.start();
+
+        try
+        {
+            ClientThread[] clients = new ClientThread[3];
+            for (int i = 0; i < clients.length; ++i)
+            {
+                clients[i] = new ClientThread(network.createClient(i), i);
+                clients[i].start();
+            }
+
+            for (int i = 0; i < clients.length; ++i)
+            {
+                clients[i].join(60000L);
+                assertTrue("client " + i + " failed", clients[i].success);
+            }
+
+            synchronized (submitted)
+            {
+                assertEquals(clients.length, submitted[0]);
+            }
+        }
+        finally
+        {
+            dispatcher.close();
+        }
+
+        // A supplied executor is left to its owner
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+
+    /**
+     * Drops every datagram the client sends after the first few.
+     */
+    static class StallingTransport
+        implements DatagramTransport
+    {
+        private final DatagramTransport transport;
+        private int sendsLeft;
+
+        StallingTransport(DatagramTransport transport, int sendCount)
+        {
+            this.transport = transport;
+            this.sendsLeft = sendCount;
+        }
+
+        public int getReceiveLimit() throws IOException
+        {
+            return transport.getReceiveLimit();
+        }
+
+        public int getSendLimit() throws IOException
+        {
+            return transport.getSendLimit();
+        }
+
+        public int receive(byte[] buf, int off, int len, int waitMillis) throws IOException
+        {
+            return transport.receive(buf, off, len, waitMillis);
+        }
+
+        public synchronized void send(byte[] buf, int off, int len) throws IOException
+        {
+            if (sendsLeft > 0)
+            {
+                --sendsLeft;
+                transport.send(buf, off, len);
+            }
+        }
+
+        public void close() throws IOException
+        {
+            transport.close();
+        }
+    }
+
+    static class ClientThread
+        extends Thread
+    {
+        private final DatagramTransport transport;
+        private final int index;
+        volatile boolean success = false;
+
+        ClientThread(DatagramTransport transport, int index)
+        {
+            this.transport = transport;
+            this.index = index;
+        }
+
+        public void run()
+        {
+            try
+            {
+                DTLSTransport dtlsClient = new DTLSClientProtocol().connect(new MockDTLSClient(null), transport);
+
+                byte[] data = new byte[10 + index];
+                Arrays.fill(data, (byte)index);
+                dtlsClient.send(data, 0, data.length);
+
+                byte[] buf = new byte[dtlsClient.getReceiveLimit()];
+                int length = dtlsClient.receive(buf, 0, buf.length, 10000);
+
+                success = Arrays.areEqual(data, Arrays.copyOf(buf, Math.max(0, length)));
+
+                dtlsClient.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    static class EchoHandler
+        implements DTLSServerDispatcher.ConnectionHandler
+    {
+        public TlsServer createServer(SocketAddress peerAddress)
+        {
+            return new MockDTLSServer();
+        }
+
+        public void notifyConnection(SocketAddress peerAddress, final DTLSTransport transport)
+        {
+            new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        byte[] buf = new byte[transport.getReceiveLimit()];
+                        for (;;)
+                        {
+                            int length = transport.receive(buf, 0, buf.length, 10000);
+                            if (length < 0)
+                            {
+                                break;
+                            }
+                            transport.send(buf, 0, length);
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        // Closed by the client
+                    }
+
+                    try
+                    {
+                        transport.close();
+                    }
+                    catch (IOException e)
+                    {
+                    }
+                }
+            }.start();
+        }
+    }
+
+    /**
+     * An in-memory network between one server endpoint and any number of clients, each with its own address.
+     */
+    static class MockDatagramNetwork
+    {
+        private final Vector serverQueue = new Vector();
+        private final Vector clients = new Vector();
+
+        DatagramPacketTransport getServer()
+        {
+            return new DatagramPacketTransport()
+            {
+                public int getReceiveLimit()
+                {
+                    return MTU;
+                }
+
+                public int getSendLimit()
+                {
+                    return MTU;
+                }
+
+                public boolean receive(DatagramPacket packet, int waitMillis) throws IOException
+                {
+                    DatagramPacket received = (DatagramPacket)take(serverQueue, waitMillis);
+                    if (null == received)
+                    {
+                        return false;
+                    }
+
+                    int copyLength = Math.min(packet.getLength(), received.getLength());
+                    System.arraycopy(received.getData(), 0, packet.getData(), packet.getOffset(), copyLength);
+                    packet.setLength(copyLength);
+                    packet.setSocketAddress(received.getSocketAddress());
+                    return true;
+                }
+
+                public void send(DatagramPacket packet)
+                {
+                    for (int i = 0; i < clients.size(); ++i)
+                    {
+                        MockClientTransport client = (MockClientTransport)clients.elementAt(i);
+                        if (client.address.equals(packet.getSocketAddress()))
+                        {
+                            put(client.receiveQueue, Arrays.copyOfRange(packet.getData(), packet.getOffset(),
+                                packet.getOffset() + packet.getLength()));
+                        }
+                    }
+                }
+
+                public void close()
+                {
+                }
+            };
+        }
+
+        DatagramTransport createClient(int index) throws IOException
+        {
+            InetSocketAddress address = new InetSocketAddress(
+                InetAddress.getByAddress(new byte[]{ 127, 0, 0, 1 }), 10000 + index);
+
+            MockClientTransport client = new MockClientTransport(address);
+            clients.addElement(client);
+            return client;
+        }
+
+        private class MockClientTransport
+            implements DatagramTransport
+        {
+            final SocketAddress address;
+            final Vector receiveQueue = new Vector();
+
+            MockClientTransport(SocketAddress address)
+            {
+                this.address = address;
+            }
+
+            public int getReceiveLimit()
+            {
+                return MTU;
+            }
+
+            public int getSendLimit()
+            {
+                return MTU;
+            }
+
+            public int receive(byte[] buf, int off, int len, int waitMillis)
+            {
+                byte[] datagram = (byte[])take(receiveQueue, waitMillis);
+                if (null == datagram)
+                {
+                    return -1;
+                }
+
+                int copyLength = Math.min(len, datagram.length);
+                System.arraycopy(datagram, 0, buf, off, copyLength);
+                return copyLength;
+            }
+
+            public void send(byte[] buf, int off, int len)
+            {
+                byte[] copy = Arrays.copyOfRange(buf, off, off + len);
+                put(serverQueue, new DatagramPacket(copy, copy.length, address));
+            }
+
+            public void close()
+            {
+            }
+        }
+
+        private static void put(Vector queue, Object element)
+        {
+            synchronized (queue)
+            {
+                queue.addElement(element);
+                queue.notify();
+            }
+        }
+
+        private static Object take(Vector queue, int waitMillis)
+        {
+            synchronized (queue)
+            {
+                if (queue.isEmpty())
+                {
+                    try
+                    {
+                        queue.wait(waitMillis);
+                    }
+                    catch (InterruptedException e)
+                    {
+                    }
+                    if (queue.isEmpty())
+                    {
+                        return null;
+                    }
+                }
+                Object element = queue.elementAt(0);
+                queue.removeElementAt(0);
+                return element;
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.security.SecureRandom;
+import java.util.Vector;
+
+import org.bouncycastle.tls.CertificateRequest;
+import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.DefaultTlsAntiReplay;
+import org.bouncycastle.tls.DefaultTlsTicketProtector;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.PskKeyExchangeMode;
+import org.bouncycastle.tls.TlsAntiReplay;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsCredentials;
+import org.bouncycastle.tls.TlsPSK;
+import org.bouncycastle.tls.TlsPSKResumption;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsTicketProtector;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13ResumptionProtocolTest
+    extends TestCase
+{
+    private static final int[] CIPHER_SUITES = new int[]{ CipherSuite.TLS_AES_128_GCM_SHA256,
+        CipherSuite.TLS_AES_256_GCM_SHA384 };
+
+    private static final int EARLY_DATA_SIZE = 500;
+
+    public void testResumption() throws Exception
+    {
+        implTestResumption(PskKeyExchangeMode.psk_dhe_ke);
+    }
+
+    public void testResumptionPSKOnly() throws Exception
+    {
+        implTestResumption(PskKeyExchangeMode.psk_ke);
+    }
+
+    public void testEarlyData() throws Exception
+    {
+        ResumptionClient client = implTestEarlyData(true, false);
+
+        assertTrue(client.earlyDataAccepted);
+    }
+
+    public void testEarlyDataRejected() throws Exception
+    {
+        ResumptionClient client = implTestEarlyData(false, false);
+
+        assertFalse(client.earlyDataAccepted);
+    }
+
+    public void testEarlyDataAfterHelloRetryRequest() throws Exception
+    {
+        ResumptionClient client = implTestEarlyData(true, true);
+
+        assertFalse(client.earlyDataAccepted);
+    }
+
+    public void testAntiReplay() throws Exception
+    {
+        long window = 1000L;
+        DefaultTlsAntiReplay antiReplay = new DefaultTlsAntiReplay(window, 1000);
+
+        SecureRandom random = new SecureRandom();
+        byte[] binder1 = new byte[32], binder2 = new byte[32];
+        random.nextBytes(binder1);
+        random.nextBytes(binder2);
+
+        long now = System.currentTimeMillis();
+
+        assertTrue(antiReplay.recordClientHello(binder1, now));
+        assertFalse(antiReplay.recordClientHello(binder1, now));
+        assertTrue(antiReplay.recordClientHello(binder2, now));
+
+        // A ClientHello is remembered for as long as it could pass the ticket age check
+        assertFalse(antiReplay.recordClientHello(binder1, now + 2 * window));
+        assertFalse(antiReplay.recordClientHello(binder2, now + 3 * window));
+
+        antiReplay.clear();
+        assertTrue(antiReplay.recordClientHello(binder1, now));
+    }
+
+    public void testTicketProtector() throws Exception
+    {
+        BcTlsCrypto crypto = new BcTlsCrypto(new SecureRandom());
+        DefaultTlsTicketProtector protector = new DefaultTlsTicketProtector(crypto);
+
+        byte[] state = new byte[100];
+        crypto.getSecureRandom().nextBytes(state);
+
+        byte[] ticket = protector.protect(state);
+        assertTrue(Arrays.areEqual(state, protector.unprotect(ticket)));
+
+        // A ticket protected under an older key is still accepted
+        protector.rotateKeys();
+        assertTrue(Arrays.areEqual(state, protector.unprotect(ticket)));
+
+        byte[] tampered = Arrays.clone(ticket);
+        tampered[40] ^= 1;
+        assertNull(protector.unprotect(tampered));
+
+        // The nonce is authenticated along with the ciphertext
+        tampered = Arrays.clone(ticket);
+        tampered[20] ^= 1;
+        assertNull(protector.unprotect(tampered));
+
+        assertNull(new DefaultTlsTicketProtector(crypto).unprotect(ticket));
+
+        protector.clearKeys();
+        assertNull(protector.unprotect(ticket));
+    }
+
+    private void implTestResumption(short pskKeyExchangeMode) throws Exception
+    {
+        TlsTicketProtector ticketProtector = new DefaultTlsTicketProtector(new BcTlsCrypto(new SecureRandom()));
+
+        ResumptionClient client1 = new ResumptionClient(null, pskKeyExchangeMode);
+        runConnection(client1, new ResumptionServer(ticketProtector));
+
+        assertNull(client1.selectedPSK);
+        assertNotNull(client1.receivedPSK);
+
+        ResumptionClient client2 = new ResumptionClient(client1.receivedPSK, pskKeyExchangeMode);
+        runConnection(client2, new ResumptionServer(ticketProtector));
+
+        assertSame(client1.receivedPSK, client2.selectedPSK);
+        assertNotNull(client2.receivedPSK);
+
+        // The server certificate is carried over from the original handshake
+        assertNotNull(client2.peerCertificate);
+        assertFalse(client2.peerCertificate.isEmpty());
+    }
+
+    private ResumptionClient implTestEarlyData(boolean acceptEarlyData, boolean emptyKeyShare) throws Exception
+    {
+        TlsTicketProtector ticketProtector = new DefaultTlsTicketProtector(new BcTlsCrypto(new SecureRandom()));
+        TlsAntiReplay antiReplay = new DefaultTlsAntiReplay();
+
+        ResumptionClient client1 = new ResumptionClient(null, PskKeyExchangeMode.psk_dhe_ke);
+        runConnection(client1, new ResumptionServer(ticketProtector, antiReplay, acceptEarlyData));
+
+        assertNotNull(client1.receivedPSK);
+        assertEquals(EARLY_DATA_SIZE, client1.receivedPSK.getMaxEarlyDataSize());
+
+        ResumptionClient client2 = new ResumptionClient(client1.receivedPSK, PskKeyExchangeMode.psk_dhe_ke);
+        client2.earlyData = new byte[EARLY_DATA_SIZE];
+        client2.getCrypto().getSecureRandom().nextBytes(client2.earlyData);
+        client2.emptyKeyShare = emptyKeyShare;
+
+        runConnection(client2, new ResumptionServer(ticketProtector, antiReplay, acceptEarlyData));
+
+        assertSame(client1.receivedPSK, client2.selectedPSK);
+        return client2;
+    }
+
+    private void runConnection(ResumptionClient client, ResumptionServer server) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
+        serverThread.start();
+
+        clientProtocol.connect(client);
+
+        // NOTE: Because we write-all before we read-any, this length can't be more than the pipe capacity
+        int length = 1000;
+
+        byte[] data = new byte[length];
+        client.getCrypto().getSecureRandom().nextBytes(data);
+
+        OutputStream output = clientProtocol.getOutputStream();
+        output.write(data);
+
+        // The server echoes any early data it accepted ahead of the data sent after the handshake
+        if (client.earlyDataAccepted)
+        {
+            data = Arrays.concatenate(client.earlyData, data);
+        }
+
+        byte[] echo = new byte[data.length];
+        int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+        assertEquals(count, data.length);
+        assertTrue(Arrays.areEqual(data, echo));
+
+        output.close();
+
+        serverThread.join();
+    }
+
+    static class ResumptionClient
+        extends MockTlsClient
+    {
+        private final TlsPSKResumption resumptionPSK;
+        private final short pskKeyExchangeMode;
+
+        byte[] earlyData = null;
+        boolean emptyKeyShare = false;
+
+        TlsPSK selectedPSK = null;
+        TlsPSKResumption receivedPSK = null;
+        org.bouncycastle.tls.Certificate peerCertificate = null;
+        boolean earlyDataAccepted = false;
+
+        ResumptionClient(TlsPSKResumption resumptionPSK, short pskKeyExchangeMode)
+        {
+            super(null);
+
+            this.resumptionPSK = resumptionPSK;
+            this.pskKeyExchangeMode = pskKeyExchangeMode;
+        }
+
+        protected int[] getSupportedCipherSuites()
+        {
+            return TlsUtils.getSupportedCipherSuites(getCrypto(), CIPHER_SUITES);
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return ProtocolVersion.TLSv13.only();
+        }
+
+        public short[] getPskKeyExchangeModes()
+        {
+            return new short[]{ pskKeyExchangeMode };
+        }
+
+        public TlsPSKResumption getResumptionPSK()
+        {
+            return resumptionPSK;
+        }
+
+        public byte[] getEarlyData()
+        {
+            return earlyData;
+        }
+
+        public Vector getEarlyKeyShareGroups()
+        {
+            // An empty key_share gets a HelloRetryRequest from the server
+            return emptyKeyShare ? null : super.getEarlyKeyShareGroups();
+        }
+
+        public void notifyResumptionPSK(TlsPSKResumption resumptionPSK) throws IOException
+        {
+            this.receivedPSK = resumptionPSK;
+        }
+
+        public void notifySelectedPSK(TlsPSK selectedPSK) throws IOException
+        {
+            this.selectedPSK = selectedPSK;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.peerCertificate = context.getSecurityParametersConnection().getPeerCertificate();
+            this.earlyDataAccepted = context.getSecurityParametersConnection().isEarlyDataAccepted();
+        }
+    }
+
+    static class ResumptionServer
+        extends MockTlsServer
+    {
+        private final TlsTicketProtector ticketProtector;
+        private final TlsAntiReplay antiReplay;
+        private final boolean acceptEarlyData;
+
+        ResumptionServer(TlsTicketProtector ticketProtector)
+        {
+            this(ticketProtector, null, false);
+        }
+
+        ResumptionServer(TlsTicketProtector ticketProtector, TlsAntiReplay antiReplay, boolean acceptEarlyData)
+        {
+            this.ticketProtector = ticketProtector;
+            this.antiReplay = antiReplay;
+            this.acceptEarlyData = acceptEarlyData;
+        }
+
+        protected int[] getSupportedCipherSuites()
+        {
+            return TlsUtils.getSupportedCipherSuites(getCrypto(), CIPHER_SUITES);
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return ProtocolVersion.TLSv13.only();
+        }
+
+        public CertificateRequest getCertificateRequest() throws IOException
+        {
+            return null;
+        }
+
+        public TlsCredentials getCredentials() throws IOException
+        {
+            return getRSASignerCredentials();
+        }
+
+        public short[] getPskKeyExchangeModes()
+        {
+            return new short[]{ PskKeyExchangeMode.psk_dhe_ke, PskKeyExchangeMode.psk_ke };
+        }
+
+        public TlsTicketProtector getTicketProtector()
+        {
+            return ticketProtector;
+        }
+
+        public long getMaxEarlyDataSize()
+        {
+            return null == antiReplay ? 0L : EARLY_DATA_SIZE;
+        }
+
+        public TlsAntiReplay getAntiReplay()
+        {
+            return antiReplay;
+        }
+
+        public boolean acceptEarlyData() throws IOException
+        {
+            return acceptEarlyData;
+        }
+    }
+
+    static class ServerThread
+        extends Thread
+    {
+        private final TlsServerProtocol serverProtocol;
+        private final ResumptionServer server;
+
+        ServerThread(TlsServerProtocol serverProtocol, ResumptionServer server)
+        {
+            this.serverProtocol = serverProtocol;
+            this.server = server;
+        }
+
+        public void run()
+        {
+            try
+            {
+                serverProtocol.accept(server);
+                Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
+                serverProtocol.close();
+            }
+            catch (Exception e)
+            {
+//                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.TlsClientProtocol;
 import org.bouncycastle.tls.TlsProtocol;
@@ -12,18 +13,57 @@
 public class TlsProtocolNonBlockingTest
     extends TestCase
 {
+    private static final int NON_FRAGMENTED = 0;
+    private static final int FRAGMENTED = 1;
+    private static final int CHUNKED = 2;
+    private static final int DIRECT_BUFFERS = 3;
+    private static final int GATHERED = 4;
+    private static final int DELEGATED = 5;
+
     public void testClientServerFragmented() throws IOException
     {
         // tests if it's really non-blocking when partial records arrive
-        testClientServer(true);
+        testClientServer(FRAGMENTED);
     }
 
     public void testClientServerNonFragmented() throws IOException
     {
-        testClientServer(false);
+        testClientServer(NON_FRAGMENTED);
+    }
+
+    public void testClientServerChunked() throws IOException
+    {
+        // each chunk may end records begun in an earlier chunk, hold whole records, and begin new ones
+        testClientServer(CHUNKED);
     }
 
-    private static void testClientServer(boolean fragment) throws IOException
+    public void testClientServerDirectBuffers() throws IOException
+    {
+        testClientServer(DIRECT_BUFFERS);
+    }
+
+    public void testClientServerDirectBuffersLarge() throws IOException
+    {
+        // direct input spanning several records is processed a record's worth at a time
+        testClientServer(DIRECT_BUFFERS, 100000);
+    }
+
+    public void testClientServerGathered() throws IOException
+    {
+        testClientServer(GATHERED);
+    }
+
+    public void testClientServerDelegated() throws IOException
+    {
+        testClientServer(DELEGATED);
+    }
+
+    private static void testClientServer(int mode) throws IOException
+    {
+        testClientServer(mode, 1024);
+    }
+
+    private static void testClientServer(int mode, int dataSize) throws IOException
     {
         TlsClientProtocol clientProtocol = new TlsClientProtocol();
         TlsServerProtocol serverProtocol = new TlsServerProtocol();
@@ -31,6 +71,12 @@ private static void testClientServer(boolean fragment) throws IOException
         MockTlsClient client = new MockTlsClient(null);
         MockTlsServer server = new MockTlsServer();
 
+        if (DELEGATED == mode)
+        {
+            clientProtocol.setDelegatedTasksEnabled(true);
+            serverProtocol.setDelegatedTasksEnabled(true);
+        }
+
         clientProtocol.connect(client);
         serverProtocol.accept(server);
 
@@ -39,39 +85,86 @@ private static void testClientServer(boolean fragment) throws IOException
         boolean hadDataFromClient = true;
         while (hadDataFromServer || hadDataFromClient)
         {
-            hadDataFromServer = pumpData(serverProtocol, clientProtocol, fragment);
-            hadDataFromClient = pumpData(clientProtocol, serverProtocol, fragment);
+            hadDataFromServer = pumpData(serverProtocol, clientProtocol, mode);
+            hadDataFromClient = pumpData(clientProtocol, serverProtocol, mode);
         }
 
         // send data in both directions
-        byte[] data = new byte[1024];
+        byte[] data = new byte[dataSize];
         client.getCrypto().getSecureRandom().nextBytes(data);
 
-        writeAndRead(clientProtocol, serverProtocol, data, fragment);
-        writeAndRead(serverProtocol, clientProtocol, data, fragment);
+        writeAndRead(clientProtocol, serverProtocol, data, mode);
+        writeAndRead(serverProtocol, clientProtocol, data, mode);
+
+        if (GATHERED == mode)
+        {
+            // invalid buffers are rejected before anything is written
+            ByteBuffer[] srcs = new ByteBuffer[]{ ByteBuffer.wrap(data), null };
+            try
+            {
+                clientProtocol.writeApplicationData(srcs, 0, srcs.length);
+                fail("null buffer accepted");
+            }
+            catch (NullPointerException e)
+            {
+                // expected
+            }
+            assertEquals(data.length, srcs[0].remaining());
+            assertEquals(0, clientProtocol.getAvailableOutputBytes());
+
+            writeAndRead(clientProtocol, serverProtocol, data, mode);
+        }
 
         // close the connection
         clientProtocol.close();
-        pumpData(clientProtocol, serverProtocol, fragment);
+        pumpData(clientProtocol, serverProtocol, mode);
         serverProtocol.closeInput();
         checkClosed(serverProtocol);
         checkClosed(clientProtocol);
     }
 
-    private static void writeAndRead(TlsProtocol writer, TlsProtocol reader, byte[] data, boolean fragment)
+    private static void writeAndRead(TlsProtocol writer, TlsProtocol reader, byte[] data, int mode)
         throws IOException
     {
         int dataSize = data.length;
-        writer.writeApplicationData(data, 0, dataSize);
-        pumpData(writer, reader, fragment);
+        if (GATHERED == mode)
+        {
+            // heap, direct, empty and read-only buffers are gathered together
+            ByteBuffer direct = ByteBuffer.allocateDirect(300);
+            direct.put(data, 100, 300).flip();
+
+            ByteBuffer[] srcs = new ByteBuffer[]{ ByteBuffer.wrap(data, 0, 100), direct, ByteBuffer.allocate(0),
+                ByteBuffer.wrap(data, 400, 24).asReadOnlyBuffer(), ByteBuffer.wrap(data, 424, dataSize - 424) };
+            writer.writeApplicationData(srcs, 0, srcs.length);
+
+            for (int i = 0; i < srcs.length; ++i)
+            {
+                assertFalse(srcs[i].hasRemaining());
+            }
+        }
+        else
+        {
+            writer.writeApplicationData(data, 0, dataSize);
+        }
+        pumpData(writer, reader, mode);
 
         assertEquals(dataSize, reader.getAvailableInputBytes());
         byte[] readData = new byte[dataSize];
-        reader.readInput(readData, 0, dataSize);
+        if (DIRECT_BUFFERS == mode)
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(dataSize);
+            assertEquals(dataSize, reader.readInput(buffer));
+            buffer.flip();
+            buffer.get(readData);
+        }
+        else
+        {
+            reader.readInput(readData, 0, dataSize);
+        }
         assertArrayEquals(data, readData);
     }
 
-    private static boolean pumpData(TlsProtocol from, TlsProtocol to, boolean fragment) throws IOException
+    private static boolean pumpData(TlsProtocol from, TlsProtocol to, int mode) throws IOException
     {
         int byteCount = from.getAvailableOutputBytes();
         if (byteCount == 0)
@@ -79,7 +172,24 @@ private static boolean pumpData(TlsProtocol from, TlsProtocol to, boolean fragme
             return false;
         }
 
-        if (fragment)
+        if (DIRECT_BUFFERS == mode)
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(byteCount);
+            assertEquals(byteCount, from.readOutput(buffer));
+            buffer.flip();
+            to.offerInput(buffer);
+            assertFalse(buffer.hasRemaining());
+        }
+        else if (CHUNKED == mode)
+        {
+            byte[] buffer = new byte[100];
+            while (from.getAvailableOutputBytes() > 0)
+            {
+                int count = from.readOutput(buffer, 0, buffer.length);
+                to.offerInput(buffer, 0, count);
+            }
+        }
+        else if (FRAGMENTED == mode)
         {
             byte[] buffer = new byte[1];
             while (from.getAvailableOutputBytes() > 0)
@@ -95,6 +205,25 @@ private static boolean pumpData(TlsProtocol from, TlsProtocol to, boolean fragme
             to.offerInput(buffer);
         }
 
+        if (DELEGATED == mode)
+        {
+            // run each task on another thread, as a worker pool would
+            Runnable task;
+            while ((task = to.getDelegatedTask()) != null)
+            {
+                Thread worker = new Thread(task);
+                worker.start();
+                try
+                {
+                    worker.join();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new IOException(e.toString());
+                }
+            }
+        }
+
         return true;
     }
 
@@ -0,0 +1,237 @@
+package org.bouncycastle.tls.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
+import org.bouncycastle.tls.Certificate;
+import org.bouncycastle.tls.CipherSuite;
+import org.bouncycastle.tls.CompressionMethod;
+import org.bouncycastle.tls.DefaultTlsTicketProtector;
+import org.bouncycastle.tls.FileTlsSessionStore;
+import org.bouncycastle.tls.InMemoryTlsSessionStore;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SessionParameters;
+import org.bouncycastle.tls.TlsSessionStore;
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TlsSessionStoreTest
+    extends TestCase
+{
+    public void testSessionParametersEncoding() throws Exception
+    {
+        TlsCrypto crypto = new BcTlsCrypto(new SecureRandom());
+
+        byte[] master = new byte[48];
+        crypto.getSecureRandom().nextBytes(master);
+
+        Certificate peerCertificate = TlsTestUtils.loadCertificateChain(ProtocolVersion.TLSv12, crypto,
+            new String[]{ "x509-server-rsa-sign.pem", "x509-ca-rsa.pem" });
+
+        SessionParameters sessionParameters = new SessionParameters.Builder()
+            .setCipherSuite(CipherSuite.TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256)
+            .setCompressionAlgorithm(CompressionMethod._null)
+            .setExtendedMasterSecret(true)
+            .setMasterSecret(crypto.createSecret(Arrays.clone(master)))
+            .setNegotiatedVersion(ProtocolVersion.TLSv12)
+            .setPeerCertificate(peerCertificate)
+            .setPSKIdentity(new byte[]{ 1, 2, 3 })
+            .build();
+
+        byte[] encoding = sessionParameters.encode(crypto);
+
+        // Encoding doesn't consume the master secret
+        assertTrue(Arrays.areEqual(encoding, sessionParameters.encode(crypto)));
+
+        SessionParameters parsed = SessionParameters.parse(crypto, encoding);
+
+        assertEquals(sessionParameters.getCipherSuite(), parsed.getCipherSuite());
+        assertEquals(sessionParameters.getCompressionAlgorithm(), parsed.getCompressionAlgorithm());
+        assertEquals(sessionParameters.isExtendedMasterSecret(), parsed.isExtendedMasterSecret());
+        assertEquals(sessionParameters.getNegotiatedVersion(), parsed.getNegotiatedVersion());
+        assertTrue(Arrays.areEqual(master, parsed.getMasterSecret().extract()));
+        assertNull(parsed.getLocalCertificate());
+        assertEquals(peerCertificate.getLength(), parsed.getPeerCertificate().getLength());
+        assertTrue(Arrays.areEqual(peerCertificate.getCertificateAt(0).getEncoded(),
+            parsed.getPeerCertificate().getCertificateAt(0).getEncoded()));
+        assertTrue(Arrays.areEqual(sessionParameters.getPSKIdentity(), parsed.getPSKIdentity()));
+        assertNull(parsed.getSRPIdentity());
+        assertNull(parsed.readServerExtensions());
+    }
+
+    public void testInMemoryStore() throws Exception
+    {
+        implTestStore(new InMemoryTlsSessionStore());
+    }
+
+    public void testFileStore() throws Exception
+    {
+        File directory = File.createTempFile("tls-session-store", "");
+        assertTrue(directory.delete());
+
+        try
+        {
+            FileTlsSessionStore store = new FileTlsSessionStore(directory);
+            implTestStore(store);
+
+            store.removeExpiredSessions();
+        }
+        finally
+        {
+            File[] files = directory.listFiles();
+            for (int i = 0; null != files && i < files.length; ++i)
+            {
+                files[i].delete();
+            }
+            directory.delete();
+        }
+    }
+
+    public void testSharedTicketKeys() throws Exception
+    {
+        TlsCrypto crypto = new BcTlsCrypto(new SecureRandom());
+        TlsSessionStore store = new InMemoryTlsSessionStore();
+
+        DefaultTlsTicketProtector protector1 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store);
+        DefaultTlsTicketProtector protector2 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store);
+
+        byte[] state = new byte[100];
+        crypto.getSecureRandom().nextBytes(state);
+
+        byte[] ticket = protector1.protect(state);
+        assertTrue(Arrays.areEqual(state, protector2.unprotect(ticket)));
+
+        // The second instance protects new tickets under the shared key too
+        assertTrue(Arrays.areEqual(state, protector1.unprotect(protector2.protect(state))));
+
+        DefaultTlsTicketProtector unshared = new DefaultTlsTicketProtector(crypto, 3600L, 600L,
+            new InMemoryTlsSessionStore());
+        assertNull(unshared.unprotect(ticket));
+    }
+
+    public void testClearKeysDuringProtect() throws Exception
+    {
+        TlsCrypto crypto = new BcTlsCrypto(new SecureRandom());
+        TlsSessionStore store = new InMemoryTlsSessionStore();
+
+        // Clears the keys while a ticket is being protected, as a concurrent clearKeys() call can
+        DefaultTlsTicketProtector protector1 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store)
+        {
+            protected AEADBlockCipher createCipher()
+            {
+                clearKeys();
+                return super.createCipher();
+            }
+        };
+        DefaultTlsTicketProtector protector2 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store);
+
+        byte[] state = new byte[100];
+        crypto.getSecureRandom().nextBytes(state);
+
+        // The ticket must still be protected under the (shared) key that was current
+        byte[] ticket = protector1.protect(state);
+        assertTrue(Arrays.areEqual(state, protector2.unprotect(ticket)));
+    }
+
+    public void testKeyStoreFailure() throws Exception
+    {
+        TlsCrypto crypto = new BcTlsCrypto(new SecureRandom());
+        FailingTlsSessionStore store = new FailingTlsSessionStore();
+
+        DefaultTlsTicketProtector protector1 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store);
+        DefaultTlsTicketProtector protector2 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store);
+
+        byte[] state = new byte[100];
+        crypto.getSecureRandom().nextBytes(state);
+
+        byte[] ticket = protector1.protect(state);
+
+        store.failing = true;
+
+        // The local key stays in use, but a protector needing the store issues no ticket
+        assertTrue(Arrays.areEqual(state, protector1.unprotect(protector1.protect(state))));
+        assertNull(protector2.unprotect(ticket));
+        assertNull(protector2.protect(state));
+
+        // A failed rotation leaves the keys unchanged
+        try
+        {
+            protector1.rotateKeys();
+            fail("rotation not stored");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertTrue(Arrays.areEqual(state, protector1.unprotect(protector1.protect(state))));
+
+        store.failing = false;
+
+        // A key ring that can't be decoded is ignored
+        store.putTicketKeys(new byte[]{ 0, 1, 2, 3 });
+
+        DefaultTlsTicketProtector protector3 = new DefaultTlsTicketProtector(crypto, 3600L, 600L, store);
+        assertNull(protector3.unprotect(ticket));
+        assertNull(protector3.protect(state));
+        assertTrue(Arrays.areEqual(state, protector1.unprotect(ticket)));
+    }
+
+    private void implTestStore(TlsSessionStore store) throws Exception
+    {
+        byte[] id1 = new byte[]{ 1, 2, 3, 4 };
+        byte[] id2 = new byte[]{ 5, 6, 7, 8 };
+        byte[] encoding1 = new byte[]{ 10, 11, 12 };
+        byte[] encoding2 = new byte[]{ 13, 14 };
+
+        long now = System.currentTimeMillis();
+
+        assertNull(store.getSession(id1));
+
+        store.putSession(id1, encoding1, now + 60000L);
+        store.putSession(id2, encoding2, now - 1L);
+
+        assertTrue(Arrays.areEqual(encoding1, store.getSession(id1)));
+        assertNull(store.getSession(id2));
+
+        store.putSession(id1, encoding2, now + 60000L);
+        assertTrue(Arrays.areEqual(encoding2, store.getSession(id1)));
+
+        store.removeSession(id1);
+        assertNull(store.getSession(id1));
+
+        assertNull(store.getTicketKeys());
+        store.putTicketKeys(encoding1);
+        assertTrue(Arrays.areEqual(encoding1, store.getTicketKeys()));
+    }
+
+    private static class FailingTlsSessionStore
+        extends InMemoryTlsSessionStore
+    {
+        volatile boolean failing = false;
+
+        public byte[] getTicketKeys() throws IOException
+        {
+            checkFailing();
+            return super.getTicketKeys();
+        }
+
+        public void putTicketKeys(byte[] encoding) throws IOException
+        {
+            checkFailing();
+            super.putTicketKeys(encoding);
+        }
+
+        private void checkFailing() throws IOException
+        {
+            if (failing)
+            {
+                throw new IOException("store unavailable");
+            }
+        }
+    }
+}